@@ -0,0 +1,21 @@
+package com.example.documentstorage.config;
+
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.context.annotation.Bean;
+import org.springframework.context.annotation.Configuration;
+
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+
+@Configuration
+public class StorageExecutorConfig {
+
+    /**
+     * The threads on which section files are written and read in parallel. Kept apart from the request threads,
+     * so that the number of concurrent disk operations is bounded by the number of threads.
+     */
+    @Bean(destroyMethod = "shutdown")
+    public ExecutorService storageExecutor(@Value("${document.storage.io.threads}") int threads) {
+        return Executors.newFixedThreadPool(threads, Thread.ofPlatform().name("storage-io-", 0).daemon().factory());
+    }
+}
@@ -1,24 +1,44 @@
 package com.example.documentstorage.config.filters;
 
 import jakarta.servlet.*;
+import jakarta.servlet.http.HttpServletRequest;
 import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.core.annotation.Order;
 import org.springframework.stereotype.Component;
+import org.springframework.util.AntPathMatcher;
 import org.springframework.web.util.ContentCachingResponseWrapper;
 
 import java.io.IOException;
+import java.util.List;
 
 @Component
 @Order(1)
 public class ResponseCacheFilter implements Filter {
+    // Responses that are streamed directly to the client and must not be cached in memory
+    private static final List<String> STREAMED_PATHS = List.of(
+            "/api/data-records/*/sections/*/download",
+            "/api/data-records/*/sections/archive"
+    );
+
+    private final AntPathMatcher pathMatcher = new AntPathMatcher();
 
     @Override
     public void doFilter(ServletRequest servletRequest, ServletResponse servletResponse, FilterChain filterChain)
             throws IOException, ServletException {
+        if (isStreamed((HttpServletRequest) servletRequest)) {
+            filterChain.doFilter(servletRequest, servletResponse);
+            return;
+        }
+
         ContentCachingResponseWrapper servletResponseWrapper =
                 new ContentCachingResponseWrapper((HttpServletResponse) servletResponse);
         filterChain.doFilter(servletRequest, servletResponseWrapper);
         //Copies the response to the client response writer
         servletResponseWrapper.copyBodyToResponse();
     }
+
+    private boolean isStreamed(HttpServletRequest request) {
+        String path = request.getRequestURI().substring(request.getContextPath().length());
+        return STREAMED_PATHS.stream().anyMatch(pattern -> pathMatcher.match(pattern, path));
+    }
 }
@@ -1,6 +1,7 @@
 package com.example.documentstorage.entities;
 
 import jakarta.persistence.*;
+import org.hibernate.annotations.ColumnDefault;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.jpa.domain.support.AuditingEntityListener;
@@ -27,6 +28,15 @@ public class DataRecord {
     @OneToMany(cascade = {CascadeType.PERSIST, CascadeType.MERGE}, fetch = FetchType.LAZY, orphanRemoval = true, mappedBy = "dataRecord")
     private List<Section> sections;
 
+    // Changed only by bulk updates in the transactions that add or remove sections, never by saving the data record
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long usedBytes;
+
+    @ColumnDefault("0")
+    @Column(nullable = false, updatable = false)
+    private long sectionCount;
+
     @Version
     private long version;
 
@@ -121,4 +131,20 @@ public class DataRecord {
     public void setModifiedAt(LocalDateTime modifiedAt) {
         this.modifiedAt = modifiedAt;
     }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public void setUsedBytes(long usedBytes) {
+        this.usedBytes = usedBytes;
+    }
+
+    public long getSectionCount() {
+        return sectionCount;
+    }
+
+    public void setSectionCount(long sectionCount) {
+        this.sectionCount = sectionCount;
+    }
 }
@@ -0,0 +1,131 @@
+package com.example.documentstorage.entities;
+
+import com.example.documentstorage.features.ingestion.IngestionJobStatus;
+import jakarta.persistence.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * The ingestion of the files listed in the manifest of a directory below the ingestion path. The number of
+ * processed manifest lines is the checkpoint of the job. It is updated in the transaction that adds the sections of
+ * the lines, so a restarted job continues right after the last committed batch.
+ */
+@Entity
+@Table(name = "ingestion_jobs")
+@EntityListeners(AuditingEntityListener.class)
+public class IngestionJob {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    // Relative to the ingestion path
+    @Column(nullable = false, unique = true)
+    private String directory;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IngestionJobStatus status;
+
+    private long processedLines;
+
+    private long ingestedFiles;
+
+    private long failedFiles;
+
+    @Column(length = 1000)
+    private String failureMessage;
+
+    @Version
+    private long version;
+
+    @CreatedDate
+    @Column(updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(nullable = false)
+    private LocalDateTime modifiedAt;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getDirectory() {
+        return directory;
+    }
+
+    public void setDirectory(String directory) {
+        this.directory = directory;
+    }
+
+    public IngestionJobStatus getStatus() {
+        return status;
+    }
+
+    public void setStatus(IngestionJobStatus status) {
+        this.status = status;
+    }
+
+    public long getProcessedLines() {
+        return processedLines;
+    }
+
+    public void setProcessedLines(long processedLines) {
+        this.processedLines = processedLines;
+    }
+
+    public long getIngestedFiles() {
+        return ingestedFiles;
+    }
+
+    public void setIngestedFiles(long ingestedFiles) {
+        this.ingestedFiles = ingestedFiles;
+    }
+
+    public long getFailedFiles() {
+        return failedFiles;
+    }
+
+    public void setFailedFiles(long failedFiles) {
+        this.failedFiles = failedFiles;
+    }
+
+    public String getFailureMessage() {
+        return failureMessage;
+    }
+
+    public void setFailureMessage(String failureMessage) {
+        this.failureMessage = failureMessage;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public void setModifiedAt(LocalDateTime modifiedAt) {
+        this.modifiedAt = modifiedAt;
+    }
+}
@@ -0,0 +1,48 @@
+package com.example.documentstorage.entities;
+
+import jakarta.persistence.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * The content of a section small enough to be kept in the database instead of a file. It is kept in its own table,
+ * keyed by the storage location of the section, so that the sections are loaded without their content. It is
+ * added and removed in the same transaction as its section.
+ */
+@Entity
+@Table(name = "inline_section_contents")
+@EntityListeners(AuditingEntityListener.class)
+public class InlineSectionContent {
+    @Id
+    private String storageLocation;
+
+    @Lob
+    @Column(nullable = false)
+    private byte[] content;
+
+    @CreatedDate
+    @Column(updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+
+    public String getStorageLocation() {
+        return storageLocation;
+    }
+
+    public void setStorageLocation(String storageLocation) {
+        this.storageLocation = storageLocation;
+    }
+
+    public byte[] getContent() {
+        return content;
+    }
+
+    public void setContent(byte[] content) {
+        this.content = content;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+}
@@ -1,5 +1,6 @@
 package com.example.documentstorage.entities;
 
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
 import jakarta.persistence.*;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
@@ -21,6 +22,19 @@ public class Section {
 
     private String contentType;
 
+    private long fileSize;
+
+    private String checksum;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ContentEncoding contentEncoding = ContentEncoding.IDENTITY;
+
+    // Updated in batches by bulk updates, which do not change the version of the section
+    private long accessCount;
+
+    private LocalDateTime lastAccessedAt;
+
     @ManyToOne(fetch = FetchType.LAZY, optional = false)
     @JoinColumn(name = "data_record_id", nullable = false)
     private DataRecord dataRecord;
@@ -68,6 +82,46 @@ public class Section {
         this.contentType = contentType;
     }
 
+    public long getFileSize() {
+        return fileSize;
+    }
+
+    public void setFileSize(long fileSize) {
+        this.fileSize = fileSize;
+    }
+
+    public String getChecksum() {
+        return checksum;
+    }
+
+    public void setChecksum(String checksum) {
+        this.checksum = checksum;
+    }
+
+    public ContentEncoding getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public void setContentEncoding(ContentEncoding contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    public long getAccessCount() {
+        return accessCount;
+    }
+
+    public void setAccessCount(long accessCount) {
+        this.accessCount = accessCount;
+    }
+
+    public LocalDateTime getLastAccessedAt() {
+        return lastAccessedAt;
+    }
+
+    public void setLastAccessedAt(LocalDateTime lastAccessedAt) {
+        this.lastAccessedAt = lastAccessedAt;
+    }
+
     public DataRecord getDataRecord() {
         return dataRecord;
     }
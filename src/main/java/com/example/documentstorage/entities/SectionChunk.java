@@ -0,0 +1,96 @@
+package com.example.documentstorage.entities;
+
+import jakarta.persistence.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * One chunk of a section stored in chunks. The content of the section is the content of its chunks, in the order
+ * of their index. The chunk itself is a {@link StorageBlob}, whose reference count includes every section chunk
+ * that references it.
+ */
+@Entity
+@Table(name = "section_chunks", indexes = @Index(columnList = "storageLocation"))
+@EntityListeners(AuditingEntityListener.class)
+public class SectionChunk {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private int id;
+
+    @Column(nullable = false)
+    private String storageLocation;
+
+    private int chunkIndex;
+
+    @Column(nullable = false, length = 64)
+    private String chunkHash;
+
+    private long length;
+
+    @CreatedDate
+    @Column(updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(nullable = false)
+    private LocalDateTime modifiedAt;
+
+    public int getId() {
+        return id;
+    }
+
+    public void setId(int id) {
+        this.id = id;
+    }
+
+    public String getStorageLocation() {
+        return storageLocation;
+    }
+
+    public void setStorageLocation(String storageLocation) {
+        this.storageLocation = storageLocation;
+    }
+
+    public int getChunkIndex() {
+        return chunkIndex;
+    }
+
+    public void setChunkIndex(int chunkIndex) {
+        this.chunkIndex = chunkIndex;
+    }
+
+    public String getChunkHash() {
+        return chunkHash;
+    }
+
+    public void setChunkHash(String chunkHash) {
+        this.chunkHash = chunkHash;
+    }
+
+    public long getLength() {
+        return length;
+    }
+
+    public void setLength(long length) {
+        this.length = length;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public void setModifiedAt(LocalDateTime modifiedAt) {
+        this.modifiedAt = modifiedAt;
+    }
+}
@@ -0,0 +1,119 @@
+package com.example.documentstorage.entities;
+
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityCheckSource;
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityFailureReason;
+import jakarta.persistence.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * A stored section file that did not match the checksum of its section. There is one failure per section and
+ * storage location, detecting it again updates the existing failure. The section is not referenced, so the
+ * failure is kept after the section has been removed.
+ */
+@Entity
+@Table(name = "section_integrity_failures",
+        uniqueConstraints = @UniqueConstraint(columnNames = {"section_id", "storage_location"}))
+@EntityListeners(AuditingEntityListener.class)
+public class SectionIntegrityFailure {
+    @Id
+    @GeneratedValue(strategy = GenerationType.IDENTITY)
+    private long id;
+
+    private int sectionId;
+
+    private String storageLocation;
+
+    private String expectedChecksum;
+
+    private String actualChecksum;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IntegrityFailureReason reason;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private IntegrityCheckSource detectedBy;
+
+    @Column(nullable = false)
+    private LocalDateTime detectedAt;
+
+    @CreatedDate
+    @Column(updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+
+    public long getId() {
+        return id;
+    }
+
+    public void setId(long id) {
+        this.id = id;
+    }
+
+    public int getSectionId() {
+        return sectionId;
+    }
+
+    public void setSectionId(int sectionId) {
+        this.sectionId = sectionId;
+    }
+
+    public String getStorageLocation() {
+        return storageLocation;
+    }
+
+    public void setStorageLocation(String storageLocation) {
+        this.storageLocation = storageLocation;
+    }
+
+    public String getExpectedChecksum() {
+        return expectedChecksum;
+    }
+
+    public void setExpectedChecksum(String expectedChecksum) {
+        this.expectedChecksum = expectedChecksum;
+    }
+
+    public String getActualChecksum() {
+        return actualChecksum;
+    }
+
+    public void setActualChecksum(String actualChecksum) {
+        this.actualChecksum = actualChecksum;
+    }
+
+    public IntegrityFailureReason getReason() {
+        return reason;
+    }
+
+    public void setReason(IntegrityFailureReason reason) {
+        this.reason = reason;
+    }
+
+    public IntegrityCheckSource getDetectedBy() {
+        return detectedBy;
+    }
+
+    public void setDetectedBy(IntegrityCheckSource detectedBy) {
+        this.detectedBy = detectedBy;
+    }
+
+    public LocalDateTime getDetectedAt() {
+        return detectedAt;
+    }
+
+    public void setDetectedAt(LocalDateTime detectedAt) {
+        this.detectedAt = detectedAt;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+}
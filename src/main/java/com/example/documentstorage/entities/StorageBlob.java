@@ -0,0 +1,98 @@
+package com.example.documentstorage.entities;
+
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import jakarta.persistence.*;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+
+/**
+ * A file stored once by its content hash and shared by all the sections with the same content.
+ * The reference count is the number of sections that reference the blob. It is changed in the same transaction
+ * that adds or removes the section, so the blob can be removed safely when the count reaches zero.
+ */
+@Entity
+@Table(name = "storage_blobs")
+@EntityListeners(AuditingEntityListener.class)
+public class StorageBlob {
+    @Id
+    @Column(length = 64)
+    private String hash;
+
+    private long referenceCount;
+
+    private long size;
+
+    @Enumerated(EnumType.STRING)
+    @Column(nullable = false)
+    private ContentEncoding contentEncoding = ContentEncoding.IDENTITY;
+
+    @Version
+    private long version;
+
+    @CreatedDate
+    @Column(updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(nullable = false)
+    private LocalDateTime modifiedAt;
+
+    public String getHash() {
+        return hash;
+    }
+
+    public void setHash(String hash) {
+        this.hash = hash;
+    }
+
+    public long getReferenceCount() {
+        return referenceCount;
+    }
+
+    public void setReferenceCount(long referenceCount) {
+        this.referenceCount = referenceCount;
+    }
+
+    public long getSize() {
+        return size;
+    }
+
+    public void setSize(long size) {
+        this.size = size;
+    }
+
+    public ContentEncoding getContentEncoding() {
+        return contentEncoding;
+    }
+
+    public void setContentEncoding(ContentEncoding contentEncoding) {
+        this.contentEncoding = contentEncoding;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public void setModifiedAt(LocalDateTime modifiedAt) {
+        this.modifiedAt = modifiedAt;
+    }
+}
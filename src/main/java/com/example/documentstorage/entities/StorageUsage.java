@@ -0,0 +1,50 @@
+package com.example.documentstorage.entities;
+
+import jakarta.persistence.*;
+
+/**
+ * One stripe of the usage counters of the whole store. The counters are spread over several rows, chosen by the
+ * data record, so that concurrent uploads to different data records do not wait for the lock of a single row.
+ * The usage of the store is the sum of all the stripes.
+ */
+@Entity
+@Table(name = "storage_usages")
+public class StorageUsage {
+    @Id
+    private int stripe;
+
+    private long usedBytes;
+
+    private long sectionCount;
+
+    public StorageUsage() {
+    }
+
+    public StorageUsage(int stripe) {
+        this.stripe = stripe;
+    }
+
+    public int getStripe() {
+        return stripe;
+    }
+
+    public void setStripe(int stripe) {
+        this.stripe = stripe;
+    }
+
+    public long getUsedBytes() {
+        return usedBytes;
+    }
+
+    public void setUsedBytes(long usedBytes) {
+        this.usedBytes = usedBytes;
+    }
+
+    public long getSectionCount() {
+        return sectionCount;
+    }
+
+    public void setSectionCount(long sectionCount) {
+        this.sectionCount = sectionCount;
+    }
+}
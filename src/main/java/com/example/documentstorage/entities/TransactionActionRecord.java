@@ -2,8 +2,8 @@ package com.example.documentstorage.entities;
 
 
 import com.example.documentstorage.shared.base.filestorage.ActionType;
+import com.example.documentstorage.shared.base.ids.TimeOrderedUuid;
 import jakarta.persistence.*;
-import org.hibernate.annotations.UuidGenerator;
 import org.springframework.data.annotation.CreatedDate;
 import org.springframework.data.annotation.LastModifiedDate;
 import org.springframework.data.annotation.Version;
@@ -26,7 +26,7 @@ import java.util.UUID;
 @Table(name = "transaction_action_records")
 public class TransactionActionRecord {
     @Id
-    @UuidGenerator
+    @TimeOrderedUuid
     private UUID id;
 
     @Column(name = "storage_location")
@@ -0,0 +1,146 @@
+package com.example.documentstorage.entities;
+
+import jakarta.persistence.*;
+import org.hibernate.annotations.UuidGenerator;
+import org.springframework.data.annotation.CreatedDate;
+import org.springframework.data.annotation.LastModifiedDate;
+import org.springframework.data.jpa.domain.support.AuditingEntityListener;
+
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.UUID;
+
+/**
+ * A section upload sent in numbered parts. The parts are stored as temporary files and are assembled into the
+ * section file when the upload is completed. The action record of the session references the section file, and
+ * the part files are recorded as its child action records, so abandoned uploads are cleaned up by the processing
+ * of the transaction actions.
+ */
+@Entity
+@Table(name = "upload_sessions")
+@EntityListeners(AuditingEntityListener.class)
+public class UploadSession {
+    @Id
+    @UuidGenerator
+    private UUID id;
+
+    @ManyToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "data_record_id", nullable = false)
+    private DataRecord dataRecord;
+
+    private String fileName;
+
+    private String contentType;
+
+    private boolean completed;
+
+    @OneToOne(fetch = FetchType.LAZY, optional = false)
+    @JoinColumn(name = "action_record_id", nullable = false)
+    private TransactionActionRecord actionRecord;
+
+    @OneToMany(cascade = CascadeType.ALL, fetch = FetchType.LAZY, orphanRemoval = true, mappedBy = "uploadSession")
+    @OrderBy("partNumber ASC")
+    private List<UploadPart> parts = new ArrayList<>();
+
+    @Version
+    private long version;
+
+    @CreatedDate
+    @Column(updatable = false, nullable = false)
+    private LocalDateTime createdAt;
+
+    @LastModifiedDate
+    @Column(nullable = false)
+    private LocalDateTime modifiedAt;
+
+    public void addPart(UploadPart part) {
+        part.setUploadSession(this);
+        parts.add(part);
+    }
+
+    public void removePart(UploadPart part) {
+        part.setUploadSession(null);
+        parts.remove(part);
+    }
+
+    public UUID getId() {
+        return id;
+    }
+
+    public void setId(UUID id) {
+        this.id = id;
+    }
+
+    public DataRecord getDataRecord() {
+        return dataRecord;
+    }
+
+    public void setDataRecord(DataRecord dataRecord) {
+        this.dataRecord = dataRecord;
+    }
+
+    public String getFileName() {
+        return fileName;
+    }
+
+    public void setFileName(String fileName) {
+        this.fileName = fileName;
+    }
+
+    public String getContentType() {
+        return contentType;
+    }
+
+    public void setContentType(String contentType) {
+        this.contentType = contentType;
+    }
+
+    public boolean isCompleted() {
+        return completed;
+    }
+
+    public void setCompleted(boolean completed) {
+        this.completed = completed;
+    }
+
+    public TransactionActionRecord getActionRecord() {
+        return actionRecord;
+    }
+
+    public void setActionRecord(TransactionActionRecord actionRecord) {
+        this.actionRecord = actionRecord;
+    }
+
+    public List<UploadPart> getParts() {
+        return parts;
+    }
+
+    public void setParts(List<UploadPart> parts) {
+        this.parts = parts;
+    }
+
+    public long getVersion() {
+        return version;
+    }
+
+    public void setVersion(long version) {
+        this.version = version;
+    }
+
+    public LocalDateTime getCreatedAt() {
+        return createdAt;
+    }
+
+    public void setCreatedAt(LocalDateTime createdAt) {
+        this.createdAt = createdAt;
+    }
+
+    public LocalDateTime getModifiedAt() {
+        return modifiedAt;
+    }
+
+    public void setModifiedAt(LocalDateTime modifiedAt) {
+        this.modifiedAt = modifiedAt;
+    }
+}
@@ -0,0 +1,43 @@
+package com.example.documentstorage.features.copies;
+
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/data-records/{dataRecordId}")
+public class CopyController {
+    private final CopyService copyService;
+
+    public CopyController(CopyService copyService) {
+        this.copyService = copyService;
+    }
+
+    /**
+     * Copies the section to the target data record, without transferring the content of the section
+     *
+     * @param dataRecordId       the id of the data record of the section
+     * @param sectionId          the id of the section
+     * @param targetDataRecordId the id of the data record to which the copy is added
+     * @return {@link DataRecordDetail} the target data record with its sections
+     */
+    @PostMapping("/sections/{sectionId}/copy")
+    public ResponseEntity<DataRecordDetail> copySection(@PathVariable int dataRecordId,
+                                                        @PathVariable int sectionId,
+                                                        @RequestParam int targetDataRecordId) {
+        DataRecordDetail recordDetail = copyService.copySection(dataRecordId, sectionId, targetDataRecordId);
+        return ResponseEntity.ok(recordDetail);
+    }
+
+    /**
+     * Creates a new data record with the fields and copies of the sections of the data record
+     *
+     * @param dataRecordId the id of the cloned data record
+     * @return {@link DataRecordDetail} the new data record with its fields and sections
+     */
+    @PostMapping("/clone")
+    public ResponseEntity<DataRecordDetail> cloneDataRecord(@PathVariable int dataRecordId) {
+        DataRecordDetail recordDetail = copyService.cloneDataRecord(dataRecordId);
+        return ResponseEntity.ok(recordDetail);
+    }
+}
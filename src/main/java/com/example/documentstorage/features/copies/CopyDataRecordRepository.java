@@ -0,0 +1,27 @@
+package com.example.documentstorage.features.copies;
+
+import com.example.documentstorage.entities.DataRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface CopyDataRecordRepository extends JpaRepository<DataRecord, Integer> {
+    @Query("""
+                SELECT new com.example.documentstorage.features.copies.SectionCopySource(s.id, s.fileName, s.storageLocation, s.contentType, s.fileSize, s.contentEncoding, s.checksum)
+                FROM DataRecord d
+                JOIN d.sections s WHERE d.id = :dataRecordId AND s.id = :sectionId
+                """)
+    Optional<SectionCopySource> findSectionById(int dataRecordId, int sectionId);
+
+    @Query("""
+                SELECT new com.example.documentstorage.features.copies.SectionCopySource(s.id, s.fileName, s.storageLocation, s.contentType, s.fileSize, s.contentEncoding, s.checksum)
+                FROM DataRecord d
+                JOIN d.sections s WHERE d.id = :dataRecordId
+                ORDER BY s.id ASC
+                """)
+    List<SectionCopySource> findSectionsById(int dataRecordId);
+}
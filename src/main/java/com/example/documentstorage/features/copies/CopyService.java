@@ -0,0 +1,25 @@
+package com.example.documentstorage.features.copies;
+
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+
+public interface CopyService {
+    /**
+     * Copies a section to the target data record. The stored file is shared with the copy when the storage allows
+     * it, so no byte of the section is transferred.
+     *
+     * @param dataRecordId       the id of the data record of the section
+     * @param sectionId          the id of the section
+     * @param targetDataRecordId the id of the data record to which the copy is added
+     * @return the target data record with its sections
+     */
+    DataRecordDetail copySection(int dataRecordId, int sectionId, int targetDataRecordId);
+
+    /**
+     * Creates a new data record with the title, the description, the fields and copies of all the sections of
+     * the data record
+     *
+     * @param dataRecordId the id of the cloned data record
+     * @return the new data record with its fields and sections
+     */
+    DataRecordDetail cloneDataRecord(int dataRecordId);
+}
@@ -0,0 +1,259 @@
+package com.example.documentstorage.features.copies;
+
+import com.example.documentstorage.entities.DataRecord;
+import com.example.documentstorage.entities.Field;
+import com.example.documentstorage.entities.Section;
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.filestorage.ActionType;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.inline.InlineSectionStore;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTracker;
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import com.example.documentstorage.shared.base.models.responses.FieldDetail;
+import com.example.documentstorage.shared.base.models.responses.SectionDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.ArrayList;
+import java.util.List;
+import java.util.function.Supplier;
+
+/**
+ * Copies sections without transferring their content. The copy of a section has the metadata of the section and
+ * shares its stored file through {@link FileStorage#shareSection(String, String)}, so copying a section takes the
+ * same time whatever its size. Copies are covered by the transaction actions like a batch upload. A GROUP action
+ * with a CREATE child action for every copy is recorded before the stored files are shared, and committed in the
+ * transaction that adds the copies, so a copy that is never added is removed by the processing of the actions.
+ * The content of inline sections is copied in the transaction that adds the copies.
+ */
+@Service
+public class CopyServiceImpl implements CopyService {
+    private static final Logger logger = LoggerFactory.getLogger(CopyServiceImpl.class);
+
+    private final CopyDataRecordRepository dataRecordRepository;
+    private final TransactionActionRecordRepository transactionActionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final FileStorage fileStorage;
+    private final InlineSectionStore inlineSectionStore;
+    private final StorageUsageTracker storageUsageTracker;
+
+    public CopyServiceImpl(CopyDataRecordRepository dataRecordRepository,
+                           TransactionActionRecordRepository transactionActionRepository,
+                           TransactionTemplate transactionTemplate,
+                           FileStorage fileStorage,
+                           InlineSectionStore inlineSectionStore,
+                           StorageUsageTracker storageUsageTracker) {
+        this.dataRecordRepository = dataRecordRepository;
+        this.transactionActionRepository = transactionActionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.fileStorage = fileStorage;
+        this.inlineSectionStore = inlineSectionStore;
+        this.storageUsageTracker = storageUsageTracker;
+    }
+
+    /**
+     * Copies a section to the target data record, which may be the data record of the section
+     *
+     * @param dataRecordId       the id of the data record of the section
+     * @param sectionId          the id of the section
+     * @param targetDataRecordId the id of the data record to which the copy is added
+     * @return the target data record with its sections
+     */
+    @Override
+    public DataRecordDetail copySection(int dataRecordId, int sectionId, int targetDataRecordId) {
+        SectionCopySource source = dataRecordRepository.findSectionById(dataRecordId, sectionId)
+                .orElseThrow(() -> {
+                    logger.warn("Data record with id '{}' and section id '{}' not found for section copy", dataRecordId, sectionId);
+                    return new InvalidClientInputException("features.copies.on.section.copy.section.not.found", dataRecordId, sectionId);
+                });
+
+        if (!dataRecordRepository.existsById(targetDataRecordId)) {
+            logger.warn("Target data record with id '{}' not found for section copy", targetDataRecordId);
+            throw new InvalidClientInputException("features.copies.on.section.copy.target.datarecord.not.found", targetDataRecordId);
+        }
+
+        storageUsageTracker.checkQuota(targetDataRecordId, source.fileSize());
+        DataRecord targetRecord = copySections(List.of(source), () -> dataRecordRepository
+                .findById(targetDataRecordId)
+                .orElseThrow(() -> {
+                    logger.warn("Target data record with id '{}' not found for section copy", targetDataRecordId);
+                    return new InvalidClientInputException("features.copies.on.section.copy.target.datarecord.not.found", targetDataRecordId);
+                }));
+
+        logger.info("Copied section '{}' of data record '{}' to data record '{}'", sectionId, dataRecordId, targetDataRecordId);
+        return DataRecordDetail.withSections(
+                targetRecord.getId(),
+                targetRecord.getTitle(),
+                targetRecord.getDescription(),
+                toSectionDetails(targetRecord));
+    }
+
+    /**
+     * Creates a new data record with the title, the description, the fields and copies of all the sections of the
+     * data record. The new data record and all the copies are added in a single transaction.
+     *
+     * @param dataRecordId the id of the cloned data record
+     * @return the new data record with its fields and sections
+     */
+    @Override
+    public DataRecordDetail cloneDataRecord(int dataRecordId) {
+        if (!dataRecordRepository.existsById(dataRecordId)) {
+            logger.warn("Data record with id '{}' not found for data record clone", dataRecordId);
+            throw new InvalidClientInputException("features.copies.on.datarecord.clone.datarecord.not.found", dataRecordId);
+        }
+
+        List<SectionCopySource> sources = dataRecordRepository.findSectionsById(dataRecordId);
+        DataRecord clonedRecord = copySections(sources, () -> createClone(dataRecordId));
+
+        List<FieldDetail> fieldDetails = clonedRecord.getFields().stream()
+                .map(f -> new FieldDetail(f.getId(), f.getName(), f.getValue()))
+                .toList();
+
+        logger.info("Cloned data record '{}' with '{}' sections as data record '{}'", dataRecordId, sources.size(), clonedRecord.getId());
+        return new DataRecordDetail(
+                clonedRecord.getId(),
+                clonedRecord.getTitle(),
+                clonedRecord.getDescription(),
+                fieldDetails,
+                toSectionDetails(clonedRecord));
+    }
+
+    /**
+     * Adds copies of the sections to the target data record. The stored files are shared before the transaction
+     * that adds the copies, unless the file storage requires that transaction.
+     */
+    private DataRecord copySections(List<SectionCopySource> sources, Supplier<DataRecord> targetRecordSupplier) {
+        List<SectionCopy> copies = sources.stream()
+                .map(source -> new SectionCopy(source, inlineSectionStore.isInline(source.storageLocation())
+                        ? null
+                        : fileStorage.generateCopyLocation(source.storageLocation(), source.fileName())))
+                .toList();
+        List<SectionCopy> fileCopies = copies.stream()
+                .filter(copy -> copy.targetLocation() != null)
+                .toList();
+
+        CopyActions copyActions = fileCopies.isEmpty()
+                ? null
+                : transactionTemplate.execute(status -> addCopyTransactionActions(fileCopies));
+
+        boolean sharedInTransaction = fileStorage.requiresTransaction();
+        if (!sharedInTransaction) {
+            fileCopies.forEach(this::shareSection);
+        }
+
+        return transactionTemplate.execute(status -> {
+            DataRecord targetRecord = targetRecordSupplier.get();
+            for (SectionCopy copy : copies) {
+                String storageLocation;
+                if (copy.targetLocation() == null) {
+                    storageLocation = inlineSectionStore.copy(copy.source().storageLocation());
+                } else {
+                    if (sharedInTransaction) {
+                        shareSection(copy);
+                    }
+
+                    storageLocation = copy.targetLocation();
+                }
+
+                targetRecord.addSection(toSection(copy.source(), storageLocation));
+            }
+
+            storageUsageTracker.addUsage(
+                    targetRecord.getId(),
+                    sources.stream().mapToLong(SectionCopySource::fileSize).sum(),
+                    sources.size());
+            if (copyActions != null) {
+                commitCopyTransactionActions(copyActions);
+            }
+
+            dataRecordRepository.saveAndFlush(targetRecord);
+            return targetRecord;
+        });
+    }
+
+    /**
+     * Creates the data record that receives the copies, with the title, the description and the fields of the
+     * cloned data record. Must be called in the transaction that adds the copies.
+     */
+    private DataRecord createClone(int dataRecordId) {
+        DataRecord sourceRecord = dataRecordRepository.findById(dataRecordId)
+                .orElseThrow(() -> {
+                    logger.warn("Data record with id '{}' not found for data record clone", dataRecordId);
+                    return new InvalidClientInputException("features.copies.on.datarecord.clone.datarecord.not.found", dataRecordId);
+                });
+
+        DataRecord clonedRecord = new DataRecord();
+        clonedRecord.setTitle(sourceRecord.getTitle());
+        clonedRecord.setDescription(sourceRecord.getDescription());
+        clonedRecord.setSections(new ArrayList<>());
+        sourceRecord.getFields().forEach(sourceField -> {
+            Field field = new Field();
+            field.setName(sourceField.getName());
+            field.setValue(sourceField.getValue());
+            clonedRecord.addField(field);
+        });
+
+        // Flushed, so that the usage of the new data record can be added
+        return dataRecordRepository.saveAndFlush(clonedRecord);
+    }
+
+    private void shareSection(SectionCopy copy) {
+        fileStorage.shareSection(copy.source().storageLocation(), copy.targetLocation());
+    }
+
+    private CopyActions addCopyTransactionActions(List<SectionCopy> fileCopies) {
+        TransactionActionRecord groupRecord = new TransactionActionRecord();
+        groupRecord.setActionType(ActionType.GROUP);
+        transactionActionRepository.save(groupRecord);
+
+        List<TransactionActionRecord> childRecords = fileCopies.stream()
+                .map(copy -> {
+                    TransactionActionRecord childRecord = new TransactionActionRecord();
+                    childRecord.setStorageLocation(copy.targetLocation());
+                    childRecord.setActionType(ActionType.CREATE);
+                    childRecord.setParentRecord(groupRecord);
+                    return childRecord;
+                })
+                .toList();
+        transactionActionRepository.saveAll(childRecords);
+
+        return new CopyActions(groupRecord, childRecords);
+    }
+
+    private void commitCopyTransactionActions(CopyActions copyActions) {
+        copyActions.groupRecord().setCommitted(true);
+        copyActions.childRecords().forEach(childRecord -> childRecord.setCommitted(true));
+        transactionActionRepository.save(copyActions.groupRecord());
+        transactionActionRepository.saveAll(copyActions.childRecords());
+    }
+
+    private static Section toSection(SectionCopySource source, String storageLocation) {
+        Section sectionRecord = new Section();
+        sectionRecord.setFileName(source.fileName());
+        sectionRecord.setStorageLocation(storageLocation);
+        sectionRecord.setContentType(source.contentType());
+        sectionRecord.setFileSize(source.fileSize());
+        sectionRecord.setChecksum(source.checksum());
+        sectionRecord.setContentEncoding(source.contentEncoding());
+        return sectionRecord;
+    }
+
+    private static List<SectionDetail> toSectionDetails(DataRecord dataRecord) {
+        return dataRecord.getSections().stream()
+                .map(s -> new SectionDetail(s.getId(), s.getFileName(), s.getStorageLocation()))
+                .toList();
+    }
+
+    /**
+     * A section to copy, with the storage location of its copy, or null when the section is kept in the database
+     */
+    private record SectionCopy(SectionCopySource source, String targetLocation) {
+    }
+
+    private record CopyActions(TransactionActionRecord groupRecord, List<TransactionActionRecord> childRecords) {
+    }
+}
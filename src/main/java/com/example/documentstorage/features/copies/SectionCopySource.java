@@ -0,0 +1,12 @@
+package com.example.documentstorage.features.copies;
+
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+
+public record SectionCopySource(int id,
+                                String fileName,
+                                String storageLocation,
+                                String contentType,
+                                long fileSize,
+                                ContentEncoding contentEncoding,
+                                String checksum) {
+}
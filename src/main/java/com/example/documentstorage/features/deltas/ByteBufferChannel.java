@@ -0,0 +1,26 @@
+package com.example.documentstorage.features.deltas;
+
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+
+/**
+ * Writes the transferred bytes into a buffer with enough space for all of them
+ */
+record ByteBufferChannel(ByteBuffer buffer) implements WritableByteChannel {
+    @Override
+    public int write(ByteBuffer source) {
+        int written = source.remaining();
+        buffer.put(source);
+        return written;
+    }
+
+    @Override
+    public boolean isOpen() {
+        return true;
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,117 @@
+package com.example.documentstorage.features.deltas;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+
+import java.io.DataInputStream;
+import java.io.EOFException;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.util.Objects;
+
+/**
+ * Rebuilds the new content of a section from a delta against its stored content, while the new content is read.
+ * Neither the delta nor the content are loaded in memory. The delta is a sequence of instructions, each starting
+ * with its one byte code, with big-endian integers:
+ * <ul>
+ *     <li>{@code 0x01 <block index> <block count>} copies blocks of the stored content</li>
+ *     <li>{@code 0x02 <length> <bytes>} adds the bytes</li>
+ *     <li>{@code 0x00} ends the delta</li>
+ * </ul>
+ * A delta that is not valid is rejected with an {@link InvalidClientInputException} while it is read.
+ */
+class DeltaContentInputStream extends InputStream {
+    static final int END = 0x00;
+    static final int COPY = 0x01;
+    static final int DATA = 0x02;
+
+    private final DataInputStream delta;
+    private final SectionContent baseContent;
+    private final int blockSize;
+    private long copyPosition;
+    private long copyRemaining;
+    private long dataRemaining;
+    private boolean ended;
+
+    DeltaContentInputStream(InputStream delta, SectionContent baseContent, int blockSize) {
+        this.delta = new DataInputStream(delta);
+        this.baseContent = baseContent;
+        this.blockSize = blockSize;
+    }
+
+    @Override
+    public int read() throws IOException {
+        byte[] single = new byte[1];
+        return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+    }
+
+    @Override
+    public int read(byte[] bytes, int offset, int length) throws IOException {
+        Objects.checkFromIndexSize(offset, length, bytes.length);
+        if (length == 0) {
+            return 0;
+        }
+
+        while (copyRemaining == 0 && dataRemaining == 0) {
+            if (ended) {
+                return -1;
+            }
+
+            readInstruction();
+        }
+
+        if (copyRemaining > 0) {
+            int count = (int) Math.min(length, copyRemaining);
+            baseContent.transferTo(copyPosition, count, new ByteBufferChannel(ByteBuffer.wrap(bytes, offset, count)));
+            copyPosition += count;
+            copyRemaining -= count;
+            return count;
+        }
+
+        int read = delta.read(bytes, offset, (int) Math.min(length, dataRemaining));
+        if (read < 0) {
+            throw invalidDelta();
+        }
+
+        dataRemaining -= read;
+        return read;
+    }
+
+    private void readInstruction() throws IOException {
+        try {
+            int code = delta.readUnsignedByte();
+            switch (code) {
+                case END -> ended = true;
+                case COPY -> readCopy(delta.readInt(), delta.readInt());
+                case DATA -> {
+                    int length = delta.readInt();
+                    if (length < 0) {
+                        throw invalidDelta();
+                    }
+
+                    dataRemaining = length;
+                }
+                default -> throw invalidDelta();
+            }
+        } catch (EOFException e) {
+            // The delta must be ended explicitly, so a truncated delta is never stored
+            throw invalidDelta();
+        }
+    }
+
+    private void readCopy(int blockIndex, int blockCount) {
+        long start = (long) blockIndex * blockSize;
+        long lastBlockStart = (long) (blockIndex + (long) blockCount - 1) * blockSize;
+        if (blockIndex < 0 || blockCount <= 0 || lastBlockStart >= baseContent.size()) {
+            throw invalidDelta();
+        }
+
+        copyPosition = start;
+        copyRemaining = Math.min(baseContent.size(), lastBlockStart + blockSize) - start;
+    }
+
+    private static InvalidClientInputException invalidDelta() {
+        return new InvalidClientInputException("features.deltas.on.section.replace.delta.invalid");
+    }
+}
@@ -0,0 +1,68 @@
+package com.example.documentstorage.features.deltas;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import com.example.documentstorage.shared.base.models.responses.SectionSignaturesDetail;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.MediaType;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+
+@RestController
+@RequestMapping("/api/data-records/{dataRecordId}/sections/{sectionId}")
+public class DeltaController {
+    private static final String SECTION_CHECKSUM_HEADER = "X-Section-Checksum";
+
+    private final DeltaService deltaService;
+
+    public DeltaController(DeltaService deltaService) {
+        this.deltaService = deltaService;
+    }
+
+    /**
+     * Gets the signatures of the blocks of the section, against which a delta is built
+     *
+     * @param dataRecordId the id of the data record
+     * @param sectionId    the id of the section
+     * @param blockSize    the size of the blocks in bytes. If missing, the configured block size is used
+     * @return {@link SectionSignaturesDetail} the checksum of the section and the signature of every block
+     */
+    @GetMapping("/signatures")
+    public ResponseEntity<SectionSignaturesDetail> getSignatures(@PathVariable int dataRecordId,
+                                                                 @PathVariable int sectionId,
+                                                                 @RequestParam(required = false) Integer blockSize) {
+        SectionSignaturesDetail signatures = deltaService.getSignatures(dataRecordId, sectionId, blockSize);
+        return ResponseEntity.ok(signatures);
+    }
+
+    /**
+     * Replaces the content of the section with the content rebuilt from the delta in the request body
+     *
+     * @param dataRecordId     the id of the data record
+     * @param sectionId        the id of the section
+     * @param blockSize        the size of the blocks referenced by the delta, as requested for the signatures
+     * @param ifMatch          the entity tag of the content against which the delta is built, its checksum
+     * @param expectedChecksum the checksum of the new content, sent in the {@code X-Section-Checksum} header.
+     *                         If missing, the new content is not verified
+     * @param delta            the request body
+     * @return {@link DataRecordDetail} the data record with its sections
+     */
+    @PutMapping(value = "/delta", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<DataRecordDetail> replaceSection(
+            @PathVariable int dataRecordId,
+            @PathVariable int sectionId,
+            @RequestParam(required = false) Integer blockSize,
+            @RequestHeader(value = HttpHeaders.IF_MATCH, required = false) String ifMatch,
+            @RequestHeader(value = SECTION_CHECKSUM_HEADER, required = false) String expectedChecksum,
+            InputStream delta) {
+        if (ifMatch == null || ifMatch.isBlank()) {
+            throw new InvalidClientInputException("features.deltas.on.section.replace.base.missing", HttpHeaders.IF_MATCH);
+        }
+
+        String baseChecksum = ifMatch.strip().replace("\"", "");
+        DataRecordDetail recordDetail = deltaService.replaceSection(dataRecordId, sectionId, blockSize, baseChecksum, expectedChecksum, delta);
+        return ResponseEntity.ok(recordDetail);
+    }
+}
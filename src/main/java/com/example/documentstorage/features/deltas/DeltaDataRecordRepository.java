@@ -0,0 +1,18 @@
+package com.example.documentstorage.features.deltas;
+
+import com.example.documentstorage.entities.DataRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface DeltaDataRecordRepository extends JpaRepository<DataRecord, Integer> {
+    @Query("""
+                SELECT new com.example.documentstorage.features.deltas.SectionDeltaSource(s.id, s.fileName, s.storageLocation, s.contentType, s.fileSize, s.contentEncoding, s.checksum, s.version)
+                FROM DataRecord d
+                JOIN d.sections s WHERE d.id = :dataRecordId AND s.id = :sectionId
+                """)
+    Optional<SectionDeltaSource> findSectionById(int dataRecordId, int sectionId);
+}
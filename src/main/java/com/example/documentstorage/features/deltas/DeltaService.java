@@ -0,0 +1,36 @@
+package com.example.documentstorage.features.deltas;
+
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import com.example.documentstorage.shared.base.models.responses.SectionSignaturesDetail;
+
+import java.io.InputStream;
+
+public interface DeltaService {
+    /**
+     * Computes the signatures of the blocks of the stored content of the section, against which a delta is built
+     *
+     * @param dataRecordId the id of the data record
+     * @param sectionId    the id of the section
+     * @param blockSize    the size of the blocks in bytes, or null for the configured block size
+     * @return the checksum of the section and the signature of every block
+     */
+    SectionSignaturesDetail getSignatures(int dataRecordId, int sectionId, Integer blockSize);
+
+    /**
+     * Replaces the content of the section with the content rebuilt from the delta against its stored content
+     *
+     * @param dataRecordId     the id of the data record
+     * @param sectionId        the id of the section
+     * @param blockSize        the size of the blocks referenced by the delta, or null for the configured block size
+     * @param baseChecksum     the checksum of the content against which the delta is built
+     * @param expectedChecksum the checksum of the new content, or null when it is not verified
+     * @param delta            the delta
+     * @return the data record with its sections
+     */
+    DataRecordDetail replaceSection(int dataRecordId,
+                                    int sectionId,
+                                    Integer blockSize,
+                                    String baseChecksum,
+                                    String expectedChecksum,
+                                    InputStream delta);
+}
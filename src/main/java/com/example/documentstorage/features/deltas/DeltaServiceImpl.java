@@ -0,0 +1,295 @@
+package com.example.documentstorage.features.deltas;
+
+import com.example.documentstorage.entities.DataRecord;
+import com.example.documentstorage.entities.Section;
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ActionType;
+import com.example.documentstorage.shared.base.filestorage.CompressionPolicy;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.DecodedSectionContent;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.SectionChecksums;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.inline.InlineSectionStore;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTracker;
+import com.example.documentstorage.shared.base.models.responses.BlockSignatureDetail;
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import com.example.documentstorage.shared.base.models.responses.SectionDetail;
+import com.example.documentstorage.shared.base.models.responses.SectionSignaturesDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+
+/**
+ * Replaces the content of sections from rsync style deltas, so that a small change to a large section is sent
+ * without the unchanged bytes. The signatures of the fixed size blocks of the stored content are published; the
+ * client finds the blocks in the new content with the rolling weak checksum, confirms them with the strong checksum
+ * and sends a delta that copies them and adds the bytes between them, see {@link DeltaContentInputStream}.
+ * The new content is rebuilt into a new file while the delta is received, covered by a CREATE transaction action
+ * like an upload. The section is switched to the new file in one transaction, which also commits a DELETE
+ * transaction action for the old file, so the old file is removed by the processing of the actions once no
+ * download can find it anymore.
+ */
+@Service
+public class DeltaServiceImpl implements DeltaService {
+    private static final Logger logger = LoggerFactory.getLogger(DeltaServiceImpl.class);
+    private static final int MIN_BLOCK_SIZE = 512;
+    private static final int MAX_BLOCK_SIZE = 1024 * 1024;
+
+    private final DeltaDataRecordRepository dataRecordRepository;
+    private final TransactionActionRecordRepository transactionActionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final FileStorage fileStorage;
+    private final CompressionPolicy compressionPolicy;
+    private final InlineSectionStore inlineSectionStore;
+    private final StorageUsageTracker storageUsageTracker;
+    private final int defaultBlockSize;
+
+    public DeltaServiceImpl(DeltaDataRecordRepository dataRecordRepository,
+                            TransactionActionRecordRepository transactionActionRepository,
+                            TransactionTemplate transactionTemplate,
+                            FileStorage fileStorage,
+                            CompressionPolicy compressionPolicy,
+                            InlineSectionStore inlineSectionStore,
+                            StorageUsageTracker storageUsageTracker,
+                            @Value("${document.storage.delta.block.size}") DataSize defaultBlockSize) {
+        this.dataRecordRepository = dataRecordRepository;
+        this.transactionActionRepository = transactionActionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.fileStorage = fileStorage;
+        this.compressionPolicy = compressionPolicy;
+        this.inlineSectionStore = inlineSectionStore;
+        this.storageUsageTracker = storageUsageTracker;
+        this.defaultBlockSize = (int) defaultBlockSize.toBytes();
+    }
+
+    /**
+     * Computes the signatures of the blocks of the decoded content of the section. The last block is shorter when
+     * the size of the section is not a multiple of the block size. The weak checksum of a block is the rsync
+     * checksum {@code a + (b << 16)}, with {@code a} the sum of its unsigned bytes and {@code b} the sum of every
+     * byte multiplied by its distance from the end of the block, both modulo {@code 2^16}. The strong checksum is
+     * the hex SHA-256 hash of the block.
+     *
+     * @param dataRecordId the id of the data record
+     * @param sectionId    the id of the section
+     * @param blockSize    the size of the blocks in bytes, or null for the configured block size
+     * @return the checksum of the section and the signature of every block
+     */
+    @Override
+    public SectionSignaturesDetail getSignatures(int dataRecordId, int sectionId, Integer blockSize) {
+        int signatureBlockSize = resolveBlockSize(blockSize, "features.deltas.on.signatures.block.size.invalid");
+        SectionDeltaSource source = dataRecordRepository.findSectionById(dataRecordId, sectionId)
+                .orElseThrow(() -> {
+                    logger.warn("Data record with id '{}' and section id '{}' not found for signatures", dataRecordId, sectionId);
+                    return new InvalidClientInputException("features.deltas.on.signatures.section.not.found", dataRecordId, sectionId);
+                });
+
+        if (inlineSectionStore.isInline(source.storageLocation())) {
+            logger.warn("Section '{}' is kept in the database and has no signatures", sectionId);
+            throw new InvalidClientInputException("features.deltas.on.signatures.section.inline", sectionId);
+        }
+
+        List<BlockSignatureDetail> blocks = new ArrayList<>();
+        MessageDigest digest = SectionChecksums.createDigest();
+        byte[] block = new byte[signatureBlockSize];
+        try (SectionContent content = openBaseContent(source)) {
+            long position = 0;
+            while (position < content.size()) {
+                int length = (int) Math.min(signatureBlockSize, content.size() - position);
+                content.transferTo(position, length, new ByteBufferChannel(ByteBuffer.wrap(block, 0, length)));
+                digest.update(block, 0, length);
+                blocks.add(new BlockSignatureDetail(
+                        blocks.size(),
+                        weakChecksum(block, length),
+                        HexFormat.of().formatHex(digest.digest())));
+                position += length;
+            }
+        } catch (IOException e) {
+            logger.error("Unable to read section '{}' for signatures", sectionId);
+            throw new InvalidSystemStateException(e);
+        }
+
+        logger.info("Computed '{}' block signatures of section '{}'", blocks.size(), sectionId);
+        return new SectionSignaturesDetail(sectionId, source.checksum(), source.fileSize(), signatureBlockSize, blocks);
+    }
+
+    /**
+     * Replaces the content of the section with the content rebuilt from the delta. The delta must be built against
+     * the stored content, identified by its checksum, and a section changed since is not replaced. When the
+     * checksum of the new content is sent, a rebuilt content with another checksum is not stored either.
+     *
+     * @param dataRecordId     the id of the data record
+     * @param sectionId        the id of the section
+     * @param blockSize        the size of the blocks referenced by the delta, or null for the configured block size
+     * @param baseChecksum     the checksum of the content against which the delta is built
+     * @param expectedChecksum the checksum of the new content, or null when it is not verified
+     * @param delta            the delta
+     * @return the data record with its sections
+     */
+    @Override
+    public DataRecordDetail replaceSection(int dataRecordId,
+                                           int sectionId,
+                                           Integer blockSize,
+                                           String baseChecksum,
+                                           String expectedChecksum,
+                                           InputStream delta) {
+        int deltaBlockSize = resolveBlockSize(blockSize, "features.deltas.on.section.replace.block.size.invalid");
+        SectionDeltaSource source = dataRecordRepository.findSectionById(dataRecordId, sectionId)
+                .orElseThrow(() -> {
+                    logger.warn("Data record with id '{}' and section id '{}' not found for delta", dataRecordId, sectionId);
+                    return new InvalidClientInputException("features.deltas.on.section.replace.section.not.found", dataRecordId, sectionId);
+                });
+
+        if (inlineSectionStore.isInline(source.storageLocation())) {
+            logger.warn("Section '{}' is kept in the database and can not be replaced from a delta", sectionId);
+            throw new InvalidClientInputException("features.deltas.on.section.replace.section.inline", sectionId);
+        }
+
+        if (!source.checksum().equals(baseChecksum)) {
+            logger.warn("Delta of section '{}' is built against '{}' instead of '{}'", sectionId, baseChecksum, source.checksum());
+            throw new InvalidClientInputException("features.deltas.on.section.replace.section.changed", sectionId);
+        }
+
+        String systemFileName = fileStorage.generateSystemFileName(source.fileName());
+        ContentEncoding encoding = compressionPolicy.selectEncoding(source.contentType(), -1);
+        TransactionActionRecord createAction = transactionTemplate
+                .execute(status -> addTransactionAction(ActionType.CREATE, systemFileName, false));
+
+        boolean storedInTransaction = fileStorage.requiresTransaction();
+        StoredFile storedFile = storedInTransaction ? null : storeDelta(source, deltaBlockSize, systemFileName, encoding, delta, expectedChecksum);
+
+        DataRecord dataRecord = transactionTemplate.execute(status -> {
+            DataRecord record = dataRecordRepository
+                    .findById(dataRecordId)
+                    .orElseThrow(() -> {
+                        logger.warn("Data record with id '{}' not found for delta", dataRecordId);
+                        return new InvalidClientInputException("features.deltas.on.section.replace.section.not.found", dataRecordId, sectionId);
+                    });
+            Section section = record.getSections().stream()
+                    .filter(s -> s.getId() == sectionId)
+                    .findFirst()
+                    .orElseThrow(() -> {
+                        logger.warn("Section '{}' removed while its delta was stored", sectionId);
+                        return new InvalidClientInputException("features.deltas.on.section.replace.section.not.found", dataRecordId, sectionId);
+                    });
+
+            if (section.getVersion() != source.version()) {
+                // The new file is removed by the processing of its uncommitted CREATE action
+                logger.warn("Section '{}' changed while its delta was stored", sectionId);
+                throw new InvalidClientInputException("features.deltas.on.section.replace.section.changed", sectionId);
+            }
+
+            StoredFile newFile = storedInTransaction
+                    ? storeDelta(source, deltaBlockSize, systemFileName, encoding, delta, expectedChecksum)
+                    : storedFile;
+
+            addTransactionAction(ActionType.DELETE, section.getStorageLocation(), true);
+            fileStorage.releaseSection(section.getStorageLocation());
+            storageUsageTracker.removeUsage(dataRecordId, section.getFileSize(), 1);
+            storageUsageTracker.addUsage(dataRecordId, newFile.size(), 1);
+
+            section.setStorageLocation(newFile.storageLocation());
+            section.setFileSize(newFile.size());
+            section.setChecksum(newFile.checksum());
+            section.setContentEncoding(newFile.encoding());
+            // Sent as Last-Modified, so that date based conditional requests do not match the replaced content
+            section.setModifiedAt(LocalDateTime.now());
+
+            createAction.setCommitted(true);
+            transactionActionRepository.save(createAction);
+            return dataRecordRepository.saveAndFlush(record);
+        });
+
+        logger.info("Replaced section '{}' of data record '{}' from a delta", sectionId, dataRecordId);
+        List<SectionDetail> sectionDetails = dataRecord.getSections().stream()
+                .map(s -> new SectionDetail(s.getId(), s.getFileName(), s.getStorageLocation()))
+                .toList();
+        return DataRecordDetail.withSections(dataRecord.getId(), dataRecord.getTitle(), dataRecord.getDescription(), sectionDetails);
+    }
+
+    /**
+     * Stores the content rebuilt from the delta. The stored content is read while the new file is written, so
+     * blocks copied in their order are read sequentially, also when the stored content is encoded.
+     */
+    private StoredFile storeDelta(SectionDeltaSource source,
+                                  int blockSize,
+                                  String systemFileName,
+                                  ContentEncoding encoding,
+                                  InputStream delta,
+                                  String expectedChecksum) {
+        StoredFile storedFile;
+        try (SectionContent baseContent = openBaseContent(source)) {
+            storedFile = fileStorage.storeSection(new DeltaContentInputStream(delta, baseContent, blockSize), systemFileName, encoding);
+        } catch (IOException e) {
+            logger.error("Unable to read section '{}' for delta", source.id());
+            throw new InvalidSystemStateException(e);
+        }
+
+        if (expectedChecksum != null && !expectedChecksum.equals(storedFile.checksum())) {
+            // The new file is removed by the processing of its uncommitted CREATE action
+            logger.warn("Content of section '{}' rebuilt from the delta has checksum '{}' instead of '{}'", source.id(), storedFile.checksum(), expectedChecksum);
+            throw new InvalidClientInputException("features.deltas.on.section.replace.checksum.mismatch", source.id());
+        }
+
+        return storedFile;
+    }
+
+    private SectionContent openBaseContent(SectionDeltaSource source) {
+        SectionContent storedContent = fileStorage.openSection(source.storageLocation());
+        return source.contentEncoding() == ContentEncoding.IDENTITY
+                ? storedContent
+                : new DecodedSectionContent(storedContent, source.contentEncoding(), source.fileSize());
+    }
+
+    private int resolveBlockSize(Integer blockSize, String messageKey) {
+        if (blockSize == null) {
+            return defaultBlockSize;
+        }
+
+        if (blockSize < MIN_BLOCK_SIZE || blockSize > MAX_BLOCK_SIZE) {
+            logger.warn("Block size '{}' is not between '{}' and '{}'", blockSize, MIN_BLOCK_SIZE, MAX_BLOCK_SIZE);
+            throw new InvalidClientInputException(messageKey, blockSize, MIN_BLOCK_SIZE, MAX_BLOCK_SIZE);
+        }
+
+        return blockSize;
+    }
+
+    private TransactionActionRecord addTransactionAction(ActionType actionType, String storageLocation, boolean committed) {
+        TransactionActionRecord actionRecord = new TransactionActionRecord();
+        actionRecord.setStorageLocation(storageLocation);
+        actionRecord.setActionType(actionType);
+        actionRecord.setCommitted(committed);
+
+        transactionActionRepository.save(actionRecord);
+
+        return actionRecord;
+    }
+
+    private static int weakChecksum(byte[] block, int length) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < length; i++) {
+            int value = block[i] & 0xff;
+            a += value;
+            b += (length - i) * value;
+        }
+
+        return (a & 0xffff) | (b << 16);
+    }
+}
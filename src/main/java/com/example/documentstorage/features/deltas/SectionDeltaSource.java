@@ -0,0 +1,13 @@
+package com.example.documentstorage.features.deltas;
+
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+
+public record SectionDeltaSource(int id,
+                                 String fileName,
+                                 String storageLocation,
+                                 String contentType,
+                                 long fileSize,
+                                 ContentEncoding contentEncoding,
+                                 String checksum,
+                                 long version) {
+}
@@ -0,0 +1,55 @@
+package com.example.documentstorage.features.ingestion;
+
+import com.example.documentstorage.shared.base.models.responses.IngestionJobDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+/**
+ * Bulk ingestion of local files. Jobs are also created for every new directory with a manifest below the
+ * ingestion path.
+ */
+@RestController
+@RequestMapping("/api/ingestion-jobs")
+public class IngestionController {
+    private final IngestionService ingestionService;
+
+    public IngestionController(IngestionService ingestionService) {
+        this.ingestionService = ingestionService;
+    }
+
+    /**
+     * Creates a job that ingests the files listed in the manifest of the directory
+     *
+     * @param directory the directory, relative to the ingestion path
+     * @return {@link IngestionJobDetail} the created job
+     */
+    @PostMapping
+    public ResponseEntity<IngestionJobDetail> createJob(@RequestParam String directory) {
+        IngestionJobDetail job = ingestionService.createJob(directory);
+        return ResponseEntity.ok(job);
+    }
+
+    /**
+     * Gets the status and the progress of the job
+     *
+     * @param jobId the id of the job
+     * @return {@link IngestionJobDetail} the job
+     */
+    @GetMapping("/{jobId}")
+    public ResponseEntity<IngestionJobDetail> getJob(@PathVariable int jobId) {
+        IngestionJobDetail job = ingestionService.getJob(jobId);
+        return ResponseEntity.ok(job);
+    }
+
+    /**
+     * Resumes a failed job from its checkpoint
+     *
+     * @param jobId the id of the job
+     * @return {@link IngestionJobDetail} the resumed job
+     */
+    @PostMapping("/{jobId}/resume")
+    public ResponseEntity<IngestionJobDetail> resumeJob(@PathVariable int jobId) {
+        IngestionJobDetail job = ingestionService.resumeJob(jobId);
+        return ResponseEntity.ok(job);
+    }
+}
@@ -0,0 +1,15 @@
+package com.example.documentstorage.features.ingestion;
+
+import com.example.documentstorage.entities.DataRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.stereotype.Repository;
+
+import java.util.Collection;
+import java.util.List;
+
+@Repository
+public interface IngestionDataRecordRepository extends JpaRepository<DataRecord, Integer> {
+    @Query("SELECT d.id FROM DataRecord d WHERE d.id IN :ids")
+    List<Integer> findExistingIds(Collection<Integer> ids);
+}
@@ -0,0 +1,455 @@
+package com.example.documentstorage.features.ingestion;
+
+import com.example.documentstorage.entities.DataRecord;
+import com.example.documentstorage.entities.IngestionJob;
+import com.example.documentstorage.entities.Section;
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ActionType;
+import com.example.documentstorage.shared.base.filestorage.CompressionPolicy;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.inline.InlineSectionStore;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTracker;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.UncheckedIOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.Iterator;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.Executor;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Ingests the files of the directories below the ingestion path. Every directory with a manifest is ingested by one
+ * {@link IngestionJob}, created when the manifest appears or through the API. The manifest must be written after
+ * the files it lists. Every line of the manifest is {@code <file>,<data record id>[,<content type>]}, with the file
+ * relative to the directory; empty lines and lines starting with {@code #} are skipped.
+ * The lines are processed in batches, like batch uploads: a GROUP transaction action with a CREATE child action for
+ * every file is recorded, the files are stored in parallel on the storage executor, and all the sections of the
+ * batch are added in one transaction that also moves the checkpoint of the job. Files are linked into the storage
+ * when possible, so their content is not copied, and they are removed from the directory once their sections are
+ * committed. Files that are not found, or whose data record does not exist, are counted as failed and left in the
+ * directory. A batch that can not be stored fails the job, which is continued from its checkpoint once resumed.
+ */
+@Component
+public class IngestionJobProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(IngestionJobProcessor.class);
+    private static final String COMMENT_PREFIX = "#";
+    private static final int MAX_FAILURE_MESSAGE_LENGTH = 1000;
+
+    private final IngestionJobRepository jobRepository;
+    private final IngestionDataRecordRepository dataRecordRepository;
+    private final TransactionActionRecordRepository transactionActionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final FileStorage fileStorage;
+    private final CompressionPolicy compressionPolicy;
+    private final InlineSectionStore inlineSectionStore;
+    private final StorageUsageTracker storageUsageTracker;
+    private final Executor storageExecutor;
+    private final String ingestionPath;
+    private final String manifestName;
+    private final int batchSize;
+
+    public IngestionJobProcessor(IngestionJobRepository jobRepository,
+                                 IngestionDataRecordRepository dataRecordRepository,
+                                 TransactionActionRecordRepository transactionActionRepository,
+                                 TransactionTemplate transactionTemplate,
+                                 FileStorage fileStorage,
+                                 CompressionPolicy compressionPolicy,
+                                 InlineSectionStore inlineSectionStore,
+                                 StorageUsageTracker storageUsageTracker,
+                                 @Qualifier("storageExecutor") Executor storageExecutor,
+                                 @Value("${document.storage.ingestion.path}") String ingestionPath,
+                                 @Value("${document.storage.ingestion.manifest}") String manifestName,
+                                 @Value("${document.storage.ingestion.batch.size}") int batchSize) {
+        this.jobRepository = jobRepository;
+        this.dataRecordRepository = dataRecordRepository;
+        this.transactionActionRepository = transactionActionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.fileStorage = fileStorage;
+        this.compressionPolicy = compressionPolicy;
+        this.inlineSectionStore = inlineSectionStore;
+        this.storageUsageTracker = storageUsageTracker;
+        this.storageExecutor = storageExecutor;
+        this.ingestionPath = ingestionPath;
+        this.manifestName = manifestName;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Creates the jobs of the directories with a manifest that have not been ingested yet, then continues all the
+     * running jobs from their checkpoints
+     */
+    @Scheduled(cron = "${document.storage.ingestion.cron}")
+    public synchronized void processJobs() {
+        if (ingestionPath == null || ingestionPath.isBlank()) {
+            return;
+        }
+
+        discoverJobs();
+        for (IngestionJob job : jobRepository.findByStatusOrderByIdAsc(IngestionJobStatus.RUNNING)) {
+            runJob(job);
+        }
+    }
+
+    private void discoverJobs() {
+        Path root = Paths.get(ingestionPath);
+        if (!Files.isDirectory(root)) {
+            return;
+        }
+
+        try (Stream<Path> directories = Files.list(root)) {
+            for (Path directory : directories.filter(Files::isDirectory).sorted().toList()) {
+                String directoryName = directory.getFileName().toString();
+                if (Files.isRegularFile(directory.resolve(manifestName)) && !jobRepository.existsByDirectory(directoryName)) {
+                    createJob(directoryName);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Unable to list the directories of the ingestion path '{}'", root);
+        }
+    }
+
+    private void createJob(String directoryName) {
+        IngestionJob job = new IngestionJob();
+        job.setDirectory(directoryName);
+        job.setStatus(IngestionJobStatus.RUNNING);
+        try {
+            jobRepository.saveAndFlush(job);
+            logger.info("Created ingestion job '{}' for directory '{}'", job.getId(), directoryName);
+        } catch (DataIntegrityViolationException e) {
+            logger.info("Ingestion job for directory '{}' has been created by another instance", directoryName);
+        }
+    }
+
+    private void runJob(IngestionJob job) {
+        Path directory = Paths.get(ingestionPath).resolve(job.getDirectory()).normalize();
+        long checkpoint = job.getProcessedLines();
+        logger.info("Running ingestion job '{}' from line '{}'", job.getId(), checkpoint);
+
+        try (Stream<String> lines = Files.lines(directory.resolve(manifestName))) {
+            Iterator<String> manifest = lines.skip(checkpoint).iterator();
+            List<ManifestLine> batch = new ArrayList<>();
+            long lineNumber = checkpoint;
+            while (manifest.hasNext()) {
+                String line = manifest.next().strip();
+                lineNumber++;
+                if (!line.isEmpty() && !line.startsWith(COMMENT_PREFIX)) {
+                    batch.add(new ManifestLine(lineNumber, line));
+                }
+
+                if (lineNumber - checkpoint == batchSize) {
+                    if (!ingestBatch(job.getId(), directory, batch, checkpoint, lineNumber)) {
+                        return;
+                    }
+
+                    batch = new ArrayList<>();
+                    checkpoint = lineNumber;
+                }
+            }
+
+            if (lineNumber > checkpoint) {
+                if (!ingestBatch(job.getId(), directory, batch, checkpoint, lineNumber)) {
+                    return;
+                }
+
+                checkpoint = lineNumber;
+            }
+
+            updateJob(job.getId(), checkpoint, IngestionJobStatus.COMPLETED, null);
+            logger.info("Completed ingestion job '{}' after line '{}'", job.getId(), checkpoint);
+        } catch (IOException | RuntimeException e) {
+            // Also unchecked exceptions, so that a batch that can not be stored is not retried on every run
+            logger.error("Ingestion job '{}' failed after line '{}'", job.getId(), checkpoint, e);
+            Throwable cause = e.getCause() != null ? e.getCause() : e;
+            updateJob(job.getId(), checkpoint, IngestionJobStatus.FAILED, cause.toString());
+        }
+    }
+
+    /**
+     * Ingests the files of the batch and moves the checkpoint of the job after the last line of the batch
+     *
+     * @return false if the checkpoint has been moved by another run of the job, which continues it
+     */
+    private boolean ingestBatch(int jobId,
+                                Path directory,
+                                List<ManifestLine> lines,
+                                long checkpoint,
+                                long lastLine) {
+        List<IngestionFile> parsedFiles = lines.stream()
+                .map(line -> toIngestionFile(jobId, directory, line))
+                .flatMap(Optional::stream)
+                .toList();
+        Set<Integer> existingIds = Set.copyOf(dataRecordRepository.findExistingIds(
+                parsedFiles.stream().map(IngestionFile::dataRecordId).collect(Collectors.toSet())));
+        List<IngestionFile> files = parsedFiles.stream()
+                .filter(file -> {
+                    if (existingIds.contains(file.dataRecordId())) {
+                        return true;
+                    }
+
+                    logger.warn("Data record '{}' of line '{}' of ingestion job '{}' not found", file.dataRecordId(), file.lineNumber(), jobId);
+                    return false;
+                })
+                .toList();
+        int failedFiles = lines.size() - files.size();
+
+        List<IngestionFile> storedFiles = files.stream().filter(file -> !file.inline()).toList();
+        IngestionActions ingestionActions = storedFiles.isEmpty()
+                ? null
+                : transactionTemplate.execute(status -> addIngestionTransactionActions(storedFiles));
+
+        boolean storedInTransaction = fileStorage.requiresTransaction();
+        Map<IngestionFile, StoredFile> storedInParallel = storedInTransaction ? Map.of() : storeInParallel(storedFiles);
+
+        Boolean ingested = transactionTemplate.execute(status -> {
+            IngestionJob job = jobRepository.findById(jobId).orElseThrow();
+            if (job.getStatus() != IngestionJobStatus.RUNNING || job.getProcessedLines() != checkpoint) {
+                logger.info("Ingestion job '{}' changed while line '{}' was ingested. The batch is rolled back", jobId, lastLine);
+                status.setRollbackOnly();
+                return false;
+            }
+
+            addSections(files, storedInTransaction, storedInParallel);
+            if (ingestionActions != null) {
+                commitIngestionTransactionActions(ingestionActions);
+            }
+
+            job.setProcessedLines(lastLine);
+            job.setIngestedFiles(job.getIngestedFiles() + files.size());
+            job.setFailedFiles(job.getFailedFiles() + failedFiles);
+            jobRepository.save(job);
+            return true;
+        });
+
+        if (!Boolean.TRUE.equals(ingested)) {
+            return false;
+        }
+
+        files.forEach(file -> deleteIngestedFile(file.sourcePath()));
+        logger.info("Ingested '{}' files of ingestion job '{}' up to line '{}'. Failed files '{}'", files.size(), jobId, lastLine, failedFiles);
+        return true;
+    }
+
+    private void addSections(List<IngestionFile> files,
+                             boolean storedInTransaction,
+                             Map<IngestionFile, StoredFile> storedInParallel) {
+        Map<Integer, DataRecord> dataRecords = dataRecordRepository
+                .findAllById(files.stream().map(IngestionFile::dataRecordId).collect(Collectors.toSet()))
+                .stream()
+                .collect(Collectors.toMap(DataRecord::getId, Function.identity()));
+        Map<Integer, Long> addedBytes = new HashMap<>();
+        Map<Integer, Integer> addedSections = new HashMap<>();
+        for (IngestionFile file : files) {
+            DataRecord dataRecord = dataRecords.get(file.dataRecordId());
+            if (dataRecord == null) {
+                // Removed since the batch was checked, the batch is retried once the job is resumed
+                logger.error("Data record '{}' removed while it was ingested", file.dataRecordId());
+                throw new InvalidSystemStateException();
+            }
+
+            StoredFile storedFile;
+            if (file.inline()) {
+                storedFile = inlineSectionStore.store(readInlineContent(file));
+            } else if (storedInTransaction) {
+                storedFile = fileStorage.ingestSection(file.sourcePath(), file.systemFileName(), file.encoding());
+            } else {
+                storedFile = storedInParallel.get(file);
+            }
+
+            dataRecord.addSection(toSection(file, storedFile));
+            addedBytes.merge(file.dataRecordId(), storedFile.size(), Long::sum);
+            addedSections.merge(file.dataRecordId(), 1, Integer::sum);
+        }
+
+        addedBytes.forEach((dataRecordId, bytes) ->
+                storageUsageTracker.addUsage(dataRecordId, bytes, addedSections.get(dataRecordId)));
+        dataRecordRepository.saveAll(dataRecords.values());
+    }
+
+    private Optional<IngestionFile> toIngestionFile(int jobId, Path directory, ManifestLine line) {
+        String[] columns = line.content().split(",", 3);
+        if (columns.length < 2) {
+            logger.warn("Line '{}' of ingestion job '{}' is not valid", line.lineNumber(), jobId);
+            return Optional.empty();
+        }
+
+        int dataRecordId;
+        try {
+            dataRecordId = Integer.parseInt(columns[1].strip());
+        } catch (NumberFormatException e) {
+            logger.warn("Line '{}' of ingestion job '{}' has an invalid data record id", line.lineNumber(), jobId);
+            return Optional.empty();
+        }
+
+        Path sourcePath = directory.resolve(columns[0].strip()).normalize();
+        long size;
+        try {
+            if (!sourcePath.startsWith(directory) || !Files.isRegularFile(sourcePath)) {
+                logger.warn("File '{}' of line '{}' of ingestion job '{}' not found", sourcePath, line.lineNumber(), jobId);
+                return Optional.empty();
+            }
+
+            size = Files.size(sourcePath);
+        } catch (IOException | UncheckedIOException e) {
+            logger.warn("Unable to read file '{}' of line '{}' of ingestion job '{}'", sourcePath, line.lineNumber(), jobId);
+            return Optional.empty();
+        }
+
+        String fileName = sourcePath.getFileName().toString();
+        String contentType = columns.length > 2 && !columns[2].isBlank()
+                ? columns[2].strip()
+                : MediaTypeFactory.getMediaType(fileName).map(MediaType::toString).orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+
+        if (inlineSectionStore.admits(size)) {
+            return Optional.of(new IngestionFile(line.lineNumber(), sourcePath, dataRecordId, fileName, contentType, null, null));
+        }
+
+        return Optional.of(new IngestionFile(
+                line.lineNumber(),
+                sourcePath,
+                dataRecordId,
+                fileName,
+                contentType,
+                fileStorage.generateSystemFileName(fileName),
+                compressionPolicy.selectEncoding(contentType, size)));
+    }
+
+    /**
+     * Stores the files of the batch in parallel on the storage executor. Waits for every file, also when one of
+     * them fails, so no file is still being stored when the batch fails.
+     */
+    private Map<IngestionFile, StoredFile> storeInParallel(List<IngestionFile> files) {
+        Map<IngestionFile, CompletableFuture<StoredFile>> storedFiles = files.stream()
+                .collect(Collectors.toMap(Function.identity(), file -> CompletableFuture.supplyAsync(
+                        () -> fileStorage.ingestSection(file.sourcePath(), file.systemFileName(), file.encoding()),
+                        storageExecutor)));
+
+        try {
+            CompletableFuture.allOf(storedFiles.values().toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw e;
+        }
+
+        return storedFiles.entrySet().stream()
+                .collect(Collectors.toMap(Map.Entry::getKey, entry -> entry.getValue().join()));
+    }
+
+    private IngestionActions addIngestionTransactionActions(List<IngestionFile> storedFiles) {
+        TransactionActionRecord groupRecord = new TransactionActionRecord();
+        groupRecord.setActionType(ActionType.GROUP);
+        transactionActionRepository.save(groupRecord);
+
+        List<TransactionActionRecord> childRecords = storedFiles.stream()
+                .map(file -> {
+                    TransactionActionRecord childRecord = new TransactionActionRecord();
+                    childRecord.setStorageLocation(file.systemFileName());
+                    childRecord.setActionType(ActionType.CREATE);
+                    childRecord.setParentRecord(groupRecord);
+                    return childRecord;
+                })
+                .toList();
+        transactionActionRepository.saveAll(childRecords);
+
+        return new IngestionActions(groupRecord, childRecords);
+    }
+
+    private void commitIngestionTransactionActions(IngestionActions ingestionActions) {
+        ingestionActions.groupRecord().setCommitted(true);
+        ingestionActions.childRecords().forEach(childRecord -> childRecord.setCommitted(true));
+        transactionActionRepository.save(ingestionActions.groupRecord());
+        transactionActionRepository.saveAll(ingestionActions.childRecords());
+    }
+
+    private void updateJob(int jobId, long checkpoint, IngestionJobStatus jobStatus, String failureMessage) {
+        transactionTemplate.executeWithoutResult(status -> jobRepository.findById(jobId).ifPresent(job -> {
+            if (job.getProcessedLines() != checkpoint) {
+                return;
+            }
+
+            job.setStatus(jobStatus);
+            job.setFailureMessage(failureMessage == null || failureMessage.length() <= MAX_FAILURE_MESSAGE_LENGTH
+                    ? failureMessage
+                    : failureMessage.substring(0, MAX_FAILURE_MESSAGE_LENGTH));
+            jobRepository.save(job);
+        }));
+    }
+
+    private static byte[] readInlineContent(IngestionFile file) {
+        try {
+            return Files.readAllBytes(file.sourcePath());
+        } catch (IOException e) {
+            logger.error("Unable to read the ingested file '{}'", file.sourcePath());
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    private static void deleteIngestedFile(Path sourcePath) {
+        try {
+            Files.deleteIfExists(sourcePath);
+        } catch (IOException e) {
+            // The section has been committed, the file is only left in the directory
+            logger.warn("Unable to remove ingested file '{}'", sourcePath);
+        }
+    }
+
+    private static Section toSection(IngestionFile file, StoredFile storedFile) {
+        Section sectionRecord = new Section();
+        sectionRecord.setFileName(file.fileName());
+        sectionRecord.setStorageLocation(storedFile.storageLocation());
+        sectionRecord.setContentType(file.contentType());
+        sectionRecord.setFileSize(storedFile.size());
+        sectionRecord.setChecksum(storedFile.checksum());
+        sectionRecord.setContentEncoding(storedFile.encoding());
+        return sectionRecord;
+    }
+
+    private record ManifestLine(long lineNumber, String content) {
+    }
+
+    /**
+     * A file listed in the manifest. The system file name is null when the file is kept in the database.
+     */
+    private record IngestionFile(long lineNumber,
+                                 Path sourcePath,
+                                 int dataRecordId,
+                                 String fileName,
+                                 String contentType,
+                                 String systemFileName,
+                                 ContentEncoding encoding) {
+        private boolean inline() {
+            return systemFileName == null;
+        }
+    }
+
+    private record IngestionActions(TransactionActionRecord groupRecord, List<TransactionActionRecord> childRecords) {
+    }
+}
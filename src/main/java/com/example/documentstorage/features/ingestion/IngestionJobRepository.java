@@ -0,0 +1,14 @@
+package com.example.documentstorage.features.ingestion;
+
+import com.example.documentstorage.entities.IngestionJob;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface IngestionJobRepository extends JpaRepository<IngestionJob, Integer> {
+    List<IngestionJob> findByStatusOrderByIdAsc(IngestionJobStatus status);
+
+    boolean existsByDirectory(String directory);
+}
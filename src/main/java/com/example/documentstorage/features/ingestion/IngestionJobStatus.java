@@ -0,0 +1,11 @@
+package com.example.documentstorage.features.ingestion;
+
+/**
+ * The state of an ingestion job. Running jobs are continued by every run of the ingestion processor, from their
+ * checkpoint. Failed jobs keep their checkpoint and are continued once they are resumed.
+ */
+public enum IngestionJobStatus {
+    RUNNING,
+    COMPLETED,
+    FAILED
+}
@@ -0,0 +1,30 @@
+package com.example.documentstorage.features.ingestion;
+
+import com.example.documentstorage.shared.base.models.responses.IngestionJobDetail;
+
+public interface IngestionService {
+    /**
+     * Creates a job that ingests the files listed in the manifest of a directory below the ingestion path. The job
+     * is run by the next run of the {@link IngestionJobProcessor}.
+     *
+     * @param directory the directory, relative to the ingestion path
+     * @return the created job
+     */
+    IngestionJobDetail createJob(String directory);
+
+    /**
+     * Gets the status and the progress of an ingestion job
+     *
+     * @param jobId the id of the job
+     * @return the job
+     */
+    IngestionJobDetail getJob(int jobId);
+
+    /**
+     * Resumes a failed ingestion job from its checkpoint
+     *
+     * @param jobId the id of the job
+     * @return the resumed job
+     */
+    IngestionJobDetail resumeJob(int jobId);
+}
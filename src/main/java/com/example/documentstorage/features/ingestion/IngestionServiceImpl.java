@@ -0,0 +1,126 @@
+package com.example.documentstorage.features.ingestion;
+
+import com.example.documentstorage.entities.IngestionJob;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.models.responses.IngestionJobDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.nio.file.Files;
+import java.nio.file.InvalidPathException;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+
+@Service
+public class IngestionServiceImpl implements IngestionService {
+    private static final Logger logger = LoggerFactory.getLogger(IngestionServiceImpl.class);
+
+    private final IngestionJobRepository jobRepository;
+    private final String ingestionPath;
+    private final String manifestName;
+
+    public IngestionServiceImpl(IngestionJobRepository jobRepository,
+                                @Value("${document.storage.ingestion.path}") String ingestionPath,
+                                @Value("${document.storage.ingestion.manifest}") String manifestName) {
+        this.jobRepository = jobRepository;
+        this.ingestionPath = ingestionPath;
+        this.manifestName = manifestName;
+    }
+
+    /**
+     * Creates a job that ingests the files listed in the manifest of the directory. Only directories below the
+     * ingestion path can be ingested, and every directory is ingested once.
+     *
+     * @param directory the directory, relative to the ingestion path
+     * @return the created job
+     */
+    @Override
+    public IngestionJobDetail createJob(String directory) {
+        if (ingestionPath == null || ingestionPath.isBlank()) {
+            logger.warn("Ingestion of directory '{}' requested while the ingestion is disabled", directory);
+            throw new InvalidClientInputException("features.ingestion.on.job.create.ingestion.disabled");
+        }
+
+        Path root = Paths.get(ingestionPath).normalize();
+        Path jobDirectory;
+        try {
+            jobDirectory = root.resolve(directory).normalize();
+        } catch (InvalidPathException e) {
+            logger.warn("Directory '{}' is not a valid ingestion directory", directory);
+            throw new InvalidClientInputException("features.ingestion.on.job.create.directory.invalid", directory);
+        }
+
+        if (!jobDirectory.startsWith(root) || jobDirectory.equals(root) || !Files.isRegularFile(jobDirectory.resolve(manifestName))) {
+            logger.warn("Directory '{}' is not a valid ingestion directory", directory);
+            throw new InvalidClientInputException("features.ingestion.on.job.create.directory.invalid", directory);
+        }
+
+        String relativeDirectory = root.relativize(jobDirectory).toString();
+        if (jobRepository.existsByDirectory(relativeDirectory)) {
+            logger.warn("Directory '{}' has already been ingested", relativeDirectory);
+            throw new InvalidClientInputException("features.ingestion.on.job.create.job.exists", relativeDirectory);
+        }
+
+        IngestionJob job = new IngestionJob();
+        job.setDirectory(relativeDirectory);
+        job.setStatus(IngestionJobStatus.RUNNING);
+        jobRepository.saveAndFlush(job);
+
+        logger.info("Created ingestion job '{}' for directory '{}'", job.getId(), relativeDirectory);
+        return toIngestionJobDetail(job);
+    }
+
+    @Override
+    public IngestionJobDetail getJob(int jobId) {
+        IngestionJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> {
+                    logger.warn("Ingestion job '{}' not found", jobId);
+                    return new InvalidClientInputException("features.ingestion.on.job.get.job.not.found", jobId);
+                });
+
+        return toIngestionJobDetail(job);
+    }
+
+    /**
+     * Resumes a failed ingestion job. The job is continued from its checkpoint by the next run of the
+     * {@link IngestionJobProcessor}.
+     *
+     * @param jobId the id of the job
+     * @return the resumed job
+     */
+    @Override
+    public IngestionJobDetail resumeJob(int jobId) {
+        IngestionJob job = jobRepository.findById(jobId)
+                .orElseThrow(() -> {
+                    logger.warn("Ingestion job '{}' not found for resume", jobId);
+                    return new InvalidClientInputException("features.ingestion.on.job.resume.job.not.found", jobId);
+                });
+
+        if (job.getStatus() != IngestionJobStatus.FAILED) {
+            logger.warn("Ingestion job '{}' with status '{}' can not be resumed", jobId, job.getStatus());
+            throw new InvalidClientInputException("features.ingestion.on.job.resume.job.not.failed", jobId);
+        }
+
+        job.setStatus(IngestionJobStatus.RUNNING);
+        job.setFailureMessage(null);
+        jobRepository.saveAndFlush(job);
+
+        logger.info("Resumed ingestion job '{}' from line '{}'", jobId, job.getProcessedLines());
+        return toIngestionJobDetail(job);
+    }
+
+    private static IngestionJobDetail toIngestionJobDetail(IngestionJob job) {
+        return new IngestionJobDetail(
+                job.getId(),
+                job.getDirectory(),
+                job.getStatus(),
+                job.getProcessedLines(),
+                job.getIngestedFiles(),
+                job.getFailedFiles(),
+                job.getFailureMessage(),
+                job.getCreatedAt(),
+                job.getModifiedAt());
+    }
+}
@@ -0,0 +1,31 @@
+package com.example.documentstorage.features.integrity;
+
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityFailureReason;
+import com.example.documentstorage.shared.base.registers.PaginationCriteria;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api/integrity")
+public class IntegrityController {
+    private final IntegrityReportService integrityReportService;
+
+    public IntegrityController(IntegrityReportService integrityReportService) {
+        this.integrityReportService = integrityReportService;
+    }
+
+    /**
+     * Gets the stored section files that failed the verification against their checksums, found by the
+     * background scrubber or on download
+     *
+     * @param reason the reason of the failures, or all the failures when missing
+     * @return {@link IntegrityReportResponse} the failures
+     */
+    @GetMapping("/failures")
+    public ResponseEntity<IntegrityReportResponse> getFailures(
+            @RequestParam(required = false) IntegrityFailureReason reason,
+            @ModelAttribute PaginationCriteria paginationCriteria) {
+        IntegrityReportResponse report = integrityReportService.getFailures(reason, paginationCriteria);
+        return ResponseEntity.ok().body(report);
+    }
+}
@@ -0,0 +1,13 @@
+package com.example.documentstorage.features.integrity;
+
+import com.example.documentstorage.entities.SectionIntegrityFailure;
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityFailureReason;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface IntegrityFailureRepository extends JpaRepository<SectionIntegrityFailure, Long> {
+    Page<SectionIntegrityFailure> findByReason(IntegrityFailureReason reason, Pageable pageable);
+}
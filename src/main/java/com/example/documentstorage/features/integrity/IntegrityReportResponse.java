@@ -0,0 +1,8 @@
+package com.example.documentstorage.features.integrity;
+
+import com.example.documentstorage.shared.base.models.responses.IntegrityFailureDetail;
+
+import java.util.List;
+
+public record IntegrityReportResponse(List<IntegrityFailureDetail> failures, long totalFailures) {
+}
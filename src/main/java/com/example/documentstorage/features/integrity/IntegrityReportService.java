@@ -0,0 +1,15 @@
+package com.example.documentstorage.features.integrity;
+
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityFailureReason;
+import com.example.documentstorage.shared.base.registers.PaginationCriteria;
+
+public interface IntegrityReportService {
+    /**
+     * Gets the stored section files that failed the verification against their checksums
+     *
+     * @param reason             the reason of the failures, or null for all the failures
+     * @param paginationCriteria contains the pagination requirements
+     * @return the paginated failures, the most recently detected first unless sorted otherwise
+     */
+    IntegrityReportResponse getFailures(IntegrityFailureReason reason, PaginationCriteria paginationCriteria);
+}
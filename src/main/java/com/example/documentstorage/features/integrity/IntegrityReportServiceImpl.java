@@ -0,0 +1,59 @@
+package com.example.documentstorage.features.integrity;
+
+import com.example.documentstorage.entities.SectionIntegrityFailure;
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityFailureReason;
+import com.example.documentstorage.shared.base.models.responses.IntegrityFailureDetail;
+import com.example.documentstorage.shared.base.registers.PaginationCriteria;
+import com.example.documentstorage.shared.base.registers.RegisterCriteriaParser;
+import org.springframework.data.domain.Page;
+import org.springframework.data.domain.PageRequest;
+import org.springframework.data.domain.Pageable;
+import org.springframework.data.domain.Sort;
+import org.springframework.stereotype.Service;
+
+@Service
+public class IntegrityReportServiceImpl implements IntegrityReportService {
+    private final IntegrityFailureRepository failureRepository;
+    private final RegisterCriteriaParser registerCriteriaParser;
+
+    public IntegrityReportServiceImpl(IntegrityFailureRepository failureRepository,
+                                      RegisterCriteriaParser registerCriteriaParser) {
+        this.failureRepository = failureRepository;
+        this.registerCriteriaParser = registerCriteriaParser;
+    }
+
+    /**
+     * Gets the stored section files that failed the verification against their checksums
+     *
+     * @param reason             the reason of the failures, or null for all the failures
+     * @param paginationCriteria contains the pagination requirements
+     * @return the paginated failures, the most recently detected first unless sorted otherwise
+     */
+    @Override
+    public IntegrityReportResponse getFailures(IntegrityFailureReason reason, PaginationCriteria paginationCriteria) {
+        Pageable pageable = registerCriteriaParser.parsePaginationCriteria(paginationCriteria);
+        if (pageable.getSort().isUnsorted()) {
+            pageable = PageRequest.of(pageable.getPageNumber(), pageable.getPageSize(), Sort.by(Sort.Direction.DESC, "detectedAt"));
+        }
+
+        Page<SectionIntegrityFailure> failures = reason == null
+                ? failureRepository.findAll(pageable)
+                : failureRepository.findByReason(reason, pageable);
+
+        return new IntegrityReportResponse(
+                failures.map(IntegrityReportServiceImpl::toDetail).toList(),
+                failures.getTotalElements());
+    }
+
+    private static IntegrityFailureDetail toDetail(SectionIntegrityFailure failure) {
+        return new IntegrityFailureDetail(
+                failure.getSectionId(),
+                failure.getStorageLocation(),
+                failure.getExpectedChecksum(),
+                failure.getActualChecksum(),
+                failure.getReason(),
+                failure.getDetectedBy(),
+                failure.getCreatedAt(),
+                failure.getDetectedAt());
+    }
+}
@@ -0,0 +1,12 @@
+package com.example.documentstorage.features.sections;
+
+import java.util.List;
+
+/**
+ * The sections of a data record, downloaded as one archive
+ *
+ * @param fileName the file name of the archive
+ * @param entries  the sections in the archive
+ */
+public record SectionArchive(String fileName, List<SectionArchiveEntry> entries) {
+}
@@ -0,0 +1,24 @@
+package com.example.documentstorage.features.sections;
+
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+
+import java.time.LocalDateTime;
+
+/**
+ * A section written to an archive
+ *
+ * @param fileName        the original file name of the section
+ * @param contentType     the content type of the section
+ * @param contentLength   the size of the section content, before it has been encoded
+ * @param contentEncoding the encoding in which the content is stored
+ * @param lastModified    the date when the section has been last modified
+ * @param content         the content as it is stored. It is opened only when it is read and must be closed
+ */
+public record SectionArchiveEntry(String fileName,
+                                  String contentType,
+                                  long contentLength,
+                                  ContentEncoding contentEncoding,
+                                  LocalDateTime lastModified,
+                                  SectionContent content) {
+}
@@ -0,0 +1,14 @@
+package com.example.documentstorage.features.sections;
+
+import jakarta.servlet.http.HttpServletResponse;
+
+public interface SectionArchiveWriter {
+    /**
+     * Streams the sections to the response as a ZIP archive, reading one section at a time. The content of every
+     * section is closed after it has been written.
+     *
+     * @param archive  the downloaded sections
+     * @param response the response to which the archive is written
+     */
+    void writeArchive(SectionArchive archive, HttpServletResponse response);
+}
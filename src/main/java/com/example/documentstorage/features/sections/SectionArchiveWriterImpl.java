@@ -0,0 +1,159 @@
+package com.example.documentstorage.features.sections;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Component;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Set;
+import java.util.zip.CRC32;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipOutputStream;
+
+/**
+ * Streams sections as a ZIP archive. Every section is read in turn and written through the deflater straight to
+ * the response, so the memory used does not depend on the number or the size of the sections.
+ * Sections of already compressed content types are written as STORED entries. A STORED entry needs its CRC before
+ * its content, so these sections are read twice: once to compute the CRC and once to write them. The second read
+ * is usually served from the page cache, and is still cheaper than compressing the content again.
+ */
+@Component
+public class SectionArchiveWriterImpl implements SectionArchiveWriter {
+    private static final Logger logger = LoggerFactory.getLogger(SectionArchiveWriterImpl.class);
+    private static final String ARCHIVE_CONTENT_TYPE = "application/zip";
+
+    private final List<MediaType> storedContentTypes;
+
+    public SectionArchiveWriterImpl(
+            @Value("${document.storage.archive.stored.content.types}") List<String> storedContentTypes) {
+        this.storedContentTypes = storedContentTypes.stream().map(MediaType::parseMediaType).toList();
+    }
+
+    /**
+     * Streams the sections to the response as a ZIP archive. Sections with the same file name are renamed,
+     * e.g. {@code invoice (2).pdf}, so that every section is extracted.
+     *
+     * @param archive  the downloaded sections
+     * @param response the response to which the archive is written
+     */
+    @Override
+    public void writeArchive(SectionArchive archive, HttpServletResponse response) {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(ARCHIVE_CONTENT_TYPE);
+        response.setHeader(HttpHeaders.CONTENT_DISPOSITION, "attachment; filename=\"%s\"".formatted(archive.fileName()));
+
+        Set<String> entryNames = new HashSet<>();
+        try (ZipOutputStream zipOutputStream = new ZipOutputStream(response.getOutputStream())) {
+            WritableByteChannel target = Channels.newChannel(zipOutputStream);
+            for (SectionArchiveEntry entry : archive.entries()) {
+                writeEntry(entry, uniqueEntryName(entry.fileName(), entryNames), zipOutputStream, target);
+            }
+
+            zipOutputStream.finish();
+        } catch (IOException e) {
+            handleException(e, response);
+        }
+    }
+
+    private void writeEntry(SectionArchiveEntry entry,
+                            String entryName,
+                            ZipOutputStream zipOutputStream,
+                            WritableByteChannel target) throws IOException {
+        try (SectionContent content = entry.contentEncoding().decode(entry.content(), entry.contentLength())) {
+            ZipEntry zipEntry = new ZipEntry(entryName);
+            zipEntry.setTimeLocal(entry.lastModified());
+            if (isStored(entry)) {
+                zipEntry.setMethod(ZipEntry.STORED);
+                zipEntry.setSize(content.size());
+                zipEntry.setCompressedSize(content.size());
+                zipEntry.setCrc(computeCrc(content));
+            }
+
+            zipOutputStream.putNextEntry(zipEntry);
+            content.transferTo(0, content.size(), target);
+            zipOutputStream.closeEntry();
+        }
+    }
+
+    /**
+     * Checks if the section is already compressed. Sections compressed at rest are compressible, as only
+     * compressible content types are compressed at rest.
+     */
+    private boolean isStored(SectionArchiveEntry entry) {
+        if (entry.contentEncoding() != ContentEncoding.IDENTITY || entry.contentType() == null) {
+            return false;
+        }
+
+        try {
+            MediaType contentType = MediaType.parseMediaType(entry.contentType());
+            return storedContentTypes.stream().anyMatch(type -> type.includes(contentType));
+        } catch (InvalidMediaTypeException e) {
+            return false;
+        }
+    }
+
+    private static long computeCrc(SectionContent content) throws IOException {
+        CRC32 crc = new CRC32();
+        content.transferTo(0, content.size(), new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) {
+                int remaining = source.remaining();
+                crc.update(source);
+                return remaining;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+                // Nothing to release
+            }
+        });
+
+        return crc.getValue();
+    }
+
+    /**
+     * Builds an entry name that is not used yet in the archive. Directories in the file name are not kept, so
+     * that entries can not be extracted outside the target directory.
+     */
+    private static String uniqueEntryName(String fileName, Set<String> entryNames) {
+        String baseName = fileName == null || fileName.isBlank() ? "section" : fileName.replaceAll("[/\\\\]", "_");
+        String entryName = baseName;
+        int lastIndexOf = baseName.lastIndexOf(".");
+        String name = lastIndexOf > 0 ? baseName.substring(0, lastIndexOf) : baseName;
+        String extension = lastIndexOf > 0 ? baseName.substring(lastIndexOf) : "";
+        for (int copy = 2; !entryNames.add(entryName); copy++) {
+            entryName = "%s (%d)%s".formatted(name, copy, extension);
+        }
+
+        return entryName;
+    }
+
+    private static void handleException(IOException e, HttpServletResponse response) {
+        if (response.isCommitted()) {
+            // The client has most likely closed the connection. Nothing can be sent back anymore.
+            logger.warn("Section archive download interrupted: {}", e.getMessage());
+            return;
+        }
+
+        logger.error("Unable to write section archive to the response");
+        throw new InvalidSystemStateException(e);
+    }
+}
@@ -1,30 +1,65 @@
 package com.example.documentstorage.features.sections;
 
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
 import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
 import org.springframework.http.HttpHeaders;
 import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
 import org.springframework.http.ResponseEntity;
 import org.springframework.web.bind.annotation.*;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.List;
+import java.util.Optional;
+
 @RestController
 @RequestMapping("/api/data-records/{dataRecordId}/sections")
 public class SectionController {
+    private static final String FILE_NAME_HEADER = "X-File-Name";
+    private static final String SECTION_CONTENT_TYPE_HEADER = "X-Section-Content-Type";
 
     private final SectionService sectionService;
+    private final SectionResponseWriter sectionResponseWriter;
+    private final SectionArchiveWriter sectionArchiveWriter;
 
-    public SectionController(SectionService sectionService) {
+    public SectionController(SectionService sectionService,
+                             SectionResponseWriter sectionResponseWriter,
+                             SectionArchiveWriter sectionArchiveWriter) {
         this.sectionService = sectionService;
+        this.sectionResponseWriter = sectionResponseWriter;
+        this.sectionArchiveWriter = sectionArchiveWriter;
     }
 
+    /**
+     * Streams the section file to the response, without loading it in memory.
+     * Supports {@code Range}, {@code If-Range}, {@code If-None-Match} and {@code HEAD} requests.
+     *
+     * @param dataRecordId the id of the data record
+     * @param sectionId    the id of the section
+     */
     @GetMapping("/{sectionId}/download")
-    public ResponseEntity<byte[]> downloadSection(@PathVariable int dataRecordId, @PathVariable int sectionId) {
+    public void downloadSection(@PathVariable int dataRecordId,
+                                @PathVariable int sectionId,
+                                HttpServletRequest request,
+                                HttpServletResponse response) {
         SectionData sectionData = sectionService.downloadSection(dataRecordId, sectionId);
+        sectionResponseWriter.writeSection(sectionData, request, response);
+    }
 
-        return ResponseEntity.ok()
-                .header(HttpHeaders.CONTENT_DISPOSITION, sectionData.contentDisposition())
-                .contentType(MediaType.parseMediaType(sectionData.contentType()))
-                .body(sectionData.content());
+    /**
+     * Streams all the sections of the data record to the response as a ZIP archive, one section at a time
+     *
+     * @param dataRecordId the id of the data record
+     */
+    @GetMapping("/archive")
+    public void downloadArchive(@PathVariable int dataRecordId, HttpServletResponse response) {
+        SectionArchive archive = sectionService.downloadArchive(dataRecordId);
+        sectionArchiveWriter.writeArchive(archive, response);
     }
 
     //ToDo Soft Delete on data records
@@ -36,9 +71,68 @@ public class SectionController {
         return ResponseEntity.ok(recordDetail);
     }
 
+    /**
+     * Uploads several sections as one batch. The files are stored in parallel and either all the sections are
+     * added or none.
+     *
+     * @param dataRecordId the id of the data record
+     * @param sectionFiles the files, sent as multiple {@code sections} parts
+     * @return {@link DataRecordDetail} the data record with its sections
+     */
+    @PostMapping(value = "/batch", consumes = MediaType.MULTIPART_FORM_DATA_VALUE)
+    public ResponseEntity<DataRecordDetail> uploadSections(@PathVariable int dataRecordId,
+                                                           @RequestParam("sections") List<MultipartFile> sectionFiles) {
+        DataRecordDetail recordDetail = sectionService.uploadSections(dataRecordId, sectionFiles);
+        return ResponseEntity.ok(recordDetail);
+    }
+
+    /**
+     * Uploads a section from the raw request body, without multipart spooling. The content is streamed directly
+     * into the stored file.
+     *
+     * @param dataRecordId  the id of the data record
+     * @param fileName      the URL encoded original file name, sent in the {@code X-File-Name} header
+     * @param contentType   the content type of the section, sent in the {@code X-Section-Content-Type} header.
+     *                      If missing, the content type is resolved from the file name
+     * @param contentLength the size of the request body, or -1 when it is sent in chunks
+     * @param content       the request body
+     * @return {@link DataRecordDetail} the data record with its sections
+     */
+    @RequestMapping(method = {RequestMethod.PUT, RequestMethod.POST}, consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<DataRecordDetail> uploadSectionContent(
+            @PathVariable int dataRecordId,
+            @RequestHeader(value = FILE_NAME_HEADER, required = false) String fileName,
+            @RequestHeader(value = SECTION_CONTENT_TYPE_HEADER, required = false) String contentType,
+            @RequestHeader(value = HttpHeaders.CONTENT_LENGTH, defaultValue = "-1") long contentLength,
+            InputStream content) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new InvalidClientInputException("features.sections.on.section.upload.file.name.missing", FILE_NAME_HEADER);
+        }
+
+        String decodedFileName = URLDecoder.decode(fileName, StandardCharsets.UTF_8);
+        String sectionContentType = Optional.ofNullable(contentType)
+                .or(() -> MediaTypeFactory.getMediaType(decodedFileName).map(MediaType::toString))
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+
+        DataRecordDetail recordDetail = sectionService.uploadSection(dataRecordId, decodedFileName, sectionContentType, contentLength, content);
+        return ResponseEntity.ok(recordDetail);
+    }
+
     @DeleteMapping("/{sectionId}")
     public ResponseEntity<Void> deleteSection(@PathVariable int dataRecordId, @PathVariable int sectionId) {
         sectionService.deleteSection(dataRecordId, sectionId);
         return ResponseEntity.noContent().build();
     }
+
+    /**
+     * Deletes several sections as one batch. Either all the sections are removed or none.
+     *
+     * @param dataRecordId the id of the data record
+     * @param sectionIds   the ids of the sections
+     */
+    @DeleteMapping
+    public ResponseEntity<Void> deleteSections(@PathVariable int dataRecordId, @RequestParam("sectionIds") List<Integer> sectionIds) {
+        sectionService.deleteSections(dataRecordId, sectionIds);
+        return ResponseEntity.noContent().build();
+    }
 }
@@ -1,4 +1,26 @@
 package com.example.documentstorage.features.sections;
 
-public record SectionData(byte[] content, String contentType, String contentDisposition) {
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+
+import java.time.LocalDateTime;
+
+/**
+ * A downloaded section
+ *
+ * @param content            the content as it is stored, encoded in the content encoding
+ * @param contentType        the content type of the section
+ * @param contentDisposition the content disposition of the response
+ * @param contentLength      the size of the section content, before it has been encoded
+ * @param contentEncoding    the encoding in which the content is stored
+ * @param lastModified       the date when the section has been last modified
+ * @param checksum           the SHA-256 hash of the section content, or null for sections stored without it
+ */
+public record SectionData(SectionContent content,
+                          String contentType,
+                          String contentDisposition,
+                          long contentLength,
+                          ContentEncoding contentEncoding,
+                          LocalDateTime lastModified,
+                          String checksum) {
 }
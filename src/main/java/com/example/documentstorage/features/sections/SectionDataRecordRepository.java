@@ -5,14 +5,23 @@ import org.springframework.data.jpa.repository.JpaRepository;
 import org.springframework.data.jpa.repository.Query;
 import org.springframework.stereotype.Repository;
 
+import java.util.List;
 import java.util.Optional;
 
 @Repository
 public interface SectionDataRecordRepository extends JpaRepository<DataRecord, Integer> {
     @Query("""
-                SELECT new com.example.documentstorage.features.sections.SectionDownloadData(s.id, s.fileName, s.storageLocation, s.contentType)
+                SELECT new com.example.documentstorage.features.sections.SectionDownloadData(s.id, s.fileName, s.storageLocation, s.contentType, s.fileSize, s.contentEncoding, s.checksum, s.modifiedAt)
                 FROM DataRecord d
                 JOIN d.sections s WHERE d.id = :dataRecordId AND s.id = :sectionId
                 """)
     Optional<SectionDownloadData> findByIdAndSectionId(int dataRecordId, int sectionId);
+
+    @Query("""
+                SELECT new com.example.documentstorage.features.sections.SectionDownloadData(s.id, s.fileName, s.storageLocation, s.contentType, s.fileSize, s.contentEncoding, s.checksum, s.modifiedAt)
+                FROM DataRecord d
+                JOIN d.sections s WHERE d.id = :dataRecordId
+                ORDER BY s.id ASC
+                """)
+    List<SectionDownloadData> findSectionsById(int dataRecordId);
 }
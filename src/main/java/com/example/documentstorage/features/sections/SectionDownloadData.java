@@ -1,4 +1,15 @@
 package com.example.documentstorage.features.sections;
 
-public record SectionDownloadData(int id, String fileName, String storageLocation, String contentType) {
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+
+import java.time.LocalDateTime;
+
+public record SectionDownloadData(int id,
+                                  String fileName,
+                                  String storageLocation,
+                                  String contentType,
+                                  long fileSize,
+                                  ContentEncoding contentEncoding,
+                                  String checksum,
+                                  LocalDateTime modifiedAt) {
 }
@@ -0,0 +1,16 @@
+package com.example.documentstorage.features.sections;
+
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+
+public interface SectionResponseWriter {
+    /**
+     * Writes the section content to the response, without loading it in memory. The content of the section is
+     * closed after it has been written. Range requests are answered with partial content.
+     *
+     * @param sectionData the downloaded section
+     * @param request     the download request
+     * @param response    the response to which the section is written
+     */
+    void writeSection(SectionData sectionData, HttpServletRequest request, HttpServletResponse response);
+}
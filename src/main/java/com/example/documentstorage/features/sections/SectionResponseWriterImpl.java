@@ -0,0 +1,429 @@
+package com.example.documentstorage.features.sections;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.FileRegion;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+import jakarta.servlet.ServletOutputStream;
+import jakarta.servlet.http.HttpServletRequest;
+import jakarta.servlet.http.HttpServletResponse;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.http.HttpHeaders;
+import org.springframework.http.HttpMethod;
+import org.springframework.http.HttpRange;
+import org.springframework.stereotype.Component;
+import org.springframework.util.MimeTypeUtils;
+
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.channels.WritableByteChannel;
+import java.nio.charset.StandardCharsets;
+import java.time.ZoneId;
+import java.time.ZonedDateTime;
+import java.time.format.DateTimeFormatter;
+import java.time.format.DateTimeParseException;
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Optional;
+
+@Component
+public class SectionResponseWriterImpl implements SectionResponseWriter {
+    private static final Logger logger = LoggerFactory.getLogger(SectionResponseWriterImpl.class);
+
+    // Request attributes used by Tomcat for zero copy transfers of files
+    private static final String SENDFILE_SUPPORTED_ATTRIBUTE = "org.apache.tomcat.sendfile.support";
+    private static final String SENDFILE_FILENAME_ATTRIBUTE = "org.apache.tomcat.sendfile.filename";
+    private static final String SENDFILE_START_ATTRIBUTE = "org.apache.tomcat.sendfile.start";
+    private static final String SENDFILE_END_ATTRIBUTE = "org.apache.tomcat.sendfile.end";
+
+    private static final String BYTES_RANGE_UNIT = "bytes";
+    // The content of a section is replaced by deltas under the same URL, so caches revalidate it with its ETag
+    private static final String REVALIDATE_CACHE_CONTROL = "public, no-cache";
+    private static final String CRLF = "\r\n";
+
+    /**
+     * Writes the section content to the response, without loading it in memory. The content of the section is
+     * closed after it has been written. When the servlet container supports it, the file is sent with zero copy,
+     * otherwise it is copied to the socket in fixed size chunks.
+     * The {@code Range} and {@code If-Range} headers are honored. A single satisfiable range is sent as
+     * {@code 206 Partial Content}, multiple ranges are sent as {@code multipart/byteranges}.
+     * Content stored encoded is sent as it is with {@code Content-Encoding} to clients that accept the encoding,
+     * otherwise it is decoded while it is sent.
+     * Every representation has a strong {@code ETag} built from the checksum of the section and the sent encoding.
+     * Conditional requests that match are answered with {@code 304 Not Modified} and {@code HEAD} requests with
+     * the headers only, without opening the content. A {@code HEAD} request for content sent encoded has no
+     * {@code Content-Length}, as its encoded size is not known without opening the content.
+     *
+     * @param sectionData the downloaded section
+     * @param request     the download request
+     * @param response    the response to which the section is written
+     */
+    @Override
+    public void writeSection(SectionData sectionData, HttpServletRequest request, HttpServletResponse response) {
+        ContentEncoding sentEncoding = selectEncoding(sectionData, request, response);
+        try (SectionContent content = toRepresentation(sectionData, sentEncoding)) {
+            long lastModified = toEpochMilli(sectionData);
+            Optional<String> entityTag = toEntityTag(sectionData, sentEncoding);
+            response.setHeader(HttpHeaders.ACCEPT_RANGES, BYTES_RANGE_UNIT);
+            response.setHeader(HttpHeaders.CONTENT_DISPOSITION, sectionData.contentDisposition());
+            response.setHeader(HttpHeaders.CACHE_CONTROL, REVALIDATE_CACHE_CONTROL);
+            response.setDateHeader(HttpHeaders.LAST_MODIFIED, lastModified);
+            entityTag.ifPresent(tag -> response.setHeader(HttpHeaders.ETAG, tag));
+
+            if (isNotModified(request, entityTag, lastModified)) {
+                response.setStatus(HttpServletResponse.SC_NOT_MODIFIED);
+                return;
+            }
+
+            if (HttpMethod.HEAD.matches(request.getMethod())) {
+                response.setStatus(HttpServletResponse.SC_OK);
+                response.setContentType(sectionData.contentType());
+                // The size of the encoded content is only known once the stored file has been opened
+                if (sentEncoding == ContentEncoding.IDENTITY) {
+                    response.setContentLengthLong(sectionData.contentLength());
+                }
+                return;
+            }
+
+            Optional<List<ByteRange>> requestedRanges = resolveRanges(request, content.size(), lastModified, entityTag);
+            if (requestedRanges.isEmpty()) {
+                writeFullContent(sectionData, content, request, response);
+                return;
+            }
+
+            List<ByteRange> ranges = requestedRanges.get();
+            if (ranges.isEmpty()) {
+                response.setStatus(HttpServletResponse.SC_REQUESTED_RANGE_NOT_SATISFIABLE);
+                response.setHeader(HttpHeaders.CONTENT_RANGE, "%s */%d".formatted(BYTES_RANGE_UNIT, content.size()));
+                response.setContentLength(0);
+                return;
+            }
+
+            if (ranges.size() == 1) {
+                writeSingleRange(sectionData, content, ranges.getFirst(), request, response);
+            } else {
+                writeMultipleRanges(sectionData, content, ranges, response);
+            }
+        } catch (IOException e) {
+            handleException(e, response);
+        }
+    }
+
+    private static void writeFullContent(SectionData sectionData,
+                                         SectionContent content,
+                                         HttpServletRequest request,
+                                         HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_OK);
+        response.setContentType(sectionData.contentType());
+        response.setContentLengthLong(content.size());
+
+        if (trySendFile(content, 0, content.size(), request)) {
+            return;
+        }
+
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        content.transferTo(0, content.size(), target);
+        response.flushBuffer();
+    }
+
+    private static void writeSingleRange(SectionData sectionData,
+                                         SectionContent content,
+                                         ByteRange range,
+                                         HttpServletRequest request,
+                                         HttpServletResponse response) throws IOException {
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType(sectionData.contentType());
+        response.setHeader(HttpHeaders.CONTENT_RANGE, range.toContentRange(content.size()));
+        response.setContentLengthLong(range.length());
+
+        if (trySendFile(content, range.start(), range.length(), request)) {
+            return;
+        }
+
+        WritableByteChannel target = Channels.newChannel(response.getOutputStream());
+        content.transferTo(range.start(), range.length(), target);
+        response.flushBuffer();
+    }
+
+    private static void writeMultipleRanges(SectionData sectionData,
+                                            SectionContent content,
+                                            List<ByteRange> ranges,
+                                            HttpServletResponse response) throws IOException {
+        String boundary = MimeTypeUtils.generateMultipartBoundaryString();
+        List<byte[]> partHeaders = new ArrayList<>(ranges.size());
+        long contentLength = 0;
+        for (ByteRange range : ranges) {
+            String partHeader = CRLF + "--" + boundary + CRLF
+                    + HttpHeaders.CONTENT_TYPE + ": " + sectionData.contentType() + CRLF
+                    + HttpHeaders.CONTENT_RANGE + ": " + range.toContentRange(content.size()) + CRLF
+                    + CRLF;
+            byte[] partHeaderBytes = partHeader.getBytes(StandardCharsets.US_ASCII);
+            partHeaders.add(partHeaderBytes);
+            contentLength += partHeaderBytes.length + range.length();
+        }
+
+        byte[] closingBoundary = (CRLF + "--" + boundary + "--" + CRLF).getBytes(StandardCharsets.US_ASCII);
+        contentLength += closingBoundary.length;
+
+        response.setStatus(HttpServletResponse.SC_PARTIAL_CONTENT);
+        response.setContentType("multipart/byteranges; boundary=" + boundary);
+        response.setContentLengthLong(contentLength);
+
+        ServletOutputStream outputStream = response.getOutputStream();
+        WritableByteChannel target = Channels.newChannel(outputStream);
+        for (int i = 0; i < ranges.size(); i++) {
+            ByteRange range = ranges.get(i);
+            outputStream.write(partHeaders.get(i));
+            content.transferTo(range.start(), range.length(), target);
+        }
+
+        outputStream.write(closingBoundary);
+        response.flushBuffer();
+    }
+
+    /**
+     * Selects the encoding of the representation sent to the client. Ranges apply to the selected representation.
+     */
+    private static ContentEncoding selectEncoding(SectionData sectionData,
+                                                  HttpServletRequest request,
+                                                  HttpServletResponse response) {
+        ContentEncoding encoding = sectionData.contentEncoding();
+        if (encoding == ContentEncoding.IDENTITY) {
+            return ContentEncoding.IDENTITY;
+        }
+
+        response.setHeader(HttpHeaders.VARY, HttpHeaders.ACCEPT_ENCODING);
+        if (acceptsEncoding(request, encoding)) {
+            response.setHeader(HttpHeaders.CONTENT_ENCODING, encoding.getToken());
+            return encoding;
+        }
+
+        return ContentEncoding.IDENTITY;
+    }
+
+    private static SectionContent toRepresentation(SectionData sectionData, ContentEncoding sentEncoding) {
+        if (sentEncoding == sectionData.contentEncoding()) {
+            return sectionData.content();
+        }
+
+        return sectionData.contentEncoding().decode(sectionData.content(), sectionData.contentLength());
+    }
+
+    /**
+     * Builds the strong entity tag of the representation. The encoded representation has its own entity tag, as
+     * its bytes differ from the decoded content.
+     *
+     * @return the quoted entity tag, or empty when the section has no checksum
+     */
+    private static Optional<String> toEntityTag(SectionData sectionData, ContentEncoding sentEncoding) {
+        if (sectionData.checksum() == null) {
+            return Optional.empty();
+        }
+
+        String suffix = sentEncoding == ContentEncoding.IDENTITY ? "" : "-" + sentEncoding.getToken();
+        return Optional.of("\"" + sectionData.checksum() + suffix + "\"");
+    }
+
+    /**
+     * Checks the {@code If-None-Match} precondition, using the weak comparison, or the {@code If-Modified-Since}
+     * precondition when no entity tags are sent
+     */
+    private static boolean isNotModified(HttpServletRequest request, Optional<String> entityTag, long lastModified) {
+        List<String> ifNoneMatchHeaders = Optional.ofNullable(request.getHeaders(HttpHeaders.IF_NONE_MATCH))
+                .<List<String>>map(Collections::list)
+                .orElse(List.of());
+        if (!ifNoneMatchHeaders.isEmpty()) {
+            for (String ifNoneMatchHeader : ifNoneMatchHeaders) {
+                for (String requestedTag : ifNoneMatchHeader.split(",")) {
+                    String tag = requestedTag.trim();
+                    if (tag.equals("*")) {
+                        return true;
+                    }
+
+                    String opaqueTag = tag.startsWith("W/") ? tag.substring(2) : tag;
+                    if (entityTag.isPresent() && entityTag.get().equals(opaqueTag)) {
+                        return true;
+                    }
+                }
+            }
+
+            return false;
+        }
+
+        try {
+            long ifModifiedSince = request.getDateHeader(HttpHeaders.IF_MODIFIED_SINCE);
+            return ifModifiedSince >= 0 && lastModified <= ifModifiedSince;
+        } catch (IllegalArgumentException e) {
+            // An invalid date is ignored
+            return false;
+        }
+    }
+
+    /**
+     * Checks if the client accepts the content encoding, honoring the quality values of {@code Accept-Encoding}
+     */
+    private static boolean acceptsEncoding(HttpServletRequest request, ContentEncoding encoding) {
+        List<String> acceptEncodingHeaders = Optional.ofNullable(request.getHeaders(HttpHeaders.ACCEPT_ENCODING))
+                .<List<String>>map(Collections::list)
+                .orElse(List.of());
+
+        boolean acceptsAny = false;
+        for (String acceptEncodingHeader : acceptEncodingHeaders) {
+            for (String acceptedCoding : acceptEncodingHeader.split(",")) {
+                String[] parameters = acceptedCoding.split(";");
+                String coding = parameters[0].trim();
+                boolean accepted = parseQuality(parameters) > 0;
+                if (coding.equalsIgnoreCase(encoding.getToken())) {
+                    return accepted;
+                }
+
+                if (coding.equals("*")) {
+                    acceptsAny = accepted;
+                }
+            }
+        }
+
+        return acceptsAny;
+    }
+
+    private static double parseQuality(String[] parameters) {
+        for (int i = 1; i < parameters.length; i++) {
+            String parameter = parameters[i].trim();
+            if (parameter.startsWith("q=")) {
+                try {
+                    return Double.parseDouble(parameter.substring(2));
+                } catch (NumberFormatException e) {
+                    return 0;
+                }
+            }
+        }
+
+        return 1;
+    }
+
+    /**
+     * Resolves the ranges that must be sent to the client
+     *
+     * @return empty if the whole content must be sent, an empty list if none of the ranges is satisfiable,
+     * or the satisfiable ranges
+     */
+    private static Optional<List<ByteRange>> resolveRanges(HttpServletRequest request,
+                                                           long contentLength,
+                                                           long lastModified,
+                                                           Optional<String> entityTag) {
+        String rangeHeader = request.getHeader(HttpHeaders.RANGE);
+        if (rangeHeader == null || !isIfRangeSatisfied(request, lastModified, entityTag)) {
+            return Optional.empty();
+        }
+
+        List<HttpRange> httpRanges;
+        try {
+            httpRanges = HttpRange.parseRanges(rangeHeader);
+        } catch (IllegalArgumentException e) {
+            // An invalid Range header is ignored and the whole content is sent
+            logger.warn("Ignoring invalid range header '{}'", rangeHeader);
+            return Optional.empty();
+        }
+
+        List<ByteRange> ranges = new ArrayList<>(httpRanges.size());
+        long totalLength = 0;
+        for (HttpRange httpRange : httpRanges) {
+            long start = httpRange.getRangeStart(contentLength);
+            if (start >= contentLength) {
+                continue;
+            }
+
+            long end = httpRange.getRangeEnd(contentLength);
+            if (end < start) {
+                continue;
+            }
+
+            ByteRange range = new ByteRange(start, end);
+            totalLength += range.length();
+            ranges.add(range);
+        }
+
+        if (totalLength > contentLength) {
+            // Overlapping ranges that request more than the whole content are served as the whole content
+            logger.warn("Requested ranges exceed the content length. Sending the whole content");
+            return Optional.empty();
+        }
+
+        return Optional.of(ranges);
+    }
+
+    /**
+     * Checks the {@code If-Range} precondition. Entity tags are compared with the strong comparison, so weak
+     * entity tags never match.
+     */
+    private static boolean isIfRangeSatisfied(HttpServletRequest request, long lastModified, Optional<String> entityTag) {
+        String ifRange = request.getHeader(HttpHeaders.IF_RANGE);
+        if (ifRange == null) {
+            return true;
+        }
+
+        if (ifRange.startsWith("\"")) {
+            return entityTag.isPresent() && entityTag.get().equals(ifRange);
+        }
+
+        if (ifRange.startsWith("W/")) {
+            return false;
+        }
+
+        try {
+            long ifRangeDate = ZonedDateTime.parse(ifRange, DateTimeFormatter.RFC_1123_DATE_TIME).toInstant().toEpochMilli();
+            return ifRangeDate == lastModified;
+        } catch (DateTimeParseException e) {
+            return false;
+        }
+    }
+
+    private static boolean trySendFile(SectionContent content, long position, long count, HttpServletRequest request) {
+        if (!Boolean.TRUE.equals(request.getAttribute(SENDFILE_SUPPORTED_ATTRIBUTE))) {
+            return false;
+        }
+
+        Optional<FileRegion> fileRegion = content.fileRegion();
+        if (fileRegion.isEmpty()) {
+            return false;
+        }
+
+        FileRegion region = fileRegion.get();
+        long start = region.offset() + position;
+        request.setAttribute(SENDFILE_FILENAME_ATTRIBUTE, region.path().toString());
+        request.setAttribute(SENDFILE_START_ATTRIBUTE, start);
+        request.setAttribute(SENDFILE_END_ATTRIBUTE, start + count);
+        return true;
+    }
+
+    /**
+     * The last modification date of the section in milliseconds, truncated to seconds as sent in HTTP dates
+     */
+    private static long toEpochMilli(SectionData sectionData) {
+        long epochSecond = sectionData.lastModified().atZone(ZoneId.systemDefault()).toEpochSecond();
+        return epochSecond * 1000;
+    }
+
+    private static void handleException(IOException e, HttpServletResponse response) {
+        if (response.isCommitted()) {
+            // The client has most likely closed the connection. Nothing can be sent back anymore.
+            logger.warn("Section download interrupted: {}", e.getMessage());
+            return;
+        }
+
+        logger.error("Unable to write section to the response");
+        throw new InvalidSystemStateException(e);
+    }
+
+    private record ByteRange(long start, long end) {
+        long length() {
+            return end - start + 1;
+        }
+
+        String toContentRange(long contentLength) {
+            return "%s %d-%d/%d".formatted(BYTES_RANGE_UNIT, start, end, contentLength);
+        }
+    }
+}
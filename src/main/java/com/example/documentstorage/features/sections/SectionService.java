@@ -3,16 +3,27 @@ package com.example.documentstorage.features.sections;
 import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.InputStream;
+import java.util.List;
+
 public interface SectionService {
     /**
      * Downloads the section file by the section id
      *
      * @param dataRecordId the id of the data record
      * @param sectionId the id of the section
-     * @return file of the section
+     * @return file of the section. The content must be closed by the caller
      */
     SectionData downloadSection(int dataRecordId, int sectionId);
 
+    /**
+     * Downloads all the sections of a data record as one archive
+     *
+     * @param dataRecordId the id of the data record
+     * @return the sections of the data record. The content of every section must be closed by the caller
+     */
+    SectionArchive downloadArchive(int dataRecordId);
+
     /**
      * Uploads a section to the specified data record
      *
@@ -22,6 +33,27 @@ public interface SectionService {
      */
     DataRecordDetail uploadSection(int dataRecordId, MultipartFile sectionFile);
 
+    /**
+     * Uploads a section to the specified data record, streaming the content directly into the stored file
+     *
+     * @param dataRecordId the data record to which the section is attached
+     * @param fileName     the original name of the file
+     * @param contentType   the content type of the file
+     * @param contentLength the size of the file in bytes, or a negative number when it is not known in advance
+     * @param content       the binary content that will be uploaded
+     * @return Returns the data record with its sections
+     */
+    DataRecordDetail uploadSection(int dataRecordId, String fileName, String contentType, long contentLength, InputStream content);
+
+    /**
+     * Uploads several sections to the specified data record as one batch. Either all the sections are added or none.
+     *
+     * @param dataRecordId the data record to which the sections are attached
+     * @param sectionFiles the binary files that will be uploaded
+     * @return Returns the data record with its sections
+     */
+    DataRecordDetail uploadSections(int dataRecordId, List<MultipartFile> sectionFiles);
+
     /**
      * Deletes a section from
      *
@@ -29,4 +61,12 @@ public interface SectionService {
      * @param sectionId    the id of the section
      */
     void deleteSection(int dataRecordId, int sectionId);
+
+    /**
+     * Deletes several sections from the data record as one batch. Either all the sections are removed or none.
+     *
+     * @param dataRecordId the id of the data record
+     * @param sectionIds   the ids of the sections
+     */
+    void deleteSections(int dataRecordId, List<Integer> sectionIds);
 }
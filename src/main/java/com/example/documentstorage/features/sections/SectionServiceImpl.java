@@ -4,19 +4,45 @@ import com.example.documentstorage.entities.DataRecord;
 import com.example.documentstorage.entities.Section;
 import com.example.documentstorage.entities.TransactionActionRecord;
 import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
 import com.example.documentstorage.shared.base.filestorage.ActionType;
+import com.example.documentstorage.shared.base.filestorage.AsyncFileStorage;
+import com.example.documentstorage.shared.base.filestorage.CompressionPolicy;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
 import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.LazySectionContent;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
 import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.UploadProtocol;
+import com.example.documentstorage.shared.base.filestorage.inline.InlineSectionStore;
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityCandidate;
+import com.example.documentstorage.shared.base.filestorage.integrity.SectionIntegrityChecker;
+import com.example.documentstorage.shared.base.filestorage.tiering.SectionAccessTracker;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTracker;
 import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
 import com.example.documentstorage.shared.base.models.responses.SectionDetail;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
 import org.springframework.stereotype.Service;
 import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
 import org.springframework.transaction.support.TransactionTemplate;
 import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayInputStream;
+import java.io.FilterInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.SequenceInputStream;
+import java.util.ArrayList;
+import java.util.HashSet;
 import java.util.List;
+import java.util.Set;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Service
 public class SectionServiceImpl implements SectionService {
@@ -26,24 +52,47 @@ public class SectionServiceImpl implements SectionService {
     private final TransactionActionRecordRepository transactionActionRepository;
     private final TransactionTemplate transactionTemplate;
     private final FileStorage fileStorage;
+    private final CompressionPolicy compressionPolicy;
+    private final SectionAccessTracker sectionAccessTracker;
+    private final AsyncFileStorage asyncFileStorage;
+    private final SectionIntegrityChecker sectionIntegrityChecker;
+    private final StorageUsageTracker storageUsageTracker;
+    private final InlineSectionStore inlineSectionStore;
+    private final UploadProtocol uploadProtocol;
 
     public SectionServiceImpl(
             SectionDataRecordRepository dataRecordRepository,
             TransactionActionRecordRepository transactionActionRecordRepository,
             TransactionTemplate transactionTemplate,
-            FileStorage fileStorage) {
+            FileStorage fileStorage,
+            CompressionPolicy compressionPolicy,
+            SectionAccessTracker sectionAccessTracker,
+            AsyncFileStorage asyncFileStorage,
+            SectionIntegrityChecker sectionIntegrityChecker,
+            StorageUsageTracker storageUsageTracker,
+            InlineSectionStore inlineSectionStore,
+            @Value("${document.storage.upload.protocol}") UploadProtocol uploadProtocol) {
         this.dataRecordRepository = dataRecordRepository;
         this.transactionActionRepository = transactionActionRecordRepository;
         this.transactionTemplate = transactionTemplate;
         this.fileStorage = fileStorage;
+        this.compressionPolicy = compressionPolicy;
+        this.sectionAccessTracker = sectionAccessTracker;
+        this.asyncFileStorage = asyncFileStorage;
+        this.sectionIntegrityChecker = sectionIntegrityChecker;
+        this.storageUsageTracker = storageUsageTracker;
+        this.inlineSectionStore = inlineSectionStore;
+        this.uploadProtocol = uploadProtocol;
     }
 
     /**
-     * Downloads the section file by the section id
+     * Downloads the section file by the section id. The section file is opened only when its content is read,
+     * so conditional requests answered from the metadata never touch the stored file. When enabled, the stored
+     * file is verified against the checksum when it is opened, before any byte is sent.
      *
      * @param dataRecordId the id of the data record
      * @param sectionId    the id of the section
-     * @return file of the section
+     * @return file of the section. The content must be closed by the caller
      */
     @Override
     public SectionData downloadSection(int dataRecordId, int sectionId) {
@@ -53,15 +102,54 @@ public class SectionServiceImpl implements SectionService {
                     return new InvalidClientInputException("features.sections.on.section.download.datarecord.not.found", sectionId);
                 });
 
-        byte[] bytes = fileStorage.downloadFile(sectionDownloadData.storageLocation());
+        SectionContent content = openLazily(sectionDownloadData);
+        sectionAccessTracker.recordAccess(sectionId);
 
         String contentDisposition = String.format("attachment; filename=\"%s\"", sectionDownloadData.fileName());
-        SectionData sectionData = new SectionData(bytes, sectionDownloadData.contentType(), contentDisposition);
+        SectionData sectionData = new SectionData(
+                content,
+                sectionDownloadData.contentType(),
+                contentDisposition,
+                sectionDownloadData.fileSize(),
+                sectionDownloadData.contentEncoding(),
+                sectionDownloadData.modifiedAt(),
+                sectionDownloadData.checksum());
 
         logger.info("Downloaded section '{}'", sectionId);
         return sectionData;
     }
 
+    /**
+     * Downloads all the sections of a data record as one archive. The sections are looked up with one query and
+     * every section file is opened only when it is written to the archive.
+     *
+     * @param dataRecordId the id of the data record
+     * @return the sections of the data record. The content of every section must be closed by the caller
+     */
+    @Override
+    public SectionArchive downloadArchive(int dataRecordId) {
+        if (!dataRecordRepository.existsById(dataRecordId)) {
+            logger.warn("Data record with id '{}' not found for archive download", dataRecordId);
+            throw new InvalidClientInputException("features.sections.on.archive.download.datarecord.not.found", dataRecordId);
+        }
+
+        List<SectionArchiveEntry> entries = dataRecordRepository.findSectionsById(dataRecordId).stream()
+                .map(sectionDownloadData -> {
+                    sectionAccessTracker.recordAccess(sectionDownloadData.id());
+                    return new SectionArchiveEntry(
+                            sectionDownloadData.fileName(),
+                            sectionDownloadData.contentType(),
+                            sectionDownloadData.fileSize(),
+                            sectionDownloadData.contentEncoding(),
+                            sectionDownloadData.modifiedAt(),
+                            openLazily(sectionDownloadData));
+                })
+                .toList();
+
+        logger.info("Downloaded archive of '{}' sections of data record '{}'", entries.size(), dataRecordId);
+        return new SectionArchive("data-record-%d.zip".formatted(dataRecordId), entries);
+    }
+
     /**
      * Uploads a section to the specified data record
      *
@@ -71,28 +159,141 @@ public class SectionServiceImpl implements SectionService {
      */
     @Override
     public DataRecordDetail uploadSection(int dataRecordId, MultipartFile sectionFile) {
+        try (InputStream content = sectionFile.getInputStream()) {
+            return uploadSection(dataRecordId, sectionFile.getOriginalFilename(), sectionFile.getContentType(), sectionFile.getSize(), content);
+        } catch (IOException e) {
+            logger.error("Unable to read the uploaded section '{}'", sectionFile.getOriginalFilename());
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    /**
+     * Uploads a section to the specified data record, streaming the content directly into the stored file.
+     * With the {@link UploadProtocol#SAGA} protocol, a CREATE transaction action is committed before the file is
+     * stored, and the file is written on the storage threads while the data record is checked, before the
+     * transaction that adds the section, so no database connection is held while the content is read. With the {@link UploadProtocol#STAGING} protocol, the
+     * file is staged before a single transaction adds the section, and published once it commits. Sections not
+     * larger than the maximum inline size are kept in the database, in the single transaction that adds them. When
+     * the size is not known in advance, up to the maximum inline size is read before the protocol is chosen.
+     *
+     * @param dataRecordId the data record to which the section is attached
+     * @param fileName     the original name of the file
+     * @param contentType   the content type of the file
+     * @param contentLength the size of the file in bytes, or a negative number when it is not known in advance
+     * @param content       the binary content that will be uploaded
+     * @return Returns the data record with its sections
+     */
+    @Override
+    public DataRecordDetail uploadSection(int dataRecordId,
+                                          String fileName,
+                                          String contentType,
+                                          long contentLength,
+                                          InputStream content) {
         //ToDo fix nulls
         //ToDo fix path. Store only the relative path in the database. Check the variables in application.properties
         //ToDo fix return type of the method
         //But, the good part is, that the core of the idea, works!
-        String fileName = sectionFile.getOriginalFilename();
+        storageUsageTracker.checkQuota(dataRecordId, contentLength);
+        if (inlineSectionStore.admits(contentLength)) {
+            byte[] inlineContent = readInlineContent(content, fileName);
+            if (inlineContent.length <= inlineSectionStore.getMaxSize()) {
+                Section section = transactionTemplate
+                        .execute(status -> addInlineSection(dataRecordId, fileName, contentType, inlineContent));
+                logger.info("Uploaded inline section '{}' to data record '{}'", section.getId(), dataRecordId);
+                return toDataRecordDetail(section.getDataRecord());
+            }
+
+            // Larger than announced or of unknown size, the bytes already read are stored first
+            content = new SequenceInputStream(new ByteArrayInputStream(inlineContent), content);
+        }
+
         String systemFileName = fileStorage.generateSystemFileName(fileName);
+        ContentEncoding encoding = compressionPolicy.selectEncoding(contentType, contentLength);
+        SectionUpload upload = new SectionUpload(fileName, contentType, encoding, content);
+
+        Section section;
+        if (uploadProtocol == UploadProtocol.STAGING && fileStorage.supportsStaging()) {
+            StoredFile stagedFile = fileStorage.stageSection(content, systemFileName, encoding);
+            section = transactionTemplate.execute(status -> addStagedSection(dataRecordId, upload, stagedFile));
+        } else {
+            TransactionActionRecord actionRecord = transactionTemplate
+                    .execute(status -> addCreateTransactionAction(status, systemFileName));
+            if (fileStorage.requiresTransaction()) {
+                section = transactionTemplate
+                        .execute(status -> storeSection(actionRecord, dataRecordId, upload, systemFileName));
+            } else {
+                section = storeSectionWhileCheckingDataRecord(actionRecord, dataRecordId, upload, systemFileName);
+            }
+        }
 
-        TransactionActionRecord actionRecord = transactionTemplate
-                .execute(status -> addCreateTransactionAction(status, systemFileName));
+        DataRecordDetail recordDetail = toDataRecordDetail(section.getDataRecord());
 
-        Section section = transactionTemplate
-                .execute(status -> storeSection(actionRecord, dataRecordId, sectionFile, systemFileName));
+        logger.info("Uploaded section '{}' to data record '{}'", section.getId(), dataRecordId);
+        return recordDetail;
+    }
 
-        List<SectionDetail> sectionDetails = section.getDataRecord().getSections().stream()
-                .map(f -> new SectionDetail(f.getId(), f.getFileName(), f.getStorageLocation()))
-                .toList();
+    /**
+     * Uploads several sections to the specified data record as one batch. One GROUP transaction action is recorded
+     * for the batch, with a CREATE child action for every file. The files are stored in parallel on the storage
+     * threads before the transaction that adds the sections, unless the file storage requires that transaction, and
+     * all the sections are added in a single transaction. When any file can not be stored, no section is added and
+     * the stored files are removed by the processing of the uncommitted actions.
+     *
+     * @param dataRecordId the data record to which the sections are attached
+     * @param sectionFiles the binary files that will be uploaded
+     * @return Returns the data record with its sections
+     */
+    @Override
+    public DataRecordDetail uploadSections(int dataRecordId, List<MultipartFile> sectionFiles) {
+        if (sectionFiles.isEmpty()) {
+            throw new InvalidClientInputException("features.sections.on.batch.upload.sections.missing", dataRecordId);
+        }
 
-        DataRecordDetail recordDetail = DataRecordDetail
-                .withSections(section.getDataRecord().getId(), section.getDataRecord().getTitle(), section.getDataRecord().getDescription(), sectionDetails);
+        if (!dataRecordRepository.existsById(dataRecordId)) {
+            logger.warn("Data record with id '{}' not found for batch upload", dataRecordId);
+            throw new InvalidClientInputException("features.sections.on.section.upload.datarecord.not.found", dataRecordId);
+        }
 
-        logger.info("Uploaded section '{}' to data record '{}'", section.getId(), dataRecordId);
-        return recordDetail;
+        storageUsageTracker.checkQuota(dataRecordId, sectionFiles.stream().mapToLong(MultipartFile::getSize).sum());
+        List<BatchUpload> uploads = new ArrayList<>();
+        for (MultipartFile sectionFile : sectionFiles) {
+            String systemFileName = fileStorage.generateSystemFileName(sectionFile.getOriginalFilename());
+            ContentEncoding encoding = compressionPolicy.selectEncoding(sectionFile.getContentType(), sectionFile.getSize());
+            uploads.add(new BatchUpload(sectionFile, systemFileName, encoding));
+        }
+
+        BatchActions batchActions = transactionTemplate.execute(status -> addBatchTransactionActions(
+                ActionType.CREATE,
+                uploads.stream().map(BatchUpload::systemFileName).toList()));
+
+        boolean storedInTransaction = fileStorage.requiresTransaction();
+        // Waited for outside of the transaction, so no database connection is held while the files are written
+        List<StoredFile> storedFiles = storedInTransaction ? List.of() : awaitAll(storeInParallel(uploads));
+
+        DataRecord dataRecord = transactionTemplate.execute(status -> {
+            DataRecord record = dataRecordRepository
+                    .findById(dataRecordId)
+                    .orElseThrow(() -> {
+                        logger.warn("Data record with id '{}' not found for batch upload", dataRecordId);
+                        return new InvalidClientInputException("features.sections.on.section.upload.datarecord.not.found", dataRecordId);
+                    });
+
+            long addedBytes = 0;
+            for (int i = 0; i < uploads.size(); i++) {
+                BatchUpload upload = uploads.get(i);
+                StoredFile storedFile = storedInTransaction ? storeBatchUpload(upload) : storedFiles.get(i);
+                record.addSection(toSection(upload.file().getOriginalFilename(), upload.file().getContentType(), storedFile));
+                addedBytes += storedFile.size();
+            }
+
+            storageUsageTracker.addUsage(dataRecordId, addedBytes, uploads.size());
+
+            commitBatchTransactionActions(batchActions);
+            return record;
+        });
+
+        logger.info("Uploaded batch of '{}' sections to data record '{}'", uploads.size(), dataRecordId);
+        return toDataRecordDetail(dataRecord);
     }
 
     /**
@@ -121,19 +322,110 @@ public class SectionServiceImpl implements SectionService {
         }
 
         Section removedSection = sections.getFirst();
-        TransactionActionRecord actionRecord = addDeleteTransactionAction(removedSection.getStorageLocation());
-        deleteSection(dataRecord, removedSection, actionRecord);
+        // The content of an inline section is removed with the section, no file is left to remove afterwards
+        TransactionActionRecord actionRecord = inlineSectionStore.isInline(removedSection.getStorageLocation())
+                ? null
+                : addDeleteTransactionAction(removedSection.getStorageLocation());
+        transactionTemplate.executeWithoutResult(status -> {
+            deleteSection(dataRecord, removedSection, actionRecord);
+            storageUsageTracker.removeUsage(dataRecordId, removedSection.getFileSize(), 1);
+            dataRecordRepository.saveAndFlush(dataRecord);
+        });
 
-        dataRecordRepository.saveAndFlush(dataRecord);
         logger.info("Removed section '{}' to data record '{}'", sectionId, dataRecordId);
     }
 
+    /**
+     * Deletes several sections from the data record as one batch. One GROUP transaction action is recorded for the
+     * batch, with a DELETE child action for every section stored in a file, in the same transaction that removes the
+     * sections, so either all the sections are removed or none. The content of inline sections is removed in it.
+     *
+     * @param dataRecordId the id of the data record
+     * @param sectionIds   the ids of the sections
+     */
+    @Override
+    public void deleteSections(int dataRecordId, List<Integer> sectionIds) {
+        if (sectionIds.isEmpty()) {
+            throw new InvalidClientInputException("features.sections.on.batch.removal.sections.missing", dataRecordId);
+        }
+
+        transactionTemplate.executeWithoutResult(status -> {
+            DataRecord dataRecord = dataRecordRepository
+                    .findById(dataRecordId)
+                    .orElseThrow(() -> {
+                        logger.warn("Data record with id '{}' not found for batch removal", dataRecordId);
+                        return new InvalidClientInputException("features.sections.on.section.removal.datarecord.not.found", dataRecordId);
+                    });
+
+            Set<Integer> removedIds = new HashSet<>(sectionIds);
+            List<Section> removedSections = dataRecord.getSections()
+                    .stream()
+                    .filter(s -> removedIds.contains(s.getId()))
+                    .toList();
+
+            if (removedSections.size() != removedIds.size()) {
+                logger.warn("Data record with id '{}' does not have all the sections with the ids '{}'", dataRecordId, removedIds);
+                throw new InvalidClientInputException("features.sections.on.batch.removal.sections.not.found", dataRecordId);
+            }
+
+            List<String> removedFiles = removedSections.stream()
+                    .map(Section::getStorageLocation)
+                    .filter(storageLocation -> !inlineSectionStore.isInline(storageLocation))
+                    .toList();
+            if (!removedFiles.isEmpty()) {
+                commitBatchTransactionActions(addBatchTransactionActions(ActionType.DELETE, removedFiles));
+            }
+
+            removedSections.forEach(section -> {
+                dataRecord.getSections().remove(section);
+                if (inlineSectionStore.isInline(section.getStorageLocation())) {
+                    inlineSectionStore.remove(section.getStorageLocation());
+                } else {
+                    fileStorage.releaseSection(section.getStorageLocation());
+                }
+            });
+
+            storageUsageTracker.removeUsage(
+                    dataRecordId,
+                    removedSections.stream().mapToLong(Section::getFileSize).sum(),
+                    removedSections.size());
+            dataRecordRepository.saveAndFlush(dataRecord);
+        });
+
+        logger.info("Removed batch of '{}' sections from data record '{}'", sectionIds.size(), dataRecordId);
+    }
+
     private void deleteSection(
             DataRecord dataRecord,
             Section removedSection,
             TransactionActionRecord actionRecord) {
         dataRecord.getSections().remove(removedSection);
+        if (actionRecord == null) {
+            inlineSectionStore.remove(removedSection.getStorageLocation());
+            return;
+        }
+
         actionRecord.setCommitted(true);
+        transactionActionRepository.save(actionRecord);
+        fileStorage.releaseSection(removedSection.getStorageLocation());
+    }
+
+    private SectionContent openLazily(SectionDownloadData sectionDownloadData) {
+        // The stored size is only known in advance when the content is stored as it is
+        long storedSize = sectionDownloadData.contentEncoding() == ContentEncoding.IDENTITY ? sectionDownloadData.fileSize() : -1;
+        if (inlineSectionStore.isInline(sectionDownloadData.storageLocation())) {
+            return new LazySectionContent(() -> inlineSectionStore.open(sectionDownloadData.storageLocation()), storedSize);
+        }
+
+        return new LazySectionContent(() -> {
+            sectionIntegrityChecker.verifyDownload(new IntegrityCandidate(
+                    sectionDownloadData.id(),
+                    sectionDownloadData.storageLocation(),
+                    sectionDownloadData.checksum(),
+                    sectionDownloadData.contentEncoding(),
+                    sectionDownloadData.fileSize()));
+            return fileStorage.openSection(sectionDownloadData.storageLocation());
+        }, storedSize);
     }
 
     private TransactionActionRecord addCreateTransactionAction(TransactionStatus status, String systemFileName) {
@@ -156,27 +448,277 @@ public class SectionServiceImpl implements SectionService {
         return actionRecord;
     }
 
+    private BatchActions addBatchTransactionActions(ActionType actionType, List<String> systemFileNames) {
+        TransactionActionRecord groupRecord = new TransactionActionRecord();
+        groupRecord.setActionType(ActionType.GROUP);
+        transactionActionRepository.save(groupRecord);
+
+        List<TransactionActionRecord> childRecords = systemFileNames.stream()
+                .map(systemFileName -> {
+                    TransactionActionRecord childRecord = new TransactionActionRecord();
+                    childRecord.setStorageLocation(systemFileName);
+                    childRecord.setActionType(actionType);
+                    childRecord.setParentRecord(groupRecord);
+                    return childRecord;
+                })
+                .toList();
+        transactionActionRepository.saveAll(childRecords);
+
+        return new BatchActions(groupRecord, childRecords);
+    }
+
+    private void commitBatchTransactionActions(BatchActions batchActions) {
+        batchActions.groupRecord().setCommitted(true);
+        batchActions.childRecords().forEach(childRecord -> childRecord.setCommitted(true));
+        transactionActionRepository.save(batchActions.groupRecord());
+        transactionActionRepository.saveAll(batchActions.childRecords());
+    }
+
+    /**
+     * Starts storing the files of the batch in parallel on the storage threads. The content of every file is
+     * closed once the file is stored.
+     */
+    private List<CompletableFuture<StoredFile>> storeInParallel(List<BatchUpload> uploads) {
+        return uploads.stream()
+                .map(this::storeBatchUploadAsync)
+                .toList();
+    }
+
+    private CompletableFuture<StoredFile> storeBatchUploadAsync(BatchUpload upload) {
+        InputStream content;
+        try {
+            content = upload.file().getInputStream();
+        } catch (IOException e) {
+            logger.error("Unable to read the uploaded section '{}'", upload.file().getOriginalFilename());
+            return CompletableFuture.failedFuture(new InvalidSystemStateException(e));
+        }
+
+        return asyncFileStorage.storeSection(content, upload.systemFileName(), upload.encoding())
+                .whenComplete((storedFile, e) -> {
+                    try {
+                        content.close();
+                    } catch (IOException closeException) {
+                        logger.warn("Unable to close the uploaded section '{}'", upload.file().getOriginalFilename());
+                    }
+                });
+    }
+
+    /**
+     * Waits for every file, also when one of them fails, so no file is still being written when the batch is
+     * rejected. Throws the failure of the first file that could not be stored.
+     */
+    private static List<StoredFile> awaitAll(List<CompletableFuture<StoredFile>> storingFiles) {
+        await(CompletableFuture.allOf(storingFiles.toArray(CompletableFuture[]::new)));
+        return storingFiles.stream().map(CompletableFuture::join).toList();
+    }
+
+    /**
+     * Waits for the operation on the storage threads and throws its failure as it has been thrown there
+     */
+    private static <T> T await(CompletableFuture<T> operation) {
+        try {
+            return operation.join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw e;
+        }
+    }
+
+    private StoredFile storeBatchUpload(BatchUpload upload) {
+        try (InputStream content = upload.file().getInputStream()) {
+            return fileStorage.storeSection(content, upload.systemFileName(), upload.encoding());
+        } catch (IOException e) {
+            logger.error("Unable to read the uploaded section '{}'", upload.file().getOriginalFilename());
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    private Section toSection(String fileName, String contentType, StoredFile storedFile) {
+        Section sectionRecord = new Section();
+        sectionRecord.setFileName(fileName);
+        sectionRecord.setStorageLocation(storedFile.storageLocation());
+        sectionRecord.setContentType(contentType);
+        sectionRecord.setFileSize(storedFile.size());
+        sectionRecord.setChecksum(storedFile.checksum());
+        sectionRecord.setContentEncoding(storedFile.encoding());
+        return sectionRecord;
+    }
+
+    private DataRecordDetail toDataRecordDetail(DataRecord dataRecord) {
+        List<SectionDetail> sectionDetails = dataRecord.getSections().stream()
+                .map(f -> new SectionDetail(f.getId(), f.getFileName(), f.getStorageLocation()))
+                .toList();
+
+        return DataRecordDetail
+                .withSections(dataRecord.getId(), dataRecord.getTitle(), dataRecord.getDescription(), sectionDetails);
+    }
+
     private Section storeSection(TransactionActionRecord actionRecord,
                                  int dataRecordId,
-                                 MultipartFile sectionFile,
+                                 SectionUpload upload,
                                  String systemFileName) {
-        DataRecord dataRecord = dataRecordRepository
+        DataRecord dataRecord = findDataRecordForUpload(dataRecordId);
+        StoredFile storedFile = fileStorage.storeSection(upload.content(), systemFileName, upload.encoding());
+        return addStoredSection(actionRecord, dataRecord, upload, storedFile);
+    }
+
+    /**
+     * Stores the file on the storage threads while the data record is checked in a short transaction, and adds the
+     * section once the file is stored. When the data record is not found, the write is aborted instead of storing
+     * the rest of the content, and the partially stored file is removed with the uncommitted action.
+     */
+    private Section storeSectionWhileCheckingDataRecord(TransactionActionRecord actionRecord,
+                                                        int dataRecordId,
+                                                        SectionUpload upload,
+                                                        String systemFileName) {
+        AbortableInputStream content = new AbortableInputStream(upload.content());
+        CompletableFuture<StoredFile> storingFile = asyncFileStorage.storeSection(content, systemFileName, upload.encoding());
+        try {
+            transactionTemplate.executeWithoutResult(status -> findDataRecordForUpload(dataRecordId));
+        } catch (RuntimeException e) {
+            content.abort();
+            // The content is closed by the caller, so the storage thread must have stopped reading it
+            storingFile.handle((storedFile, failure) -> null).join();
+            throw e;
+        }
+
+        StoredFile storedFile = await(storingFile);
+        return transactionTemplate.execute(status ->
+                addStoredSection(actionRecord, findDataRecordForUpload(dataRecordId), upload, storedFile));
+    }
+
+    private Section addStoredSection(TransactionActionRecord actionRecord,
+                                     DataRecord dataRecord,
+                                     SectionUpload upload,
+                                     StoredFile storedFile) {
+        Section sectionRecord = toSection(upload.fileName(), upload.contentType(), storedFile);
+        dataRecord.addSection(sectionRecord);
+        storageUsageTracker.addUsage(dataRecord.getId(), storedFile.size(), 1);
+
+        actionRecord.setCommitted(true);
+        transactionActionRepository.save(actionRecord);
+
+        return sectionRecord;
+    }
+
+    /**
+     * Adds the section of the staged file. The staged file is published when the transaction commits and removed
+     * when it rolls back. The synchronization is registered first, so the staged file is also removed when the
+     * data record is not found.
+     */
+    private Section addStagedSection(int dataRecordId, SectionUpload upload, StoredFile stagedFile) {
+        TransactionSynchronizationManager.registerSynchronization(new StagedSectionSynchronization(stagedFile.storageLocation()));
+        DataRecord dataRecord = findDataRecordForUpload(dataRecordId);
+
+        Section sectionRecord = toSection(upload.fileName(), upload.contentType(), stagedFile);
+        dataRecord.addSection(sectionRecord);
+        storageUsageTracker.addUsage(dataRecordId, stagedFile.size(), 1);
+
+        return sectionRecord;
+    }
+
+    private Section addInlineSection(int dataRecordId, String fileName, String contentType, byte[] content) {
+        DataRecord dataRecord = findDataRecordForUpload(dataRecordId);
+        StoredFile inlineFile = inlineSectionStore.store(content);
+
+        Section sectionRecord = toSection(fileName, contentType, inlineFile);
+        dataRecord.addSection(sectionRecord);
+        storageUsageTracker.addUsage(dataRecordId, inlineFile.size(), 1);
+
+        return sectionRecord;
+    }
+
+    /**
+     * Reads the content up to one byte more than the maximum inline size, so that a larger content is detected
+     */
+    private byte[] readInlineContent(InputStream content, String fileName) {
+        try {
+            return content.readNBytes(inlineSectionStore.getMaxSize() + 1);
+        } catch (IOException e) {
+            logger.error("Unable to read the uploaded section '{}'", fileName);
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    private DataRecord findDataRecordForUpload(int dataRecordId) {
+        return dataRecordRepository
                 .findById(dataRecordId)
                 .orElseThrow(() -> {
                     logger.warn("Data record with id '{}' not found for section upload", dataRecordId);
                     return new InvalidClientInputException("features.sections.on.section.upload.datarecord.not.found", dataRecordId);
                 });
+    }
 
-        Section sectionRecord = new Section();
-        sectionRecord.setFileName(sectionFile.getOriginalFilename());
-        sectionRecord.setStorageLocation(systemFileName);
-        sectionRecord.setContentType(sectionFile.getContentType());
-        dataRecord.addSection(sectionRecord);
+    /**
+     * Publishes the staged file once the transaction that adds its section commits, and removes it otherwise.
+     * A failure is not propagated, as the section is already committed or rolled back. Files that are neither
+     * published nor removed are recovered by the {@code StagedUploadSweeper}, and are read from the staging
+     * directory in the meantime.
+     */
+    private class StagedSectionSynchronization implements TransactionSynchronization {
+        private final String systemFileName;
 
-        fileStorage.storeSection(sectionFile, systemFileName);
+        private StagedSectionSynchronization(String systemFileName) {
+            this.systemFileName = systemFileName;
+        }
 
-        actionRecord.setCommitted(true);
+        @Override
+        public void afterCompletion(int status) {
+            try {
+                if (status == STATUS_COMMITTED) {
+                    fileStorage.publishStagedSection(systemFileName);
+                } else {
+                    fileStorage.discardStagedSection(systemFileName);
+                }
+            } catch (InvalidSystemStateException e) {
+                logger.error("Unable to complete staged file '{}'. It is recovered by the sweep of staged files", systemFileName, e);
+            }
+        }
+    }
 
-        return sectionRecord;
+    /**
+     * Fails the reads of the uploaded content once the upload has been aborted, so that the storage thread stops
+     * writing the file
+     */
+    private static class AbortableInputStream extends FilterInputStream {
+        private volatile boolean aborted;
+
+        private AbortableInputStream(InputStream content) {
+            super(content);
+        }
+
+        private void abort() {
+            aborted = true;
+        }
+
+        @Override
+        public int read() throws IOException {
+            checkNotAborted();
+            return super.read();
+        }
+
+        @Override
+        public int read(byte[] buffer, int offset, int length) throws IOException {
+            checkNotAborted();
+            return super.read(buffer, offset, length);
+        }
+
+        private void checkNotAborted() throws IOException {
+            if (aborted) {
+                throw new IOException("The upload has been aborted");
+            }
+        }
+    }
+
+    private record SectionUpload(String fileName, String contentType, ContentEncoding encoding, InputStream content) {
+    }
+
+    private record BatchUpload(MultipartFile file, String systemFileName, ContentEncoding encoding) {
+    }
+
+    private record BatchActions(TransactionActionRecord groupRecord, List<TransactionActionRecord> childRecords) {
     }
 }
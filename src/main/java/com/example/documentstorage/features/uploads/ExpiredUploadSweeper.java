@@ -0,0 +1,53 @@
+package com.example.documentstorage.features.uploads;
+
+import com.example.documentstorage.entities.UploadSession;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+
+/**
+ * Removes the upload sessions that have expired without being completed. The parts of an expired upload are
+ * removed by the processing of its transaction actions, which also marks the upload as expired, so only the
+ * sessions are left to remove. Runs on the schedule of the transaction actions.
+ */
+@Component
+public class ExpiredUploadSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(ExpiredUploadSweeper.class);
+
+    private final UploadSessionRepository uploadSessionRepository;
+    private final TransactionTemplate transactionTemplate;
+
+    public ExpiredUploadSweeper(UploadSessionRepository uploadSessionRepository, TransactionTemplate transactionTemplate) {
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Removes the expired upload sessions with their parts, one page at a time
+     */
+    @Scheduled(cron = "${document.storage.process.transactions.cron}")
+    public synchronized void removeExpiredUploads() {
+        int removedUploads = 0;
+        List<UploadSession> expiredUploads = removeExpiredPage();
+        while (!expiredUploads.isEmpty()) {
+            removedUploads += expiredUploads.size();
+            expiredUploads = removeExpiredPage();
+        }
+
+        if (removedUploads > 0) {
+            logger.info("Removed '{}' expired uploads", removedUploads);
+        }
+    }
+
+    private List<UploadSession> removeExpiredPage() {
+        return transactionTemplate.execute(status -> {
+            List<UploadSession> expiredUploads = uploadSessionRepository.findFirst100ByCompletedFalseAndActionRecordProcessedTrue();
+            uploadSessionRepository.deleteAll(expiredUploads);
+            return expiredUploads;
+        });
+    }
+}
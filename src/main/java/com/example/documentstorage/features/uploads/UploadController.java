@@ -0,0 +1,92 @@
+package com.example.documentstorage.features.uploads;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import com.example.documentstorage.shared.base.models.responses.UploadPartDetail;
+import com.example.documentstorage.shared.base.models.responses.UploadSessionDetail;
+import org.springframework.http.MediaType;
+import org.springframework.http.MediaTypeFactory;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+import java.io.InputStream;
+import java.net.URLDecoder;
+import java.nio.charset.StandardCharsets;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Resumable uploads of large sections. An upload is started, then its numbered parts are sent as raw request
+ * bodies, in parallel and as many times as needed, and finally it is completed.
+ */
+@RestController
+@RequestMapping("/api/data-records/{dataRecordId}/sections/uploads")
+public class UploadController {
+    private static final String FILE_NAME_HEADER = "X-File-Name";
+    private static final String SECTION_CONTENT_TYPE_HEADER = "X-Section-Content-Type";
+
+    private final UploadService uploadService;
+
+    public UploadController(UploadService uploadService) {
+        this.uploadService = uploadService;
+    }
+
+    /**
+     * Starts the upload of a section in parts
+     *
+     * @param dataRecordId the id of the data record
+     * @param fileName     the URL encoded original file name, sent in the {@code X-File-Name} header
+     * @param contentType  the content type of the section, sent in the {@code X-Section-Content-Type} header.
+     *                     If missing, the content type is resolved from the file name
+     * @return {@link UploadSessionDetail} the started upload
+     */
+    @PostMapping
+    public ResponseEntity<UploadSessionDetail> createUpload(
+            @PathVariable int dataRecordId,
+            @RequestHeader(value = FILE_NAME_HEADER, required = false) String fileName,
+            @RequestHeader(value = SECTION_CONTENT_TYPE_HEADER, required = false) String contentType) {
+        if (fileName == null || fileName.isBlank()) {
+            throw new InvalidClientInputException("features.sections.on.section.upload.file.name.missing", FILE_NAME_HEADER);
+        }
+
+        String decodedFileName = URLDecoder.decode(fileName, StandardCharsets.UTF_8);
+        String sectionContentType = Optional.ofNullable(contentType)
+                .or(() -> MediaTypeFactory.getMediaType(decodedFileName).map(MediaType::toString))
+                .orElse(MediaType.APPLICATION_OCTET_STREAM_VALUE);
+
+        UploadSessionDetail uploadSessionDetail = uploadService.createUpload(dataRecordId, decodedFileName, sectionContentType);
+        return ResponseEntity.ok(uploadSessionDetail);
+    }
+
+    /**
+     * Gets the upload with the parts received so far, so that an interrupted upload can be resumed
+     */
+    @GetMapping("/{uploadId}")
+    public ResponseEntity<UploadSessionDetail> getUpload(@PathVariable int dataRecordId, @PathVariable UUID uploadId) {
+        return ResponseEntity.ok(uploadService.getUpload(dataRecordId, uploadId));
+    }
+
+    /**
+     * Uploads a numbered part from the raw request body. The part is streamed directly into a temporary file.
+     */
+    @PutMapping(value = "/{uploadId}/parts/{partNumber}", consumes = MediaType.APPLICATION_OCTET_STREAM_VALUE)
+    public ResponseEntity<UploadPartDetail> uploadPart(@PathVariable int dataRecordId,
+                                                       @PathVariable UUID uploadId,
+                                                       @PathVariable int partNumber,
+                                                       InputStream content) {
+        UploadPartDetail uploadPartDetail = uploadService.uploadPart(dataRecordId, uploadId, partNumber, content);
+        return ResponseEntity.ok(uploadPartDetail);
+    }
+
+    @PostMapping("/{uploadId}/complete")
+    public ResponseEntity<DataRecordDetail> completeUpload(@PathVariable int dataRecordId, @PathVariable UUID uploadId) {
+        DataRecordDetail recordDetail = uploadService.completeUpload(dataRecordId, uploadId);
+        return ResponseEntity.ok(recordDetail);
+    }
+
+    @DeleteMapping("/{uploadId}")
+    public ResponseEntity<Void> abortUpload(@PathVariable int dataRecordId, @PathVariable UUID uploadId) {
+        uploadService.abortUpload(dataRecordId, uploadId);
+        return ResponseEntity.noContent().build();
+    }
+}
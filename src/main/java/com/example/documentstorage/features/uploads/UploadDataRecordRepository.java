@@ -0,0 +1,9 @@
+package com.example.documentstorage.features.uploads;
+
+import com.example.documentstorage.entities.DataRecord;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface UploadDataRecordRepository extends JpaRepository<DataRecord, Integer> {
+}
@@ -0,0 +1,58 @@
+package com.example.documentstorage.features.uploads;
+
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import com.example.documentstorage.shared.base.models.responses.UploadPartDetail;
+import com.example.documentstorage.shared.base.models.responses.UploadSessionDetail;
+
+import java.io.InputStream;
+import java.util.UUID;
+
+public interface UploadService {
+    /**
+     * Starts the upload of a section in parts
+     *
+     * @param dataRecordId the data record to which the section is attached
+     * @param fileName     the original name of the file
+     * @param contentType  the content type of the file
+     * @return the upload session, without parts
+     */
+    UploadSessionDetail createUpload(int dataRecordId, String fileName, String contentType);
+
+    /**
+     * Gets the upload session with the parts that have been uploaded so far
+     *
+     * @param dataRecordId the id of the data record
+     * @param uploadId     the id of the upload session
+     * @return the upload session with its parts
+     */
+    UploadSessionDetail getUpload(int dataRecordId, UUID uploadId);
+
+    /**
+     * Uploads a numbered part of the section. Parts can be uploaded in parallel and in any order. Uploading a part
+     * with the same number again replaces it.
+     *
+     * @param dataRecordId the id of the data record
+     * @param uploadId     the id of the upload session
+     * @param partNumber   the number of the part, starting from 1
+     * @param content      the content of the part
+     * @return the uploaded part
+     */
+    UploadPartDetail uploadPart(int dataRecordId, UUID uploadId, int partNumber, InputStream content);
+
+    /**
+     * Completes the upload, assembling the parts into the section file in the order of their numbers
+     *
+     * @param dataRecordId the id of the data record
+     * @param uploadId     the id of the upload session
+     * @return the data record with its sections
+     */
+    DataRecordDetail completeUpload(int dataRecordId, UUID uploadId);
+
+    /**
+     * Aborts the upload and removes the uploaded parts
+     *
+     * @param dataRecordId the id of the data record
+     * @param uploadId     the id of the upload session
+     */
+    void abortUpload(int dataRecordId, UUID uploadId);
+}
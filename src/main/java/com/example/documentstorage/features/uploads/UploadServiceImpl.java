@@ -0,0 +1,358 @@
+package com.example.documentstorage.features.uploads;
+
+import com.example.documentstorage.entities.DataRecord;
+import com.example.documentstorage.entities.Section;
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.entities.UploadPart;
+import com.example.documentstorage.entities.UploadSession;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ActionType;
+import com.example.documentstorage.shared.base.filestorage.CompressionPolicy;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTracker;
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import com.example.documentstorage.shared.base.models.responses.SectionDetail;
+import com.example.documentstorage.shared.base.models.responses.UploadPartDetail;
+import com.example.documentstorage.shared.base.models.responses.UploadSessionDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.InputStream;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+/**
+ * Uploads sections in numbered parts. Every part is stored as a temporary file, recorded as a child of the
+ * transaction action of the section file, so the parts of abandoned uploads are removed by the processing of the
+ * transaction actions. The expiration of an upload is counted from the last uploaded part, and an upload whose
+ * transaction action has been processed is expired and can not be continued.
+ */
+@Service
+public class UploadServiceImpl implements UploadService {
+    private static final Logger logger = LoggerFactory.getLogger(UploadServiceImpl.class);
+    private static final String PARTS_DIRECTORY = "parts";
+
+    private final UploadDataRecordRepository dataRecordRepository;
+    private final UploadSessionRepository uploadSessionRepository;
+    private final TransactionActionRecordRepository transactionActionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final FileStorage fileStorage;
+    private final CompressionPolicy compressionPolicy;
+    private final StorageUsageTracker storageUsageTracker;
+    private final int maxParts;
+
+    public UploadServiceImpl(
+            UploadDataRecordRepository dataRecordRepository,
+            UploadSessionRepository uploadSessionRepository,
+            TransactionActionRecordRepository transactionActionRecordRepository,
+            TransactionTemplate transactionTemplate,
+            FileStorage fileStorage,
+            CompressionPolicy compressionPolicy,
+            StorageUsageTracker storageUsageTracker,
+            @Value("${document.storage.upload.max.parts}") int maxParts) {
+        this.dataRecordRepository = dataRecordRepository;
+        this.uploadSessionRepository = uploadSessionRepository;
+        this.transactionActionRepository = transactionActionRecordRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.fileStorage = fileStorage;
+        this.compressionPolicy = compressionPolicy;
+        this.storageUsageTracker = storageUsageTracker;
+        this.maxParts = maxParts;
+    }
+
+    /**
+     * Starts the upload of a section in parts. The transaction action of the upload is recorded when the upload
+     * starts, with a child action for every part and for every attempt to assemble the section file, and is
+     * committed when the upload is completed.
+     *
+     * @param dataRecordId the data record to which the section is attached
+     * @param fileName     the original name of the file
+     * @param contentType  the content type of the file
+     * @return the upload session, without parts
+     */
+    @Override
+    public UploadSessionDetail createUpload(int dataRecordId, String fileName, String contentType) {
+        storageUsageTracker.checkQuota(dataRecordId, -1);
+        String systemFileName = fileStorage.generateSystemFileName(fileName);
+
+        UploadSession uploadSession = transactionTemplate.execute(status -> {
+            DataRecord dataRecord = dataRecordRepository
+                    .findById(dataRecordId)
+                    .orElseThrow(() -> {
+                        logger.warn("Data record with id '{}' not found for upload", dataRecordId);
+                        return new InvalidClientInputException("features.uploads.on.upload.create.datarecord.not.found", dataRecordId);
+                    });
+
+            TransactionActionRecord actionRecord = new TransactionActionRecord();
+            actionRecord.setStorageLocation(systemFileName);
+            actionRecord.setActionType(ActionType.CREATE);
+            transactionActionRepository.save(actionRecord);
+
+            UploadSession session = new UploadSession();
+            session.setDataRecord(dataRecord);
+            session.setFileName(fileName);
+            session.setContentType(contentType);
+            session.setActionRecord(actionRecord);
+            return uploadSessionRepository.save(session);
+        });
+
+        logger.info("Created upload '{}' for data record '{}'", uploadSession.getId(), dataRecordId);
+        return toUploadSessionDetail(uploadSession);
+    }
+
+    /**
+     * Gets the upload session with the parts that have been uploaded so far
+     *
+     * @param dataRecordId the id of the data record
+     * @param uploadId     the id of the upload session
+     * @return the upload session with its parts
+     */
+    @Override
+    public UploadSessionDetail getUpload(int dataRecordId, UUID uploadId) {
+        return transactionTemplate.execute(status -> {
+            UploadSession uploadSession = uploadSessionRepository
+                    .findByIdAndDataRecordId(uploadId, dataRecordId)
+                    .orElseThrow(() -> uploadNotFound(uploadId, dataRecordId));
+
+            return toUploadSessionDetail(uploadSession);
+        });
+    }
+
+    /**
+     * Uploads a numbered part of the section. The part is streamed into its own temporary file outside the
+     * database transaction, so parts of the same upload can be sent in parallel. A part uploaded again replaces
+     * the previous one, which is removed.
+     *
+     * @param dataRecordId the id of the data record
+     * @param uploadId     the id of the upload session
+     * @param partNumber   the number of the part, starting from 1
+     * @param content      the content of the part
+     * @return the uploaded part
+     */
+    @Override
+    public UploadPartDetail uploadPart(int dataRecordId, UUID uploadId, int partNumber, InputStream content) {
+        if (partNumber < 1 || partNumber > maxParts) {
+            throw new InvalidClientInputException("features.uploads.on.part.upload.part.number.invalid", partNumber, maxParts);
+        }
+
+        String partLocation = PARTS_DIRECTORY + "/" + fileStorage.generateSystemFileName("%s_%d.part".formatted(uploadId, partNumber));
+        transactionTemplate.executeWithoutResult(status -> {
+            UploadSession uploadSession = findActiveUpload(uploadId, dataRecordId, false);
+            addChildTransactionAction(uploadSession.getActionRecord(), partLocation);
+        });
+
+        StoredFile storedPart = fileStorage.storePart(content, partLocation);
+
+        Optional<String> replacedLocation;
+        try {
+            replacedLocation = transactionTemplate.execute(status -> {
+                UploadSession uploadSession = findActiveUpload(uploadId, dataRecordId, true);
+                Optional<UploadPart> existingPart = uploadSession.getParts().stream()
+                        .filter(part -> part.getPartNumber() == partNumber)
+                        .findFirst();
+
+                UploadPart part = existingPart.orElseGet(() -> {
+                    UploadPart newPart = new UploadPart();
+                    newPart.setPartNumber(partNumber);
+                    uploadSession.addPart(newPart);
+                    return newPart;
+                });
+
+                Optional<String> previousLocation = existingPart.map(UploadPart::getStorageLocation);
+                part.setStorageLocation(storedPart.storageLocation());
+                part.setSize(storedPart.size());
+                part.setChecksum(storedPart.checksum());
+
+                // The expiration of the upload is counted from the last uploaded part
+                uploadSession.getActionRecord().setModifiedAt(LocalDateTime.now());
+                uploadSessionRepository.save(uploadSession);
+                return previousLocation;
+            });
+        } catch (RuntimeException e) {
+            // The upload may have expired while the part was stored, then no transaction action removes the part
+            deletePartIfPresent(partLocation);
+            throw e;
+        }
+
+        replacedLocation.ifPresent(this::deletePartIfPresent);
+        logger.info("Uploaded part '{}' of upload '{}'", partNumber, uploadId);
+        return new UploadPartDetail(partNumber, storedPart.size(), storedPart.checksum());
+    }
+
+    /**
+     * Completes the upload. The parts must be numbered from 1 without gaps. They are assembled into the section
+     * file outside the database transaction, under a CREATE transaction action recorded for this attempt, so every
+     * attempt writes its own file and a failed attempt leaves nothing behind once the actions are processed. The
+     * section is then added and the transaction actions are committed in one transaction, if the parts have not
+     * changed in between. The parts are removed afterward.
+     *
+     * @param dataRecordId the id of the data record
+     * @param uploadId     the id of the upload session
+     * @return the data record with its sections
+     */
+    @Override
+    public DataRecordDetail completeUpload(int dataRecordId, UUID uploadId) {
+        UploadAssembly assembly = transactionTemplate.execute(status -> {
+            UploadSession uploadSession = findActiveUpload(uploadId, dataRecordId, true);
+            List<UploadPart> parts = uploadSession.getParts();
+            if (parts.isEmpty()) {
+                throw new InvalidClientInputException("features.uploads.on.upload.complete.parts.missing", uploadId, 1);
+            }
+
+            for (int i = 0; i < parts.size(); i++) {
+                if (parts.get(i).getPartNumber() != i + 1) {
+                    logger.warn("Upload '{}' is missing part '{}'", uploadId, i + 1);
+                    throw new InvalidClientInputException("features.uploads.on.upload.complete.parts.missing", uploadId, i + 1);
+                }
+            }
+
+            List<String> partLocations = parts.stream().map(UploadPart::getStorageLocation).toList();
+            long contentLength = parts.stream().mapToLong(UploadPart::getSize).sum();
+            ContentEncoding encoding = compressionPolicy.selectEncoding(uploadSession.getContentType(), contentLength);
+            storageUsageTracker.checkQuota(dataRecordId, contentLength);
+
+            String systemFileName = fileStorage.generateSystemFileName(uploadSession.getFileName());
+            TransactionActionRecord actionRecord = addChildTransactionAction(uploadSession.getActionRecord(), systemFileName);
+            return new UploadAssembly(actionRecord, partLocations, encoding);
+        });
+
+        boolean assembledInTransaction = fileStorage.requiresTransaction();
+        StoredFile assembledFile = assembledInTransaction ? null : assembleSection(assembly);
+
+        CompletedUpload completedUpload = transactionTemplate.execute(status -> {
+            UploadSession uploadSession = findActiveUpload(uploadId, dataRecordId, true);
+            List<String> partLocations = uploadSession.getParts().stream().map(UploadPart::getStorageLocation).toList();
+            if (!partLocations.equals(assembly.partLocations())) {
+                logger.warn("Parts of upload '{}' have changed while it was completed", uploadId);
+                throw new InvalidClientInputException("features.uploads.on.upload.complete.parts.changed", uploadId);
+            }
+
+            StoredFile storedFile = assembledInTransaction ? assembleSection(assembly) : assembledFile;
+            Section section = new Section();
+            section.setFileName(uploadSession.getFileName());
+            section.setStorageLocation(storedFile.storageLocation());
+            section.setContentType(uploadSession.getContentType());
+            section.setFileSize(storedFile.size());
+            section.setChecksum(storedFile.checksum());
+            section.setContentEncoding(storedFile.encoding());
+            uploadSession.getDataRecord().addSection(section);
+            storageUsageTracker.addUsage(dataRecordId, storedFile.size(), 1);
+
+            uploadSession.setCompleted(true);
+            uploadSession.getActionRecord().setCommitted(true);
+            assembly.actionRecord().setCommitted(true);
+            transactionActionRepository.save(uploadSession.getActionRecord());
+            transactionActionRepository.save(assembly.actionRecord());
+            uploadSessionRepository.saveAndFlush(uploadSession);
+
+            return new CompletedUpload(toDataRecordDetail(uploadSession.getDataRecord()), partLocations, section);
+        });
+
+        completedUpload.partLocations().forEach(this::deletePartIfPresent);
+        logger.info("Completed upload '{}' as section '{}'", uploadId, completedUpload.section().getId());
+        return completedUpload.recordDetail();
+    }
+
+    /**
+     * Aborts the upload. The parts are removed right away, the transaction actions of the upload are processed
+     * once they expire.
+     *
+     * @param dataRecordId the id of the data record
+     * @param uploadId     the id of the upload session
+     */
+    @Override
+    public void abortUpload(int dataRecordId, UUID uploadId) {
+        List<String> partLocations = transactionTemplate.execute(status -> {
+            UploadSession uploadSession = findActiveUpload(uploadId, dataRecordId, true);
+            List<String> locations = uploadSession.getParts().stream().map(UploadPart::getStorageLocation).toList();
+            uploadSessionRepository.delete(uploadSession);
+            return locations;
+        });
+
+        partLocations.forEach(this::deletePartIfPresent);
+        logger.info("Aborted upload '{}'", uploadId);
+    }
+
+    private UploadSession findActiveUpload(UUID uploadId, int dataRecordId, boolean lock) {
+        Optional<UploadSession> uploadSession = lock
+                ? uploadSessionRepository.findByIdAndDataRecordIdForUpdate(uploadId, dataRecordId)
+                : uploadSessionRepository.findByIdAndDataRecordId(uploadId, dataRecordId);
+
+        UploadSession activeUpload = uploadSession.orElseThrow(() -> uploadNotFound(uploadId, dataRecordId));
+        if (activeUpload.isCompleted()) {
+            logger.warn("Upload '{}' has already been completed", uploadId);
+            throw new InvalidClientInputException("features.uploads.on.upload.completed", uploadId);
+        }
+
+        // The parts have been removed by the processing of the transaction actions
+        if (activeUpload.getActionRecord().isProcessed()) {
+            logger.warn("Upload '{}' has expired", uploadId);
+            throw new InvalidClientInputException("features.uploads.on.upload.expired", uploadId);
+        }
+
+        return activeUpload;
+    }
+
+    private StoredFile assembleSection(UploadAssembly assembly) {
+        return fileStorage.assembleSection(assembly.partLocations(), assembly.actionRecord().getStorageLocation(), assembly.encoding());
+    }
+
+    private TransactionActionRecord addChildTransactionAction(TransactionActionRecord parentRecord, String storageLocation) {
+        TransactionActionRecord actionRecord = new TransactionActionRecord();
+        actionRecord.setStorageLocation(storageLocation);
+        actionRecord.setActionType(ActionType.CREATE);
+        actionRecord.setParentRecord(parentRecord);
+
+        transactionActionRepository.save(actionRecord);
+
+        return actionRecord;
+    }
+
+    private void deletePartIfPresent(String partLocation) {
+        try {
+            fileStorage.deleteSectionIfPresent(partLocation);
+        } catch (InvalidSystemStateException e) {
+            // The part is removed later by the processing of the transaction action
+            logger.warn("Unable to remove upload part '{}'", partLocation);
+        }
+    }
+
+    private static InvalidClientInputException uploadNotFound(UUID uploadId, int dataRecordId) {
+        logger.warn("Upload '{}' not found for data record '{}'", uploadId, dataRecordId);
+        return new InvalidClientInputException("features.uploads.on.upload.not.found", uploadId);
+    }
+
+    private static UploadSessionDetail toUploadSessionDetail(UploadSession uploadSession) {
+        List<UploadPartDetail> parts = uploadSession.getParts().stream()
+                .map(part -> new UploadPartDetail(part.getPartNumber(), part.getSize(), part.getChecksum()))
+                .toList();
+
+        return new UploadSessionDetail(uploadSession.getId(), uploadSession.getFileName(), uploadSession.getContentType(), parts);
+    }
+
+    private static DataRecordDetail toDataRecordDetail(DataRecord dataRecord) {
+        List<SectionDetail> sectionDetails = dataRecord.getSections().stream()
+                .map(s -> new SectionDetail(s.getId(), s.getFileName(), s.getStorageLocation()))
+                .toList();
+
+        return DataRecordDetail.withSections(dataRecord.getId(), dataRecord.getTitle(), dataRecord.getDescription(), sectionDetails);
+    }
+
+    /**
+     * An attempt to complete an upload, with the CREATE transaction action of the file into which the parts are assembled
+     */
+    private record UploadAssembly(TransactionActionRecord actionRecord, List<String> partLocations, ContentEncoding encoding) {
+    }
+
+    private record CompletedUpload(DataRecordDetail recordDetail, List<String> partLocations, Section section) {
+    }
+}
@@ -0,0 +1,34 @@
+package com.example.documentstorage.features.uploads;
+
+import com.example.documentstorage.entities.UploadSession;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+
+@Repository
+public interface UploadSessionRepository extends JpaRepository<UploadSession, UUID> {
+    Optional<UploadSession> findByIdAndDataRecordId(UUID id, int dataRecordId);
+
+    /**
+     * Finds the upload session and locks it, so that its parts are not changed concurrently
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT u FROM UploadSession u
+            WHERE u.id = :id AND u.dataRecord.id = :dataRecordId
+            """)
+    Optional<UploadSession> findByIdAndDataRecordIdForUpdate(@Param("id") UUID id, @Param("dataRecordId") int dataRecordId);
+
+    /**
+     * Finds the upload sessions that have expired without being completed. Their transaction action has been
+     * processed, so their parts have been removed.
+     */
+    List<UploadSession> findFirst100ByCompletedFalseAndActionRecordProcessedTrue();
+}
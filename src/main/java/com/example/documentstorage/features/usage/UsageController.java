@@ -0,0 +1,38 @@
+package com.example.documentstorage.features.usage;
+
+import com.example.documentstorage.shared.base.models.responses.StorageUsageDetail;
+import org.springframework.http.ResponseEntity;
+import org.springframework.web.bind.annotation.*;
+
+@RestController
+@RequestMapping("/api")
+public class UsageController {
+    private final UsageService usageService;
+
+    public UsageController(UsageService usageService) {
+        this.usageService = usageService;
+    }
+
+    /**
+     * Gets the number and the total size of the sections of the data record
+     *
+     * @param dataRecordId the id of the data record
+     * @return {@link StorageUsageDetail} the usage of the data record
+     */
+    @GetMapping("/data-records/{dataRecordId}/usage")
+    public ResponseEntity<StorageUsageDetail> getDataRecordUsage(@PathVariable int dataRecordId) {
+        StorageUsageDetail usage = usageService.getDataRecordUsage(dataRecordId);
+        return ResponseEntity.ok().body(usage);
+    }
+
+    /**
+     * Gets the number and the total size of the sections of the whole store
+     *
+     * @return {@link StorageUsageDetail} the usage of the store
+     */
+    @GetMapping("/storage/usage")
+    public ResponseEntity<StorageUsageDetail> getTotalUsage() {
+        StorageUsageDetail usage = usageService.getTotalUsage();
+        return ResponseEntity.ok().body(usage);
+    }
+}
@@ -0,0 +1,25 @@
+package com.example.documentstorage.features.usage;
+
+import com.example.documentstorage.entities.StorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface UsageRepository extends JpaRepository<StorageUsage, Integer> {
+    @Query("""
+            SELECT new com.example.documentstorage.features.usage.UsageTotals(d.usedBytes, d.sectionCount)
+            FROM DataRecord d
+            WHERE d.id = :id
+            """)
+    Optional<UsageTotals> findDataRecordUsage(@Param("id") int id);
+
+    @Query("""
+            SELECT new com.example.documentstorage.features.usage.UsageTotals(COALESCE(SUM(u.usedBytes), 0), COALESCE(SUM(u.sectionCount), 0))
+            FROM StorageUsage u
+            """)
+    UsageTotals findTotalUsage();
+}
@@ -0,0 +1,20 @@
+package com.example.documentstorage.features.usage;
+
+import com.example.documentstorage.shared.base.models.responses.StorageUsageDetail;
+
+public interface UsageService {
+    /**
+     * Gets the number and the total size of the sections of the data record, with its quota
+     *
+     * @param dataRecordId the id of the data record
+     * @return the usage of the data record
+     */
+    StorageUsageDetail getDataRecordUsage(int dataRecordId);
+
+    /**
+     * Gets the number and the total size of the sections of all the data records, with the quota of the store
+     *
+     * @return the usage of the store
+     */
+    StorageUsageDetail getTotalUsage();
+}
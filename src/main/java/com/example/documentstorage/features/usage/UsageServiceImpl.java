@@ -0,0 +1,58 @@
+package com.example.documentstorage.features.usage;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.models.responses.StorageUsageDetail;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+@Service
+public class UsageServiceImpl implements UsageService {
+    private static final Logger logger = LoggerFactory.getLogger(UsageServiceImpl.class);
+
+    private final UsageRepository usageRepository;
+    private final long maxDataRecordBytes;
+    private final long maxTotalBytes;
+
+    public UsageServiceImpl(UsageRepository usageRepository,
+                            @Value("${document.storage.quota.data.record.max.size}") DataSize maxDataRecordSize,
+                            @Value("${document.storage.quota.total.max.size}") DataSize maxTotalSize) {
+        this.usageRepository = usageRepository;
+        this.maxDataRecordBytes = maxDataRecordSize.toBytes();
+        this.maxTotalBytes = maxTotalSize.toBytes();
+    }
+
+    /**
+     * Gets the number and the total size of the sections of the data record, read from its counters
+     *
+     * @param dataRecordId the id of the data record
+     * @return the usage of the data record
+     */
+    @Override
+    public StorageUsageDetail getDataRecordUsage(int dataRecordId) {
+        UsageTotals usage = usageRepository.findDataRecordUsage(dataRecordId)
+                .orElseThrow(() -> {
+                    logger.warn("Data record with id '{}' not found for usage", dataRecordId);
+                    return new InvalidClientInputException("features.usage.on.usage.get.datarecord.not.found", dataRecordId);
+                });
+
+        return new StorageUsageDetail(usage.usedBytes(), usage.sectionCount(), toQuota(maxDataRecordBytes));
+    }
+
+    /**
+     * Gets the number and the total size of the sections of all the data records, summed over the counter stripes
+     *
+     * @return the usage of the store
+     */
+    @Override
+    public StorageUsageDetail getTotalUsage() {
+        UsageTotals usage = usageRepository.findTotalUsage();
+        return new StorageUsageDetail(usage.usedBytes(), usage.sectionCount(), toQuota(maxTotalBytes));
+    }
+
+    private static Long toQuota(long maxBytes) {
+        return maxBytes > 0 ? maxBytes : null;
+    }
+}
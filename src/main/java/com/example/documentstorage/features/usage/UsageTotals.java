@@ -0,0 +1,4 @@
+package com.example.documentstorage.features.usage;
+
+public record UsageTotals(long usedBytes, long sectionCount) {
+}
@@ -2,5 +2,9 @@ package com.example.documentstorage.shared.base.filestorage;
 
 public enum ActionType {
     CREATE,
-    DELETE
+    DELETE,
+    /**
+     * Groups the actions of a batch. It has no storage location, its child actions are processed with it.
+     */
+    GROUP
 }
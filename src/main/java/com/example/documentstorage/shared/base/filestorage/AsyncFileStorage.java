@@ -0,0 +1,41 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+
+/**
+ * Runs the blocking operations of the {@link FileStorage} on the storage threads, so that the calling thread can
+ * do other work, e.g. look up the data record, while the file is written. The operations run outside of the
+ * transaction of the caller, so sections of a file storage that {@link FileStorage#requiresTransaction()} must be
+ * stored through the {@link FileStorage} itself. Failures complete the returned future exceptionally, with the
+ * exception thrown by the {@link FileStorage}.
+ */
+public interface AsyncFileStorage {
+    /**
+     * Stores the section file using the system file name, encoding the content while it is streamed into the
+     * stored file
+     *
+     * @param content        the content of the file to be stored. It is not closed, and must not be closed or read
+     *                       by the caller until the future completes
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the stored file, once it is stored
+     */
+    CompletableFuture<StoredFile> storeSection(InputStream content, String systemFileName, ContentEncoding encoding);
+
+    /**
+     * Deletes the section file using the system file name
+     *
+     * @param systemFileName the system file name
+     * @return completed once the file is deleted
+     */
+    CompletableFuture<Void> deleteSection(String systemFileName);
+
+    /**
+     * Deletes the section file using the system file name, if it is present
+     *
+     * @param systemFileName the system file name
+     * @return completed once the file is deleted
+     */
+    CompletableFuture<Void> deleteSectionIfPresent(String systemFileName);
+}
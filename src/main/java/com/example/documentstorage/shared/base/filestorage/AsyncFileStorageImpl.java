@@ -0,0 +1,39 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import org.springframework.beans.factory.annotation.Qualifier;
+import org.springframework.stereotype.Service;
+
+import java.io.InputStream;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.Executor;
+
+/**
+ * Runs the operations of the file storage of the configured storage mode on the storage executor. The storage
+ * threads bound the number of concurrent disk operations, while the request threads are free until the result
+ * is needed.
+ */
+@Service
+public class AsyncFileStorageImpl implements AsyncFileStorage {
+    private final FileStorage fileStorage;
+    private final Executor storageExecutor;
+
+    public AsyncFileStorageImpl(FileStorage fileStorage, @Qualifier("storageExecutor") Executor storageExecutor) {
+        this.fileStorage = fileStorage;
+        this.storageExecutor = storageExecutor;
+    }
+
+    @Override
+    public CompletableFuture<StoredFile> storeSection(InputStream content, String systemFileName, ContentEncoding encoding) {
+        return CompletableFuture.supplyAsync(() -> fileStorage.storeSection(content, systemFileName, encoding), storageExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteSection(String systemFileName) {
+        return CompletableFuture.runAsync(() -> fileStorage.deleteSection(systemFileName), storageExecutor);
+    }
+
+    @Override
+    public CompletableFuture<Void> deleteSectionIfPresent(String systemFileName) {
+        return CompletableFuture.runAsync(() -> fileStorage.deleteSectionIfPresent(systemFileName), storageExecutor);
+    }
+}
@@ -0,0 +1,44 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.io.IOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Section content that is already held in memory
+ */
+public class ByteArraySectionContent implements SectionContent {
+    private final byte[] content;
+
+    public ByteArraySectionContent(byte[] content) {
+        this.content = content;
+    }
+
+    @Override
+    public long size() {
+        return content.length;
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        Objects.checkFromIndexSize(position, count, content.length);
+        ByteBuffer buffer = ByteBuffer.wrap(content, (int) position, (int) count);
+        while (buffer.hasRemaining()) {
+            target.write(buffer);
+        }
+
+        return count;
+    }
+
+    @Override
+    public Optional<FileRegion> fileRegion() {
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() {
+        // Nothing to release
+    }
+}
@@ -0,0 +1,496 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import com.example.documentstorage.entities.SectionChunk;
+import com.example.documentstorage.entities.StorageBlob;
+import com.example.documentstorage.shared.base.apimessages.LocalizationService;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.cache.SectionCache;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolumes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.TreeMap;
+import java.util.UUID;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Splits every section into chunks with the {@link ContentDefinedChunker} and stores every distinct chunk once,
+ * keyed by its SHA-256 hash, so that near identical sections share the chunks they have in common. Every chunk is a
+ * {@link StorageBlob}, whose reference count is the number of {@link SectionChunk} rows that reference it, and the
+ * section keeps the list of its chunks. Chunk files are created before they are referenced and the reference
+ * counts are changed while holding the locks on the chunk rows, so a chunk is removed only when no section
+ * references it anymore. Chunks are stored as they are, sections are never encoded.
+ * Sections stored in their own file before the chunked mode was enabled are still read and removed as files.
+ */
+@Service
+@ConditionalOnProperty(name = "document.storage.mode", havingValue = "chunked")
+public class ChunkedFileStorage extends FileStorageImpl {
+    private static final Logger logger = LoggerFactory.getLogger(ChunkedFileStorage.class);
+    private static final String CHUNKED_DIRECTORY = "chunked";
+    private static final String CHUNK_DIRECTORY = "chunks";
+    private static final String TEMPORARY_DIRECTORY = "tmp";
+
+    private final StorageBlobRepository blobRepository;
+    private final SectionChunkRepository sectionChunkRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+    private final int minChunkSize;
+    private final int averageChunkSize;
+    private final int maxChunkSize;
+
+    public ChunkedFileStorage(
+            LocalizationService localizationService,
+            SectionCache sectionCache,
+            StorageDurability storageDurability,
+            StorageBlobRepository blobRepository,
+            SectionChunkRepository sectionChunkRepository,
+            PlatformTransactionManager transactionManager,
+            StorageVolumes storageVolumes,
+            @Value("${document.storage.cold.path}") String coldPath,
+            @Value("${document.storage.chunked.min.size}") DataSize minChunkSize,
+            @Value("${document.storage.chunked.average.size}") DataSize averageChunkSize,
+            @Value("${document.storage.chunked.max.size}") DataSize maxChunkSize) {
+        super(localizationService, sectionCache, storageDurability, storageVolumes, coldPath);
+        this.blobRepository = blobRepository;
+        this.sectionChunkRepository = sectionChunkRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+        this.minChunkSize = Math.toIntExact(minChunkSize.toBytes());
+        this.averageChunkSize = Math.toIntExact(averageChunkSize.toBytes());
+        this.maxChunkSize = Math.toIntExact(maxChunkSize.toBytes());
+    }
+
+    /**
+     * Splits the content into chunks while computing its checksum, stores the chunks that are not stored yet and
+     * saves the list of the chunks of the section. Only one chunk is held in memory at a time. Must be called in
+     * the transaction that adds the section, as the reference counts of the chunks are incremented in it.
+     * An empty section has one empty chunk, so that a section without chunks is known to be missing.
+     *
+     * @param content        the content of the file to be stored. It is not closed by this method
+     * @param systemFileName the system file name
+     * @param encoding       ignored, chunks are stored as they are
+     * @return the storage location, the size and the checksum of the section
+     */
+    @Override
+    public StoredFile storeSection(InputStream content, String systemFileName, ContentEncoding encoding) {
+        String storageLocation = CHUNKED_DIRECTORY + "/" + systemFileName;
+        ContentDefinedChunker chunker = new ContentDefinedChunker(content, minChunkSize, averageChunkSize, maxChunkSize);
+        MessageDigest contentDigest = SectionChecksums.createDigest();
+        List<SectionChunk> sectionChunks = new ArrayList<>();
+        long size = 0;
+        try {
+            byte[] chunk = Objects.requireNonNullElse(chunker.nextChunk(), new byte[0]);
+            while (chunk != null) {
+                contentDigest.update(chunk);
+                String hash = SectionChecksums.checksum(chunk);
+                storeChunk(hash, chunk);
+                sectionChunks.add(toSectionChunk(storageLocation, sectionChunks.size(), hash, chunk.length));
+                size += chunk.length;
+                chunk = chunker.nextChunk();
+            }
+        } catch (IOException e) {
+            logger.error("Unable to read the content of file '{}'", systemFileName);
+            throw new InvalidSystemStateException(e);
+        }
+
+        addReferences(sectionChunks);
+        sectionChunkRepository.saveAll(sectionChunks);
+
+        logger.info("Stored file '{}' with size '{}' in '{}' chunks", storageLocation, size, sectionChunks.size());
+        return new StoredFile(storageLocation, size, HexFormat.of().formatHex(contentDigest.digest()), ContentEncoding.IDENTITY);
+    }
+
+    /**
+     * Opens the chunks of the section for reading, one after the other. Chunked sections are not cached, as their
+     * chunks are shared with other sections.
+     *
+     * @param systemFileName the storage location of the section
+     * @return the content of the section. Must be closed by the caller
+     */
+    @Override
+    public SectionContent openSection(String systemFileName) {
+        if (!isChunked(systemFileName)) {
+            return super.openSection(systemFileName);
+        }
+
+        return openChunks(systemFileName);
+    }
+
+    /**
+     * Opens the chunks of the section for reading, or the section file if it is not chunked
+     *
+     * @param systemFileName the storage location of the section
+     * @return the content of the section. Must be closed by the caller
+     */
+    @Override
+    public SectionContent openStoredSection(String systemFileName) {
+        if (!isChunked(systemFileName)) {
+            return super.openStoredSection(systemFileName);
+        }
+
+        return openChunks(systemFileName);
+    }
+
+    /**
+     * Generates the storage location of a copy. A copy of a chunked section is a chunked section as well.
+     *
+     * @param sourceLocation   the storage location of the stored file
+     * @param originalFileName the original file name of the copy
+     * @return the storage location of the copy
+     */
+    @Override
+    public String generateCopyLocation(String sourceLocation, String originalFileName) {
+        if (isChunked(sourceLocation)) {
+            return CHUNKED_DIRECTORY + "/" + generateSystemFileName(originalFileName);
+        }
+
+        return super.generateCopyLocation(sourceLocation, originalFileName);
+    }
+
+    /**
+     * Saves the list of the chunks of the stored section for the copy and increments the reference counts of the
+     * chunks, or links the section file if it is not chunked. Must be called in the transaction that adds the copy.
+     *
+     * @param sourceLocation the storage location of the stored file
+     * @param targetLocation the storage location of the copy
+     */
+    @Override
+    public void shareSection(String sourceLocation, String targetLocation) {
+        if (!isChunked(sourceLocation)) {
+            super.shareSection(sourceLocation, targetLocation);
+            return;
+        }
+
+        List<SectionChunk> sourceChunks = sectionChunkRepository.findByStorageLocationOrderByChunkIndexAsc(sourceLocation);
+        if (sourceChunks.isEmpty()) {
+            logger.error("Unable to share chunked section '{}'. The section does not exist", sourceLocation);
+            throw new InvalidSystemStateException(new NoSuchFileException(sourceLocation));
+        }
+
+        List<SectionChunk> sectionChunks = sourceChunks.stream()
+                .map(chunk -> toSectionChunk(targetLocation, chunk.getChunkIndex(), chunk.getChunkHash(), chunk.getLength()))
+                .toList();
+        addReferences(sectionChunks);
+        sectionChunkRepository.saveAll(sectionChunks);
+        logger.info("Shared '{}' chunks of section '{}' as '{}'", sectionChunks.size(), sourceLocation, targetLocation);
+    }
+
+    /**
+     * Stores the local file in chunks, as its content is split while it is read
+     *
+     * @param sourcePath     the path of the local file
+     * @param systemFileName the system file name
+     * @param encoding       ignored, chunks are stored as they are
+     * @return the storage location, the size and the checksum of the section
+     */
+    @Override
+    public StoredFile ingestSection(Path sourcePath, String systemFileName, ContentEncoding encoding) {
+        return storeLocalFile(sourcePath, systemFileName, encoding);
+    }
+
+    /**
+     * Sections must be stored in the transaction that adds them, as the reference counts of their chunks are incremented in it
+     *
+     * @return true
+     */
+    @Override
+    public boolean requiresTransaction() {
+        return true;
+    }
+
+    /**
+     * Sections can not be staged, as their chunks are shared with other sections and can not be renamed into place
+     *
+     * @return false
+     */
+    @Override
+    public boolean supportsStaging() {
+        return false;
+    }
+
+    /**
+     * Fails, as sections can not be staged. Only called when {@link #supportsStaging()} is true.
+     *
+     * @param content        the content of the file to be stored
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return never returns
+     */
+    @Override
+    public StoredFile stageSection(InputStream content, String systemFileName, ContentEncoding encoding) {
+        logger.error("Unable to stage file '{}'. Staging is not supported by the chunked storage", systemFileName);
+        throw new InvalidSystemStateException();
+    }
+
+    /**
+     * Fails, as sections can not be staged. Only called when {@link #supportsStaging()} is true.
+     *
+     * @param systemFileName the system file name of the staged file
+     */
+    @Override
+    public void publishStagedSection(String systemFileName) {
+        logger.error("Unable to publish file '{}'. Staging is not supported by the chunked storage", systemFileName);
+        throw new InvalidSystemStateException();
+    }
+
+    /**
+     * Removes the list of the chunks of the section and decrements the reference counts of the chunks, or deletes
+     * the section file if it is not chunked. Chunks without references are removed by
+     * {@link #removeUnreferencedFiles(LocalDateTime)}.
+     *
+     * @param systemFileName the storage location of the section
+     */
+    @Override
+    public void deleteSection(String systemFileName) {
+        if (!isChunked(systemFileName)) {
+            super.deleteSection(systemFileName);
+            return;
+        }
+
+        if (!deleteChunkedSection(systemFileName)) {
+            logger.error("Unable to remove chunked section '{}'. The section does not exist", systemFileName);
+            throw new InvalidSystemStateException(new NoSuchFileException(systemFileName));
+        }
+    }
+
+    /**
+     * Removes the list of the chunks of the section, or deletes the section file if it is not chunked, if it is present
+     *
+     * @param systemFileName the storage location of the section
+     */
+    @Override
+    public void deleteSectionIfPresent(String systemFileName) {
+        if (!isChunked(systemFileName)) {
+            super.deleteSectionIfPresent(systemFileName);
+            return;
+        }
+
+        if (!deleteChunkedSection(systemFileName)) {
+            logger.info("Chunked section '{}' not found. Nothing to delete", systemFileName);
+        }
+    }
+
+    /**
+     * Checks if the stored file can be moved to another tier. Chunks are shared by many sections, so chunked
+     * sections are never moved.
+     *
+     * @param storageLocation the storage location of the section
+     * @return true if the section is not chunked and tiering is enabled
+     */
+    @Override
+    public boolean supportsTiering(String storageLocation) {
+        return !isChunked(storageLocation) && super.supportsTiering(storageLocation);
+    }
+
+    /**
+     * Removes the chunks without references and the temporary files of chunks that were never stored
+     *
+     * @param expirationTime files modified before this time are removed
+     */
+    @Override
+    public void removeUnreferencedFiles(LocalDateTime expirationTime) {
+        int removedChunks = 0;
+        List<String> hashes = blobRepository.findFirstUnreferenced(expirationTime);
+        while (!hashes.isEmpty()) {
+            hashes.forEach(hash -> deleteChunkIfUnreferenced(hash, expirationTime));
+            removedChunks += hashes.size();
+            hashes = blobRepository.findFirstUnreferenced(expirationTime);
+        }
+
+        logger.info("Removed '{}' unreferenced chunks", removedChunks);
+        removeExpiredTemporaryFiles(expirationTime);
+    }
+
+    /**
+     * Stores the chunk file, unless it is already stored. The chunk row is created, or its modification time is
+     * refreshed, in its own transaction before the file is written, so that the chunk is not removed as expired
+     * while it is being stored, and the file is written to a temporary file and moved into place, so that a chunk
+     * file is always complete. A chunk that has been removed before its row was locked is created again. The
+     * chunk may still be removed once it expires and until its reference count is incremented, which is checked
+     * once its row is locked.
+     */
+    private void storeChunk(String hash, byte[] chunk) {
+        createChunkIfAbsent(hash, chunk.length);
+        Path chunkPath = getFullPath(toChunkLocation(hash));
+        if (Files.exists(chunkPath)) {
+            return;
+        }
+
+        String temporaryLocation = TEMPORARY_DIRECTORY + "/" + UUID.randomUUID();
+        super.storeSection(new ByteArrayInputStream(chunk), temporaryLocation, ContentEncoding.IDENTITY);
+        try {
+            createDirectoryIfNotPresent(chunkPath.getParent());
+            Files.move(getFullPath(temporaryLocation), chunkPath, StandardCopyOption.ATOMIC_MOVE);
+            syncDirectory(chunkPath.getParent());
+        } catch (IOException e) {
+            logger.error("Unable to store chunk '{}'", hash);
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    private void createChunkIfAbsent(String hash, long size) {
+        try {
+            newTransactionTemplate.executeWithoutResult(status -> {
+                Optional<StorageBlob> existingChunk = blobRepository.findByHashForUpdate(hash);
+                if (existingChunk.isPresent()) {
+                    existingChunk.get().setModifiedAt(LocalDateTime.now());
+                    blobRepository.saveAndFlush(existingChunk.get());
+                    return;
+                }
+
+                StorageBlob chunk = new StorageBlob();
+                chunk.setHash(hash);
+                chunk.setSize(size);
+                blobRepository.saveAndFlush(chunk);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Created concurrently by another upload with the same chunk
+            logger.info("Chunk '{}' already created", hash);
+        }
+    }
+
+    /**
+     * Increments the reference counts of the chunks of the section, locking the chunk rows in the order of their
+     * hashes. Fails when a chunk has been removed since it was stored, as it was not referenced yet.
+     */
+    private void addReferences(List<SectionChunk> sectionChunks) {
+        Map<String, Long> references = countReferences(sectionChunks);
+        List<StorageBlob> chunks = blobRepository.findByHashInForUpdate(references.keySet());
+        for (StorageBlob chunk : chunks) {
+            if (!Files.exists(getFullPath(toChunkLocation(chunk.getHash())))) {
+                logger.error("Unable to reference chunk '{}'. The chunk file has been removed", chunk.getHash());
+                throw new InvalidSystemStateException(new NoSuchFileException(toChunkLocation(chunk.getHash())));
+            }
+
+            chunk.setReferenceCount(chunk.getReferenceCount() + references.get(chunk.getHash()));
+        }
+
+        if (chunks.size() != references.size()) {
+            logger.error("Unable to reference '{}' chunks. Some of the chunks have been removed", references.size() - chunks.size());
+            throw new InvalidSystemStateException(new NoSuchFileException(CHUNK_DIRECTORY));
+        }
+
+        blobRepository.saveAll(chunks);
+    }
+
+    private boolean deleteChunkedSection(String storageLocation) {
+        return Boolean.TRUE.equals(transactionTemplate.execute(status -> {
+            List<SectionChunk> sectionChunks = sectionChunkRepository.findByStorageLocationOrderByChunkIndexAsc(storageLocation);
+            if (sectionChunks.isEmpty()) {
+                return false;
+            }
+
+            Map<String, Long> references = countReferences(sectionChunks);
+            List<StorageBlob> chunks = blobRepository.findByHashInForUpdate(references.keySet());
+            chunks.forEach(chunk -> chunk.setReferenceCount(chunk.getReferenceCount() - references.get(chunk.getHash())));
+            blobRepository.saveAll(chunks);
+            sectionChunkRepository.deleteAll(sectionChunks);
+
+            logger.info("Removed chunked section '{}' with '{}' chunks", storageLocation, sectionChunks.size());
+            return true;
+        }));
+    }
+
+    /**
+     * Removes the chunk unless it has been referenced, or stored again, since it has been found unreferenced
+     */
+    private void deleteChunkIfUnreferenced(String hash, LocalDateTime expirationTime) {
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<StorageBlob> chunk = blobRepository.findByHashForUpdate(hash);
+            if (chunk.isPresent() && chunk.get().getReferenceCount() > 0) {
+                logger.info("Chunk '{}' is still referenced. Nothing to delete", hash);
+                return;
+            }
+
+            if (chunk.isPresent() && !chunk.get().getModifiedAt().isBefore(expirationTime)) {
+                logger.info("Chunk '{}' is being stored again. Nothing to delete", hash);
+                return;
+            }
+
+            super.deleteSectionIfPresent(toChunkLocation(hash));
+            chunk.ifPresent(blobRepository::delete);
+        });
+    }
+
+    private SectionContent openChunks(String storageLocation) {
+        List<SectionChunk> sectionChunks = sectionChunkRepository.findByStorageLocationOrderByChunkIndexAsc(storageLocation);
+        if (sectionChunks.isEmpty()) {
+            logger.error("Unable to read chunked section '{}'. The section does not exist", storageLocation);
+            throw new InvalidSystemStateException(new NoSuchFileException(storageLocation));
+        }
+
+        logger.info("Opened chunked section '{}' with '{}' chunks", storageLocation, sectionChunks.size());
+        return new ChunkedSectionContent(sectionChunks.stream()
+                .map(chunk -> new ChunkedSectionContent.Chunk(getFullPath(toChunkLocation(chunk.getChunkHash())), chunk.getLength()))
+                .toList());
+    }
+
+    private void removeExpiredTemporaryFiles(LocalDateTime expirationTime) {
+        Path temporaryDirectory = getBasePath().resolve(TEMPORARY_DIRECTORY);
+        if (!Files.isDirectory(temporaryDirectory)) {
+            return;
+        }
+
+        FileTime expiration = FileTime.from(expirationTime.atZone(ZoneId.systemDefault()).toInstant());
+        try (Stream<Path> files = Files.walk(temporaryDirectory)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                if (Files.getLastModifiedTime(file).compareTo(expiration) < 0) {
+                    Files.deleteIfExists(file);
+                    logger.info("Deleted expired temporary file '{}'", file);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Unable to remove expired temporary files from '{}'", temporaryDirectory);
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    private static Map<String, Long> countReferences(List<SectionChunk> sectionChunks) {
+        return sectionChunks.stream()
+                .collect(Collectors.groupingBy(SectionChunk::getChunkHash, TreeMap::new, Collectors.counting()));
+    }
+
+    private static SectionChunk toSectionChunk(String storageLocation, int chunkIndex, String hash, long length) {
+        SectionChunk sectionChunk = new SectionChunk();
+        sectionChunk.setStorageLocation(storageLocation);
+        sectionChunk.setChunkIndex(chunkIndex);
+        sectionChunk.setChunkHash(hash);
+        sectionChunk.setLength(length);
+        return sectionChunk;
+    }
+
+    private static String toChunkLocation(String hash) {
+        return CHUNK_DIRECTORY + "/" + hash;
+    }
+
+    private static boolean isChunked(String storageLocation) {
+        return storageLocation.startsWith(CHUNKED_DIRECTORY + "/");
+    }
+}
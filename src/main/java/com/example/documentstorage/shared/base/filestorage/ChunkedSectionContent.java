@@ -0,0 +1,75 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.util.List;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Section content made of chunk files, read one after the other. Every chunk file is opened only while its bytes
+ * are transferred, so the number of open files does not grow with the number of chunks.
+ */
+public class ChunkedSectionContent implements SectionContent {
+    private final List<Chunk> chunks;
+    private final long size;
+
+    public ChunkedSectionContent(List<Chunk> chunks) {
+        this.chunks = chunks;
+        this.size = chunks.stream().mapToLong(Chunk::length).sum();
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        Objects.checkFromIndexSize(position, count, size);
+        long transferred = 0;
+        long chunkStart = 0;
+        for (Chunk chunk : chunks) {
+            if (transferred == count) {
+                break;
+            }
+
+            long chunkEnd = chunkStart + chunk.length();
+            long start = position + transferred;
+            if (start < chunkEnd) {
+                long chunkCount = Math.min(count - transferred, chunkEnd - start);
+                try (FileSectionContent chunkContent = FileSectionContent.open(chunk.path())) {
+                    if (chunkContent.size() != chunk.length()) {
+                        throw new IOException("Unexpected size of chunk '%s'".formatted(chunk.path()));
+                    }
+
+                    transferred += chunkContent.transferTo(start - chunkStart, chunkCount, target);
+                }
+            }
+
+            chunkStart = chunkEnd;
+        }
+
+        return transferred;
+    }
+
+    @Override
+    public Optional<FileRegion> fileRegion() {
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() {
+        // Chunk files are closed once they have been transferred
+    }
+
+    /**
+     * A chunk file of the section
+     *
+     * @param path   the path to the chunk file
+     * @param length the size of the chunk
+     */
+    public record Chunk(Path path, long length) {
+    }
+}
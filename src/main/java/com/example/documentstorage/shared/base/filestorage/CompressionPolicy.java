@@ -0,0 +1,12 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+public interface CompressionPolicy {
+    /**
+     * Selects the encoding in which an uploaded section is stored
+     *
+     * @param contentType   the content type of the section
+     * @param contentLength the size of the section in bytes, or a negative number when it is not known in advance
+     * @return the encoding in which the section must be stored
+     */
+    ContentEncoding selectEncoding(String contentType, long contentLength);
+}
@@ -0,0 +1,62 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.http.InvalidMediaTypeException;
+import org.springframework.http.MediaType;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.List;
+
+/**
+ * Compresses the sections whose content type is known to compress well, e.g. text, JSON or XML. Sections smaller
+ * than the minimum size are stored as they are, as the compression would save close to nothing.
+ */
+@Service
+public class CompressionPolicyImpl implements CompressionPolicy {
+    private static final Logger logger = LoggerFactory.getLogger(CompressionPolicyImpl.class);
+
+    private final boolean enabled;
+    private final ContentEncoding encoding;
+    private final List<MediaType> contentTypes;
+    private final long minSize;
+
+    public CompressionPolicyImpl(
+            @Value("${document.storage.compression.enabled}") boolean enabled,
+            @Value("${document.storage.compression.encoding}") String encoding,
+            @Value("${document.storage.compression.content.types}") List<String> contentTypes,
+            @Value("${document.storage.compression.min.size}") DataSize minSize) {
+        this.enabled = enabled;
+        this.encoding = ContentEncoding.fromToken(encoding);
+        this.contentTypes = contentTypes.stream().map(MediaType::parseMediaType).toList();
+        this.minSize = minSize.toBytes();
+    }
+
+    /**
+     * Selects the encoding in which an uploaded section is stored. When the size is not known in advance, the
+     * section is compressed based on its content type only.
+     *
+     * @param contentType   the content type of the section
+     * @param contentLength the size of the section in bytes, or a negative number when it is not known in advance
+     * @return the encoding in which the section must be stored
+     */
+    @Override
+    public ContentEncoding selectEncoding(String contentType, long contentLength) {
+        if (!enabled || contentType == null || (contentLength >= 0 && contentLength < minSize)) {
+            return ContentEncoding.IDENTITY;
+        }
+
+        MediaType mediaType;
+        try {
+            mediaType = MediaType.parseMediaType(contentType);
+        } catch (InvalidMediaTypeException e) {
+            logger.warn("Unable to parse content type '{}'. The section is not compressed", contentType);
+            return ContentEncoding.IDENTITY;
+        }
+
+        boolean compressible = contentTypes.stream().anyMatch(type -> type.includes(mediaType));
+        return compressible ? encoding : ContentEncoding.IDENTITY;
+    }
+}
@@ -0,0 +1,369 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import com.example.documentstorage.entities.StorageBlob;
+import com.example.documentstorage.shared.base.apimessages.LocalizationService;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.cache.SectionCache;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolumes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.TransactionDefinition;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.attribute.FileTime;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+/**
+ * Stores every distinct content once, keyed by its SHA-256 hash. Uploads are written to a temporary file while
+ * the hash is computed, then the temporary file either becomes the blob or is discarded when the blob already
+ * exists. Sections reference the blob by its storage location and each blob keeps a reference count in
+ * {@link StorageBlob}. All blob file changes are made while holding the lock on the blob row, so a blob is removed
+ * only when the last section referencing it is gone.
+ */
+@Service
+@ConditionalOnProperty(name = "document.storage.mode", havingValue = "deduplicated")
+public class ContentAddressableFileStorage extends FileStorageImpl {
+    private static final Logger logger = LoggerFactory.getLogger(ContentAddressableFileStorage.class);
+    private static final String TEMPORARY_DIRECTORY = "tmp";
+    private static final String BLOB_DIRECTORY = "blobs";
+
+    private final StorageBlobRepository blobRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final TransactionTemplate newTransactionTemplate;
+
+    public ContentAddressableFileStorage(
+            LocalizationService localizationService,
+            SectionCache sectionCache,
+            StorageDurability storageDurability,
+            StorageBlobRepository blobRepository,
+            PlatformTransactionManager transactionManager,
+            StorageVolumes storageVolumes,
+            @Value("${document.storage.cold.path}") String coldPath) {
+        super(localizationService, sectionCache, storageDurability, storageVolumes, coldPath);
+        this.blobRepository = blobRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate = new TransactionTemplate(transactionManager);
+        this.newTransactionTemplate.setPropagationBehavior(TransactionDefinition.PROPAGATION_REQUIRES_NEW);
+    }
+
+    /**
+     * Generates the name of the temporary file in which the upload is written before it is hashed
+     *
+     * @param originalFileName the original file name
+     * @return the system file name of the temporary file
+     */
+    @Override
+    public String generateSystemFileName(String originalFileName) {
+        return TEMPORARY_DIRECTORY + "/" + super.generateSystemFileName(originalFileName);
+    }
+
+    /**
+     * Stores the content in a temporary file while computing its hash, then links it to the blob with the same
+     * hash. Must be called in the transaction that adds the section, as the reference count of the blob is
+     * incremented in it. When the blob already exists, the section uses the encoding of the existing blob.
+     *
+     * @param content        the content of the file to be stored. It is not closed by this method
+     * @param systemFileName the system file name of the temporary file
+     * @param encoding       the encoding in which the content is stored, unless the blob already exists
+     * @return the storage location of the blob, the size, the checksum and the encoding of the content
+     */
+    @Override
+    public StoredFile storeSection(InputStream content, String systemFileName, ContentEncoding encoding) {
+        StoredFile temporaryFile = super.storeSection(content, systemFileName, encoding);
+        String blobLocation = toBlobLocation(temporaryFile.checksum());
+        Path temporaryPath = getFullPath(systemFileName);
+        Path blobPath = getFullPath(blobLocation);
+
+        StorageBlob blob = lockBlob(temporaryFile.checksum(), temporaryFile.size());
+        try {
+            if (Files.exists(blobPath)) {
+                Files.delete(temporaryPath);
+                logger.info("Content of '{}' already stored in blob '{}'", systemFileName, blobLocation);
+            } else {
+                createDirectoryIfNotPresent(blobPath.getParent());
+                Files.move(temporaryPath, blobPath, StandardCopyOption.ATOMIC_MOVE);
+                syncDirectory(blobPath.getParent());
+                blob.setContentEncoding(encoding);
+                logger.info("Stored new blob '{}'", blobLocation);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to link file '{}' to blob '{}'", systemFileName, blobLocation);
+            throw new InvalidSystemStateException(e);
+        }
+
+        blob.setReferenceCount(blob.getReferenceCount() + 1);
+        blobRepository.save(blob);
+
+        return new StoredFile(blobLocation, temporaryFile.size(), temporaryFile.checksum(), blob.getContentEncoding());
+    }
+
+    /**
+     * Decrements the reference count of the blob. Must be called in the transaction that removes the section.
+     *
+     * @param storageLocation the storage location of the removed section
+     */
+    @Override
+    public void releaseSection(String storageLocation) {
+        Optional<String> hash = toHash(storageLocation);
+        if (hash.isEmpty()) {
+            return;
+        }
+
+        blobRepository.findByHashForUpdate(hash.get()).ifPresent(blob -> {
+            blob.setReferenceCount(blob.getReferenceCount() - 1);
+            blobRepository.save(blob);
+            logger.info("Released reference to blob '{}'. References left '{}'", storageLocation, blob.getReferenceCount());
+        });
+    }
+
+    /**
+     * Generates the storage location of a copy. A copy of a blob is the blob itself, referenced once more.
+     *
+     * @param sourceLocation   the storage location of the stored file
+     * @param originalFileName the original file name of the copy
+     * @return the storage location of the blob, or of a new file when the stored file is not a blob
+     */
+    @Override
+    public String generateCopyLocation(String sourceLocation, String originalFileName) {
+        if (toHash(sourceLocation).isPresent()) {
+            return sourceLocation;
+        }
+
+        return super.generateCopyLocation(sourceLocation, originalFileName);
+    }
+
+    /**
+     * Increments the reference count of the blob, so that the copy shares it. Must be called in the transaction
+     * that adds the copy.
+     *
+     * @param sourceLocation the storage location of the stored file
+     * @param targetLocation the storage location of the copy
+     */
+    @Override
+    public void shareSection(String sourceLocation, String targetLocation) {
+        Optional<String> hash = toHash(sourceLocation);
+        if (hash.isEmpty()) {
+            super.shareSection(sourceLocation, targetLocation);
+            return;
+        }
+
+        StorageBlob blob = blobRepository.findByHashForUpdate(hash.get()).orElseThrow(() -> {
+            logger.error("Unable to share blob '{}'. The blob does not exist", sourceLocation);
+            return new InvalidSystemStateException(new NoSuchFileException(sourceLocation));
+        });
+        blob.setReferenceCount(blob.getReferenceCount() + 1);
+        blobRepository.save(blob);
+        logger.info("Shared blob '{}'. References '{}'", sourceLocation, blob.getReferenceCount());
+    }
+
+    /**
+     * Stores a copy of the local file, as the blob is only known once the content has been hashed
+     *
+     * @param sourcePath     the path of the local file
+     * @param systemFileName the system file name of the temporary file
+     * @param encoding       the encoding in which the content is stored, unless the blob already exists
+     * @return the storage location of the blob, the size, the checksum and the encoding of the content
+     */
+    @Override
+    public StoredFile ingestSection(Path sourcePath, String systemFileName, ContentEncoding encoding) {
+        return storeLocalFile(sourcePath, systemFileName, encoding);
+    }
+
+    /**
+     * Sections must be stored in the transaction that adds them, as the reference count of the blob is incremented in it
+     *
+     * @return true
+     */
+    @Override
+    public boolean requiresTransaction() {
+        return true;
+    }
+
+    /**
+     * Sections can not be staged, as the blob is only known once the content has been hashed, and its reference count is incremented in the transaction that adds the section
+     *
+     * @return false
+     */
+    @Override
+    public boolean supportsStaging() {
+        return false;
+    }
+
+    /**
+     * Fails, as sections can not be staged. Only called when {@link #supportsStaging()} is true.
+     *
+     * @param content        the content of the file to be stored
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return never returns
+     */
+    @Override
+    public StoredFile stageSection(InputStream content, String systemFileName, ContentEncoding encoding) {
+        logger.error("Unable to stage file '{}'. Staging is not supported by the deduplicated storage", systemFileName);
+        throw new InvalidSystemStateException();
+    }
+
+    /**
+     * Fails, as sections can not be staged. Only called when {@link #supportsStaging()} is true.
+     *
+     * @param systemFileName the system file name of the staged file
+     */
+    @Override
+    public void publishStagedSection(String systemFileName) {
+        logger.error("Unable to publish file '{}'. Staging is not supported by the deduplicated storage", systemFileName);
+        throw new InvalidSystemStateException();
+    }
+
+    /**
+     * Deletes the blob, if it is no longer referenced by any section
+     *
+     * @param systemFileName the storage location of the blob
+     */
+    @Override
+    public void deleteSection(String systemFileName) {
+        if (toHash(systemFileName).isEmpty()) {
+            super.deleteSection(systemFileName);
+            return;
+        }
+
+        deleteBlobIfUnreferenced(systemFileName);
+    }
+
+    /**
+     * Deletes the temporary file of a failed upload, or the blob if it is no longer referenced by any section
+     *
+     * @param systemFileName the storage location of the temporary file or the blob
+     */
+    @Override
+    public void deleteSectionIfPresent(String systemFileName) {
+        if (toHash(systemFileName).isEmpty()) {
+            super.deleteSectionIfPresent(systemFileName);
+            return;
+        }
+
+        deleteBlobIfUnreferenced(systemFileName);
+    }
+
+    /**
+     * Checks if the stored file can be moved to another tier. Blobs are shared by all the sections with the same
+     * content, so they are never moved.
+     *
+     * @param storageLocation the storage location of the section
+     * @return true if the file is not a blob and tiering is enabled
+     */
+    @Override
+    public boolean supportsTiering(String storageLocation) {
+        return toHash(storageLocation).isEmpty() && super.supportsTiering(storageLocation);
+    }
+
+    /**
+     * Removes the blobs without references and the temporary files of uploads that never finished
+     *
+     * @param expirationTime files modified before this time are removed
+     */
+    @Override
+    public void removeUnreferencedFiles(LocalDateTime expirationTime) {
+        List<String> hashes = blobRepository.findFirstUnreferenced(expirationTime);
+        while (!hashes.isEmpty()) {
+            hashes.forEach(hash -> deleteBlobIfUnreferenced(toBlobLocation(hash)));
+            hashes = blobRepository.findFirstUnreferenced(expirationTime);
+        }
+
+        removeExpiredTemporaryFiles(expirationTime);
+    }
+
+    /**
+     * Locks the blob row, creating it with no references if it does not exist yet. The row is created in its own
+     * transaction before it is locked, so that a failed upload leaves a row without references that is cleaned up
+     * with the blob file.
+     */
+    private StorageBlob lockBlob(String hash, long size) {
+        createBlobIfAbsent(hash, size);
+        return blobRepository.findByHashForUpdate(hash).orElseGet(() -> {
+            // Removed concurrently as unreferenced. It is recreated while holding the lock on the missing row.
+            StorageBlob blob = new StorageBlob();
+            blob.setHash(hash);
+            blob.setSize(size);
+            return blobRepository.saveAndFlush(blob);
+        });
+    }
+
+    private void createBlobIfAbsent(String hash, long size) {
+        try {
+            newTransactionTemplate.executeWithoutResult(status -> {
+                if (blobRepository.existsById(hash)) {
+                    return;
+                }
+
+                StorageBlob blob = new StorageBlob();
+                blob.setHash(hash);
+                blob.setSize(size);
+                blobRepository.saveAndFlush(blob);
+            });
+        } catch (DataIntegrityViolationException e) {
+            // Created concurrently by another upload with the same content
+            logger.info("Blob '{}' already created", hash);
+        }
+    }
+
+    private void deleteBlobIfUnreferenced(String blobLocation) {
+        String hash = toHash(blobLocation).orElseThrow();
+        transactionTemplate.executeWithoutResult(status -> {
+            Optional<StorageBlob> blob = blobRepository.findByHashForUpdate(hash);
+            if (blob.isPresent() && blob.get().getReferenceCount() > 0) {
+                logger.info("Blob '{}' is still referenced. Nothing to delete", blobLocation);
+                return;
+            }
+
+            super.deleteSectionIfPresent(blobLocation);
+            blob.ifPresent(blobRepository::delete);
+        });
+    }
+
+    private void removeExpiredTemporaryFiles(LocalDateTime expirationTime) {
+        Path temporaryDirectory = getBasePath().resolve(TEMPORARY_DIRECTORY);
+        if (!Files.isDirectory(temporaryDirectory)) {
+            return;
+        }
+
+        FileTime expiration = FileTime.from(expirationTime.atZone(ZoneId.systemDefault()).toInstant());
+        try (Stream<Path> files = Files.walk(temporaryDirectory)) {
+            for (Path file : files.filter(Files::isRegularFile).toList()) {
+                if (Files.getLastModifiedTime(file).compareTo(expiration) < 0) {
+                    Files.deleteIfExists(file);
+                    logger.info("Deleted expired temporary file '{}'", file);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Unable to remove expired temporary files from '{}'", temporaryDirectory);
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    private static String toBlobLocation(String hash) {
+        return BLOB_DIRECTORY + "/" + hash;
+    }
+
+    private static Optional<String> toHash(String storageLocation) {
+        if (!storageLocation.startsWith(BLOB_DIRECTORY + "/")) {
+            return Optional.empty();
+        }
+
+        return Optional.of(storageLocation.substring(BLOB_DIRECTORY.length() + 1));
+    }
+}
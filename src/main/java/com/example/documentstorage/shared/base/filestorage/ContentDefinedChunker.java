@@ -0,0 +1,74 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.util.Arrays;
+import java.util.SplittableRandom;
+
+/**
+ * Splits a content into chunks of variable size, with boundaries defined by the content itself, so that an insertion
+ * or a removal only changes the chunks around it. A boundary is placed where the gear hash of the last bytes has its
+ * top bits clear, which happens on average once per average chunk size. Chunks are never smaller than the minimum
+ * size, except for the last one, and never larger than the maximum size.
+ * The gear table is generated from a fixed seed, so the same content is always split at the same boundaries.
+ */
+public class ContentDefinedChunker {
+    private static final long GEAR_SEED = 0x5EC7_10C4_C0DEL;
+    private static final long[] GEAR = new SplittableRandom(GEAR_SEED).longs(256).toArray();
+    // The gear hash of a position depends on the last 64 bytes only
+    private static final int WINDOW_SIZE = Long.SIZE;
+
+    private final InputStream content;
+    private final int minSize;
+    private final long boundaryMask;
+    private final byte[] buffer;
+    private int buffered;
+
+    /**
+     * @param content     the content to split. It is not closed by the chunker
+     * @param minSize     the minimum size of a chunk
+     * @param averageSize the average size of a chunk, rounded down to a power of two
+     * @param maxSize     the maximum size of a chunk
+     */
+    public ContentDefinedChunker(InputStream content, int minSize, int averageSize, int maxSize) {
+        this.content = content;
+        this.minSize = minSize;
+        this.boundaryMask = -1L << (Long.SIZE - Integer.numberOfTrailingZeros(Integer.highestOneBit(averageSize)));
+        this.buffer = new byte[maxSize];
+    }
+
+    /**
+     * Reads the next chunk of the content
+     *
+     * @return the bytes of the chunk, or null at the end of the content
+     * @throws IOException when the content can not be read
+     */
+    public byte[] nextChunk() throws IOException {
+        buffered += content.readNBytes(buffer, buffered, buffer.length - buffered);
+        if (buffered == 0) {
+            return null;
+        }
+
+        int length = findBoundary();
+        byte[] chunk = Arrays.copyOf(buffer, length);
+        System.arraycopy(buffer, length, buffer, 0, buffered - length);
+        buffered -= length;
+        return chunk;
+    }
+
+    private int findBoundary() {
+        if (buffered <= minSize) {
+            return buffered;
+        }
+
+        long hash = 0;
+        for (int i = Math.max(0, minSize - WINDOW_SIZE); i < buffered; i++) {
+            hash = (hash << 1) + GEAR[buffer[i] & 0xff];
+            if (i + 1 >= minSize && (hash & boundaryMask) == 0) {
+                return i + 1;
+            }
+        }
+
+        return buffered;
+    }
+}
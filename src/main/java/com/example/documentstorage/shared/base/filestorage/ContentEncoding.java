@@ -0,0 +1,93 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.io.BufferedInputStream;
+import java.io.BufferedOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.Arrays;
+import java.util.zip.DeflaterOutputStream;
+import java.util.zip.GZIPInputStream;
+import java.util.zip.GZIPOutputStream;
+import java.util.zip.InflaterInputStream;
+
+/**
+ * The encoding in which the content of a section is stored. The tokens are the HTTP content codings, so that the
+ * stored content can be sent as is to the clients that accept it.
+ */
+public enum ContentEncoding {
+    IDENTITY("identity"),
+    GZIP("gzip"),
+    DEFLATE("deflate");
+
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final String token;
+
+    ContentEncoding(String token) {
+        this.token = token;
+    }
+
+    public String getToken() {
+        return token;
+    }
+
+    /**
+     * Gets the encoding by its HTTP content coding
+     *
+     * @param token the content coding, e.g. {@code gzip}
+     * @return the encoding
+     * @throws IllegalArgumentException when the content coding is not supported
+     */
+    public static ContentEncoding fromToken(String token) {
+        return Arrays.stream(values())
+                .filter(encoding -> encoding.token.equalsIgnoreCase(token))
+                .findFirst()
+                .orElseThrow(() -> new IllegalArgumentException("Unsupported content encoding '%s'".formatted(token)));
+    }
+
+    /**
+     * Wraps the output stream, so that the content written to it is encoded
+     *
+     * @param target the stream to which the encoded content is written
+     * @return the stream to which the content is written. Closing it closes the target
+     * @throws IOException when the encoding header can not be written
+     */
+    public OutputStream encode(OutputStream target) throws IOException {
+        return switch (this) {
+            case IDENTITY -> target;
+            case GZIP -> new GZIPOutputStream(target, BUFFER_SIZE);
+            case DEFLATE -> new DeflaterOutputStream(new BufferedOutputStream(target, BUFFER_SIZE));
+        };
+    }
+
+    /**
+     * Wraps the input stream, so that the content read from it is decoded
+     *
+     * @param source the stream from which the encoded content is read
+     * @return the stream from which the decoded content is read. Closing it closes the source
+     * @throws IOException when the encoding header can not be read
+     */
+    public InputStream decode(InputStream source) throws IOException {
+        return switch (this) {
+            case IDENTITY -> source;
+            case GZIP -> new GZIPInputStream(source, BUFFER_SIZE);
+            case DEFLATE -> new InflaterInputStream(new BufferedInputStream(source, BUFFER_SIZE));
+        };
+    }
+
+    /**
+     * Wraps the stored content, so that it is decoded while it is transferred
+     *
+     * @param encodedContent the stored content
+     * @param size           the size of the content before it has been encoded
+     * @return the decoded content
+     */
+    public SectionContent decode(SectionContent encodedContent, long size) {
+        if (this == IDENTITY) {
+            return encodedContent;
+        }
+
+        return new DecodedSectionContent(encodedContent, this, size);
+    }
+}
@@ -0,0 +1,147 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.io.IOException;
+import java.io.InputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Section content that is stored encoded and is decoded while it is transferred. The decoded content can only be
+ * read sequentially, so a transfer that starts before the current position decodes the content again from the
+ * beginning.
+ */
+public class DecodedSectionContent implements SectionContent {
+    private static final int BUFFER_SIZE = 64 * 1024;
+
+    private final SectionContent encodedContent;
+    private final ContentEncoding encoding;
+    private final long size;
+    private InputStream decodedStream;
+    private long position;
+
+    public DecodedSectionContent(SectionContent encodedContent, ContentEncoding encoding, long size) {
+        this.encodedContent = encodedContent;
+        this.encoding = encoding;
+        this.size = size;
+    }
+
+    @Override
+    public long size() {
+        return size;
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        Objects.checkFromIndexSize(position, count, size);
+        if (decodedStream == null || position < this.position) {
+            reopen();
+        }
+
+        skip(position - this.position);
+
+        byte[] buffer = new byte[(int) Math.min(BUFFER_SIZE, Math.max(count, 1))];
+        long transferred = 0;
+        while (transferred < count) {
+            int read = decodedStream.read(buffer, 0, (int) Math.min(buffer.length, count - transferred));
+            if (read < 0) {
+                throw new IOException("Unexpected end of %s encoded content".formatted(encoding.getToken()));
+            }
+
+            ByteBuffer byteBuffer = ByteBuffer.wrap(buffer, 0, read);
+            while (byteBuffer.hasRemaining()) {
+                target.write(byteBuffer);
+            }
+
+            transferred += read;
+            this.position += read;
+        }
+
+        return transferred;
+    }
+
+    @Override
+    public Optional<FileRegion> fileRegion() {
+        return Optional.empty();
+    }
+
+    @Override
+    public void close() throws IOException {
+        try (encodedContent) {
+            if (decodedStream != null) {
+                decodedStream.close();
+            }
+        }
+    }
+
+    private void reopen() throws IOException {
+        if (decodedStream != null) {
+            decodedStream.close();
+        }
+
+        decodedStream = encoding.decode(new EncodedContentInputStream(encodedContent));
+        position = 0;
+    }
+
+    private void skip(long count) throws IOException {
+        decodedStream.skipNBytes(count);
+        position += count;
+    }
+
+    /**
+     * Reads the encoded content sequentially. Closing it does not close the encoded content.
+     */
+    private static class EncodedContentInputStream extends InputStream {
+        private final SectionContent content;
+        private long position;
+
+        EncodedContentInputStream(SectionContent content) {
+            this.content = content;
+        }
+
+        @Override
+        public int read() throws IOException {
+            byte[] single = new byte[1];
+            return read(single, 0, 1) < 0 ? -1 : single[0] & 0xff;
+        }
+
+        @Override
+        public int read(byte[] bytes, int offset, int length) throws IOException {
+            Objects.checkFromIndexSize(offset, length, bytes.length);
+            long remaining = content.size() - position;
+            if (remaining <= 0) {
+                return -1;
+            }
+
+            int count = (int) Math.min(length, remaining);
+            ByteBuffer buffer = ByteBuffer.wrap(bytes, offset, count);
+            content.transferTo(position, count, new ByteBufferChannel(buffer));
+
+            position += count;
+            return count;
+        }
+    }
+
+    /**
+     * Writes the transferred bytes into a buffer with enough space for all of them
+     */
+    private record ByteBufferChannel(ByteBuffer buffer) implements WritableByteChannel {
+        @Override
+        public int write(ByteBuffer source) {
+            int written = source.remaining();
+            buffer.put(source);
+            return written;
+        }
+
+        @Override
+        public boolean isOpen() {
+            return true;
+        }
+
+        @Override
+        public void close() {
+            // Nothing to release
+        }
+    }
+}
@@ -0,0 +1,20 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+/**
+ * How stored files are made durable before the transaction that references them is committed
+ */
+public enum DurabilityMode {
+    /**
+     * Files are written back to the disk by the operating system. A power loss may truncate committed files.
+     */
+    NONE,
+    /**
+     * Every file and its directory entry are synced to the disk on their own, right after the file is written
+     */
+    FILE,
+    /**
+     * Files stored concurrently are collected for a short window and synced together by one thread. Each file
+     * and each directory is synced once per group, even when several files of the group share them.
+     */
+    GROUP
+}
@@ -0,0 +1,13 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.nio.file.Path;
+
+/**
+ * A region of a file on the disk
+ *
+ * @param path   the absolute path to the file
+ * @param offset the position in the file where the region starts
+ * @param length the length of the region in bytes
+ */
+public record FileRegion(Path path, long offset, long length) {
+}
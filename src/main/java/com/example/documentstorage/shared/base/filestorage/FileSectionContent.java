@@ -0,0 +1,101 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.io.IOException;
+import java.nio.channels.FileChannel;
+import java.nio.channels.WritableByteChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.util.Objects;
+import java.util.Optional;
+
+/**
+ * Section content backed by a region of a file. The bytes are transferred in fixed size chunks using
+ * {@link FileChannel#transferTo(long, long, WritableByteChannel)}, so the operating system can copy them without
+ * passing through the heap.
+ */
+public class FileSectionContent implements SectionContent {
+    private static final long TRANSFER_CHUNK_SIZE = 64 * 1024;
+
+    private final Path path;
+    private final FileChannel channel;
+    private final long offset;
+    private final long length;
+    private final boolean ownsChannel;
+
+    public FileSectionContent(Path path, FileChannel channel, long offset, long length) {
+        this(path, channel, offset, length, true);
+    }
+
+    private FileSectionContent(Path path, FileChannel channel, long offset, long length, boolean ownsChannel) {
+        this.path = path;
+        this.channel = channel;
+        this.offset = offset;
+        this.length = length;
+        this.ownsChannel = ownsChannel;
+    }
+
+    /**
+     * Reads a region of a file through a channel that is shared by many readers. The channel is read with
+     * positioned reads only, and is not closed when the content is closed.
+     *
+     * @param path    the path to the file
+     * @param channel the shared channel of the file
+     * @param offset  the position of the region in the file
+     * @param length  the length of the region
+     * @return the content of the region
+     */
+    public static FileSectionContent shared(Path path, FileChannel channel, long offset, long length) {
+        return new FileSectionContent(path, channel, offset, length, false);
+    }
+
+    /**
+     * Opens the whole file as section content
+     *
+     * @param path the path to the file
+     * @return the content of the file
+     * @throws IOException when the file can not be opened
+     */
+    public static FileSectionContent open(Path path) throws IOException {
+        FileChannel channel = FileChannel.open(path, StandardOpenOption.READ);
+        try {
+            return new FileSectionContent(path.toAbsolutePath(), channel, 0, channel.size());
+        } catch (IOException e) {
+            channel.close();
+            throw e;
+        }
+    }
+
+    @Override
+    public long size() {
+        return length;
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        Objects.checkFromIndexSize(position, count, length);
+        long transferred = 0;
+        while (transferred < count) {
+            long chunk = Math.min(TRANSFER_CHUNK_SIZE, count - transferred);
+            long written = channel.transferTo(offset + position + transferred, chunk, target);
+            if (written <= 0) {
+                throw new IOException("Unexpected end of file '%s'".formatted(path));
+            }
+
+            transferred += written;
+        }
+
+        return transferred;
+    }
+
+    @Override
+    public Optional<FileRegion> fileRegion() {
+        return Optional.of(new FileRegion(path, offset, length));
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (ownsChannel) {
+            channel.close();
+        }
+    }
+}
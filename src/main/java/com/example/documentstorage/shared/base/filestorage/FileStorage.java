@@ -1,23 +1,142 @@
 package com.example.documentstorage.shared.base.filestorage;
 
-import org.springframework.web.multipart.MultipartFile;
+import java.io.InputStream;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.util.List;
 
 public interface FileStorage {
     /**
-     * Stores the section file using the system file name
+     * Stores the section file using the system file name. The content is streamed directly into the stored file,
+     * while its size and checksum are computed.
      *
-     * @param sectionFile    the file to be stored
+     * @param content        the content of the file to be stored. It is not closed by this method
      * @param systemFileName the system file name
+     * @return the storage location, the size and the checksum of the stored file
      */
-    void storeSection(MultipartFile sectionFile, String systemFileName);
+    default StoredFile storeSection(InputStream content, String systemFileName) {
+        return storeSection(content, systemFileName, ContentEncoding.IDENTITY);
+    }
 
     /**
-     * Downloads the file by the given file name
+     * Stores the section file using the system file name, encoding the content while it is streamed into the
+     * stored file. The size and the checksum are computed on the content before it is encoded.
      *
+     * @param content        the content of the file to be stored. It is not closed by this method
      * @param systemFileName the system file name
-     * @return the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the stored file
+     */
+    StoredFile storeSection(InputStream content, String systemFileName, ContentEncoding encoding);
+
+    /**
+     * Stores a local file as the section file, moving its content into the storage instead of copying it when the
+     * storage allows it. The local file is not removed, so it can be removed once the section is committed, and it
+     * must not be changed while it is stored.
+     *
+     * @param sourcePath     the path of the local file
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the stored file
+     */
+    StoredFile ingestSection(Path sourcePath, String systemFileName, ContentEncoding encoding);
+
+    /**
+     * Checks if {@link #storeSection(InputStream, String, ContentEncoding)} must be called in the transaction that
+     * adds the section, because the storage keeps records of the stored files in the database. Otherwise, sections
+     * may be stored outside of any transaction, e.g. in parallel.
+     *
+     * @return true if sections must be stored in the transaction that adds them
+     */
+    default boolean requiresTransaction() {
+        return false;
+    }
+
+    /**
+     * Checks if sections can be uploaded with the {@link UploadProtocol#STAGING} protocol, through
+     * {@link #stageSection(InputStream, String, ContentEncoding)} and {@link #publishStagedSection(String)}
+     *
+     * @return true if sections can be staged
+     */
+    default boolean supportsStaging() {
+        return false;
+    }
+
+    /**
+     * Stores the section file in the staging directory, where it is not found by its storage location until it is
+     * published. The staged file is forced to the disk, as configured by the {@link DurabilityMode}.
+     *
+     * @param content        the content of the file to be stored. It is not closed by this method
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the staged file
+     */
+    StoredFile stageSection(InputStream content, String systemFileName, ContentEncoding encoding);
+
+    /**
+     * Atomically moves the staged file to its storage location. Publishing a file that has already been published
+     * does nothing.
+     *
+     * @param systemFileName the system file name of the staged file
+     */
+    void publishStagedSection(String systemFileName);
+
+    /**
+     * Removes the staged file, if it is present
+     *
+     * @param systemFileName the system file name of the staged file
+     */
+    default void discardStagedSection(String systemFileName) {
+    }
+
+    /**
+     * Finds the staged files that have not been modified since the expiration time
+     *
+     * @param expirationTime files modified before this time are returned
+     * @return the system file names of the staged files
+     */
+    default List<String> findStagedSections(LocalDateTime expirationTime) {
+        return List.of();
+    }
+
+    /**
+     * Stores a part of a section upload as a temporary file. Parts are never deduplicated or encoded, they are
+     * stored as they are until they are assembled into the section file.
+     *
+     * @param content        the content of the part. It is not closed by this method
+     * @param systemFileName the system file name of the part
+     * @return the storage location, the size and the checksum of the part
+     */
+    StoredFile storePart(InputStream content, String systemFileName);
+
+    /**
+     * Stores the section file by concatenating the stored parts, in the given order. The parts are streamed into
+     * the section file one after the other, without being loaded in memory. The parts are not removed.
+     *
+     * @param partLocations  the storage locations of the parts
+     * @param systemFileName the system file name of the section file
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the stored file
      */
-    byte[] downloadFile(String systemFileName);
+    StoredFile assembleSection(List<String> partLocations, String systemFileName, ContentEncoding encoding);
+
+    /**
+     * Opens the stored section file for reading, without loading it in memory. The content is returned as it is
+     * stored, encoded in the encoding of the stored file.
+     *
+     * @param systemFileName the system file name
+     * @return the content of the section file. Must be closed by the caller
+     */
+    SectionContent openSection(String systemFileName);
+
+    /**
+     * Opens the stored section file for reading directly from the disk, bypassing the section cache. Used to verify
+     * the stored bytes, without filling the cache with files that are not downloaded.
+     *
+     * @param systemFileName the system file name
+     * @return the content of the section file, as it is stored. Must be closed by the caller
+     */
+    SectionContent openStoredSection(String systemFileName);
 
     /**
      * Generates the system file name based on the original file name
@@ -40,4 +159,69 @@ public interface FileStorage {
      * @param systemFileName the system file name
      */
     void deleteSectionIfPresent(String systemFileName);
+
+    /**
+     * Moves files stored directly in the base directory into the sharded layout
+     *
+     * @param maxFiles the maximum number of files moved in one run
+     * @return the number of moved files
+     */
+    int migrateLayout(int maxFiles);
+
+    /**
+     * Checks if the stored file can be moved to another {@link StorageTier}. Files shared by several sections or
+     * stored inside other files can not be moved.
+     *
+     * @param storageLocation the storage location of the section
+     * @return true if tiering is enabled and the file can be moved
+     */
+    default boolean supportsTiering(String storageLocation) {
+        return false;
+    }
+
+    /**
+     * Copies the stored file to a new storage location, possibly in another {@link StorageTier}. The stored bytes
+     * are copied as they are and forced to the disk. The source file is not removed.
+     *
+     * @param sourceLocation the storage location of the stored file
+     * @param targetLocation the storage location of the copy. It must not exist
+     */
+    void copySection(String sourceLocation, String targetLocation);
+
+    /**
+     * Generates the storage location of a copy of the stored file, where the copy can share the stored bytes,
+     * e.g. in the same tier and on the same volume as the stored file
+     *
+     * @param sourceLocation   the storage location of the stored file
+     * @param originalFileName the original file name of the copy
+     * @return the storage location of the copy
+     */
+    String generateCopyLocation(String sourceLocation, String originalFileName);
+
+    /**
+     * Makes the stored file available at the storage location of a copy, sharing the stored bytes instead of
+     * copying them when the storage allows it. Must be called in the transaction that adds the copy when
+     * {@link #requiresTransaction()}. The source file is not changed.
+     *
+     * @param sourceLocation the storage location of the stored file
+     * @param targetLocation the storage location of the copy, generated by {@link #generateCopyLocation(String, String)}
+     */
+    void shareSection(String sourceLocation, String targetLocation);
+
+    /**
+     * Releases the reference of a section to its stored file. Must be called in the transaction that removes
+     * the section. The file itself is removed by the processing of the DELETE transaction action.
+     *
+     * @param storageLocation the storage location of the removed section
+     */
+    default void releaseSection(String storageLocation) {
+    }
+
+    /**
+     * Removes stored files that are no longer referenced and have not been modified since the expiration time
+     *
+     * @param expirationTime files modified before this time are removed
+     */
+    default void removeUnreferencedFiles(LocalDateTime expirationTime) {
+    }
 }
@@ -1,50 +1,122 @@
 package com.example.documentstorage.shared.base.filestorage;
 
 import com.example.documentstorage.shared.base.apimessages.LocalizationService;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
 import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.cache.SectionCache;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolume;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolumes;
+import com.example.documentstorage.shared.base.ids.TimeOrderedIds;
 import org.slf4j.Logger;
 import org.slf4j.LoggerFactory;
 import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
 import org.springframework.stereotype.Service;
-import org.springframework.web.multipart.MultipartFile;
 
+import java.io.ByteArrayOutputStream;
 import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.io.UncheckedIOException;
+import java.nio.channels.Channels;
+import java.nio.channels.FileChannel;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.DirectoryStream;
+import java.nio.file.FileAlreadyExistsException;
+import java.nio.file.FileSystemException;
 import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
 import java.nio.file.Path;
 import java.nio.file.Paths;
+import java.nio.file.StandardCopyOption;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.security.DigestInputStream;
+import java.security.DigestOutputStream;
+import java.security.MessageDigest;
 import java.time.LocalDateTime;
-import java.time.format.DateTimeFormatter;
+import java.time.ZoneId;
+import java.util.ArrayList;
+import java.util.Enumeration;
+import java.util.HexFormat;
+import java.util.Iterator;
+import java.util.List;
 import java.util.Objects;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.zip.CRC32C;
 
+/**
+ * Stores every section in its own file. Files are fanned out in two levels of directories named after the hex
+ * prefix of the hash of the storage location, e.g. {@code 3f/a2/invoice_20240517101530000000000.pdf}, so that no
+ * directory grows with the number of stored sections. Files stored directly in the base directory by earlier
+ * versions are still read, and are moved to the sharded layout by {@link #migrateLayout(int)}.
+ * When a cold path is configured, files in the {@link StorageTier#COLD} tier are stored under the cold path using
+ * the same layout.
+ * Sections uploaded with the {@link UploadProtocol#STAGING} protocol are written flat into the {@code staging}
+ * directory and renamed into their shard directory once the section is committed. Until then, or when the rename
+ * has been interrupted by a crash, committed files are also read from the staging directory.
+ * New files are striped over the configured {@link StorageVolumes}, and the selected volume is recorded in the
+ * storage location. Every volume has its own sharded layout and staging directory.
+ */
 @Service
+@ConditionalOnProperty(name = "document.storage.mode", havingValue = "files", matchIfMissing = true)
 public class FileStorageImpl implements FileStorage {
     private static final Logger logger = LoggerFactory.getLogger(FileStorageImpl.class);
+    private static final String STAGING_DIRECTORY = "staging";
 
     private final LocalizationService localizationService;
-    private final String basePath;
+    private final SectionCache sectionCache;
+    private final StorageDurability storageDurability;
+    private final StorageVolumes storageVolumes;
+    private final String coldPath;
+    // Directories known to exist, so that they are not created again on every store
+    private final Set<Path> createdDirectories = ConcurrentHashMap.newKeySet();
+    private volatile boolean layoutMigrated;
 
     public FileStorageImpl(
             LocalizationService localizationService,
-            @Value("${document.storage.path}") String basePath) {
+            SectionCache sectionCache,
+            StorageDurability storageDurability,
+            StorageVolumes storageVolumes,
+            @Value("${document.storage.cold.path}") String coldPath) {
         this.localizationService = localizationService;
-        this.basePath = basePath;
+        this.sectionCache = sectionCache;
+        this.storageDurability = storageDurability;
+        this.storageVolumes = storageVolumes;
+        this.coldPath = coldPath;
     }
 
     /**
-     * Downloads the file by the given file name
+     * Opens the stored section file for reading, without loading it in memory.
+     * Frequently read small files are served from the {@link SectionCache}.
      *
      * @param systemFileName the system file name
-     * @return the system file name
+     * @return the content of the section file. Must be closed by the caller
      */
     @Override
-    public byte[] downloadFile(String systemFileName) {
+    public SectionContent openSection(String systemFileName) {
         Objects.requireNonNull(systemFileName, localizationService.getMessage("shared.base.filestorage.on.download.file.system.file.name.null"));
+        Optional<byte[]> cachedContent = sectionCache.get(systemFileName);
+        if (cachedContent.isPresent()) {
+            logger.info("Read file '{}' from the cache on download section", systemFileName);
+            return new ByteArraySectionContent(cachedContent.get());
+        }
+
         Path filePath = getFullPath(systemFileName);
         try {
-            byte[] bytes = Files.readAllBytes(filePath);
-            logger.info("Read file '{}' on download section", filePath);
+            FileSectionContent content = openStoredFile(systemFileName);
+            logger.info("Opened file '{}' on download section", systemFileName);
+
+            if (!sectionCache.admits(systemFileName, content.size())) {
+                return content;
+            }
 
-            return bytes;
+            byte[] bytes = readAllBytes(content);
+            sectionCache.put(systemFileName, bytes);
+            return new ByteArraySectionContent(bytes);
         } catch (IOException e) {
             logger.error("Unable to read stored section '{}'", filePath);
             throw new InvalidSystemStateException(e);
@@ -52,40 +124,298 @@ public class FileStorageImpl implements FileStorage {
     }
 
     /**
-     * Generates the system file name based on the original file name
+     * Opens the stored section file for reading directly from the disk, bypassing the section cache
+     *
+     * @param systemFileName the system file name
+     * @return the content of the section file, as it is stored. Must be closed by the caller
+     */
+    @Override
+    public SectionContent openStoredSection(String systemFileName) {
+        Objects.requireNonNull(systemFileName, localizationService.getMessage("shared.base.filestorage.on.download.file.system.file.name.null"));
+        try {
+            return openStoredFile(systemFileName);
+        } catch (IOException e) {
+            logger.error("Unable to read stored section '{}'", getFullPath(systemFileName));
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    /**
+     * Generates the system file name based on the original file name, on the volume selected for the new file
      *
      * @param originalFileName the original file name
      * @return the system file name
      */
     @Override
     public String generateSystemFileName(String originalFileName) {
-        //ToDo handle NullPointerException everywhere. Actually change this exception to one of mine custom exceptions.
-        Objects.requireNonNull(originalFileName, () -> localizationService.getMessage("shared.base.filestorage.on.generate.file.name.file.name.null"));
-        int lastIndexOf = originalFileName.lastIndexOf(".");
-        String fileName = originalFileName.substring(0, lastIndexOf);
-        String extension = originalFileName.substring(lastIndexOf);
-        DateTimeFormatter formatter = DateTimeFormatter.ofPattern("yyyyMMddHHmmssnnnnnnnnn");
-        String systemFileName = String.format("%s_%s%s", fileName, LocalDateTime.now().format(formatter), extension);
-        return systemFileName;
+        return storageVolumes.selectVolume().toLocation(generateFileName(originalFileName));
     }
 
     /**
-     * Stores the section file using the system file name
+     * Generates the storage location of a copy in the directory of the stored file, so that the copy stays in the
+     * same tier and on the same volume and can be a hard link to the stored file
      *
-     * @param sectionFile    the file to be stored
+     * @param sourceLocation   the storage location of the stored file
+     * @param originalFileName the original file name of the copy
+     * @return the storage location of the copy
+     */
+    @Override
+    public String generateCopyLocation(String sourceLocation, String originalFileName) {
+        String directory = sourceLocation.substring(0, sourceLocation.lastIndexOf('/') + 1);
+        return directory + generateFileName(originalFileName);
+    }
+
+    /**
+     * Stores the section file using the system file name. The content is streamed directly into the stored file,
+     * while its size and checksum are computed and it is encoded.
+     *
+     * @param content        the content of the file to be stored. It is not closed by this method
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the stored file
+     */
+    @Override
+    public StoredFile storeSection(InputStream content, String systemFileName, ContentEncoding encoding) {
+        return writeFile(content, systemFileName, getFullPath(systemFileName), encoding);
+    }
+
+    /**
+     * Stores a local file as the section file by linking it into the sharded layout, so its content is read once to
+     * compute the checksum and is never written again. The file is stored as a copy when its content is encoded, or
+     * when it can not be linked, e.g. when it is on another file system than the volume of the section.
+     *
+     * @param sourcePath     the path of the local file
      * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the stored file
      */
     @Override
-    public void storeSection(MultipartFile sectionFile, String systemFileName) {
-        createBaseDirectoryIfNotPresent();
+    public StoredFile ingestSection(Path sourcePath, String systemFileName, ContentEncoding encoding) {
+        if (encoding != ContentEncoding.IDENTITY) {
+            return storeLocalFile(sourcePath, systemFileName, encoding);
+        }
 
         Path filePath = getFullPath(systemFileName);
+        createDirectoryIfNotPresent(filePath.getParent());
+
+        MessageDigest digest = SectionChecksums.createDigest();
+        long size;
+        try {
+            try (InputStream content = new DigestInputStream(Files.newInputStream(sourcePath), digest)) {
+                size = content.transferTo(OutputStream.nullOutputStream());
+            }
+
+            Files.createLink(filePath, sourcePath);
+        } catch (FileAlreadyExistsException e) {
+            logger.error("Unable to store file '{}'. The file already exists", filePath);
+            throw new InvalidSystemStateException(e);
+        } catch (NoSuchFileException e) {
+            logger.error("Unable to store file '{}'. The file does not exist", sourcePath);
+            throw new InvalidSystemStateException(e);
+        } catch (FileSystemException | UnsupportedOperationException e) {
+            logger.info("Unable to link file '{}' to '{}'. The file is copied instead", sourcePath, filePath);
+            return storeLocalFile(sourcePath, systemFileName, encoding);
+        } catch (IOException e) {
+            logger.error("Unable to store file '{}' as '{}'", sourcePath, filePath);
+            throw new InvalidSystemStateException(e);
+        }
+
+        // The local file may have been written without being synced
+        syncFile(filePath);
+        String checksum = HexFormat.of().formatHex(digest.digest());
+        logger.info("Linked file '{}' to '{}' with size '{}'", sourcePath, filePath, size);
+        return new StoredFile(systemFileName, size, checksum, ContentEncoding.IDENTITY);
+    }
+
+    /**
+     * Files are staged in the staging directory of the base path, on the same file system as the sharded layout,
+     * so that they are published with an atomic rename
+     *
+     * @return true
+     */
+    @Override
+    public boolean supportsStaging() {
+        return true;
+    }
+
+    /**
+     * Stores the section file in the staging directory. The file and its directory entry are synced, as configured
+     * by the {@link DurabilityMode}, so that a committed section finds its file after a crash, either staged or
+     * published.
+     *
+     * @param content        the content of the file to be stored. It is not closed by this method
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the staged file
+     */
+    @Override
+    public StoredFile stageSection(InputStream content, String systemFileName, ContentEncoding encoding) {
+        return writeFile(content, systemFileName, getStagedPath(systemFileName), encoding);
+    }
+
+    /**
+     * Renames the staged file into its shard directory and syncs the directory. When the staged file is missing
+     * but the file is found at its storage location, it has already been published, e.g. by the sweep of staged
+     * files running concurrently.
+     *
+     * @param systemFileName the system file name of the staged file
+     */
+    @Override
+    public void publishStagedSection(String systemFileName) {
+        Path stagedPath = getStagedPath(systemFileName);
+        Path filePath = getFullPath(systemFileName);
+        createDirectoryIfNotPresent(filePath.getParent());
+        try {
+            Files.move(stagedPath, filePath, StandardCopyOption.ATOMIC_MOVE);
+        } catch (NoSuchFileException e) {
+            if (Files.exists(filePath)) {
+                logger.info("File '{}' already published", systemFileName);
+                return;
+            }
+
+            logger.error("Unable to publish file '{}'. The staged file is missing", systemFileName);
+            throw new InvalidSystemStateException(e);
+        } catch (IOException e) {
+            logger.error("Unable to publish staged file '{}' to '{}'", stagedPath, filePath);
+            throw new InvalidSystemStateException(e);
+        }
+
+        syncDirectory(filePath.getParent());
+        logger.info("Published staged file '{}' to '{}'", stagedPath, filePath);
+    }
+
+    /**
+     * Removes the staged file, if it is present
+     *
+     * @param systemFileName the system file name of the staged file
+     */
+    @Override
+    public void discardStagedSection(String systemFileName) {
+        Path stagedPath = getStagedPath(systemFileName);
         try {
-            sectionFile.transferTo(filePath);
-        } catch (Exception e) {
+            if (Files.deleteIfExists(stagedPath)) {
+                logger.info("Discarded staged file '{}'", stagedPath);
+            }
+        } catch (IOException e) {
+            logger.error("Unable to discard staged file '{}'", stagedPath);
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    /**
+     * Finds the staged files that have not been modified since the expiration time
+     *
+     * @param expirationTime files modified before this time are returned
+     * @return the system file names of the staged files
+     */
+    @Override
+    public List<String> findStagedSections(LocalDateTime expirationTime) {
+        FileTime expiration = FileTime.from(expirationTime.atZone(ZoneId.systemDefault()).toInstant());
+        List<String> stagedFiles = new ArrayList<>();
+        for (StorageVolume volume : storageVolumes.getVolumes()) {
+            Path stagingDirectory = volume.getRoot().resolve(STAGING_DIRECTORY);
+            if (!Files.isDirectory(stagingDirectory)) {
+                continue;
+            }
+
+            try (DirectoryStream<Path> files = Files.newDirectoryStream(stagingDirectory, path -> Files.isRegularFile(path))) {
+                for (Path file : files) {
+                    if (isModifiedBefore(file, expiration)) {
+                        stagedFiles.add(volume.toLocation(file.getFileName().toString()));
+                    }
+                }
+            } catch (IOException e) {
+                logger.error("Unable to list the staged files in '{}'", stagingDirectory);
+                throw new InvalidSystemStateException(e);
+            }
+        }
+
+        return stagedFiles;
+    }
+
+    /**
+     * Stores a part of a section upload as a temporary file
+     *
+     * @param content        the content of the part. It is not closed by this method
+     * @param systemFileName the system file name of the part
+     * @return the storage location, the size and the checksum of the part
+     */
+    @Override
+    public StoredFile storePart(InputStream content, String systemFileName) {
+        return writeFile(content, systemFileName, getFullPath(systemFileName), ContentEncoding.IDENTITY);
+    }
+
+    /**
+     * Stores the section file by concatenating the stored parts. Each part is opened only when the previous one
+     * has been fully read, so the number of open files does not grow with the number of parts.
+     *
+     * @param partLocations  the storage locations of the parts
+     * @param systemFileName the system file name of the section file
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the stored file
+     */
+    @Override
+    public StoredFile assembleSection(List<String> partLocations, String systemFileName, ContentEncoding encoding) {
+        Iterator<String> parts = partLocations.iterator();
+        Enumeration<InputStream> partContents = new Enumeration<>() {
+            @Override
+            public boolean hasMoreElements() {
+                return parts.hasNext();
+            }
+
+            @Override
+            public InputStream nextElement() {
+                String partLocation = parts.next();
+                try {
+                    return onStoredFile(partLocation, Files::newInputStream);
+                } catch (IOException e) {
+                    throw new UncheckedIOException(e);
+                }
+            }
+        };
+
+        try (InputStream content = new SequenceInputStream(partContents)) {
+            return storeSection(content, systemFileName, encoding);
+        } catch (IOException | UncheckedIOException e) {
+            logger.error("Unable to assemble the parts of file '{}'", systemFileName);
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    /**
+     * Writes the file, counting the write on the volume of the file while it is in progress
+     */
+    private StoredFile writeFile(InputStream content, String systemFileName, Path filePath, ContentEncoding encoding) {
+        StorageVolume volume = storageVolumes.getVolume(systemFileName);
+        volume.startWrite();
+        try {
+            return writeToPath(content, systemFileName, filePath, encoding);
+        } finally {
+            volume.finishWrite();
+        }
+    }
+
+    private StoredFile writeToPath(InputStream content, String systemFileName, Path filePath, ContentEncoding encoding) {
+        createDirectoryIfNotPresent(filePath.getParent());
+
+        MessageDigest digest = SectionChecksums.createDigest();
+        long size;
+        try (FileChannel channel = createFile(filePath);
+             OutputStream outputStream = new DigestOutputStream(encoding.encode(Channels.newOutputStream(channel)), digest)) {
+            size = content.transferTo(outputStream);
+        } catch (FileAlreadyExistsException e) {
+            logger.error("Unable to store file '{}'. The file already exists", filePath);
+            throw new InvalidSystemStateException(e);
+        } catch (IOException e) {
             logger.error("Unable to store file '{}'", filePath);
+            deletePartiallyStoredFile(filePath);
             throw new InvalidSystemStateException(e);
         }
+
+        syncFile(filePath);
+        String checksum = HexFormat.of().formatHex(digest.digest());
+        logger.info("Stored file '{}' with size '{}' and encoding '{}'", filePath, size, encoding.getToken());
+        return new StoredFile(systemFileName, size, checksum, encoding);
     }
 
     /**
@@ -95,10 +425,14 @@ public class FileStorageImpl implements FileStorage {
      */
     @Override
     public void deleteSection(String systemFileName) {
+        sectionCache.invalidate(systemFileName);
         Path filePath = getFullPath(systemFileName);
         try {
-            Files.delete(filePath);
-            logger.info("Deleted file '{}' on delete section", filePath);
+            onStoredFile(systemFileName, path -> {
+                Files.delete(path);
+                return path;
+            });
+            logger.info("Deleted file '{}' on delete section", systemFileName);
         } catch (IOException e) {
             handleException(e, filePath);
         }
@@ -111,35 +445,429 @@ public class FileStorageImpl implements FileStorage {
      */
     @Override
     public void deleteSectionIfPresent(String systemFileName) {
+        sectionCache.invalidate(systemFileName);
         Path filePath = getFullPath(systemFileName);
         try {
-            boolean exists = Files.deleteIfExists(filePath);
-            if (exists) {
-                logger.info("Deleted file '{}' on delete if present", filePath);
-            } else {
-                logger.info("File '{}' not found. Nothing to delete", filePath);
-            }
+            onStoredFile(systemFileName, path -> {
+                Files.delete(path);
+                return path;
+            });
+            logger.info("Deleted file '{}' on delete if present", systemFileName);
+        } catch (NoSuchFileException e) {
+            logger.info("File '{}' not found. Nothing to delete", systemFileName);
         } catch (IOException e) {
             handleException(e, filePath);
         }
     }
 
+    /**
+     * Moves files stored directly in the base directory, by versions without the sharded layout, into their
+     * sharded directories. Files are served from both locations while the migration is running, and until a run
+     * finds no file left in the base directory. A file whose sharded file already exists with another content is
+     * left in the base directory, so that no content is lost, and keeps the migration running.
+     *
+     * @param maxFiles the maximum number of files moved in one run
+     * @return the number of moved files
+     */
+    @Override
+    public int migrateLayout(int maxFiles) {
+        Path baseDirectory = getBasePath();
+        if (layoutMigrated || !Files.isDirectory(baseDirectory)) {
+            return 0;
+        }
+
+        int migratedFiles = 0;
+        int conflictingFiles = 0;
+        try (DirectoryStream<Path> files = Files.newDirectoryStream(baseDirectory, path -> Files.isRegularFile(path))) {
+            for (Path legacyPath : files) {
+                if (migratedFiles >= maxFiles) {
+                    return migratedFiles;
+                }
+
+                if (migrateFile(legacyPath)) {
+                    migratedFiles++;
+                } else {
+                    conflictingFiles++;
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Unable to migrate the files in '{}' to the sharded layout", baseDirectory);
+            throw new InvalidSystemStateException(e);
+        }
+
+        if (conflictingFiles > 0) {
+            logger.warn("'{}' files in '{}' conflict with sharded files and are still served from the base directory", conflictingFiles, baseDirectory);
+            return migratedFiles;
+        }
+
+        layoutMigrated = true;
+        logger.info("All files in '{}' use the sharded layout", baseDirectory);
+        return migratedFiles;
+    }
+
+    /**
+     * Checks if the stored file can be moved to another tier
+     *
+     * @param storageLocation the storage location of the section
+     * @return true if a cold path is configured
+     */
+    @Override
+    public boolean supportsTiering(String storageLocation) {
+        return isTieringEnabled();
+    }
+
+    /**
+     * Copies the stored file to a new storage location. The copy is made with
+     * {@link FileChannel#transferTo(long, long, java.nio.channels.WritableByteChannel)}, so the bytes do not pass
+     * through the heap, and it is synced before the method returns, as configured by the {@link DurabilityMode},
+     * so that the source file can be removed once the new location is committed.
+     *
+     * @param sourceLocation the storage location of the stored file
+     * @param targetLocation the storage location of the copy. It must not exist
+     */
+    @Override
+    public void copySection(String sourceLocation, String targetLocation) {
+        Path targetPath = getFullPath(targetLocation);
+        createDirectoryIfNotPresent(targetPath.getParent());
+
+        try (FileSectionContent source = openStoredFile(sourceLocation);
+             FileChannel target = createFile(targetPath)) {
+            source.transferTo(0, source.size(), target);
+        } catch (FileAlreadyExistsException e) {
+            logger.error("Unable to copy file '{}'. The file '{}' already exists", sourceLocation, targetPath);
+            throw new InvalidSystemStateException(e);
+        } catch (IOException e) {
+            logger.error("Unable to copy file '{}' to '{}'", sourceLocation, targetPath);
+            deletePartiallyStoredFile(targetPath);
+            throw new InvalidSystemStateException(e);
+        }
+
+        syncFile(targetPath);
+        logger.info("Copied file '{}' to '{}'", sourceLocation, targetPath);
+    }
+
+    /**
+     * Makes the stored file available at the storage location of a copy through a hard link, so the stored bytes
+     * are shared and only a directory entry is written, whatever the size of the file. Stored files are never
+     * changed in place, only removed, so removing one of the sections keeps the bytes of the other. When the file
+     * system does not support hard links, e.g. the limit of links is reached, the file is copied with
+     * {@link #copySection(String, String)} instead.
+     *
+     * @param sourceLocation the storage location of the stored file
+     * @param targetLocation the storage location of the copy. It must not exist
+     */
+    @Override
+    public void shareSection(String sourceLocation, String targetLocation) {
+        Path targetPath = getFullPath(targetLocation);
+        createDirectoryIfNotPresent(targetPath.getParent());
+
+        try {
+            onStoredFile(sourceLocation, sourcePath -> Files.createLink(targetPath, sourcePath));
+        } catch (FileAlreadyExistsException e) {
+            logger.error("Unable to link file '{}'. The file '{}' already exists", sourceLocation, targetPath);
+            throw new InvalidSystemStateException(e);
+        } catch (NoSuchFileException e) {
+            logger.error("Unable to link file '{}'. The file does not exist", sourceLocation);
+            throw new InvalidSystemStateException(e);
+        } catch (FileSystemException | UnsupportedOperationException e) {
+            logger.info("Unable to link file '{}' to '{}'. The file is copied instead", sourceLocation, targetPath);
+            copySection(sourceLocation, targetLocation);
+            return;
+        } catch (IOException e) {
+            logger.error("Unable to link file '{}' to '{}'", sourceLocation, targetPath);
+            throw new InvalidSystemStateException(e);
+        }
+
+        syncDirectory(targetPath.getParent());
+        logger.info("Linked file '{}' to '{}'", sourceLocation, targetPath);
+    }
+
+    /**
+     * Generates a unique file name from the base name of the original file name. The original file name is sent by
+     * the client, so any directory in it is removed, and a name that would be a storage location of another file,
+     * e.g. of the parent directory or of a reserved directory, can never be generated.
+     */
+    private String generateFileName(String originalFileName) {
+        //ToDo handle NullPointerException everywhere. Actually change this exception to one of mine custom exceptions.
+        Objects.requireNonNull(originalFileName, () -> localizationService.getMessage("shared.base.filestorage.on.generate.file.name.file.name.null"));
+        String baseName = toBaseName(originalFileName);
+        int lastIndexOf = baseName.lastIndexOf(".");
+        if (lastIndexOf < 0) {
+            lastIndexOf = baseName.length();
+        }
+
+        String fileName = baseName.substring(0, lastIndexOf);
+        String extension = baseName.substring(lastIndexOf);
+        // The time ordered key is unique across threads and instances, so names of files uploaded at once never collide
+        return fileName + "_" + TimeOrderedIds.nextKey() + extension;
+    }
+
+    private static String toBaseName(String originalFileName) {
+        String baseName = originalFileName.substring(Math.max(originalFileName.lastIndexOf('/'), originalFileName.lastIndexOf('\\')) + 1)
+                .replace("..", "")
+                .strip();
+        if (baseName.isEmpty() || baseName.equals(".")) {
+            logger.warn("Invalid file name '{}'", originalFileName);
+            throw new InvalidClientInputException("shared.base.filestorage.on.generate.file.name.file.name.invalid", originalFileName);
+        }
+
+        return baseName;
+    }
+
+    /**
+     * Moves the file into its sharded directory. An atomic move may replace an existing file, so a sharded file
+     * that already exists is checked first.
+     *
+     * @return true if the file is no longer in the base directory
+     */
+    private boolean migrateFile(Path legacyPath) throws IOException {
+        Path filePath = getFullPath(legacyPath.getFileName().toString());
+        createDirectoryIfNotPresent(filePath.getParent());
+        try {
+            if (Files.exists(filePath)) {
+                return resolveMigrationConflict(legacyPath, filePath);
+            }
+
+            Files.move(legacyPath, filePath, StandardCopyOption.ATOMIC_MOVE);
+            logger.info("Moved file '{}' to '{}'", legacyPath, filePath);
+            return true;
+        } catch (FileAlreadyExistsException e) {
+            return resolveMigrationConflict(legacyPath, filePath);
+        } catch (NoSuchFileException e) {
+            // Deleted after it has been listed
+            logger.info("File '{}' not found. Nothing to move", legacyPath);
+            return true;
+        }
+    }
+
+    /**
+     * Removes the file in the base directory when the sharded file has the same content, e.g. when it was copied
+     * by a previous run that stopped before the file was removed. Otherwise both files are kept.
+     */
+    private boolean resolveMigrationConflict(Path legacyPath, Path filePath) throws IOException {
+        if (Files.mismatch(legacyPath, filePath) == -1) {
+            Files.deleteIfExists(legacyPath);
+            logger.info("Removed file '{}'. The file '{}' has the same content", legacyPath, filePath);
+            return true;
+        }
+
+        logger.error("Unable to move file '{}'. The file '{}' already exists with another content", legacyPath, filePath);
+        return false;
+    }
+
+    /**
+     * Applies the operation to the stored file, falling back to the staging directory for committed files that
+     * have not been published yet. As publishing only moves files out of the staging directory, the published
+     * file is tried once more when the file has been moved in between.
+     */
+    private <T> T onStoredFile(String systemFileName, PathOperation<T> operation) throws IOException {
+        try {
+            return onPublishedFile(systemFileName, operation);
+        } catch (NoSuchFileException e) {
+            if (StorageTier.of(systemFileName) != StorageTier.HOT) {
+                throw e;
+            }
+        }
+
+        try {
+            return operation.apply(getStagedPath(systemFileName));
+        } catch (NoSuchFileException e) {
+            return operation.apply(getFullPath(systemFileName));
+        }
+    }
+
+    /**
+     * Applies the operation to the stored file in the sharded layout, falling back to the location used before
+     * the layout was sharded. As the migration only moves files into the sharded layout, the sharded path is
+     * tried once more when the file has been moved in between.
+     */
+    private <T> T onPublishedFile(String systemFileName, PathOperation<T> operation) throws IOException {
+        Path filePath = getFullPath(systemFileName);
+        try {
+            return operation.apply(filePath);
+        } catch (NoSuchFileException e) {
+            if (layoutMigrated) {
+                throw e;
+            }
+        }
+
+        try {
+            return operation.apply(getBasePath().resolve(systemFileName));
+        } catch (NoSuchFileException e) {
+            return operation.apply(filePath);
+        }
+    }
+
+    private FileChannel createFile(Path filePath) throws IOException {
+        try {
+            return FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        } catch (NoSuchFileException e) {
+            // The directory has been removed since it was created
+            createdDirectories.remove(filePath.getParent());
+            createDirectoryIfNotPresent(filePath.getParent());
+            return FileChannel.open(filePath, StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        }
+    }
+
     private void handleException(IOException e, Path filePath) {
         logger.error("Unable to remove stored section '{}'", filePath);
         throw new InvalidSystemStateException(e);
     }
 
-    private Path getFullPath(String systemFileName) {
-        return Paths.get(basePath, systemFileName);
+    private boolean isTieringEnabled() {
+        return coldPath != null && !coldPath.isBlank();
+    }
+
+    private static void deletePartiallyStoredFile(Path filePath) {
+        try {
+            Files.deleteIfExists(filePath);
+        } catch (IOException e) {
+            // The file is removed later by the processing of the transaction action
+            logger.warn("Unable to remove partially stored file '{}'", filePath);
+        }
+    }
+
+    private static byte[] readAllBytes(SectionContent content) throws IOException {
+        try (content) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream((int) content.size());
+            content.transferTo(0, content.size(), Channels.newChannel(outputStream));
+            return outputStream.toByteArray();
+        }
+    }
+
+    /**
+     * Stores a copy of the local file with {@link #storeSection(InputStream, String, ContentEncoding)}
+     *
+     * @param sourcePath     the path of the local file
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the stored file
+     */
+    protected StoredFile storeLocalFile(Path sourcePath, String systemFileName, ContentEncoding encoding) {
+        try (InputStream content = Files.newInputStream(sourcePath)) {
+            return storeSection(content, systemFileName, encoding);
+        } catch (IOException e) {
+            logger.error("Unable to read the local file '{}'", sourcePath);
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    /**
+     * Opens the stored file for reading
+     *
+     * @param systemFileName the system file name
+     * @return the content of the stored file. Must be closed by the caller
+     * @throws IOException when the file can not be opened
+     */
+    protected FileSectionContent openStoredFile(String systemFileName) throws IOException {
+        return onStoredFile(systemFileName, FileSectionContent::open);
+    }
+
+    /**
+     * Resolves the path of a stored file in the sharded layout. The storage location may contain directories,
+     * the shard directories are placed right above the file. Files in the cold tier are resolved in the cold path.
+     */
+    protected Path getFullPath(String systemFileName) {
+        Path basePath;
+        if (StorageTier.of(systemFileName) == StorageTier.COLD && isTieringEnabled()) {
+            basePath = Paths.get(coldPath);
+            systemFileName = systemFileName.substring(StorageTier.COLD.getLocationPrefix().length());
+        } else {
+            StorageVolume volume = storageVolumes.getVolume(systemFileName);
+            basePath = volume.getRoot();
+            systemFileName = volume.toRelativeLocation(systemFileName);
+        }
+
+        Path location = Paths.get(systemFileName);
+        String fileName = location.getFileName().toString();
+        CRC32C crc = new CRC32C();
+        crc.update(fileName.getBytes(StandardCharsets.UTF_8));
+        long hash = crc.getValue();
+        String firstLevel = "%02x".formatted((hash >>> 24) & 0xff);
+        String secondLevel = "%02x".formatted((hash >>> 16) & 0xff);
+
+        Path directory = location.getParent() == null ? basePath : basePath.resolve(location.getParent());
+        return directory.resolve(firstLevel).resolve(secondLevel).resolve(fileName);
+    }
+
+    private static boolean isModifiedBefore(Path file, FileTime expiration) throws IOException {
+        try {
+            return Files.getLastModifiedTime(file).compareTo(expiration) < 0;
+        } catch (NoSuchFileException e) {
+            // Published or discarded after it has been listed
+            return false;
+        }
+    }
+
+    private Path getStagedPath(String systemFileName) {
+        StorageVolume volume = storageVolumes.getVolume(systemFileName);
+        return volume.getRoot().resolve(STAGING_DIRECTORY).resolve(volume.toRelativeLocation(systemFileName));
+    }
+
+    protected void invalidateCache(String systemFileName) {
+        sectionCache.invalidate(systemFileName);
+    }
+
+    /**
+     * Gets the storage path, the first of the volumes. Files shared by several sections are kept on it.
+     */
+    protected Path getBasePath() {
+        return storageVolumes.getVolumes().getFirst().getRoot();
+    }
+
+    /**
+     * Creates the directory and its missing parents. The entries of the created directories are synced, as
+     * configured by the {@link DurabilityMode}, so that the files stored in them can be found after a crash.
+     */
+    protected void createDirectoryIfNotPresent(Path directory) {
+        if (createdDirectories.contains(directory)) {
+            return;
+        }
+
+        try {
+            Path existingDirectory = directory;
+            while (existingDirectory != null && !Files.isDirectory(existingDirectory)) {
+                existingDirectory = existingDirectory.getParent();
+            }
+
+            Files.createDirectories(directory);
+            for (Path created = directory; existingDirectory != null && !created.equals(existingDirectory); created = created.getParent()) {
+                storageDurability.syncDirectory(created.getParent());
+            }
+
+            createdDirectories.add(directory);
+        } catch (IOException e) {
+            logger.error("Unable to create a directory '{}'", directory);
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    /**
+     * Syncs the written file and its directory entry, as configured by the {@link DurabilityMode}
+     */
+    protected void syncFile(Path filePath) {
+        try {
+            storageDurability.syncFile(filePath);
+        } catch (IOException e) {
+            logger.error("Unable to sync file '{}' to the disk", filePath);
+            throw new InvalidSystemStateException(e);
+        }
     }
 
-    private void createBaseDirectoryIfNotPresent() {
+    /**
+     * Syncs the entries of the directory, as configured by the {@link DurabilityMode}
+     */
+    protected void syncDirectory(Path directory) {
         try {
-            Path storagePath = Path.of(basePath);
-            Files.createDirectories(storagePath);
+            storageDurability.syncDirectory(directory);
         } catch (IOException e) {
-            logger.error("Unable to create a base directory '{}'", basePath);
+            logger.error("Unable to sync directory '{}' to the disk", directory);
             throw new InvalidSystemStateException(e);
         }
     }
+
+    @FunctionalInterface
+    private interface PathOperation<T> {
+        T apply(Path path) throws IOException;
+    }
 }
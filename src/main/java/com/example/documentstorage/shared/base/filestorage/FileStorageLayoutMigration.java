@@ -0,0 +1,32 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+@Component
+public class FileStorageLayoutMigration {
+    private static final Logger logger = LoggerFactory.getLogger(FileStorageLayoutMigration.class);
+    private final FileStorage fileStorage;
+    private final int batchSize;
+
+    public FileStorageLayoutMigration(FileStorage fileStorage,
+                                      @Value("${document.storage.layout.migration.batch.size}") int batchSize) {
+        this.fileStorage = fileStorage;
+        this.batchSize = batchSize;
+    }
+
+    /**
+     * Moves a batch of files stored without the sharded layout into their sharded directories. The files are
+     * moved in batches, so that the scheduler is not blocked until all files have been moved.
+     */
+    @Scheduled(cron = "${document.storage.layout.migration.cron}")
+    public synchronized void migrateLayout() {
+        int migratedFiles = fileStorage.migrateLayout(batchSize);
+        if (migratedFiles > 0) {
+            logger.info("Moved '{}' files to the sharded layout", migratedFiles);
+        }
+    }
+}
@@ -9,19 +9,24 @@ import org.springframework.stereotype.Component;
 
 import java.time.LocalDateTime;
 import java.util.List;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
 
 @Component()
 public class FileStorageProcessor {
     private static final Logger logger = LoggerFactory.getLogger(FileStorageProcessor.class);
     private final TransactionActionRecordRepository repository;
     private final FileStorage fileStorage;
+    private final AsyncFileStorage asyncFileStorage;
     private final int expirationInHours;
 
     public FileStorageProcessor(TransactionActionRecordRepository repository,
                                 FileStorage fileStorage,
+                                AsyncFileStorage asyncFileStorage,
                                 @Value("${document.storage.process.transactions.expiration.in.hours}") int expirationInHours) {
         this.repository = repository;
         this.fileStorage = fileStorage;
+        this.asyncFileStorage = asyncFileStorage;
         this.expirationInHours = expirationInHours;
     }
 
@@ -32,6 +37,11 @@ public class FileStorageProcessor {
      * If the {@link ActionType} is DELETE and the transaction action has been commited, then the document needs to be
      * removed.
      * If the {@link ActionType} is DELETE and the transaction action has not been commited, then do nothing.
+     * If the {@link ActionType} is GROUP, then only its child transaction actions are processed.
+     * The child transaction actions are processed with their parent, the same way.
+     * The files are removed on the storage threads while the next transaction actions are read, and an action is
+     * saved as processed only once its file is removed.
+     * Finally, the stored files that are no longer referenced are removed.
      */
     @Scheduled(cron = "${document.storage.process.transactions.cron}")
     public synchronized void processTransactions() {
@@ -39,28 +49,54 @@ public class FileStorageProcessor {
         LocalDateTime expirationTime = LocalDateTime.now().minusHours(expirationInHours);
         List<TransactionActionRecord> transactionActions = repository.findFirstNotProcessed(expirationTime);
         while (!transactionActions.isEmpty()) {
-            for (TransactionActionRecord transactionActionRecord : transactionActions) {
-                handleTransactionAction(transactionActionRecord);
-            }
+            awaitRemovals(transactionActions.stream()
+                    .map(this::handleTransactionAction)
+                    .toList());
 
             repository.saveAllAndFlush(transactionActions);
             transactionActions = repository.findFirstNotProcessed(expirationTime);
         }
+
+        fileStorage.removeUnreferencedFiles(expirationTime);
     }
 
-    private void handleTransactionAction(TransactionActionRecord record) {
+    private CompletableFuture<Void> handleTransactionAction(TransactionActionRecord record) {
+        List<TransactionActionRecord> childActions = repository.findByParentRecordAndProcessedFalse(record);
+        if (!childActions.isEmpty()) {
+            awaitRemovals(childActions.stream()
+                    .map(this::handleTransactionAction)
+                    .toList());
+            repository.saveAll(childActions);
+        }
+
         record.setProcessed(true);
 
         if (ActionType.CREATE.equals(record.getActionType()) && !record.isCommitted()) {
-            fileStorage.deleteSectionIfPresent(record.getStorageLocation());
             logger.info("Processing transaction record {}", record.getId());
-            return;
+            return asyncFileStorage.deleteSectionIfPresent(record.getStorageLocation());
         }
 
         if (ActionType.DELETE.equals(record.getActionType()) && record.isCommitted()) {
-            fileStorage.deleteSection(record.getStorageLocation());
             logger.info("Processing transaction record {}", record.getId());
-            return;
+            return asyncFileStorage.deleteSection(record.getStorageLocation());
+        }
+
+        return CompletableFuture.completedFuture(null);
+    }
+
+    /**
+     * Waits for every removal, also when one of them fails, so that no action is saved as processed while its
+     * file is still being removed. Throws the failure of the first file that could not be removed.
+     */
+    private static void awaitRemovals(List<CompletableFuture<Void>> removals) {
+        try {
+            CompletableFuture.allOf(removals.toArray(CompletableFuture[]::new)).join();
+        } catch (CompletionException e) {
+            if (e.getCause() instanceof RuntimeException cause) {
+                throw cause;
+            }
+
+            throw e;
         }
     }
 }
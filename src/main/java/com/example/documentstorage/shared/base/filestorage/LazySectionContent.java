@@ -0,0 +1,65 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Optional;
+import java.util.function.Supplier;
+
+/**
+ * Section content that is opened only when it is first read, so that responses which do not need the content,
+ * like {@code 304 Not Modified} or {@code HEAD}, never touch the stored file. When the size of the stored content
+ * is known in advance, it is returned without opening the content.
+ */
+public class LazySectionContent implements SectionContent {
+    private final Supplier<SectionContent> opener;
+    private final long knownSize;
+    private SectionContent content;
+
+    /**
+     * @param opener    opens the content
+     * @param knownSize the size of the stored content, or a negative number when it is not known in advance
+     */
+    public LazySectionContent(Supplier<SectionContent> opener, long knownSize) {
+        this.opener = opener;
+        this.knownSize = knownSize;
+    }
+
+    @Override
+    public long size() {
+        return knownSize >= 0 ? knownSize : open().size();
+    }
+
+    @Override
+    public long transferTo(long position, long count, WritableByteChannel target) throws IOException {
+        return open().transferTo(position, count, target);
+    }
+
+    @Override
+    public Optional<FileRegion> fileRegion() {
+        return open().fileRegion();
+    }
+
+    /**
+     * Checks if the content has been opened
+     *
+     * @return true if the content has been read or its size has been looked up
+     */
+    public boolean isOpened() {
+        return content != null;
+    }
+
+    @Override
+    public void close() throws IOException {
+        if (content != null) {
+            content.close();
+        }
+    }
+
+    private SectionContent open() {
+        if (content == null) {
+            content = opener.get();
+        }
+
+        return content;
+    }
+}
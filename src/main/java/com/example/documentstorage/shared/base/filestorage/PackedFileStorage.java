@@ -0,0 +1,509 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import com.example.documentstorage.entities.PackedSection;
+import com.example.documentstorage.shared.base.apimessages.LocalizationService;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.cache.SectionCache;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolumes;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.autoconfigure.condition.ConditionalOnProperty;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.StreamUtils;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.io.SequenceInputStream;
+import java.nio.ByteBuffer;
+import java.nio.channels.FileChannel;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.nio.file.attribute.FileTime;
+import java.time.Instant;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.Set;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+/**
+ * Appends small section files to large segment files, instead of storing every section in its own file. The
+ * position of every section in its segment is kept in {@link PackedSection}, and sections are read with positioned
+ * reads through a channel shared per segment. Sections larger than the maximum packed size are stored in their
+ * own files. Only one instance may write to the segments of a storage path.
+ * Deleted sections leave garbage in their segments, which is reclaimed by compacting the segments: the sections
+ * still referenced are appended to the active segment, and the emptied segment is removed once it expires.
+ */
+@Service
+@ConditionalOnProperty(name = "document.storage.mode", havingValue = "packed")
+public class PackedFileStorage extends FileStorageImpl {
+    private static final Logger logger = LoggerFactory.getLogger(PackedFileStorage.class);
+    private static final String PACKED_DIRECTORY = "packed";
+    private static final String SEGMENT_DIRECTORY = "segments";
+    private static final String SEGMENT_EXTENSION = ".seg";
+
+    private final PackedSectionRepository packedSectionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final int maxPackedSize;
+    private final long segmentSize;
+    private final double compactionGarbageRatio;
+
+    // Read channels shared by all readers of a segment
+    private final Map<String, FileChannel> segmentChannels = new ConcurrentHashMap<>();
+    private String activeSegment;
+    private FileChannel activeChannel;
+    private long nextSegmentNumber = -1;
+
+    public PackedFileStorage(
+            LocalizationService localizationService,
+            SectionCache sectionCache,
+            StorageDurability storageDurability,
+            PackedSectionRepository packedSectionRepository,
+            PlatformTransactionManager transactionManager,
+            StorageVolumes storageVolumes,
+            @Value("${document.storage.cold.path}") String coldPath,
+            @Value("${document.storage.packed.max.section.size}") DataSize maxPackedSize,
+            @Value("${document.storage.packed.segment.size}") DataSize segmentSize,
+            @Value("${document.storage.packed.compaction.garbage.ratio}") double compactionGarbageRatio) {
+        super(localizationService, sectionCache, storageDurability, storageVolumes, coldPath);
+        this.packedSectionRepository = packedSectionRepository;
+        this.transactionTemplate = new TransactionTemplate(transactionManager);
+        this.maxPackedSize = Math.toIntExact(maxPackedSize.toBytes());
+        this.segmentSize = segmentSize.toBytes();
+        this.compactionGarbageRatio = compactionGarbageRatio;
+    }
+
+    /**
+     * Appends the section file to the active segment when it is not larger than the maximum packed size,
+     * otherwise stores it in its own file. Must be called in the transaction that adds the section, as the
+     * position of the packed section is saved in it.
+     *
+     * @param content        the content of the file to be stored. It is not closed by this method
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the stored file
+     */
+    @Override
+    public StoredFile storeSection(InputStream content, String systemFileName, ContentEncoding encoding) {
+        byte[] bytes;
+        try {
+            bytes = content.readNBytes(maxPackedSize + 1);
+        } catch (IOException e) {
+            logger.error("Unable to read the content of file '{}'", systemFileName);
+            throw new InvalidSystemStateException(e);
+        }
+
+        if (bytes.length > maxPackedSize) {
+            InputStream wholeContent = new SequenceInputStream(new ByteArrayInputStream(bytes), StreamUtils.nonClosing(content));
+            return super.storeSection(wholeContent, systemFileName, encoding);
+        }
+
+        String checksum = SectionChecksums.checksum(bytes);
+        byte[] encodedBytes = encode(bytes, encoding);
+        SegmentEntry entry = append(encodedBytes);
+        syncFile(getSegmentPath(entry.segment()));
+
+        String storageLocation = PACKED_DIRECTORY + "/" + systemFileName;
+        PackedSection packedSection = new PackedSection();
+        packedSection.setStorageLocation(storageLocation);
+        packedSection.setSegment(entry.segment());
+        packedSection.setOffset(entry.offset());
+        packedSection.setLength(encodedBytes.length);
+        packedSectionRepository.save(packedSection);
+
+        logger.info("Packed file '{}' with size '{}' in segment '{}'", systemFileName, bytes.length, entry.segment());
+        return new StoredFile(storageLocation, bytes.length, checksum, encoding);
+    }
+
+    /**
+     * Generates the storage location of a copy. A copy of a packed section is a packed section as well.
+     *
+     * @param sourceLocation   the storage location of the stored file
+     * @param originalFileName the original file name of the copy
+     * @return the storage location of the copy
+     */
+    @Override
+    public String generateCopyLocation(String sourceLocation, String originalFileName) {
+        if (isPacked(sourceLocation)) {
+            return PACKED_DIRECTORY + "/" + generateSystemFileName(originalFileName);
+        }
+
+        return super.generateCopyLocation(sourceLocation, originalFileName);
+    }
+
+    /**
+     * Saves a packed section at the same position in the segment as the stored packed section, so that the copy
+     * shares its bytes, or links the section file if it is not packed. Must be called in the transaction that adds
+     * the copy.
+     *
+     * @param sourceLocation the storage location of the stored file
+     * @param targetLocation the storage location of the copy
+     */
+    @Override
+    public void shareSection(String sourceLocation, String targetLocation) {
+        if (!isPacked(sourceLocation)) {
+            super.shareSection(sourceLocation, targetLocation);
+            return;
+        }
+
+        PackedSection source = packedSectionRepository.findById(sourceLocation).orElseThrow(() -> {
+            logger.error("Unable to share packed section '{}'. The section does not exist", sourceLocation);
+            return new InvalidSystemStateException(new NoSuchFileException(sourceLocation));
+        });
+
+        PackedSection packedSection = new PackedSection();
+        packedSection.setStorageLocation(targetLocation);
+        packedSection.setSegment(source.getSegment());
+        packedSection.setOffset(source.getOffset());
+        packedSection.setLength(source.getLength());
+        packedSectionRepository.save(packedSection);
+        logger.info("Shared packed section '{}' as '{}' in segment '{}'", sourceLocation, targetLocation, source.getSegment());
+    }
+
+    /**
+     * Stores a copy of the local file, as small files are appended to the active segment
+     *
+     * @param sourcePath     the path of the local file
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return the storage location, the size, the checksum and the encoding of the stored file
+     */
+    @Override
+    public StoredFile ingestSection(Path sourcePath, String systemFileName, ContentEncoding encoding) {
+        return storeLocalFile(sourcePath, systemFileName, encoding);
+    }
+
+    /**
+     * Sections must be stored in the transaction that adds them, as the position of the packed section is saved in it
+     *
+     * @return true
+     */
+    @Override
+    public boolean requiresTransaction() {
+        return true;
+    }
+
+    /**
+     * Sections can not be staged, as sections are appended to shared segment files, which can not be renamed into place
+     *
+     * @return false
+     */
+    @Override
+    public boolean supportsStaging() {
+        return false;
+    }
+
+    /**
+     * Fails, as sections can not be staged. Only called when {@link #supportsStaging()} is true.
+     *
+     * @param content        the content of the file to be stored
+     * @param systemFileName the system file name
+     * @param encoding       the encoding in which the content is stored
+     * @return never returns
+     */
+    @Override
+    public StoredFile stageSection(InputStream content, String systemFileName, ContentEncoding encoding) {
+        logger.error("Unable to stage file '{}'. Staging is not supported by the packed storage", systemFileName);
+        throw new InvalidSystemStateException();
+    }
+
+    /**
+     * Fails, as sections can not be staged. Only called when {@link #supportsStaging()} is true.
+     *
+     * @param systemFileName the system file name of the staged file
+     */
+    @Override
+    public void publishStagedSection(String systemFileName) {
+        logger.error("Unable to publish file '{}'. Staging is not supported by the packed storage", systemFileName);
+        throw new InvalidSystemStateException();
+    }
+
+    /**
+     * Deletes the packed section, or the section file if it is not packed. The bytes of a packed section are
+     * reclaimed by the compaction of its segment.
+     *
+     * @param systemFileName the storage location of the section
+     */
+    @Override
+    public void deleteSection(String systemFileName) {
+        if (!isPacked(systemFileName)) {
+            super.deleteSection(systemFileName);
+            return;
+        }
+
+        if (!deletePackedSection(systemFileName)) {
+            logger.error("Unable to remove packed section '{}'. The section does not exist", systemFileName);
+            throw new InvalidSystemStateException(new NoSuchFileException(systemFileName));
+        }
+    }
+
+    /**
+     * Deletes the packed section, or the section file if it is not packed, if it is present
+     *
+     * @param systemFileName the storage location of the section
+     */
+    @Override
+    public void deleteSectionIfPresent(String systemFileName) {
+        if (!isPacked(systemFileName)) {
+            super.deleteSectionIfPresent(systemFileName);
+            return;
+        }
+
+        if (!deletePackedSection(systemFileName)) {
+            logger.info("Packed section '{}' not found. Nothing to delete", systemFileName);
+        }
+    }
+
+    /**
+     * Checks if the stored file can be moved to another tier. Packed sections are stored inside the segments,
+     * which always stay in the hot tier.
+     *
+     * @param storageLocation the storage location of the section
+     * @return true if the section is not packed and tiering is enabled
+     */
+    @Override
+    public boolean supportsTiering(String storageLocation) {
+        return !isPacked(storageLocation) && super.supportsTiering(storageLocation);
+    }
+
+    /**
+     * Compacts the segments with too much garbage and removes the segments without packed sections that have
+     * not been modified since the expiration time
+     *
+     * @param expirationTime segments modified before this time are removed when they are empty
+     */
+    @Override
+    public void removeUnreferencedFiles(LocalDateTime expirationTime) {
+        Path segmentDirectory = getBasePath().resolve(SEGMENT_DIRECTORY);
+        if (!Files.isDirectory(segmentDirectory)) {
+            return;
+        }
+
+        Map<String, Long> liveBytes = packedSectionRepository.findSegmentUsage().stream()
+                .collect(Collectors.toMap(SegmentUsage::segment, SegmentUsage::liveBytes));
+        FileTime expiration = FileTime.from(expirationTime.atZone(ZoneId.systemDefault()).toInstant());
+
+        try (Stream<Path> files = Files.list(segmentDirectory)) {
+            for (Path segmentPath : files.sorted().toList()) {
+                String segment = segmentPath.getFileName().toString();
+                if (segment.equals(getActiveSegment())) {
+                    continue;
+                }
+
+                long segmentLiveBytes = liveBytes.getOrDefault(segment, 0L);
+                if (segmentLiveBytes == 0 && Files.getLastModifiedTime(segmentPath).compareTo(expiration) < 0) {
+                    deleteSegment(segment, segmentPath);
+                } else if (segmentLiveBytes > 0 && Files.size(segmentPath) - segmentLiveBytes >= Files.size(segmentPath) * compactionGarbageRatio) {
+                    compactSegment(segment, segmentPath);
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Unable to compact the segments in '{}'", segmentDirectory);
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    @Override
+    protected FileSectionContent openStoredFile(String systemFileName) throws IOException {
+        if (!isPacked(systemFileName)) {
+            return super.openStoredFile(systemFileName);
+        }
+
+        PackedSection packedSection = packedSectionRepository.findById(systemFileName)
+                .orElseThrow(() -> new NoSuchFileException(systemFileName));
+        Path segmentPath = getSegmentPath(packedSection.getSegment());
+        return FileSectionContent.shared(segmentPath, getReadChannel(packedSection.getSegment()),
+                packedSection.getOffset(), packedSection.getLength());
+    }
+
+    /**
+     * Moves the packed sections still referenced in the segment to the active segment. Shared copies are packed
+     * sections at the same position, so each position is appended once and all its packed sections are moved to
+     * the new position, keeping the bytes shared. The segment is touched after it has been emptied, so that
+     * readers that have just looked up the old position can still read it until the segment expires.
+     */
+    private void compactSegment(String segment, Path segmentPath) throws IOException {
+        Set<String> movedToSegments = new LinkedHashSet<>();
+        int movedSections = transactionTemplate.execute(status -> {
+            List<PackedSection> packedSections = packedSectionRepository.findBySegmentForUpdate(segment);
+            Map<SegmentRange, List<PackedSection>> sharedSections = packedSections.stream()
+                    .collect(Collectors.groupingBy(
+                            packedSection -> new SegmentRange(packedSection.getOffset(), packedSection.getLength()),
+                            LinkedHashMap::new,
+                            Collectors.toList()));
+            for (List<PackedSection> sharingSections : sharedSections.values()) {
+                byte[] bytes = read(sharingSections.getFirst());
+                SegmentEntry entry = append(bytes);
+                for (PackedSection packedSection : sharingSections) {
+                    packedSection.setSegment(entry.segment());
+                    packedSection.setOffset(entry.offset());
+                }
+
+                movedToSegments.add(entry.segment());
+            }
+
+            movedToSegments.forEach(movedToSegment -> syncFile(getSegmentPath(movedToSegment)));
+            packedSectionRepository.saveAll(packedSections);
+            return packedSections.size();
+        });
+
+        Files.setLastModifiedTime(segmentPath, FileTime.from(Instant.now()));
+        logger.info("Compacted segment '{}'. Moved '{}' packed sections", segment, movedSections);
+    }
+
+    private void deleteSegment(String segment, Path segmentPath) throws IOException {
+        FileChannel channel = segmentChannels.remove(segment);
+        if (channel != null) {
+            channel.close();
+        }
+
+        Files.deleteIfExists(segmentPath);
+        logger.info("Deleted empty segment '{}'", segment);
+    }
+
+    private boolean deletePackedSection(String storageLocation) {
+        Boolean deleted = transactionTemplate.execute(status -> {
+            Optional<PackedSection> packedSection = packedSectionRepository.findById(storageLocation);
+            packedSection.ifPresent(packedSectionRepository::delete);
+            return packedSection.isPresent();
+        });
+
+        invalidateCache(storageLocation);
+        if (Boolean.TRUE.equals(deleted)) {
+            logger.info("Deleted packed section '{}'", storageLocation);
+        }
+
+        return Boolean.TRUE.equals(deleted);
+    }
+
+    private byte[] read(PackedSection packedSection) {
+        ByteBuffer buffer = ByteBuffer.allocate(Math.toIntExact(packedSection.getLength()));
+        try {
+            FileChannel channel = getReadChannel(packedSection.getSegment());
+            while (buffer.hasRemaining()) {
+                if (channel.read(buffer, packedSection.getOffset() + buffer.position()) < 0) {
+                    throw new IOException("Unexpected end of segment '%s'".formatted(packedSection.getSegment()));
+                }
+            }
+        } catch (IOException e) {
+            logger.error("Unable to read packed section '{}'", packedSection.getStorageLocation());
+            throw new InvalidSystemStateException(e);
+        }
+
+        return buffer.array();
+    }
+
+    /**
+     * Appends the bytes to the active segment, starting a new segment when the active one is full
+     */
+    private synchronized SegmentEntry append(byte[] bytes) {
+        try {
+            if (activeChannel == null || (activeChannel.size() > 0 && activeChannel.size() + bytes.length > segmentSize)) {
+                startSegment();
+            }
+
+            long offset = activeChannel.size();
+            ByteBuffer buffer = ByteBuffer.wrap(bytes);
+            while (buffer.hasRemaining()) {
+                activeChannel.write(buffer, offset + buffer.position());
+            }
+
+            return new SegmentEntry(activeSegment, offset);
+        } catch (IOException e) {
+            logger.error("Unable to append to segment '{}'", activeSegment);
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    private void startSegment() throws IOException {
+        Path segmentDirectory = getBasePath().resolve(SEGMENT_DIRECTORY);
+        createDirectoryIfNotPresent(segmentDirectory);
+        if (nextSegmentNumber < 0) {
+            nextSegmentNumber = findLastSegmentNumber(segmentDirectory) + 1;
+        }
+
+        if (activeChannel != null) {
+            activeChannel.close();
+        }
+
+        String segment = "%020d%s".formatted(nextSegmentNumber++, SEGMENT_EXTENSION);
+        activeChannel = FileChannel.open(segmentDirectory.resolve(segment), StandardOpenOption.CREATE_NEW, StandardOpenOption.WRITE);
+        activeSegment = segment;
+        logger.info("Started segment '{}'", segment);
+    }
+
+    private synchronized String getActiveSegment() {
+        return activeSegment;
+    }
+
+    private FileChannel getReadChannel(String segment) throws IOException {
+        FileChannel channel = segmentChannels.get(segment);
+        if (channel != null && channel.isOpen()) {
+            return channel;
+        }
+
+        // Opened for the first time, or closed by an interrupted reader
+        FileChannel newChannel = FileChannel.open(getSegmentPath(segment), StandardOpenOption.READ);
+        FileChannel sharedChannel = segmentChannels.merge(segment, newChannel,
+                (current, opened) -> current.isOpen() ? current : opened);
+        if (sharedChannel != newChannel) {
+            newChannel.close();
+        }
+
+        return sharedChannel;
+    }
+
+    private Path getSegmentPath(String segment) {
+        return getBasePath().resolve(SEGMENT_DIRECTORY).resolve(segment);
+    }
+
+    private static long findLastSegmentNumber(Path segmentDirectory) throws IOException {
+        try (Stream<Path> files = Files.list(segmentDirectory)) {
+            return files.map(path -> path.getFileName().toString())
+                    .filter(name -> name.endsWith(SEGMENT_EXTENSION))
+                    .mapToLong(name -> Long.parseLong(name.substring(0, name.length() - SEGMENT_EXTENSION.length())))
+                    .max()
+                    .orElse(-1);
+        }
+    }
+
+    private static boolean isPacked(String storageLocation) {
+        return storageLocation.startsWith(PACKED_DIRECTORY + "/");
+    }
+
+    private static byte[] encode(byte[] bytes, ContentEncoding encoding) {
+        if (encoding == ContentEncoding.IDENTITY) {
+            return bytes;
+        }
+
+        ByteArrayOutputStream encodedBytes = new ByteArrayOutputStream(bytes.length);
+        try (OutputStream outputStream = encoding.encode(encodedBytes)) {
+            outputStream.write(bytes);
+        } catch (IOException e) {
+            throw new InvalidSystemStateException(e);
+        }
+
+        return encodedBytes.toByteArray();
+    }
+
+    private record SegmentRange(long offset, long length) {
+    }
+
+    private record SegmentEntry(String segment, long offset) {
+    }
+}
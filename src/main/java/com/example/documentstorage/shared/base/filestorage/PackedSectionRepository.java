@@ -0,0 +1,40 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import com.example.documentstorage.entities.PackedSection;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface PackedSectionRepository extends JpaRepository<PackedSection, String> {
+    /**
+     * Sums the bytes referenced in each segment. Shared copies are packed sections at the same position, so each
+     * position is counted once.
+     */
+    @Query("""
+            SELECT new com.example.documentstorage.shared.base.filestorage.SegmentUsage(r.segment, SUM(r.length))
+            FROM (
+                SELECT DISTINCT p.segment AS segment, p.offset AS rangeOffset, p.length AS length
+                FROM PackedSection p
+            ) r
+            GROUP BY r.segment
+            """)
+    List<SegmentUsage> findSegmentUsage();
+
+    /**
+     * Finds the packed sections of a segment and locks them, so that they are not removed while they are moved
+     * to another segment
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("""
+            SELECT p FROM PackedSection p
+            WHERE p.segment = :segment
+            ORDER BY p.offset ASC
+            """)
+    List<PackedSection> findBySegmentForUpdate(@Param("segment") String segment);
+}
@@ -0,0 +1,42 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.util.HexFormat;
+
+/**
+ * Computes the checksums of section contents. The same algorithm is used for the checksums stored with the
+ * sections, the entity tags of downloads, the keys of deduplicated blobs and chunks, and the integrity checks, so
+ * that all of them can be compared with each other.
+ */
+public final class SectionChecksums {
+    private static final String CHECKSUM_ALGORITHM = "SHA-256";
+
+    private SectionChecksums() {
+    }
+
+    /**
+     * Creates a digest that computes checksums of content which is read incrementally
+     *
+     * @return a new SHA-256 digest
+     */
+    public static MessageDigest createDigest() {
+        try {
+            return MessageDigest.getInstance(CHECKSUM_ALGORITHM);
+        } catch (NoSuchAlgorithmException e) {
+            throw new InvalidSystemStateException(e);
+        }
+    }
+
+    /**
+     * Computes the checksum of the content
+     *
+     * @param content the content
+     * @return the hex encoded SHA-256 checksum of the content
+     */
+    public static String checksum(byte[] content) {
+        return HexFormat.of().formatHex(createDigest().digest(content));
+    }
+}
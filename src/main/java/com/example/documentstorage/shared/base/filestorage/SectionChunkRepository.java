@@ -0,0 +1,12 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import com.example.documentstorage.entities.SectionChunk;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface SectionChunkRepository extends JpaRepository<SectionChunk, Integer> {
+    List<SectionChunk> findByStorageLocationOrderByChunkIndexAsc(String storageLocation);
+}
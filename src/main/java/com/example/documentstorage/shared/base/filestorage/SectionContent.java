@@ -0,0 +1,37 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.io.Closeable;
+import java.io.IOException;
+import java.nio.channels.WritableByteChannel;
+import java.util.Optional;
+
+/**
+ * Readable content of a stored section. The content is not loaded in memory, it is transferred directly to the
+ * target channel. The content must be closed after it has been transferred.
+ */
+public interface SectionContent extends Closeable {
+    /**
+     * Gets the size of the content
+     *
+     * @return the size of the content in bytes
+     */
+    long size();
+
+    /**
+     * Transfers the bytes of the content, starting from the given position, to the target channel
+     *
+     * @param position the position in the content from which the transfer starts
+     * @param count    the number of bytes to be transferred
+     * @param target   the channel to which the bytes are written
+     * @return the number of transferred bytes
+     * @throws IOException when the content can not be read or the target can not be written
+     */
+    long transferTo(long position, long count, WritableByteChannel target) throws IOException;
+
+    /**
+     * Gets the region of the file backing the content. Used for zero copy transfers by the servlet container.
+     *
+     * @return the file region, or empty if the content is not backed by a plain file region
+     */
+    Optional<FileRegion> fileRegion();
+}
@@ -0,0 +1,10 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+/**
+ * The bytes of a segment file that are still referenced by packed sections
+ *
+ * @param segment   the name of the segment file
+ * @param liveBytes the number of referenced bytes
+ */
+public record SegmentUsage(String segment, long liveBytes) {
+}
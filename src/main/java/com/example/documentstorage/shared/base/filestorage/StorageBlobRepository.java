@@ -0,0 +1,37 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import com.example.documentstorage.entities.StorageBlob;
+import jakarta.persistence.LockModeType;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Lock;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.Collection;
+import java.util.List;
+import java.util.Optional;
+
+@Repository
+public interface StorageBlobRepository extends JpaRepository<StorageBlob, String> {
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StorageBlob b WHERE b.hash = :hash")
+    Optional<StorageBlob> findByHashForUpdate(@Param("hash") String hash);
+
+    /**
+     * Finds the blobs and locks them in the order of their hashes, so that concurrent uploads sharing some of the
+     * blobs do not deadlock
+     */
+    @Lock(LockModeType.PESSIMISTIC_WRITE)
+    @Query("SELECT b FROM StorageBlob b WHERE b.hash IN :hashes ORDER BY b.hash ASC")
+    List<StorageBlob> findByHashInForUpdate(@Param("hashes") Collection<String> hashes);
+
+    @Query("""
+            SELECT b.hash FROM StorageBlob b
+            WHERE b.referenceCount <= 0 AND b.modifiedAt < :expirationTime
+            ORDER BY b.modifiedAt ASC
+            LIMIT 1000
+            """)
+    List<String> findFirstUnreferenced(@Param("expirationTime") LocalDateTime expirationTime);
+}
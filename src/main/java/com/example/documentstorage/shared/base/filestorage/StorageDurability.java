@@ -0,0 +1,24 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import java.io.IOException;
+import java.nio.file.Path;
+
+public interface StorageDurability {
+    /**
+     * Syncs the content of the file and its directory entry to the disk, as configured by the
+     * {@link DurabilityMode}. Returns once the file is durable.
+     *
+     * @param filePath the path of the written file
+     * @throws IOException when the file or its directory can not be synced
+     */
+    void syncFile(Path filePath) throws IOException;
+
+    /**
+     * Syncs the entries of the directory to the disk, as configured by the {@link DurabilityMode}. Used after
+     * files or directories have been created in it or moved into it.
+     *
+     * @param directory the path of the directory
+     * @throws IOException when the directory can not be synced
+     */
+    void syncDirectory(Path directory) throws IOException;
+}
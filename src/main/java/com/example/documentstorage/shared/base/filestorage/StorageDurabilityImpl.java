@@ -0,0 +1,239 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+import jakarta.annotation.PreDestroy;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.channels.FileChannel;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.HashMap;
+import java.util.LinkedHashMap;
+import java.util.LinkedHashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Set;
+import java.util.concurrent.BlockingQueue;
+import java.util.concurrent.CancellationException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CompletionException;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.LinkedBlockingQueue;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Syncs stored files to the disk. In the GROUP mode, a single sync thread waits for the group window after the
+ * first request arrives, then syncs all the requested files followed by their directories, and releases the
+ * waiting writers. The files, and then the directories, of a group are synced in parallel on the group sync
+ * threads, so that the file system can merge their journal commits, and files appended concurrently, like
+ * segments, are synced once.
+ * Files are synced with {@link FileChannel#force(boolean)} without the metadata, which still writes the size of
+ * the file. Directories are synced by forcing a channel opened on the directory, which is supported on Linux.
+ */
+@Service
+public class StorageDurabilityImpl implements StorageDurability {
+    private static final Logger logger = LoggerFactory.getLogger(StorageDurabilityImpl.class);
+
+    private final DurabilityMode mode;
+    private final long groupWindowNanos;
+    private final BlockingQueue<SyncRequest> pendingRequests = new LinkedBlockingQueue<>();
+    private final Thread syncThread;
+    private final ExecutorService forceExecutor;
+
+    public StorageDurabilityImpl(@Value("${document.storage.durability.mode}") DurabilityMode mode,
+                                 @Value("${document.storage.durability.group.window}") Duration groupWindow,
+                                 @Value("${document.storage.durability.group.threads}") int groupThreads) {
+        this.mode = mode;
+        this.groupWindowNanos = groupWindow.toNanos();
+        if (mode == DurabilityMode.GROUP) {
+            this.forceExecutor = Executors.newFixedThreadPool(groupThreads, Thread.ofPlatform().name("storage-group-force-", 0).daemon().factory());
+            this.syncThread = Thread.ofPlatform().name("storage-group-sync").daemon().start(this::syncGroups);
+        } else {
+            this.forceExecutor = null;
+            this.syncThread = null;
+        }
+
+        logger.info("Storage durability mode '{}' with group window '{}'", mode, groupWindow);
+    }
+
+    /**
+     * Syncs the content of the file and its directory entry to the disk
+     *
+     * @param filePath the path of the written file
+     * @throws IOException when the file or its directory can not be synced
+     */
+    @Override
+    public void syncFile(Path filePath) throws IOException {
+        switch (mode) {
+            case NONE -> {
+            }
+            case FILE -> {
+                force(filePath, false);
+                force(filePath.getParent(), true);
+            }
+            case GROUP -> awaitGroupSync(new SyncRequest(filePath, false));
+        }
+    }
+
+    /**
+     * Syncs the entries of the directory to the disk
+     *
+     * @param directory the path of the directory
+     * @throws IOException when the directory can not be synced
+     */
+    @Override
+    public void syncDirectory(Path directory) throws IOException {
+        switch (mode) {
+            case NONE -> {
+            }
+            case FILE -> force(directory, true);
+            case GROUP -> awaitGroupSync(new SyncRequest(directory, true));
+        }
+    }
+
+    @PreDestroy
+    public void stop() {
+        if (syncThread != null) {
+            syncThread.interrupt();
+            forceExecutor.shutdownNow();
+        }
+    }
+
+    private void awaitGroupSync(SyncRequest request) throws IOException {
+        pendingRequests.add(request);
+        if (!syncThread.isAlive() && pendingRequests.remove(request)) {
+            throw new IOException("The group sync thread has been stopped");
+        }
+
+        try {
+            request.result().get();
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the sync of '%s'".formatted(request.path()));
+        } catch (ExecutionException e) {
+            if (e.getCause() instanceof IOException cause) {
+                throw cause;
+            }
+
+            throw new IOException(e.getCause());
+        }
+    }
+
+    private void syncGroups() {
+        try {
+            while (!Thread.currentThread().isInterrupted()) {
+                List<SyncRequest> group = new ArrayList<>();
+                group.add(pendingRequests.take());
+                long deadline = System.nanoTime() + groupWindowNanos;
+                long remainingNanos;
+                while ((remainingNanos = deadline - System.nanoTime()) > 0) {
+                    SyncRequest request = pendingRequests.poll(remainingNanos, TimeUnit.NANOSECONDS);
+                    if (request == null) {
+                        break;
+                    }
+
+                    group.add(request);
+                }
+
+                pendingRequests.drainTo(group);
+                syncGroup(group);
+            }
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+        } finally {
+            List<SyncRequest> abandoned = new ArrayList<>();
+            pendingRequests.drainTo(abandoned);
+            abandoned.forEach(request -> request.result().completeExceptionally(
+                    new IOException("The group sync thread has been stopped")));
+        }
+    }
+
+    /**
+     * Syncs every file of the group once, then every directory of the group once. A request completes when its
+     * file and its directory have been synced.
+     */
+    private void syncGroup(List<SyncRequest> group) {
+        Set<Path> files = new LinkedHashSet<>();
+        Set<Path> directories = new LinkedHashSet<>();
+        for (SyncRequest request : group) {
+            if (request.directory()) {
+                directories.add(request.path());
+            } else {
+                files.add(request.path());
+                directories.add(request.path().getParent());
+            }
+        }
+
+        Map<Path, IOException> fileResults = forceAll(files, false);
+        Map<Path, IOException> directoryResults = forceAll(directories, true);
+
+        for (SyncRequest request : group) {
+            IOException failure = request.directory()
+                    ? directoryResults.get(request.path())
+                    : firstNonNull(fileResults.get(request.path()), directoryResults.get(request.path().getParent()));
+            if (failure == null) {
+                request.result().complete(null);
+            } else {
+                request.result().completeExceptionally(failure);
+            }
+        }
+
+        logger.debug("Synced '{}' files and '{}' directories for '{}' requests", fileResults.size(), directoryResults.size(), group.size());
+    }
+
+    /**
+     * Syncs the paths in parallel and waits for all of them
+     *
+     * @return the failure of each path, or null when it has been synced
+     */
+    private Map<Path, IOException> forceAll(Set<Path> paths, boolean directory) {
+        Map<Path, CompletableFuture<IOException>> forces = new LinkedHashMap<>();
+        for (Path path : paths) {
+            forces.put(path, CompletableFuture.supplyAsync(() -> tryForce(path, directory), forceExecutor));
+        }
+
+        Map<Path, IOException> results = new HashMap<>();
+        forces.forEach((path, force) -> {
+            try {
+                results.put(path, force.join());
+            } catch (CompletionException | CancellationException e) {
+                results.put(path, new IOException("Unable to sync '%s'".formatted(path), e));
+            }
+        });
+        return results;
+    }
+
+    private static IOException tryForce(Path path, boolean directory) {
+        try {
+            force(path, directory);
+            return null;
+        } catch (IOException e) {
+            logger.error("Unable to sync '{}' to the disk", path);
+            return e;
+        }
+    }
+
+    private static void force(Path path, boolean directory) throws IOException {
+        try (FileChannel channel = FileChannel.open(path, StandardOpenOption.READ)) {
+            channel.force(directory);
+        }
+    }
+
+    private static IOException firstNonNull(IOException first, IOException second) {
+        return first != null ? first : second;
+    }
+
+    private record SyncRequest(Path path, boolean directory, CompletableFuture<Void> result) {
+        private SyncRequest(Path path, boolean directory) {
+            this(path, directory, new CompletableFuture<>());
+        }
+    }
+}
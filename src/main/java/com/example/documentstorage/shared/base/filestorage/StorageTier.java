@@ -0,0 +1,41 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+/**
+ * The storage tier in which a section file is kept. Frequently downloaded sections are kept in the hot tier,
+ * sections that have not been downloaded for a long time are moved to the cheaper cold tier. The tier is part of
+ * the storage location, e.g. {@code cold/invoice_01HXZ5T3K8M2Q9V7R4C6N0B1PD.pdf}.
+ */
+public enum StorageTier {
+    HOT(""),
+    COLD("cold/");
+
+    private final String locationPrefix;
+
+    StorageTier(String locationPrefix) {
+        this.locationPrefix = locationPrefix;
+    }
+
+    public String getLocationPrefix() {
+        return locationPrefix;
+    }
+
+    /**
+     * Builds the storage location of a file stored in this tier
+     *
+     * @param systemFileName the system file name
+     * @return the storage location
+     */
+    public String toLocation(String systemFileName) {
+        return locationPrefix + systemFileName;
+    }
+
+    /**
+     * Gets the tier of a storage location
+     *
+     * @param storageLocation the storage location
+     * @return the tier in which the file is stored
+     */
+    public static StorageTier of(String storageLocation) {
+        return storageLocation.startsWith(COLD.locationPrefix) ? COLD : HOT;
+    }
+}
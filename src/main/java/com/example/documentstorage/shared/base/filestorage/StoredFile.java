@@ -0,0 +1,12 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+/**
+ * Information about a section file that has been stored
+ *
+ * @param storageLocation the location where the file has been stored, which the section must reference
+ * @param size            the number of bytes of the section content, before it has been encoded
+ * @param checksum        the hex encoded SHA-256 checksum of the section content, before it has been encoded
+ * @param encoding        the encoding in which the content has been stored
+ */
+public record StoredFile(String storageLocation, long size, String checksum, ContentEncoding encoding) {
+}
@@ -12,11 +12,17 @@ import java.util.UUID;
 
 @Repository
 public interface TransactionActionRecordRepository extends JpaRepository<TransactionActionRecord, UUID> {
+    /**
+     * Finds the top level transaction actions that have not been processed and have not been modified since
+     * the expiration time. Child actions are processed with their parent.
+     */
     @Query("""
             SELECT t FROM TransactionActionRecord t
-            WHERE t.processed = false AND t.createdAt < :expirationTime
-            ORDER BY t.createdAt ASC
+            WHERE t.processed = false AND t.parentRecord IS NULL AND t.modifiedAt < :expirationTime
+            ORDER BY t.modifiedAt ASC
             LIMIT 1000
             """)
     List<TransactionActionRecord> findFirstNotProcessed(@Param("expirationTime") LocalDateTime expirationTime);
+
+    List<TransactionActionRecord> findByParentRecordAndProcessedFalse(TransactionActionRecord parentRecord);
 }
@@ -0,0 +1,15 @@
+package com.example.documentstorage.shared.base.filestorage;
+
+/**
+ * The protocol used to keep a single section upload and its stored file consistent.
+ * SAGA records a CREATE transaction action before the file is stored, in its own transaction, and commits it with
+ * the section. Files of uploads that never commit are removed by the processing of the uncommitted actions.
+ * STAGING stores the file in the staging directory without any transaction action, adds the section in a single
+ * transaction and moves the file to its storage location once that transaction commits. Staged files left behind
+ * by a crash are published or removed by the {@code StagedUploadSweeper}, depending on whether a section
+ * references them. Falls back to SAGA when the file storage does not support staging.
+ */
+public enum UploadProtocol {
+    SAGA,
+    STAGING
+}
@@ -0,0 +1,88 @@
+package com.example.documentstorage.shared.base.filestorage.cache;
+
+/**
+ * A count-min sketch that estimates the access frequency of keys, used by the cache admission policy.
+ * Each key is counted in four rows of 4-bit saturating counters and the estimate is the minimum of the four
+ * counters. When the number of recorded accesses reaches the sample size, all counters are halved, so that
+ * the sketch forgets old accesses and adapts to changes in popularity.
+ * The sketch is not thread safe.
+ */
+public class FrequencySketch {
+    private static final int ROWS = 4;
+    private static final int MAX_COUNT = 15;
+    private static final int SAMPLE_SIZE_MULTIPLIER = 10;
+    private static final int[] SEEDS = {0x97cb3127, 0x0ba18b1d, 0x2f3ad1b3, 0x9e3779b9};
+
+    private final byte[][] table;
+    private final int mask;
+    private final int sampleSize;
+    private int additions;
+
+    /**
+     * @param expectedEntries the expected number of distinct keys that are frequently accessed
+     */
+    public FrequencySketch(int expectedEntries) {
+        int width = Integer.highestOneBit(Math.max(expectedEntries, 16) - 1) << 1;
+        this.table = new byte[ROWS][width];
+        this.mask = width - 1;
+        this.sampleSize = width * SAMPLE_SIZE_MULTIPLIER;
+    }
+
+    /**
+     * Records an access of the key
+     *
+     * @param key the accessed key
+     */
+    public void increment(Object key) {
+        int hash = spread(key.hashCode());
+        boolean added = false;
+        for (int row = 0; row < ROWS; row++) {
+            int index = indexOf(hash, row);
+            if (table[row][index] < MAX_COUNT) {
+                table[row][index]++;
+                added = true;
+            }
+        }
+
+        if (added && ++additions >= sampleSize) {
+            reset();
+        }
+    }
+
+    /**
+     * Estimates how many times the key has been accessed recently
+     *
+     * @param key the key
+     * @return the estimated frequency, between 0 and 15
+     */
+    public int frequency(Object key) {
+        int hash = spread(key.hashCode());
+        int frequency = MAX_COUNT;
+        for (int row = 0; row < ROWS; row++) {
+            frequency = Math.min(frequency, table[row][indexOf(hash, row)]);
+        }
+
+        return frequency;
+    }
+
+    private void reset() {
+        for (byte[] row : table) {
+            for (int i = 0; i < row.length; i++) {
+                row[i] = (byte) (row[i] >>> 1);
+            }
+        }
+
+        additions /= 2;
+    }
+
+    private int indexOf(int hash, int row) {
+        int h = (hash ^ SEEDS[row]) * SEEDS[(row + 1) % ROWS];
+        h ^= h >>> 16;
+        return h & mask;
+    }
+
+    private static int spread(int hash) {
+        int h = hash * 0x9e3779b9;
+        return h ^ (h >>> 15);
+    }
+}
@@ -0,0 +1,38 @@
+package com.example.documentstorage.shared.base.filestorage.cache;
+
+import java.util.Optional;
+
+public interface SectionCache {
+    /**
+     * Gets the cached content of a section file and records the access
+     *
+     * @param systemFileName the system file name
+     * @return the cached content, or empty if the section file is not cached
+     */
+    Optional<byte[]> get(String systemFileName);
+
+    /**
+     * Checks if a section file of the given size would be admitted in the cache. Used to avoid reading in memory
+     * files that would not be cached anyway.
+     *
+     * @param systemFileName the system file name
+     * @param size           the size of the section file in bytes
+     * @return true if the section file would be admitted
+     */
+    boolean admits(String systemFileName, long size);
+
+    /**
+     * Offers the content of a section file to the cache. The content may be rejected by the admission policy.
+     *
+     * @param systemFileName the system file name
+     * @param content        the content of the section file
+     */
+    void put(String systemFileName, byte[] content);
+
+    /**
+     * Removes the section file from the cache
+     *
+     * @param systemFileName the system file name
+     */
+    void invalidate(String systemFileName);
+}
@@ -0,0 +1,266 @@
+package com.example.documentstorage.shared.base.filestorage.cache;
+
+import io.micrometer.core.instrument.FunctionCounter;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.util.ArrayList;
+import java.util.Iterator;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * A size bounded cache for the content of section files, using the W-TinyLFU policy.
+ * New entries are placed in a small LRU admission window. Entries evicted from the window are admitted in the
+ * main space only if they have been accessed more frequently than the entries they would evict, as estimated by
+ * a {@link FrequencySketch}. The main space is a segmented LRU, where entries accessed again while on probation
+ * are moved to the protected segment. This keeps frequently downloaded sections in memory, while files that are
+ * downloaded once can not flush them out.
+ */
+@Service
+public class SectionCacheImpl implements SectionCache {
+    private static final Logger logger = LoggerFactory.getLogger(SectionCacheImpl.class);
+    private static final double WINDOW_RATIO = 0.01;
+    private static final double PROTECTED_RATIO = 0.8;
+    private static final long ESTIMATED_ENTRY_SIZE = 8 * 1024;
+
+    private final boolean enabled;
+    private final long maxBytes;
+    private final long maxEntryBytes;
+    private final long windowMaxBytes;
+    private final long mainMaxBytes;
+    private final long protectedMaxBytes;
+    private final FrequencySketch sketch;
+
+    // Insertion ordered maps, where the first entry is the least recently used
+    private final LinkedHashMap<String, byte[]> window = new LinkedHashMap<>();
+    private final LinkedHashMap<String, byte[]> probation = new LinkedHashMap<>();
+    private final LinkedHashMap<String, byte[]> protectedSegment = new LinkedHashMap<>();
+    private long windowBytes;
+    private long probationBytes;
+    private long protectedBytes;
+
+    private final AtomicLong hitCount = new AtomicLong();
+    private final AtomicLong missCount = new AtomicLong();
+    private final AtomicLong evictionCount = new AtomicLong();
+
+    public SectionCacheImpl(
+            @Value("${document.storage.cache.enabled}") boolean enabled,
+            @Value("${document.storage.cache.max.size}") DataSize maxSize,
+            @Value("${document.storage.cache.max.entry.size}") DataSize maxEntrySize,
+            MeterRegistry meterRegistry) {
+        this.enabled = enabled;
+        this.maxBytes = maxSize.toBytes();
+        this.maxEntryBytes = maxEntrySize.toBytes();
+        this.windowMaxBytes = (long) (maxBytes * WINDOW_RATIO);
+        this.mainMaxBytes = maxBytes - windowMaxBytes;
+        this.protectedMaxBytes = (long) (mainMaxBytes * PROTECTED_RATIO);
+        int expectedEntries = (int) Math.min(Integer.MAX_VALUE / 2, Math.max(1, maxBytes / ESTIMATED_ENTRY_SIZE));
+        this.sketch = new FrequencySketch(expectedEntries);
+
+        registerMetrics(meterRegistry);
+        logger.info("Section cache enabled '{}' with max size '{}' and max entry size '{}'", enabled, maxSize, maxEntrySize);
+    }
+
+    /**
+     * Gets the cached content of a section file and records the access
+     *
+     * @param systemFileName the system file name
+     * @return the cached content, or empty if the section file is not cached
+     */
+    @Override
+    public synchronized Optional<byte[]> get(String systemFileName) {
+        if (!enabled) {
+            return Optional.empty();
+        }
+
+        sketch.increment(systemFileName);
+
+        byte[] content = window.remove(systemFileName);
+        if (content != null) {
+            window.put(systemFileName, content);
+            return hit(content);
+        }
+
+        content = probation.remove(systemFileName);
+        if (content != null) {
+            probationBytes -= content.length;
+            protectedSegment.put(systemFileName, content);
+            protectedBytes += content.length;
+            demoteProtectedOverflow();
+            return hit(content);
+        }
+
+        content = protectedSegment.remove(systemFileName);
+        if (content != null) {
+            protectedSegment.put(systemFileName, content);
+            return hit(content);
+        }
+
+        missCount.incrementAndGet();
+        return Optional.empty();
+    }
+
+    /**
+     * Checks if a section file of the given size would be admitted in the cache. Once the cache is full, a section
+     * file is read in memory only when it has been accessed before, so that files downloaded once are streamed
+     * from the disk.
+     *
+     * @param systemFileName the system file name
+     * @param size           the size of the section file in bytes
+     * @return true if the section file would be admitted
+     */
+    @Override
+    public synchronized boolean admits(String systemFileName, long size) {
+        if (!enabled || size > maxEntryBytes || size > mainMaxBytes) {
+            return false;
+        }
+
+        boolean hasFreeSpace = weightedSize() + size <= maxBytes;
+        return hasFreeSpace || sketch.frequency(systemFileName) > 1;
+    }
+
+    /**
+     * Offers the content of a section file to the cache. The content is placed in the admission window and
+     * competes for the main space once it leaves the window.
+     *
+     * @param systemFileName the system file name
+     * @param content        the content of the section file
+     */
+    @Override
+    public synchronized void put(String systemFileName, byte[] content) {
+        if (!enabled || content.length > maxEntryBytes || content.length > mainMaxBytes) {
+            return;
+        }
+
+        if (window.containsKey(systemFileName)
+                || probation.containsKey(systemFileName)
+                || protectedSegment.containsKey(systemFileName)) {
+            return;
+        }
+
+        window.put(systemFileName, content);
+        windowBytes += content.length;
+        evictWindowOverflow();
+    }
+
+    /**
+     * Removes the section file from the cache
+     *
+     * @param systemFileName the system file name
+     */
+    @Override
+    public synchronized void invalidate(String systemFileName) {
+        byte[] content = window.remove(systemFileName);
+        if (content != null) {
+            windowBytes -= content.length;
+        }
+
+        content = probation.remove(systemFileName);
+        if (content != null) {
+            probationBytes -= content.length;
+        }
+
+        content = protectedSegment.remove(systemFileName);
+        if (content != null) {
+            protectedBytes -= content.length;
+        }
+    }
+
+    private Optional<byte[]> hit(byte[] content) {
+        hitCount.incrementAndGet();
+        return Optional.of(content);
+    }
+
+    private void evictWindowOverflow() {
+        while (windowBytes > windowMaxBytes && !window.isEmpty()) {
+            Map.Entry<String, byte[]> candidate = window.pollFirstEntry();
+            windowBytes -= candidate.getValue().length;
+            admitToMain(candidate.getKey(), candidate.getValue());
+        }
+    }
+
+    /**
+     * Admits the candidate in the probation segment, if it is accessed more frequently than all the entries that
+     * must be evicted to make space for it. Otherwise, the candidate is evicted.
+     */
+    private void admitToMain(String candidateKey, byte[] candidate) {
+        long requiredBytes = probationBytes + protectedBytes + candidate.length - mainMaxBytes;
+        List<String> victims = new ArrayList<>();
+        if (requiredBytes > 0) {
+            int candidateFrequency = sketch.frequency(candidateKey);
+            Iterator<Map.Entry<String, byte[]>> iterator = victimIterator();
+            while (requiredBytes > 0 && iterator.hasNext()) {
+                Map.Entry<String, byte[]> victim = iterator.next();
+                if (sketch.frequency(victim.getKey()) >= candidateFrequency) {
+                    evictionCount.incrementAndGet();
+                    return;
+                }
+
+                victims.add(victim.getKey());
+                requiredBytes -= victim.getValue().length;
+            }
+        }
+
+        for (String victim : victims) {
+            invalidate(victim);
+            evictionCount.incrementAndGet();
+        }
+
+        probation.put(candidateKey, candidate);
+        probationBytes += candidate.length;
+    }
+
+    private Iterator<Map.Entry<String, byte[]>> victimIterator() {
+        List<Map.Entry<String, byte[]>> victims = new ArrayList<>(probation.size() + protectedSegment.size());
+        victims.addAll(probation.entrySet());
+        victims.addAll(protectedSegment.entrySet());
+        return victims.iterator();
+    }
+
+    private void demoteProtectedOverflow() {
+        while (protectedBytes > protectedMaxBytes && !protectedSegment.isEmpty()) {
+            Map.Entry<String, byte[]> demoted = protectedSegment.pollFirstEntry();
+            protectedBytes -= demoted.getValue().length;
+            probation.put(demoted.getKey(), demoted.getValue());
+            probationBytes += demoted.getValue().length;
+        }
+    }
+
+    private synchronized long weightedSize() {
+        return windowBytes + probationBytes + protectedBytes;
+    }
+
+    private synchronized int entryCount() {
+        return window.size() + probation.size() + protectedSegment.size();
+    }
+
+    private void registerMetrics(MeterRegistry meterRegistry) {
+        FunctionCounter.builder("document.storage.cache.gets", hitCount, AtomicLong::get)
+                .tag("result", "hit")
+                .description("Number of section downloads served from the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("document.storage.cache.gets", missCount, AtomicLong::get)
+                .tag("result", "miss")
+                .description("Number of section downloads not found in the cache")
+                .register(meterRegistry);
+        FunctionCounter.builder("document.storage.cache.evictions", evictionCount, AtomicLong::get)
+                .description("Number of section files evicted or rejected by the cache")
+                .register(meterRegistry);
+        Gauge.builder("document.storage.cache.size", this, SectionCacheImpl::weightedSize)
+                .baseUnit("bytes")
+                .description("Bytes of section content held in the cache")
+                .register(meterRegistry);
+        Gauge.builder("document.storage.cache.entries", this, SectionCacheImpl::entryCount)
+                .description("Number of section files held in the cache")
+                .register(meterRegistry);
+    }
+}
@@ -0,0 +1,9 @@
+package com.example.documentstorage.shared.base.filestorage.inline;
+
+import com.example.documentstorage.entities.InlineSectionContent;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface InlineContentRepository extends JpaRepository<InlineSectionContent, String> {
+}
@@ -0,0 +1,66 @@
+package com.example.documentstorage.shared.base.filestorage.inline;
+
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+
+public interface InlineSectionStore {
+    /**
+     * The prefix of the storage locations of the sections kept in the database
+     */
+    String LOCATION_PREFIX = "inline/";
+
+    /**
+     * Gets the maximum size of the sections kept in the database
+     *
+     * @return the maximum size in bytes, 0 when no section is kept in the database
+     */
+    int getMaxSize();
+
+    /**
+     * Checks if a section of the given size may be kept in the database
+     *
+     * @param contentLength the size of the section in bytes, or a negative number when it is not known in advance
+     * @return true if the size is not larger than the maximum size, or is not known
+     */
+    boolean admits(long contentLength);
+
+    /**
+     * Checks if the storage location is the location of a section kept in the database
+     *
+     * @param storageLocation the storage location
+     * @return true if the content is kept in the database
+     */
+    boolean isInline(String storageLocation);
+
+    /**
+     * Keeps the content in the database. Must be called in the transaction that adds the section.
+     *
+     * @param content the content of the section
+     * @return the storage location, the size and the checksum of the content
+     */
+    StoredFile store(byte[] content);
+
+    /**
+     * Reads the content kept in the database
+     *
+     * @param storageLocation the storage location of the section
+     * @return the content of the section
+     */
+    SectionContent open(String storageLocation);
+
+    /**
+     * Copies the content kept in the database under a new storage location. Must be called in the transaction that
+     * adds the copy.
+     *
+     * @param storageLocation the storage location of the copied section
+     * @return the storage location of the copy
+     */
+    String copy(String storageLocation);
+
+    /**
+     * Removes the content kept in the database. Must be called in the transaction that removes the section.
+     *
+     * @param storageLocation the storage location of the removed section
+     */
+    void remove(String storageLocation);
+}
@@ -0,0 +1,110 @@
+package com.example.documentstorage.shared.base.filestorage.inline;
+
+import com.example.documentstorage.entities.InlineSectionContent;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ByteArraySectionContent;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.SectionChecksums;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.ids.TimeOrderedIds;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.FileNotFoundException;
+
+/**
+ * Keeps tiny sections, like signatures and small sidecar files, in the database. Such a section is added with a
+ * single insert in the transaction that adds the section, without any transaction action, file or sync, and is
+ * removed in the transaction that removes the section, so its content can never be left behind. The content is
+ * stored as it is, as compressing a few hundred bytes saves nothing.
+ */
+@Service
+public class InlineSectionStoreImpl implements InlineSectionStore {
+    private static final Logger logger = LoggerFactory.getLogger(InlineSectionStoreImpl.class);
+
+    private final InlineContentRepository inlineContentRepository;
+    private final int maxSize;
+
+    public InlineSectionStoreImpl(InlineContentRepository inlineContentRepository,
+                                  @Value("${document.storage.inline.max.size}") DataSize maxSize) {
+        this.inlineContentRepository = inlineContentRepository;
+        this.maxSize = Math.toIntExact(maxSize.toBytes());
+    }
+
+    @Override
+    public int getMaxSize() {
+        return maxSize;
+    }
+
+    @Override
+    public boolean admits(long contentLength) {
+        return maxSize > 0 && contentLength <= maxSize;
+    }
+
+    @Override
+    public boolean isInline(String storageLocation) {
+        return storageLocation.startsWith(LOCATION_PREFIX);
+    }
+
+    /**
+     * Keeps the content in the database, under a new storage location
+     *
+     * @param content the content of the section
+     * @return the storage location, the size and the checksum of the content
+     */
+    @Override
+    public StoredFile store(byte[] content) {
+        InlineSectionContent inlineContent = new InlineSectionContent();
+        inlineContent.setStorageLocation(LOCATION_PREFIX + TimeOrderedIds.nextKey());
+        inlineContent.setContent(content);
+        inlineContentRepository.save(inlineContent);
+
+        String checksum = SectionChecksums.checksum(content);
+        logger.info("Stored inline content '{}' with size '{}'", inlineContent.getStorageLocation(), content.length);
+        return new StoredFile(inlineContent.getStorageLocation(), content.length, checksum, ContentEncoding.IDENTITY);
+    }
+
+    /**
+     * Reads the content kept in the database
+     *
+     * @param storageLocation the storage location of the section
+     * @return the content of the section
+     */
+    @Override
+    public SectionContent open(String storageLocation) {
+        InlineSectionContent inlineContent = inlineContentRepository.findById(storageLocation)
+                .orElseThrow(() -> {
+                    logger.error("Unable to find inline content '{}'", storageLocation);
+                    return new InvalidSystemStateException(new FileNotFoundException(storageLocation));
+                });
+
+        return new ByteArraySectionContent(inlineContent.getContent());
+    }
+
+    /**
+     * Copies the content kept in the database under a new storage location
+     *
+     * @param storageLocation the storage location of the copied section
+     * @return the storage location of the copy
+     */
+    @Override
+    public String copy(String storageLocation) {
+        InlineSectionContent inlineContent = inlineContentRepository.findById(storageLocation)
+                .orElseThrow(() -> {
+                    logger.error("Unable to copy inline content '{}'. The content does not exist", storageLocation);
+                    return new InvalidSystemStateException(new FileNotFoundException(storageLocation));
+                });
+
+        return store(inlineContent.getContent()).storageLocation();
+    }
+
+    @Override
+    public void remove(String storageLocation) {
+        inlineContentRepository.deleteById(storageLocation);
+        logger.info("Removed inline content '{}'", storageLocation);
+    }
+}
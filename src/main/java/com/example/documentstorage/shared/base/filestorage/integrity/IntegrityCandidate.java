@@ -0,0 +1,19 @@
+package com.example.documentstorage.shared.base.filestorage.integrity;
+
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+
+/**
+ * A section whose stored file is verified against its checksum
+ *
+ * @param id              the id of the section
+ * @param storageLocation the storage location of the section file
+ * @param checksum        the hex encoded SHA-256 checksum of the section content, before it has been encoded
+ * @param contentEncoding the encoding in which the content is stored
+ * @param fileSize        the size of the section content, before it has been encoded
+ */
+public record IntegrityCandidate(int id,
+                                 String storageLocation,
+                                 String checksum,
+                                 ContentEncoding contentEncoding,
+                                 long fileSize) {
+}
@@ -0,0 +1,9 @@
+package com.example.documentstorage.shared.base.filestorage.integrity;
+
+/**
+ * What triggered the verification of a stored file
+ */
+public enum IntegrityCheckSource {
+    DOWNLOAD,
+    SCRUB
+}
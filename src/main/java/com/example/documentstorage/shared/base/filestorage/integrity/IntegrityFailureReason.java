@@ -0,0 +1,12 @@
+package com.example.documentstorage.shared.base.filestorage.integrity;
+
+public enum IntegrityFailureReason {
+    /**
+     * The stored file can be read, but its content does not match the checksum of the section
+     */
+    CHECKSUM_MISMATCH,
+    /**
+     * The stored file is missing or can not be read or decoded
+     */
+    UNREADABLE
+}
@@ -0,0 +1,28 @@
+package com.example.documentstorage.shared.base.filestorage.integrity;
+
+import com.example.documentstorage.entities.Section;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface IntegritySectionRepository extends JpaRepository<Section, Integer> {
+    /**
+     * Finds the sections stored in files with a checksum, ordered by id and starting after the given id
+     */
+    @Query("""
+            SELECT new com.example.documentstorage.shared.base.filestorage.integrity.IntegrityCandidate(s.id, s.storageLocation, s.checksum, s.contentEncoding, s.fileSize)
+            FROM Section s
+            WHERE s.id > :lastId
+            AND s.checksum IS NOT NULL
+            AND s.storageLocation NOT LIKE 'inline/%'
+            ORDER BY s.id ASC
+            LIMIT 100
+            """)
+    List<IntegrityCandidate> findScrubCandidates(@Param("lastId") int lastId);
+
+    boolean existsByIdAndStorageLocation(int id, String storageLocation);
+}
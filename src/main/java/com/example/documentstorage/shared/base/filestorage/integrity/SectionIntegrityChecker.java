@@ -0,0 +1,25 @@
+package com.example.documentstorage.shared.base.filestorage.integrity;
+
+public interface SectionIntegrityChecker {
+    /**
+     * Verifies the stored file of the section against its checksum. The file is read from the disk, bypassing
+     * the section cache, and decoded. A failure is recorded and counted, unless the section has been removed or
+     * moved in the meantime.
+     *
+     * @param candidate the section to verify
+     * @param source    what triggered the verification
+     * @param throttle  limits the throughput of the read
+     * @return true if the stored file matches the checksum
+     */
+    boolean checkSection(IntegrityCandidate candidate, IntegrityCheckSource source, ThroughputThrottle throttle);
+
+    /**
+     * Verifies the stored file of the section before it is downloaded, when the verification on download is
+     * enabled. Sections without a checksum are not verified.
+     *
+     * @param candidate the downloaded section
+     * @throws com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException when the stored file
+     *                                                                                         does not match
+     */
+    void verifyDownload(IntegrityCandidate candidate);
+}
@@ -0,0 +1,166 @@
+package com.example.documentstorage.shared.base.filestorage.integrity;
+
+import com.example.documentstorage.entities.SectionIntegrityFailure;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.SectionChecksums;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.io.InterruptedIOException;
+import java.nio.ByteBuffer;
+import java.nio.channels.WritableByteChannel;
+import java.security.MessageDigest;
+import java.time.LocalDateTime;
+import java.util.HexFormat;
+
+/**
+ * Recomputes the checksum of stored section files. The content is read in small slices, so that a throttled read
+ * never bursts a large file past its budget. Results are counted in the {@code document.storage.integrity.checks}
+ * metric, tagged with the source and the result, and failures are recorded for the integrity report.
+ */
+@Component
+public class SectionIntegrityCheckerImpl implements SectionIntegrityChecker {
+    private static final Logger logger = LoggerFactory.getLogger(SectionIntegrityCheckerImpl.class);
+    private static final int SLICE_SIZE = 64 * 1024;
+    private static final String CHECKS_METRIC = "document.storage.integrity.checks";
+    private static final String VERIFIED_BYTES_METRIC = "document.storage.integrity.verified.bytes";
+
+    private final FileStorage fileStorage;
+    private final IntegritySectionRepository sectionRepository;
+    private final SectionIntegrityFailureRepository failureRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final MeterRegistry meterRegistry;
+    private final boolean verifyOnDownload;
+
+    public SectionIntegrityCheckerImpl(FileStorage fileStorage,
+                                       IntegritySectionRepository sectionRepository,
+                                       SectionIntegrityFailureRepository failureRepository,
+                                       TransactionTemplate transactionTemplate,
+                                       MeterRegistry meterRegistry,
+                                       @Value("${document.storage.download.verify.checksum}") boolean verifyOnDownload) {
+        this.fileStorage = fileStorage;
+        this.sectionRepository = sectionRepository;
+        this.failureRepository = failureRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.meterRegistry = meterRegistry;
+        this.verifyOnDownload = verifyOnDownload;
+    }
+
+    @Override
+    public boolean checkSection(IntegrityCandidate candidate, IntegrityCheckSource source, ThroughputThrottle throttle) {
+        String actualChecksum;
+        boolean sizeMatches;
+        try (SectionContent content = candidate.contentEncoding()
+                .decode(fileStorage.openStoredSection(candidate.storageLocation()), candidate.fileSize())) {
+            actualChecksum = computeChecksum(content, candidate.fileSize(), throttle);
+            // Bytes appended to a file stored as it is are not read, they are only found by its size
+            sizeMatches = content.size() == candidate.fileSize();
+        } catch (InterruptedIOException e) {
+            throw new InvalidSystemStateException(e);
+        } catch (IOException | InvalidSystemStateException e) {
+            logger.warn("Unable to read stored section '{}' for verification", candidate.storageLocation());
+            return recordFailure(candidate, source, IntegrityFailureReason.UNREADABLE, null);
+        }
+
+        if (!sizeMatches || !actualChecksum.equals(candidate.checksum())) {
+            return recordFailure(candidate, source, IntegrityFailureReason.CHECKSUM_MISMATCH, actualChecksum);
+        }
+
+        meterRegistry.counter(CHECKS_METRIC, "source", source.name(), "result", "VERIFIED").increment();
+        meterRegistry.counter(VERIFIED_BYTES_METRIC, "source", source.name()).increment(candidate.fileSize());
+        return true;
+    }
+
+    @Override
+    public void verifyDownload(IntegrityCandidate candidate) {
+        if (!verifyOnDownload || candidate.checksum() == null) {
+            return;
+        }
+
+        if (!checkSection(candidate, IntegrityCheckSource.DOWNLOAD, ThroughputThrottle.unlimited())) {
+            throw new InvalidSystemStateException(new IOException(
+                    "Stored section '%s' does not match its checksum".formatted(candidate.storageLocation())));
+        }
+    }
+
+    /**
+     * Records the failure, if the section still points to the verified file. A file removed or moved while it was
+     * read is not a failure.
+     *
+     * @return false, when the failure has been recorded. True, when the section has changed in the meantime
+     */
+    private boolean recordFailure(IntegrityCandidate candidate,
+                                  IntegrityCheckSource source,
+                                  IntegrityFailureReason reason,
+                                  String actualChecksum) {
+        Boolean recorded = transactionTemplate.execute(status -> {
+            if (!sectionRepository.existsByIdAndStorageLocation(candidate.id(), candidate.storageLocation())) {
+                return false;
+            }
+
+            SectionIntegrityFailure failure = failureRepository
+                    .findBySectionIdAndStorageLocation(candidate.id(), candidate.storageLocation())
+                    .orElseGet(SectionIntegrityFailure::new);
+            failure.setSectionId(candidate.id());
+            failure.setStorageLocation(candidate.storageLocation());
+            failure.setExpectedChecksum(candidate.checksum());
+            failure.setActualChecksum(actualChecksum);
+            failure.setReason(reason);
+            failure.setDetectedBy(source);
+            failure.setDetectedAt(LocalDateTime.now());
+            failureRepository.save(failure);
+            return true;
+        });
+
+        if (!Boolean.TRUE.equals(recorded)) {
+            logger.info("Section '{}' changed while it was verified", candidate.id());
+            return true;
+        }
+
+        meterRegistry.counter(CHECKS_METRIC, "source", source.name(), "result", reason.name()).increment();
+        logger.error("Stored section '{}' of section '{}' failed the verification with '{}'", candidate.storageLocation(), candidate.id(), reason);
+        return false;
+    }
+
+    private static String computeChecksum(SectionContent content, long size, ThroughputThrottle throttle) throws IOException {
+        MessageDigest digest = SectionChecksums.createDigest();
+        WritableByteChannel target = new WritableByteChannel() {
+            @Override
+            public int write(ByteBuffer source) {
+                int remaining = source.remaining();
+                digest.update(source);
+                return remaining;
+            }
+
+            @Override
+            public boolean isOpen() {
+                return true;
+            }
+
+            @Override
+            public void close() {
+                // Nothing to release
+            }
+        };
+
+        long position = 0;
+        while (position < size) {
+            long transferred = content.transferTo(position, Math.min(SLICE_SIZE, size - position), target);
+            if (transferred <= 0) {
+                break;
+            }
+
+            position += transferred;
+            throttle.acquire(transferred);
+        }
+
+        return HexFormat.of().formatHex(digest.digest());
+    }
+}
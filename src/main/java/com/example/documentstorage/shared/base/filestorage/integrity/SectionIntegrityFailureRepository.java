@@ -0,0 +1,12 @@
+package com.example.documentstorage.shared.base.filestorage.integrity;
+
+import com.example.documentstorage.entities.SectionIntegrityFailure;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface SectionIntegrityFailureRepository extends JpaRepository<SectionIntegrityFailure, Long> {
+    Optional<SectionIntegrityFailure> findBySectionIdAndStorageLocation(int sectionId, String storageLocation);
+}
@@ -0,0 +1,71 @@
+package com.example.documentstorage.shared.base.filestorage.integrity;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.Duration;
+import java.util.List;
+
+/**
+ * Verifies all stored section files against their checksums in the background, to find damaged files before they
+ * are downloaded. The reads are throttled to the configured number of bytes per second, so that the scrubber never
+ * competes with the downloads for the disk. A run stops after the configured duration and the next run continues
+ * after the last verified section, starting over once all the sections have been verified.
+ */
+@Component
+public class SectionIntegrityScrubber {
+    private static final Logger logger = LoggerFactory.getLogger(SectionIntegrityScrubber.class);
+
+    private final IntegritySectionRepository sectionRepository;
+    private final SectionIntegrityChecker sectionIntegrityChecker;
+    private final long bytesPerSecond;
+    private final Duration maxDuration;
+    private int lastScrubbedId;
+
+    public SectionIntegrityScrubber(IntegritySectionRepository sectionRepository,
+                                    SectionIntegrityChecker sectionIntegrityChecker,
+                                    @Value("${document.storage.scrub.bytes.per.second}") long bytesPerSecond,
+                                    @Value("${document.storage.scrub.max.duration}") Duration maxDuration) {
+        this.sectionRepository = sectionRepository;
+        this.sectionIntegrityChecker = sectionIntegrityChecker;
+        this.bytesPerSecond = bytesPerSecond;
+        this.maxDuration = maxDuration;
+    }
+
+    /**
+     * Verifies the sections after the last verified one, until all the sections have been verified or the run
+     * has taken the maximum duration
+     */
+    @Scheduled(cron = "${document.storage.scrub.cron}")
+    public synchronized void scrubSections() {
+        long deadline = System.nanoTime() + maxDuration.toNanos();
+        ThroughputThrottle throttle = new ThroughputThrottle(bytesPerSecond);
+        int verifiedSections = 0;
+        int failedSections = 0;
+
+        List<IntegrityCandidate> candidates = sectionRepository.findScrubCandidates(lastScrubbedId);
+        while (!candidates.isEmpty()) {
+            for (IntegrityCandidate candidate : candidates) {
+                if (System.nanoTime() - deadline > 0) {
+                    logger.info("Paused scrubbing after section '{}', verified '{}' sections and found '{}' failures", lastScrubbedId, verifiedSections, failedSections);
+                    return;
+                }
+
+                if (!sectionIntegrityChecker.checkSection(candidate, IntegrityCheckSource.SCRUB, throttle)) {
+                    failedSections++;
+                }
+
+                verifiedSections++;
+                lastScrubbedId = candidate.id();
+            }
+
+            candidates = sectionRepository.findScrubCandidates(lastScrubbedId);
+        }
+
+        lastScrubbedId = 0;
+        logger.info("Finished scrubbing, verified '{}' sections and found '{}' failures", verifiedSections, failedSections);
+    }
+}
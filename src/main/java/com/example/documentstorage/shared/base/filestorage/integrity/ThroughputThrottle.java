@@ -0,0 +1,64 @@
+package com.example.documentstorage.shared.base.filestorage.integrity;
+
+import java.io.InterruptedIOException;
+import java.util.concurrent.TimeUnit;
+
+/**
+ * Limits the throughput of a sequence of reads to a number of bytes per second, by sleeping the reading thread
+ * whenever it gets ahead of its budget. Budget left unused while the reader is idle is kept for at most one second,
+ * so the reads never burst far above the limit. Not thread safe, every reader has its own throttle.
+ */
+public class ThroughputThrottle {
+    private static final long NANOS_PER_SECOND = TimeUnit.SECONDS.toNanos(1);
+
+    private final long bytesPerSecond;
+    private long startNanos;
+    private long acquiredBytes;
+
+    /**
+     * @param bytesPerSecond the maximum throughput, or zero or less for no limit
+     */
+    public ThroughputThrottle(long bytesPerSecond) {
+        this.bytesPerSecond = bytesPerSecond;
+        this.startNanos = System.nanoTime();
+    }
+
+    public static ThroughputThrottle unlimited() {
+        return new ThroughputThrottle(0);
+    }
+
+    /**
+     * Accounts for the read bytes and waits until they fit into the budget
+     *
+     * @param bytes the number of read bytes
+     * @throws InterruptedIOException when the thread is interrupted while waiting
+     */
+    public void acquire(long bytes) throws InterruptedIOException {
+        if (bytesPerSecond <= 0) {
+            return;
+        }
+
+        long now = System.nanoTime();
+        if (now - dueNanos() > NANOS_PER_SECOND) {
+            startNanos = now - NANOS_PER_SECOND;
+            acquiredBytes = 0;
+        }
+
+        acquiredBytes += bytes;
+        long waitNanos = dueNanos() - now;
+        if (waitNanos <= 0) {
+            return;
+        }
+
+        try {
+            TimeUnit.NANOSECONDS.sleep(waitNanos);
+        } catch (InterruptedException e) {
+            Thread.currentThread().interrupt();
+            throw new InterruptedIOException("Interrupted while waiting for the throughput budget");
+        }
+    }
+
+    private long dueNanos() {
+        return startNanos + (long) (acquiredBytes * (double) NANOS_PER_SECOND / bytesPerSecond);
+    }
+}
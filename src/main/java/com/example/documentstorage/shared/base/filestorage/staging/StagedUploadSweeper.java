@@ -0,0 +1,82 @@
+package com.example.documentstorage.shared.base.filestorage.staging;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.UploadProtocol;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+/**
+ * Recovers the sections uploaded with the {@link UploadProtocol#STAGING} protocol, in place of the processing of
+ * the transaction actions. A staged file that is still in the staging directory after the expiration time belongs
+ * either to an upload whose transaction never committed, or to a committed section whose file was not published
+ * because the application stopped in between. The file is published when a section references its storage
+ * location, and removed otherwise, so that no file is left without a section and no section without a file.
+ * Runs on the schedule of the transaction actions, as staged files expire after the same time.
+ */
+@Component
+public class StagedUploadSweeper {
+    private static final Logger logger = LoggerFactory.getLogger(StagedUploadSweeper.class);
+
+    private final StagingSectionRepository sectionRepository;
+    private final FileStorage fileStorage;
+    private final int expirationInHours;
+
+    public StagedUploadSweeper(StagingSectionRepository sectionRepository,
+                               FileStorage fileStorage,
+                               @Value("${document.storage.process.transactions.expiration.in.hours}") int expirationInHours) {
+        this.sectionRepository = sectionRepository;
+        this.fileStorage = fileStorage;
+        this.expirationInHours = expirationInHours;
+    }
+
+    /**
+     * Publishes or removes the staged files that have expired. Staged files are also swept after switching back
+     * to the SAGA protocol, so uploads staged before the switch are recovered.
+     */
+    @Scheduled(cron = "${document.storage.process.transactions.cron}")
+    public synchronized void sweepStagedUploads() {
+        if (!fileStorage.supportsStaging()) {
+            return;
+        }
+
+        LocalDateTime expirationTime = LocalDateTime.now().minusHours(expirationInHours);
+        List<String> stagedFiles = fileStorage.findStagedSections(expirationTime);
+        int publishedFiles = 0;
+        for (String systemFileName : stagedFiles) {
+            try {
+                if (sweepStagedUpload(systemFileName)) {
+                    publishedFiles++;
+                }
+            } catch (InvalidSystemStateException e) {
+                logger.error("Unable to sweep staged file '{}'", systemFileName, e);
+            }
+        }
+
+        if (!stagedFiles.isEmpty()) {
+            logger.info("Published '{}' and removed '{}' expired staged files", publishedFiles, stagedFiles.size() - publishedFiles);
+        }
+    }
+
+    /**
+     * Publishes the staged file when a section references it, or removes it otherwise
+     *
+     * @param systemFileName the system file name of the staged file
+     * @return true if the file has been published
+     */
+    boolean sweepStagedUpload(String systemFileName) {
+        if (sectionRepository.existsByStorageLocation(systemFileName)) {
+            fileStorage.publishStagedSection(systemFileName);
+            return true;
+        }
+
+        fileStorage.discardStagedSection(systemFileName);
+        return false;
+    }
+}
@@ -0,0 +1,10 @@
+package com.example.documentstorage.shared.base.filestorage.staging;
+
+import com.example.documentstorage.entities.Section;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.stereotype.Repository;
+
+@Repository
+public interface StagingSectionRepository extends JpaRepository<Section, Integer> {
+    boolean existsByStorageLocation(String storageLocation);
+}
@@ -0,0 +1,15 @@
+package com.example.documentstorage.shared.base.filestorage.tiering;
+
+public interface SectionAccessTracker {
+    /**
+     * Records a download of the section. The access is kept in memory until the next flush.
+     *
+     * @param sectionId the id of the downloaded section
+     */
+    void recordAccess(int sectionId);
+
+    /**
+     * Writes the recorded accesses to the access statistics of the sections
+     */
+    void flush();
+}
@@ -0,0 +1,76 @@
+package com.example.documentstorage.shared.base.filestorage.tiering;
+
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.dao.DataAccessException;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Service;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.Map;
+import java.util.concurrent.ConcurrentHashMap;
+
+/**
+ * Counts the downloads of the sections in memory and writes them to the database in batches, so that a download
+ * does not need a write transaction. Accesses recorded since the last flush are lost when the application stops,
+ * which only delays the tiering decisions.
+ */
+@Service
+public class SectionAccessTrackerImpl implements SectionAccessTracker {
+    private static final Logger logger = LoggerFactory.getLogger(SectionAccessTrackerImpl.class);
+
+    private final TieringSectionRepository sectionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final Map<Integer, SectionAccess> pendingAccesses = new ConcurrentHashMap<>();
+
+    public SectionAccessTrackerImpl(TieringSectionRepository sectionRepository,
+                                    TransactionTemplate transactionTemplate) {
+        this.sectionRepository = sectionRepository;
+        this.transactionTemplate = transactionTemplate;
+    }
+
+    /**
+     * Records a download of the section
+     *
+     * @param sectionId the id of the downloaded section
+     */
+    @Override
+    public void recordAccess(int sectionId) {
+        pendingAccesses.merge(sectionId, new SectionAccess(1, LocalDateTime.now()), SectionAccess::merge);
+    }
+
+    /**
+     * Writes the accesses recorded since the last flush in one transaction
+     */
+    @Override
+    @Scheduled(cron = "${document.storage.tiering.access.flush.cron}")
+    public void flush() {
+        List<Integer> sectionIds = List.copyOf(pendingAccesses.keySet());
+        if (sectionIds.isEmpty()) {
+            return;
+        }
+
+        try {
+            transactionTemplate.executeWithoutResult(status -> {
+                for (Integer sectionId : sectionIds) {
+                    SectionAccess access = pendingAccesses.remove(sectionId);
+                    if (access != null) {
+                        sectionRepository.recordAccess(sectionId, access.count(), access.lastAccessedAt());
+                    }
+                }
+            });
+            logger.info("Recorded the accesses of '{}' sections", sectionIds.size());
+        } catch (DataAccessException e) {
+            logger.error("Unable to record the accesses of '{}' sections", sectionIds.size(), e);
+        }
+    }
+
+    private record SectionAccess(long count, LocalDateTime lastAccessedAt) {
+        private SectionAccess merge(SectionAccess other) {
+            LocalDateTime lastAccess = lastAccessedAt.isAfter(other.lastAccessedAt) ? lastAccessedAt : other.lastAccessedAt;
+            return new SectionAccess(count + other.count, lastAccess);
+        }
+    }
+}
@@ -0,0 +1,182 @@
+package com.example.documentstorage.shared.base.filestorage.tiering;
+
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ActionType;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.StorageTier;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.function.IntFunction;
+
+/**
+ * Moves the sections that have not been downloaded for a long time to the cold tier, and the sections in the cold
+ * tier that have been downloaded again back to the hot tier.
+ * A move is covered by the transaction actions like an upload followed by a removal. A CREATE action for the copy
+ * and a child DELETE action for the source file are recorded before the copy is made. Both are committed in the
+ * transaction that points the section to the copy. When the move fails or the application stops before the commit,
+ * the copy is removed and the source file is kept. Otherwise, the source file is removed once the actions expire,
+ * so downloads that opened the section before the move still find the source file.
+ */
+@Component
+public class StorageTieringProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(StorageTieringProcessor.class);
+
+    private final TieringSectionRepository sectionRepository;
+    private final TransactionActionRecordRepository transactionActionRepository;
+    private final TransactionTemplate transactionTemplate;
+    private final FileStorage fileStorage;
+    private final String coldPath;
+    private final int demoteAfterDays;
+    private final int promoteWithinHours;
+
+    public StorageTieringProcessor(TieringSectionRepository sectionRepository,
+                                   TransactionActionRecordRepository transactionActionRepository,
+                                   TransactionTemplate transactionTemplate,
+                                   FileStorage fileStorage,
+                                   @Value("${document.storage.cold.path}") String coldPath,
+                                   @Value("${document.storage.tiering.demote.after.days}") int demoteAfterDays,
+                                   @Value("${document.storage.tiering.promote.within.hours}") int promoteWithinHours) {
+        this.sectionRepository = sectionRepository;
+        this.transactionActionRepository = transactionActionRepository;
+        this.transactionTemplate = transactionTemplate;
+        this.fileStorage = fileStorage;
+        this.coldPath = coldPath;
+        this.demoteAfterDays = demoteAfterDays;
+        this.promoteWithinHours = promoteWithinHours;
+    }
+
+    /**
+     * Demotes the sections that have not been accessed for the demotion time and promotes the sections in the
+     * cold tier that have been accessed within the promotion time
+     */
+    @Scheduled(cron = "${document.storage.tiering.cron}")
+    public synchronized void moveSections() {
+        if (coldPath == null || coldPath.isBlank()) {
+            return;
+        }
+
+        LocalDateTime now = LocalDateTime.now();
+        String coldPattern = StorageTier.COLD.getLocationPrefix() + "%";
+        LocalDateTime accessedBefore = now.minusDays(demoteAfterDays);
+        LocalDateTime accessedAfter = now.minusHours(promoteWithinHours);
+
+        int demotedSections = moveSections(
+                lastId -> sectionRepository.findDemotionCandidates(lastId, coldPattern, accessedBefore),
+                StorageTier.COLD);
+        int promotedSections = moveSections(
+                lastId -> sectionRepository.findPromotionCandidates(lastId, coldPattern, accessedAfter),
+                StorageTier.HOT);
+
+        logger.info("Moved '{}' sections to the cold tier and '{}' sections to the hot tier", demotedSections, promotedSections);
+    }
+
+    private int moveSections(IntFunction<List<TieringCandidate>> candidateFinder, StorageTier tier) {
+        int movedSections = 0;
+        List<TieringCandidate> candidates = candidateFinder.apply(0);
+        while (!candidates.isEmpty()) {
+            for (TieringCandidate candidate : candidates) {
+                if (moveSection(candidate, tier)) {
+                    movedSections++;
+                }
+            }
+
+            candidates = candidateFinder.apply(candidates.getLast().id());
+        }
+
+        return movedSections;
+    }
+
+    /**
+     * Moves the section file to the tier
+     *
+     * @param candidate the section to move
+     * @param tier      the target tier
+     * @return true if the section points to the moved file
+     */
+    boolean moveSection(TieringCandidate candidate, StorageTier tier) {
+        if (!fileStorage.supportsTiering(candidate.storageLocation())) {
+            return false;
+        }
+
+        String targetLocation = tier.toLocation(fileStorage.generateSystemFileName(candidate.fileName()));
+        return relocateSection(candidate, targetLocation);
+    }
+
+    /**
+     * Moves the section file to the target location, covered by the transaction actions like a move between tiers.
+     * Also used to move the sections off draining volumes.
+     *
+     * @param candidate      the section to move
+     * @param targetLocation the new storage location. It must not exist
+     * @return true if the section points to the moved file
+     */
+    public boolean relocateSection(TieringCandidate candidate, String targetLocation) {
+        MoveActions moveActions = transactionTemplate
+                .execute(status -> addMoveTransactionActions(candidate.storageLocation(), targetLocation));
+
+        try {
+            fileStorage.copySection(candidate.storageLocation(), targetLocation);
+        } catch (InvalidSystemStateException e) {
+            // The copy, if any, is removed by the processing of the uncommitted CREATE action
+            logger.error("Unable to move section '{}' to '{}'", candidate.id(), targetLocation, e);
+            return false;
+        }
+
+        Boolean moved = transactionTemplate
+                .execute(status -> commitMove(status, candidate, targetLocation, moveActions));
+        if (Boolean.TRUE.equals(moved)) {
+            logger.info("Moved section '{}' from '{}' to '{}'", candidate.id(), candidate.storageLocation(), targetLocation);
+            return true;
+        }
+
+        return false;
+    }
+
+    private MoveActions addMoveTransactionActions(String sourceLocation, String targetLocation) {
+        TransactionActionRecord copyRecord = new TransactionActionRecord();
+        copyRecord.setStorageLocation(targetLocation);
+        copyRecord.setActionType(ActionType.CREATE);
+        transactionActionRepository.save(copyRecord);
+
+        TransactionActionRecord sourceRecord = new TransactionActionRecord();
+        sourceRecord.setStorageLocation(sourceLocation);
+        sourceRecord.setActionType(ActionType.DELETE);
+        sourceRecord.setParentRecord(copyRecord);
+        transactionActionRepository.save(sourceRecord);
+
+        return new MoveActions(copyRecord, sourceRecord);
+    }
+
+    private boolean commitMove(TransactionStatus status,
+                               TieringCandidate candidate,
+                               String targetLocation,
+                               MoveActions moveActions) {
+        int updatedSections = sectionRepository
+                .updateStorageLocation(candidate.id(), candidate.storageLocation(), targetLocation);
+        if (updatedSections != 1) {
+            // Removed or moved since it was selected. The copy is removed with the uncommitted CREATE action.
+            logger.info("Section '{}' changed while it was moved. The move is rolled back", candidate.id());
+            status.setRollbackOnly();
+            return false;
+        }
+
+        moveActions.copyRecord().setCommitted(true);
+        moveActions.sourceRecord().setCommitted(true);
+        transactionActionRepository.save(moveActions.copyRecord());
+        transactionActionRepository.save(moveActions.sourceRecord());
+        return true;
+    }
+
+    private record MoveActions(TransactionActionRecord copyRecord, TransactionActionRecord sourceRecord) {
+    }
+}
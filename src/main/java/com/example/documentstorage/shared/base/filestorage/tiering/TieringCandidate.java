@@ -0,0 +1,11 @@
+package com.example.documentstorage.shared.base.filestorage.tiering;
+
+/**
+ * A section that may be moved to another storage tier
+ *
+ * @param id              the id of the section
+ * @param fileName        the original file name of the section
+ * @param storageLocation the current storage location of the section
+ */
+public record TieringCandidate(int id, String fileName, String storageLocation) {
+}
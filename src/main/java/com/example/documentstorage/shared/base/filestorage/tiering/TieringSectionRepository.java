@@ -0,0 +1,77 @@
+package com.example.documentstorage.shared.base.filestorage.tiering;
+
+import com.example.documentstorage.entities.Section;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.time.LocalDateTime;
+import java.util.List;
+
+@Repository
+public interface TieringSectionRepository extends JpaRepository<Section, Integer> {
+    /**
+     * Adds the accesses to the statistics of the section. The version of the section is not changed, so that
+     * downloads never conflict with changes made by the users.
+     */
+    @Modifying
+    @Query("""
+            UPDATE Section s
+            SET s.accessCount = s.accessCount + :count, s.lastAccessedAt = :accessedAt
+            WHERE s.id = :id
+            """)
+    int recordAccess(@Param("id") int id, @Param("count") long count, @Param("accessedAt") LocalDateTime accessedAt);
+
+    /**
+     * Finds the sections outside the cold tier that have not been accessed since the given time, ordered by id
+     * and starting after the given id. Sections kept in the database are never moved.
+     */
+    @Query("""
+            SELECT new com.example.documentstorage.shared.base.filestorage.tiering.TieringCandidate(s.id, s.fileName, s.storageLocation)
+            FROM Section s
+            WHERE s.id > :lastId
+            AND s.storageLocation NOT LIKE :coldPattern
+            AND s.storageLocation NOT LIKE 'inline/%'
+            AND COALESCE(s.lastAccessedAt, s.createdAt) < :accessedBefore
+            ORDER BY s.id ASC
+            LIMIT 1000
+            """)
+    List<TieringCandidate> findDemotionCandidates(@Param("lastId") int lastId,
+                                                  @Param("coldPattern") String coldPattern,
+                                                  @Param("accessedBefore") LocalDateTime accessedBefore);
+
+    /**
+     * Finds the sections in the cold tier that have been accessed since the given time, ordered by id and
+     * starting after the given id
+     */
+    @Query("""
+            SELECT new com.example.documentstorage.shared.base.filestorage.tiering.TieringCandidate(s.id, s.fileName, s.storageLocation)
+            FROM Section s
+            WHERE s.id > :lastId
+            AND s.storageLocation LIKE :coldPattern
+            AND s.lastAccessedAt >= :accessedAfter
+            ORDER BY s.id ASC
+            LIMIT 1000
+            """)
+    List<TieringCandidate> findPromotionCandidates(@Param("lastId") int lastId,
+                                                   @Param("coldPattern") String coldPattern,
+                                                   @Param("accessedAfter") LocalDateTime accessedAfter);
+
+    /**
+     * Points the section to the moved file, if it still points to the source file. The version is incremented,
+     * so that a concurrent removal of the section, which would release the source file, fails instead.
+     *
+     * @return the number of updated sections, 0 when the section has been removed or moved in between
+     */
+    @Modifying
+    @Query("""
+            UPDATE Section s
+            SET s.storageLocation = :targetLocation, s.version = s.version + 1
+            WHERE s.id = :id AND s.storageLocation = :sourceLocation
+            """)
+    int updateStorageLocation(@Param("id") int id,
+                              @Param("sourceLocation") String sourceLocation,
+                              @Param("targetLocation") String targetLocation);
+}
@@ -0,0 +1,49 @@
+package com.example.documentstorage.shared.base.filestorage.usage;
+
+import com.example.documentstorage.entities.StorageUsage;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Modifying;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.Optional;
+
+@Repository
+public interface StorageUsageRepository extends JpaRepository<StorageUsage, Integer> {
+    /**
+     * Adds to the usage of the data record, unless the new usage exceeds the quota. The version of the data record
+     * is not changed, so that uploads never conflict with changes made by the users.
+     *
+     * @param maxBytes the quota of the data record, or zero or less for no quota
+     * @return the number of updated data records, 0 when the data record is missing or the quota is exceeded
+     */
+    @Modifying
+    @Query("""
+            UPDATE DataRecord d
+            SET d.usedBytes = d.usedBytes + :bytes, d.sectionCount = d.sectionCount + :sections
+            WHERE d.id = :id
+            AND (:maxBytes <= 0 OR :bytes <= 0 OR d.usedBytes + :bytes <= :maxBytes)
+            """)
+    int addToDataRecord(@Param("id") int id,
+                        @Param("bytes") long bytes,
+                        @Param("sections") long sections,
+                        @Param("maxBytes") long maxBytes);
+
+    @Modifying
+    @Query("""
+            UPDATE StorageUsage u
+            SET u.usedBytes = u.usedBytes + :bytes, u.sectionCount = u.sectionCount + :sections
+            WHERE u.stripe = :stripe
+            """)
+    int addToStripe(@Param("stripe") int stripe, @Param("bytes") long bytes, @Param("sections") long sections);
+
+    @Query("SELECT d.usedBytes FROM DataRecord d WHERE d.id = :id")
+    Optional<Long> findUsedBytesByDataRecordId(@Param("id") int id);
+
+    @Query("SELECT COALESCE(SUM(u.usedBytes), 0) FROM StorageUsage u")
+    long sumUsedBytes();
+
+    @Query("SELECT COALESCE(SUM(u.sectionCount), 0) FROM StorageUsage u")
+    long sumSectionCount();
+}
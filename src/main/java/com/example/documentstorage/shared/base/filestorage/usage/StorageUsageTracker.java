@@ -0,0 +1,34 @@
+package com.example.documentstorage.shared.base.filestorage.usage;
+
+public interface StorageUsageTracker {
+    /**
+     * Checks that the upload fits into the quotas, before any of its bytes are written. The usage is checked
+     * again when the section is added, with the size of the stored content.
+     *
+     * @param dataRecordId  the data record to which the content is uploaded
+     * @param contentLength the size of the uploaded content, or a negative number when it is not known in advance
+     * @throws com.example.documentstorage.shared.base.exceptions.InvalidClientInputException when a quota is exceeded
+     */
+    void checkQuota(int dataRecordId, long contentLength);
+
+    /**
+     * Adds the sections to the usage of the data record and of the store. Must be called in the transaction that
+     * adds the sections, so that the usage is rolled back with them.
+     *
+     * @param dataRecordId the data record to which the sections are added
+     * @param bytes        the total size of the added sections
+     * @param sections     the number of added sections
+     * @throws com.example.documentstorage.shared.base.exceptions.InvalidClientInputException when a quota is exceeded
+     */
+    void addUsage(int dataRecordId, long bytes, int sections);
+
+    /**
+     * Removes the sections from the usage of the data record and of the store. Must be called in the transaction
+     * that removes the sections.
+     *
+     * @param dataRecordId the data record from which the sections are removed
+     * @param bytes        the total size of the removed sections
+     * @param sections     the number of removed sections
+     */
+    void removeUsage(int dataRecordId, long bytes, int sections);
+}
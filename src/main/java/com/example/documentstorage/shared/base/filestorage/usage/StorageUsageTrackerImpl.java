@@ -0,0 +1,114 @@
+package com.example.documentstorage.shared.base.filestorage.usage;
+
+import com.example.documentstorage.entities.StorageUsage;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import io.micrometer.core.instrument.Gauge;
+import io.micrometer.core.instrument.MeterRegistry;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.boot.context.event.ApplicationReadyEvent;
+import org.springframework.context.event.EventListener;
+import org.springframework.dao.DataIntegrityViolationException;
+import org.springframework.stereotype.Component;
+import org.springframework.util.unit.DataSize;
+
+/**
+ * Keeps the number and the total size of the sections of every data record and of the whole store. The counters
+ * are changed by bulk updates in the transactions that add and remove the sections, so they never count a file
+ * that is not referenced by a committed section, and the compensations of the transaction actions have nothing to
+ * undo. The quota of a data record is enforced by the update itself. The quota of the store is checked against the
+ * sum of the stripes, so concurrent uploads may exceed it by their own sizes.
+ * The usage of the store is published as the {@code document.storage.usage.bytes} and
+ * {@code document.storage.usage.sections} gauges.
+ */
+@Component
+public class StorageUsageTrackerImpl implements StorageUsageTracker {
+    private static final Logger logger = LoggerFactory.getLogger(StorageUsageTrackerImpl.class);
+    private static final int STRIPES = 16;
+
+    private final StorageUsageRepository usageRepository;
+    private final long maxDataRecordBytes;
+    private final long maxTotalBytes;
+
+    public StorageUsageTrackerImpl(StorageUsageRepository usageRepository,
+                                   MeterRegistry meterRegistry,
+                                   @Value("${document.storage.quota.data.record.max.size}") DataSize maxDataRecordSize,
+                                   @Value("${document.storage.quota.total.max.size}") DataSize maxTotalSize) {
+        this.usageRepository = usageRepository;
+        this.maxDataRecordBytes = maxDataRecordSize.toBytes();
+        this.maxTotalBytes = maxTotalSize.toBytes();
+
+        Gauge.builder("document.storage.usage.bytes", usageRepository, StorageUsageRepository::sumUsedBytes)
+                .baseUnit("bytes")
+                .register(meterRegistry);
+        Gauge.builder("document.storage.usage.sections", usageRepository, StorageUsageRepository::sumSectionCount)
+                .register(meterRegistry);
+    }
+
+    /**
+     * Creates the stripes of the store usage that do not exist yet
+     */
+    @EventListener(ApplicationReadyEvent.class)
+    public void createStripes() {
+        for (int stripe = 0; stripe < STRIPES; stripe++) {
+            if (usageRepository.existsById(stripe)) {
+                continue;
+            }
+
+            try {
+                usageRepository.save(new StorageUsage(stripe));
+            } catch (DataIntegrityViolationException e) {
+                logger.info("Storage usage stripe '{}' has been created by another instance", stripe);
+            }
+        }
+    }
+
+    @Override
+    public void checkQuota(int dataRecordId, long contentLength) {
+        if (maxDataRecordBytes > 0) {
+            long usedBytes = usageRepository.findUsedBytesByDataRecordId(dataRecordId).orElse(0L);
+            if (exceeds(usedBytes, contentLength, maxDataRecordBytes)) {
+                logger.warn("Upload of '{}' bytes exceeds the quota of data record '{}'", contentLength, dataRecordId);
+                throw new InvalidClientInputException("shared.base.filestorage.usage.on.upload.data.record.quota.exceeded", dataRecordId);
+            }
+        }
+
+        checkTotalQuota(contentLength);
+    }
+
+    @Override
+    public void addUsage(int dataRecordId, long bytes, int sections) {
+        checkTotalQuota(bytes);
+        if (usageRepository.addToDataRecord(dataRecordId, bytes, sections, maxDataRecordBytes) != 1) {
+            logger.warn("Adding '{}' bytes exceeds the quota of data record '{}'", bytes, dataRecordId);
+            throw new InvalidClientInputException("shared.base.filestorage.usage.on.upload.data.record.quota.exceeded", dataRecordId);
+        }
+
+        usageRepository.addToStripe(toStripe(dataRecordId), bytes, sections);
+    }
+
+    @Override
+    public void removeUsage(int dataRecordId, long bytes, int sections) {
+        usageRepository.addToDataRecord(dataRecordId, -bytes, -sections, 0);
+        usageRepository.addToStripe(toStripe(dataRecordId), -bytes, -sections);
+    }
+
+    private void checkTotalQuota(long contentLength) {
+        if (maxTotalBytes > 0 && exceeds(usageRepository.sumUsedBytes(), contentLength, maxTotalBytes)) {
+            logger.warn("Upload of '{}' bytes exceeds the quota of the store", contentLength);
+            throw new InvalidClientInputException("shared.base.filestorage.usage.on.upload.total.quota.exceeded");
+        }
+    }
+
+    /**
+     * Checks if the upload exceeds the quota. An upload of unknown length is only rejected when the quota is full.
+     */
+    private static boolean exceeds(long usedBytes, long contentLength, long maxBytes) {
+        return contentLength < 0 ? usedBytes >= maxBytes : usedBytes + contentLength > maxBytes;
+    }
+
+    private static int toStripe(int dataRecordId) {
+        return Math.floorMod(dataRecordId, STRIPES);
+    }
+}
@@ -0,0 +1,104 @@
+package com.example.documentstorage.shared.base.filestorage.volumes;
+
+import java.nio.file.Path;
+import java.util.concurrent.atomic.AtomicInteger;
+
+/**
+ * A root directory, usually on its own disk, over which the section files are striped. The first volume is the
+ * storage path and its files are stored without a prefix. The files of the other volumes are stored with the
+ * prefix {@code volumes/<index>/} in their storage location, e.g. {@code volumes/2/invoice_01HXZ5T3K8M2Q9V7R4C6N0B1PD.pdf},
+ * so that reads and removals find the volume from the storage location alone.
+ */
+public final class StorageVolume {
+    public static final String VOLUME_DIRECTORY = "volumes";
+    // The usable space of a volume that can not be reached
+    static final long OFFLINE = -1;
+
+    private final int index;
+    private final Path root;
+    private final boolean draining;
+    private final AtomicInteger activeWrites = new AtomicInteger();
+    private volatile long usableSpace = OFFLINE;
+    private volatile long checkedAtNanos;
+    private volatile boolean checked;
+
+    StorageVolume(int index, Path root, boolean draining) {
+        this.index = index;
+        this.root = root;
+        this.draining = draining;
+    }
+
+    public int getIndex() {
+        return index;
+    }
+
+    public Path getRoot() {
+        return root;
+    }
+
+    /**
+     * Checks if the volume is being drained. A draining volume receives no new files, and its files are moved to
+     * the other volumes.
+     */
+    public boolean isDraining() {
+        return draining;
+    }
+
+    public String getLocationPrefix() {
+        return index == 0 ? "" : VOLUME_DIRECTORY + "/" + index + "/";
+    }
+
+    /**
+     * Builds the storage location of a file stored on this volume
+     *
+     * @param systemFileName the system file name
+     * @return the storage location
+     */
+    public String toLocation(String systemFileName) {
+        return getLocationPrefix() + systemFileName;
+    }
+
+    /**
+     * Removes the prefix of the volume from the storage location
+     *
+     * @param storageLocation the storage location of a file on this volume
+     * @return the location of the file relative to the root of the volume
+     */
+    public String toRelativeLocation(String storageLocation) {
+        return storageLocation.substring(getLocationPrefix().length());
+    }
+
+    /**
+     * Counts a write to the volume until {@link #finishWrite()} is called, so that new files are placed on the
+     * volumes with the fewest writes in progress
+     */
+    public void startWrite() {
+        activeWrites.incrementAndGet();
+    }
+
+    public void finishWrite() {
+        activeWrites.decrementAndGet();
+    }
+
+    int getActiveWrites() {
+        return activeWrites.get();
+    }
+
+    long getUsableSpace() {
+        return usableSpace;
+    }
+
+    boolean isOnline() {
+        return usableSpace != OFFLINE;
+    }
+
+    boolean isCheckedSince(long nanos) {
+        return checked && checkedAtNanos - nanos >= 0;
+    }
+
+    void updateUsableSpace(long usableSpace, long checkedAtNanos) {
+        this.usableSpace = usableSpace;
+        this.checkedAtNanos = checkedAtNanos;
+        this.checked = true;
+    }
+}
@@ -0,0 +1,27 @@
+package com.example.documentstorage.shared.base.filestorage.volumes;
+
+import java.util.List;
+
+public interface StorageVolumes {
+    /**
+     * Gets all the configured volumes, ordered by index. The first volume is the storage path.
+     *
+     * @return the volumes
+     */
+    List<StorageVolume> getVolumes();
+
+    /**
+     * Finds the volume on which the file with the storage location is stored
+     *
+     * @param storageLocation the storage location
+     * @return the volume of the storage location
+     */
+    StorageVolume getVolume(String storageLocation);
+
+    /**
+     * Selects the volume on which a new file is stored
+     *
+     * @return the volume with the fewest writes in progress, among the volumes with enough free space
+     */
+    StorageVolume selectVolume();
+}
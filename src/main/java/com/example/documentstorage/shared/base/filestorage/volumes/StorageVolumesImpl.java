@@ -0,0 +1,145 @@
+package com.example.documentstorage.shared.base.filestorage.volumes;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.beans.factory.annotation.Value;
+import org.springframework.stereotype.Service;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.Paths;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.Comparator;
+import java.util.List;
+
+/**
+ * Places new files on the volume with the fewest writes in progress, so that concurrent uploads are spread over
+ * the disks, preferring the volume with the most free space on a tie. Volumes with less free space than the
+ * minimum stop receiving new files, as well as draining volumes and volumes that can not be reached. The free
+ * space of the volumes is checked at most once per refresh interval. When every volume is below the minimum free
+ * space, the reachable volume with the most free space is used.
+ * Volumes are referenced by their index in the storage locations, so new volumes must be appended to the list.
+ */
+@Service
+public class StorageVolumesImpl implements StorageVolumes {
+    private static final Logger logger = LoggerFactory.getLogger(StorageVolumesImpl.class);
+    private static final String LOCATION_PREFIX = StorageVolume.VOLUME_DIRECTORY + "/";
+
+    private final List<StorageVolume> volumes;
+    private final long minFreeSpace;
+    private final long refreshIntervalNanos;
+
+    public StorageVolumesImpl(@Value("${document.storage.path}") String basePath,
+                              @Value("${document.storage.volumes}") List<String> volumePaths,
+                              @Value("${document.storage.volumes.draining}") List<Integer> drainingVolumes,
+                              @Value("${document.storage.volumes.min.free.space}") DataSize minFreeSpace,
+                              @Value("${document.storage.volumes.free.space.refresh}") Duration refreshInterval) {
+        List<String> rootPaths = new ArrayList<>();
+        rootPaths.add(basePath);
+        rootPaths.addAll(volumePaths);
+
+        List<StorageVolume> configuredVolumes = new ArrayList<>();
+        for (int index = 0; index < rootPaths.size(); index++) {
+            configuredVolumes.add(new StorageVolume(index, Paths.get(rootPaths.get(index).trim()), drainingVolumes.contains(index)));
+        }
+
+        this.volumes = List.copyOf(configuredVolumes);
+        this.minFreeSpace = minFreeSpace.toBytes();
+        this.refreshIntervalNanos = refreshInterval.toNanos();
+        logger.info("Storage volumes '{}' with draining volumes '{}'", rootPaths, drainingVolumes);
+    }
+
+    /**
+     * Gets all the configured volumes, ordered by index. The first volume is the storage path.
+     *
+     * @return the volumes
+     */
+    @Override
+    public List<StorageVolume> getVolumes() {
+        return volumes;
+    }
+
+    /**
+     * Finds the volume on which the file with the storage location is stored. Locations without the prefix of a
+     * volume are stored on the storage path.
+     *
+     * @param storageLocation the storage location
+     * @return the volume of the storage location
+     */
+    @Override
+    public StorageVolume getVolume(String storageLocation) {
+        if (!storageLocation.startsWith(LOCATION_PREFIX)) {
+            return volumes.getFirst();
+        }
+
+        int indexEnd = storageLocation.indexOf('/', LOCATION_PREFIX.length());
+        try {
+            int index = Integer.parseInt(storageLocation.substring(LOCATION_PREFIX.length(), indexEnd));
+            if (index > 0 && index < volumes.size()) {
+                return volumes.get(index);
+            }
+        } catch (NumberFormatException | IndexOutOfBoundsException e) {
+            // Reported below, like a volume that is not configured
+        }
+
+        logger.error("Unable to find the volume of storage location '{}'", storageLocation);
+        throw new InvalidSystemStateException(new IOException("No volume is configured for '%s'".formatted(storageLocation)));
+    }
+
+    /**
+     * Selects the volume on which a new file is stored. With a single volume, it is always selected.
+     *
+     * @return the volume with the fewest writes in progress, among the volumes with enough free space
+     */
+    @Override
+    public StorageVolume selectVolume() {
+        if (volumes.size() == 1) {
+            return volumes.getFirst();
+        }
+
+        long now = System.nanoTime();
+        List<StorageVolume> writableVolumes = volumes.stream()
+                .filter(volume -> !volume.isDraining())
+                .peek(volume -> refreshUsableSpace(volume, now))
+                .filter(StorageVolume::isOnline)
+                .toList();
+
+        return writableVolumes.stream()
+                .filter(volume -> volume.getUsableSpace() >= minFreeSpace)
+                .min(Comparator.comparingInt(StorageVolume::getActiveWrites)
+                        .thenComparing(Comparator.comparingLong(StorageVolume::getUsableSpace).reversed()))
+                .or(() -> writableVolumes.stream().max(Comparator.comparingLong(StorageVolume::getUsableSpace)))
+                .orElseThrow(() -> {
+                    logger.error("Unable to select a volume. No volume is reachable and accepts new files");
+                    return new InvalidSystemStateException(new IOException("No storage volume accepts new files"));
+                });
+    }
+
+    private void refreshUsableSpace(StorageVolume volume, long now) {
+        if (volume.isCheckedSince(now - refreshIntervalNanos)) {
+            return;
+        }
+
+        long usableSpace;
+        try {
+            Files.createDirectories(volume.getRoot());
+            usableSpace = Files.isWritable(volume.getRoot())
+                    ? Files.getFileStore(volume.getRoot()).getUsableSpace()
+                    : StorageVolume.OFFLINE;
+        } catch (IOException e) {
+            usableSpace = StorageVolume.OFFLINE;
+        }
+
+        if (!volume.isOnline() && usableSpace != StorageVolume.OFFLINE) {
+            logger.info("Volume '{}' at '{}' is online with '{}' usable bytes", volume.getIndex(), volume.getRoot(), usableSpace);
+        } else if (volume.isOnline() && usableSpace == StorageVolume.OFFLINE) {
+            logger.warn("Volume '{}' at '{}' is offline. New files are placed on the other volumes", volume.getIndex(), volume.getRoot());
+        }
+
+        volume.updateUsableSpace(usableSpace, now);
+    }
+}
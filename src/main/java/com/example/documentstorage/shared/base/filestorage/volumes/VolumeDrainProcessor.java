@@ -0,0 +1,68 @@
+package com.example.documentstorage.shared.base.filestorage.volumes;
+
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.tiering.StorageTieringProcessor;
+import com.example.documentstorage.shared.base.filestorage.tiering.TieringCandidate;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.scheduling.annotation.Scheduled;
+import org.springframework.stereotype.Component;
+
+import java.util.List;
+
+/**
+ * Moves the sections off the draining volumes, onto the volumes selected for new files. Every section is moved
+ * like a move between tiers, so the file on the draining volume is removed once the move has been committed and
+ * the transaction actions have expired. The storage path, the first volume, is never drained, as it also keeps
+ * the files shared by several sections. When listed as draining, it only stops receiving new files.
+ */
+@Component
+public class VolumeDrainProcessor {
+    private static final Logger logger = LoggerFactory.getLogger(VolumeDrainProcessor.class);
+
+    private final VolumeSectionRepository sectionRepository;
+    private final StorageVolumes storageVolumes;
+    private final FileStorage fileStorage;
+    private final StorageTieringProcessor tieringProcessor;
+
+    public VolumeDrainProcessor(VolumeSectionRepository sectionRepository,
+                                StorageVolumes storageVolumes,
+                                FileStorage fileStorage,
+                                StorageTieringProcessor tieringProcessor) {
+        this.sectionRepository = sectionRepository;
+        this.storageVolumes = storageVolumes;
+        this.fileStorage = fileStorage;
+        this.tieringProcessor = tieringProcessor;
+    }
+
+    /**
+     * Moves the sections stored on the draining volumes to the other volumes
+     */
+    @Scheduled(cron = "${document.storage.volumes.drain.cron}")
+    public synchronized void drainVolumes() {
+        for (StorageVolume volume : storageVolumes.getVolumes()) {
+            if (volume.isDraining() && volume.getIndex() > 0) {
+                int movedSections = drainVolume(volume);
+                logger.info("Moved '{}' sections off draining volume '{}'", movedSections, volume.getIndex());
+            }
+        }
+    }
+
+    private int drainVolume(StorageVolume volume) {
+        String volumePattern = volume.getLocationPrefix() + "%";
+        int movedSections = 0;
+        List<TieringCandidate> candidates = sectionRepository.findVolumeSections(0, volumePattern);
+        while (!candidates.isEmpty()) {
+            for (TieringCandidate candidate : candidates) {
+                String targetLocation = fileStorage.generateSystemFileName(candidate.fileName());
+                if (tieringProcessor.relocateSection(candidate, targetLocation)) {
+                    movedSections++;
+                }
+            }
+
+            candidates = sectionRepository.findVolumeSections(candidates.getLast().id(), volumePattern);
+        }
+
+        return movedSections;
+    }
+}
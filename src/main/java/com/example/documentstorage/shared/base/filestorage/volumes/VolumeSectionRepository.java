@@ -0,0 +1,27 @@
+package com.example.documentstorage.shared.base.filestorage.volumes;
+
+import com.example.documentstorage.entities.Section;
+import com.example.documentstorage.shared.base.filestorage.tiering.TieringCandidate;
+import org.springframework.data.jpa.repository.JpaRepository;
+import org.springframework.data.jpa.repository.Query;
+import org.springframework.data.repository.query.Param;
+import org.springframework.stereotype.Repository;
+
+import java.util.List;
+
+@Repository
+public interface VolumeSectionRepository extends JpaRepository<Section, Integer> {
+    /**
+     * Finds the sections stored on the volume with the location prefix, ordered by id and starting after the
+     * given id
+     */
+    @Query("""
+            SELECT new com.example.documentstorage.shared.base.filestorage.tiering.TieringCandidate(s.id, s.fileName, s.storageLocation)
+            FROM Section s
+            WHERE s.id > :lastId
+            AND s.storageLocation LIKE :volumePattern
+            ORDER BY s.id ASC
+            LIMIT 1000
+            """)
+    List<TieringCandidate> findVolumeSections(@Param("lastId") int lastId, @Param("volumePattern") String volumePattern);
+}
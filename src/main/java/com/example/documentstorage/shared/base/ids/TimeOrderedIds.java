@@ -0,0 +1,81 @@
+package com.example.documentstorage.shared.base.ids;
+
+import java.util.UUID;
+import java.util.concurrent.ThreadLocalRandom;
+import java.util.concurrent.atomic.AtomicLong;
+
+/**
+ * Generates time ordered ids, used as primary keys and in the names of stored files, so that inserts into the
+ * clustered index of the database and into the storage directories are appended in order.
+ * The ids are version 7 UUIDs. The 48 bit Unix timestamp in milliseconds is followed by a 12 bit counter, which
+ * orders the ids generated in the same millisecond by all the threads of the application, and by 62 random bits,
+ * which keep the ids of several application instances apart. When the counter overflows, the timestamp is moved
+ * forward, so the ids never go backwards, even when the clock does.
+ */
+public final class TimeOrderedIds {
+    private static final char[] CROCKFORD_ALPHABET = "0123456789ABCDEFGHJKMNPQRSTVWXYZ".toCharArray();
+    private static final int KEY_LENGTH = 26;
+    private static final int COUNTER_BITS = 12;
+    private static final long VERSION_7 = 0x7000L;
+    private static final long VARIANT = 0x8000000000000000L;
+    private static final long RANDOM_MASK = 0x3fffffffffffffffL;
+
+    // The last used timestamp in milliseconds, shifted left by the counter bits and added to the counter
+    private static final AtomicLong LAST_TIMESTAMP = new AtomicLong();
+
+    private TimeOrderedIds() {
+    }
+
+    /**
+     * Generates the next time ordered UUID
+     *
+     * @return a version 7 UUID, greater than all the UUIDs generated before it by this application
+     */
+    public static UUID nextUuid() {
+        long timestamp = nextTimestamp();
+        long millis = timestamp >>> COUNTER_BITS;
+        long counter = timestamp & ((1L << COUNTER_BITS) - 1);
+        long mostSignificantBits = (millis << 16) | VERSION_7 | counter;
+        long leastSignificantBits = (ThreadLocalRandom.current().nextLong() & RANDOM_MASK) | VARIANT;
+        return new UUID(mostSignificantBits, leastSignificantBits);
+    }
+
+    /**
+     * Generates the next time ordered key, to be used in file names
+     *
+     * @return the next UUID encoded in 26 characters of Crockford base 32, which sort in the order of the UUIDs
+     */
+    public static String nextKey() {
+        return toKey(nextUuid());
+    }
+
+    /**
+     * Encodes the UUID in 26 characters of Crockford base 32. The first character holds the 3 highest bits.
+     *
+     * @param uuid the UUID
+     * @return the key, in upper case
+     */
+    public static String toKey(UUID uuid) {
+        long high = uuid.getMostSignificantBits();
+        long low = uuid.getLeastSignificantBits();
+        char[] key = new char[KEY_LENGTH];
+        for (int i = KEY_LENGTH - 1; i >= 0; i--) {
+            key[i] = CROCKFORD_ALPHABET[(int) (low & 0x1f)];
+            low = (low >>> 5) | (high << 59);
+            high >>>= 5;
+        }
+
+        return new String(key);
+    }
+
+    private static long nextTimestamp() {
+        long now = System.currentTimeMillis() << COUNTER_BITS;
+        while (true) {
+            long last = LAST_TIMESTAMP.get();
+            long next = Math.max(now, last + 1);
+            if (LAST_TIMESTAMP.compareAndSet(last, next)) {
+                return next;
+            }
+        }
+    }
+}
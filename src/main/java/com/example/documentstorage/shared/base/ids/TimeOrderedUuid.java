@@ -0,0 +1,18 @@
+package com.example.documentstorage.shared.base.ids;
+
+import org.hibernate.annotations.IdGeneratorType;
+
+import java.lang.annotation.ElementType;
+import java.lang.annotation.Retention;
+import java.lang.annotation.RetentionPolicy;
+import java.lang.annotation.Target;
+
+/**
+ * Generates the UUID primary key with {@link TimeOrderedIds}, so that new rows are appended to the clustered index
+ * instead of being inserted at random positions
+ */
+@IdGeneratorType(TimeOrderedUuidGenerator.class)
+@Retention(RetentionPolicy.RUNTIME)
+@Target({ElementType.FIELD, ElementType.METHOD})
+public @interface TimeOrderedUuid {
+}
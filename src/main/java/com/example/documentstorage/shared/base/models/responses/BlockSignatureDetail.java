@@ -0,0 +1,4 @@
+package com.example.documentstorage.shared.base.models.responses;
+
+public record BlockSignatureDetail(int index, int weakChecksum, String strongChecksum) {
+}
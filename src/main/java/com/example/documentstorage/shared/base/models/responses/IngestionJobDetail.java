@@ -0,0 +1,16 @@
+package com.example.documentstorage.shared.base.models.responses;
+
+import com.example.documentstorage.features.ingestion.IngestionJobStatus;
+
+import java.time.LocalDateTime;
+
+public record IngestionJobDetail(int id,
+                                 String directory,
+                                 IngestionJobStatus status,
+                                 long processedLines,
+                                 long ingestedFiles,
+                                 long failedFiles,
+                                 String failureMessage,
+                                 LocalDateTime createdAt,
+                                 LocalDateTime modifiedAt) {
+}
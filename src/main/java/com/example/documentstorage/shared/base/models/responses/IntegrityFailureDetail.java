@@ -0,0 +1,16 @@
+package com.example.documentstorage.shared.base.models.responses;
+
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityCheckSource;
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityFailureReason;
+
+import java.time.LocalDateTime;
+
+public record IntegrityFailureDetail(int sectionId,
+                                     String storageLocation,
+                                     String expectedChecksum,
+                                     String actualChecksum,
+                                     IntegrityFailureReason reason,
+                                     IntegrityCheckSource detectedBy,
+                                     LocalDateTime firstDetectedAt,
+                                     LocalDateTime lastDetectedAt) {
+}
@@ -0,0 +1,10 @@
+package com.example.documentstorage.shared.base.models.responses;
+
+import java.util.List;
+
+public record SectionSignaturesDetail(int sectionId,
+                                      String checksum,
+                                      long fileSize,
+                                      int blockSize,
+                                      List<BlockSignatureDetail> blocks) {
+}
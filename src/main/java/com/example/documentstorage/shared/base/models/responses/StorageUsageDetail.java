@@ -0,0 +1,9 @@
+package com.example.documentstorage.shared.base.models.responses;
+
+/**
+ * @param usedBytes     the total size of the sections, before they have been encoded
+ * @param sectionCount  the number of sections
+ * @param maxBytes      the quota, or null when there is no quota
+ */
+public record StorageUsageDetail(long usedBytes, long sectionCount, Long maxBytes) {
+}
@@ -0,0 +1,4 @@
+package com.example.documentstorage.shared.base.models.responses;
+
+public record UploadPartDetail(int partNumber, long size, String checksum) {
+}
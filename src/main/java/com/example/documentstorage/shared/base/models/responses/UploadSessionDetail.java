@@ -0,0 +1,7 @@
+package com.example.documentstorage.shared.base.models.responses;
+
+import java.util.List;
+import java.util.UUID;
+
+public record UploadSessionDetail(UUID id, String fileName, String contentType, List<UploadPartDetail> parts) {
+}
@@ -0,0 +1,86 @@
+package com.example.documentstorage.benchmark;
+
+import com.example.documentstorage.shared.base.apimessages.LocalizationService;
+import com.example.documentstorage.shared.base.filestorage.DurabilityMode;
+import com.example.documentstorage.shared.base.filestorage.FileStorageImpl;
+import com.example.documentstorage.shared.base.filestorage.StorageDurabilityImpl;
+import com.example.documentstorage.shared.base.filestorage.cache.SectionCache;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolumesImpl;
+import org.junit.jupiter.api.Tag;
+import org.junit.jupiter.params.ParameterizedTest;
+import org.junit.jupiter.params.provider.EnumSource;
+import org.mockito.Mockito;
+import org.slf4j.Logger;
+import org.slf4j.LoggerFactory;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+/**
+ * Measures the uploads per second of the file storage in each {@link DurabilityMode}, with concurrent writers.
+ * Excluded from the default build, run with {@code mvn test -Pbenchmark}. The files are written in
+ * {@code target/benchmark}, so that the numbers reflect the disk of the build directory rather than a tmpfs.
+ */
+@Tag("benchmark")
+class DurabilityBenchmarkTests {
+    private static final Logger logger = LoggerFactory.getLogger(DurabilityBenchmarkTests.class);
+    private static final int WRITERS = 16;
+    private static final int WARMUP_UPLOADS_PER_WRITER = 50;
+    private static final int UPLOADS_PER_WRITER = 200;
+    private static final byte[] CONTENT = new byte[16 * 1024];
+
+    @ParameterizedTest
+    @EnumSource(DurabilityMode.class)
+    void storeSection_uploadsPerSecond(DurabilityMode mode) throws Exception {
+        Path basePath = Files.createDirectories(Path.of("target", "benchmark", mode.name().toLowerCase()));
+        StorageDurabilityImpl storageDurability = new StorageDurabilityImpl(mode, Duration.ofMillis(2), 4);
+        FileStorageImpl fileStorage = new FileStorageImpl(
+                Mockito.mock(LocalizationService.class),
+                Mockito.mock(SectionCache.class),
+                storageDurability,
+                new StorageVolumesImpl(basePath.toString(), List.of(), List.of(), DataSize.ofBytes(0), Duration.ZERO),
+                "");
+        ExecutorService executor = Executors.newFixedThreadPool(WRITERS);
+        try {
+            upload(executor, fileStorage, WARMUP_UPLOADS_PER_WRITER);
+            long start = System.nanoTime();
+            int uploads = upload(executor, fileStorage, UPLOADS_PER_WRITER);
+            double seconds = (System.nanoTime() - start) / 1_000_000_000.0;
+            logger.info("Durability mode '{}': {} uploads in {} s, {} uploads per second",
+                    mode, uploads, "%.2f".formatted(seconds), "%.0f".formatted(uploads / seconds));
+            assertThat(uploads).isEqualTo(WRITERS * UPLOADS_PER_WRITER);
+        } finally {
+            executor.shutdownNow();
+            storageDurability.stop();
+        }
+    }
+
+    private static int upload(ExecutorService executor, FileStorageImpl fileStorage, int uploadsPerWriter) throws Exception {
+        List<Future<Integer>> writers = new ArrayList<>();
+        for (int writer = 0; writer < WRITERS; writer++) {
+            writers.add(executor.submit(() -> {
+                for (int upload = 0; upload < uploadsPerWriter; upload++) {
+                    fileStorage.storeSection(new ByteArrayInputStream(CONTENT), fileStorage.generateSystemFileName("section.bin"));
+                }
+                return uploadsPerWriter;
+            }));
+        }
+
+        int uploads = 0;
+        for (Future<Integer> writer : writers) {
+            uploads += writer.get();
+        }
+
+        return uploads;
+    }
+}
@@ -0,0 +1,173 @@
+package com.example.documentstorage.unit.features.copies;
+
+import com.example.documentstorage.entities.DataRecord;
+import com.example.documentstorage.entities.Field;
+import com.example.documentstorage.entities.Section;
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.features.copies.CopyDataRecordRepository;
+import com.example.documentstorage.features.copies.CopyServiceImpl;
+import com.example.documentstorage.features.copies.SectionCopySource;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ActionType;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.inline.InlineSectionStore;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTracker;
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import com.example.documentstorage.shared.base.models.responses.SectionDetail;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.nio.file.NoSuchFileException;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class CopyServiceTests {
+
+    @Mock
+    private CopyDataRecordRepository dataRecordRepository;
+
+    @Mock
+    private TransactionActionRecordRepository transactionActionRecordRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private FileStorage fileStorage;
+
+    @Mock
+    private InlineSectionStore inlineSectionStore;
+
+    @Mock
+    private StorageUsageTracker storageUsageTracker;
+
+    @InjectMocks
+    private CopyServiceImpl copyService;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        Mockito.when(inlineSectionStore.isInline(anyString()))
+                .thenAnswer(invocation -> invocation.<String>getArgument(0).startsWith("inline/"));
+        Mockito.when(fileStorage.generateCopyLocation("invoice_1.pdf", "invoice.pdf")).thenReturn("invoice_2.pdf");
+        Mockito.when(dataRecordRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+    }
+
+    @Test
+    void copySection_whenSectionExists_shouldShareStoredFileAndCommitTransactionAction() {
+        DataRecord targetRecord = createDataRecord(2);
+        Mockito.when(dataRecordRepository.findSectionById(1, 10)).thenReturn(Optional.of(createSource("invoice_1.pdf")));
+        Mockito.when(dataRecordRepository.existsById(2)).thenReturn(true);
+        Mockito.when(dataRecordRepository.findById(2)).thenReturn(Optional.of(targetRecord));
+
+        DataRecordDetail recordDetail = copyService.copySection(1, 10, 2);
+
+        assertThat(recordDetail.sections()).hasSize(1);
+        Section section = targetRecord.getSections().getFirst();
+        assertThat(section.getFileName()).isEqualTo("invoice.pdf");
+        assertThat(section.getStorageLocation()).isEqualTo("invoice_2.pdf");
+        assertThat(section.getFileSize()).isEqualTo(3);
+        assertThat(section.getChecksum()).isEqualTo("abc");
+        assertThat(section.getContentEncoding()).isEqualTo(ContentEncoding.GZIP);
+        verify(fileStorage).shareSection("invoice_1.pdf", "invoice_2.pdf");
+        verify(storageUsageTracker).addUsage(2, 3, 1);
+
+        ArgumentCaptor<TransactionActionRecord> actionRecordCaptor = ArgumentCaptor.forClass(TransactionActionRecord.class);
+        verify(transactionActionRecordRepository, Mockito.atLeastOnce()).save(actionRecordCaptor.capture());
+        assertThat(actionRecordCaptor.getValue().getActionType()).isEqualTo(ActionType.GROUP);
+        assertThat(actionRecordCaptor.getValue().isCommitted()).isTrue();
+    }
+
+    @Test
+    void copySection_whenSharingFails_shouldNotAddSection() {
+        DataRecord targetRecord = createDataRecord(2);
+        Mockito.when(dataRecordRepository.findSectionById(1, 10)).thenReturn(Optional.of(createSource("invoice_1.pdf")));
+        Mockito.when(dataRecordRepository.existsById(2)).thenReturn(true);
+        Mockito.when(dataRecordRepository.findById(2)).thenReturn(Optional.of(targetRecord));
+        Mockito.doThrow(new InvalidSystemStateException(new NoSuchFileException("invoice_1.pdf")))
+                .when(fileStorage).shareSection("invoice_1.pdf", "invoice_2.pdf");
+
+        assertThatThrownBy(() -> copyService.copySection(1, 10, 2))
+                .isInstanceOf(InvalidSystemStateException.class);
+
+        assertThat(targetRecord.getSections()).isEmpty();
+        verify(storageUsageTracker, never()).addUsage(anyInt(), anyLong(), anyInt());
+    }
+
+    @Test
+    void copySection_whenTargetDataRecordNotFound_shouldThrowInvalidClientInputException() {
+        Mockito.when(dataRecordRepository.findSectionById(1, 10)).thenReturn(Optional.of(createSource("invoice_1.pdf")));
+        Mockito.when(dataRecordRepository.existsById(2)).thenReturn(false);
+
+        assertThatThrownBy(() -> copyService.copySection(1, 10, 2))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'features.copies.on.section.copy.target.datarecord.not.found'");
+
+        verify(fileStorage, never()).shareSection(anyString(), anyString());
+    }
+
+    @Test
+    void cloneDataRecord_whenDataRecordExists_shouldCopyFieldsAndSections() {
+        DataRecord sourceRecord = createDataRecord(1);
+        sourceRecord.setTitle("Invoices");
+        Field field = new Field();
+        field.setName("year");
+        field.setValue("2024");
+        sourceRecord.addField(field);
+        Mockito.when(dataRecordRepository.existsById(1)).thenReturn(true);
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(sourceRecord));
+        Mockito.when(dataRecordRepository.findSectionsById(1))
+                .thenReturn(List.of(createSource("invoice_1.pdf"), createSource("inline/1")));
+        Mockito.when(inlineSectionStore.copy("inline/1")).thenReturn("inline/2");
+
+        DataRecordDetail recordDetail = copyService.cloneDataRecord(1);
+
+        assertThat(recordDetail.title()).isEqualTo("Invoices");
+        assertThat(recordDetail.fields()).singleElement()
+                .satisfies(fieldDetail -> assertThat(fieldDetail.value()).isEqualTo("2024"));
+        assertThat(recordDetail.sections())
+                .extracting(SectionDetail::storageLocation)
+                .containsExactly("invoice_2.pdf", "inline/2");
+        assertThat(sourceRecord.getFields()).hasSize(1);
+        verify(fileStorage).shareSection("invoice_1.pdf", "invoice_2.pdf");
+        verify(fileStorage, never()).generateCopyLocation("inline/1", "invoice.pdf");
+        verify(storageUsageTracker).addUsage(0, 6, 2);
+    }
+
+    private static SectionCopySource createSource(String storageLocation) {
+        return new SectionCopySource(10, "invoice.pdf", storageLocation, "application/pdf", 3, ContentEncoding.GZIP, "abc");
+    }
+
+    private static DataRecord createDataRecord(int id) {
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(id);
+        dataRecord.setSections(new ArrayList<>());
+        return dataRecord;
+    }
+}
@@ -0,0 +1,249 @@
+package com.example.documentstorage.unit.features.deltas;
+
+import com.example.documentstorage.entities.DataRecord;
+import com.example.documentstorage.entities.Section;
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.features.deltas.DeltaDataRecordRepository;
+import com.example.documentstorage.features.deltas.DeltaServiceImpl;
+import com.example.documentstorage.features.deltas.SectionDeltaSource;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.filestorage.ByteArraySectionContent;
+import com.example.documentstorage.shared.base.filestorage.CompressionPolicy;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.inline.InlineSectionStore;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTracker;
+import com.example.documentstorage.shared.base.models.responses.BlockSignatureDetail;
+import com.example.documentstorage.shared.base.models.responses.SectionSignaturesDetail;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.DataOutputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.security.MessageDigest;
+import java.security.NoSuchAlgorithmException;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.HexFormat;
+import java.util.List;
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class DeltaServiceTests {
+    private static final int BLOCK_SIZE = 512;
+    private static final byte[] CONTENT = createContent(1200);
+
+    @Mock
+    private DeltaDataRecordRepository dataRecordRepository;
+
+    @Mock
+    private TransactionActionRecordRepository transactionActionRecordRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private FileStorage fileStorage;
+
+    @Mock
+    private CompressionPolicy compressionPolicy;
+
+    @Mock
+    private InlineSectionStore inlineSectionStore;
+
+    @Mock
+    private StorageUsageTracker storageUsageTracker;
+
+    private DeltaServiceImpl deltaService;
+
+    private DataRecord dataRecord;
+
+    private Section section;
+
+    private final LocalDateTime modifiedAt = LocalDateTime.now().minusDays(1);
+
+    private byte[] storedContent;
+
+    @BeforeEach
+    void setUp() {
+        deltaService = new DeltaServiceImpl(
+                dataRecordRepository,
+                transactionActionRecordRepository,
+                transactionTemplate,
+                fileStorage,
+                compressionPolicy,
+                inlineSectionStore,
+                storageUsageTracker,
+                DataSize.ofBytes(BLOCK_SIZE));
+
+        section = new Section();
+        section.setId(2);
+        section.setFileName("invoice.pdf");
+        section.setStorageLocation("invoice_1.pdf");
+        section.setFileSize(CONTENT.length);
+        section.setChecksum(checksum(CONTENT));
+        section.setVersion(3);
+        section.setModifiedAt(modifiedAt);
+        dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>(List.of(section)));
+
+        Mockito.when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        Mockito.when(dataRecordRepository.findSectionById(1, 2)).thenReturn(Optional.of(new SectionDeltaSource(
+                2, "invoice.pdf", "invoice_1.pdf", "application/pdf", CONTENT.length, ContentEncoding.IDENTITY, checksum(CONTENT), 3)));
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+        Mockito.when(dataRecordRepository.saveAndFlush(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(fileStorage.openSection("invoice_1.pdf")).thenAnswer(invocation -> new ByteArraySectionContent(CONTENT));
+        Mockito.when(fileStorage.generateSystemFileName("invoice.pdf")).thenReturn("invoice_2.pdf");
+        Mockito.when(compressionPolicy.selectEncoding(anyString(), anyLong())).thenReturn(ContentEncoding.IDENTITY);
+        Mockito.when(fileStorage.storeSection(any(InputStream.class), eq("invoice_2.pdf"), any())).thenAnswer(invocation -> {
+            storedContent = invocation.<InputStream>getArgument(0).readAllBytes();
+            return new StoredFile("invoice_2.pdf", storedContent.length, checksum(storedContent), ContentEncoding.IDENTITY);
+        });
+    }
+
+    @Test
+    void getSignatures_whenSectionStored_shouldReturnSignatureOfEveryBlock() {
+        SectionSignaturesDetail signatures = deltaService.getSignatures(1, 2, null);
+
+        assertThat(signatures.blockSize()).isEqualTo(BLOCK_SIZE);
+        assertThat(signatures.checksum()).isEqualTo(checksum(CONTENT));
+        assertThat(signatures.blocks())
+                .extracting(BlockSignatureDetail::strongChecksum)
+                .containsExactly(
+                        checksum(Arrays.copyOfRange(CONTENT, 0, 512)),
+                        checksum(Arrays.copyOfRange(CONTENT, 512, 1024)),
+                        checksum(Arrays.copyOfRange(CONTENT, 1024, 1200)));
+        assertThat(signatures.blocks().getFirst().weakChecksum()).isEqualTo(weakChecksum(Arrays.copyOfRange(CONTENT, 0, 512)));
+    }
+
+    @Test
+    void replaceSection_whenDeltaCopiesAndAddsBytes_shouldSwitchSectionToRebuiltFile() throws IOException {
+        byte[] delta = new DeltaBuilder().copy(2, 1).data(new byte[]{7, 7, 7}).copy(0, 1).end();
+
+        deltaService.replaceSection(1, 2, null, checksum(CONTENT), null, new ByteArrayInputStream(delta));
+
+        byte[] expectedContent = new byte[176 + 3 + 512];
+        System.arraycopy(CONTENT, 1024, expectedContent, 0, 176);
+        Arrays.fill(expectedContent, 176, 179, (byte) 7);
+        System.arraycopy(CONTENT, 0, expectedContent, 179, 512);
+        assertThat(storedContent).containsExactly(expectedContent);
+        assertThat(section.getStorageLocation()).isEqualTo("invoice_2.pdf");
+        assertThat(section.getFileSize()).isEqualTo(expectedContent.length);
+        assertThat(section.getChecksum()).isEqualTo(checksum(expectedContent));
+        assertThat(section.getModifiedAt()).isAfter(modifiedAt);
+
+        ArgumentCaptor<TransactionActionRecord> actionCaptor = ArgumentCaptor.forClass(TransactionActionRecord.class);
+        verify(transactionActionRecordRepository, Mockito.atLeast(2)).save(actionCaptor.capture());
+        assertThat(actionCaptor.getAllValues())
+                .allMatch(TransactionActionRecord::isCommitted)
+                .extracting(TransactionActionRecord::getStorageLocation)
+                .contains("invoice_1.pdf", "invoice_2.pdf");
+        verify(fileStorage).releaseSection("invoice_1.pdf");
+        verify(storageUsageTracker).removeUsage(1, CONTENT.length, 1);
+        verify(storageUsageTracker).addUsage(1, expectedContent.length, 1);
+    }
+
+    @Test
+    void replaceSection_whenBaseChanged_shouldRejectDelta() throws IOException {
+        byte[] delta = new DeltaBuilder().copy(0, 1).end();
+
+        assertThatThrownBy(() -> deltaService.replaceSection(1, 2, null, "outdated", null, new ByteArrayInputStream(delta)))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'features.deltas.on.section.replace.section.changed'");
+
+        verify(fileStorage, never()).storeSection(any(InputStream.class), anyString(), any());
+        assertThat(section.getStorageLocation()).isEqualTo("invoice_1.pdf");
+    }
+
+    @Test
+    void replaceSection_whenDeltaCopiesMissingBlock_shouldKeepSection() throws IOException {
+        byte[] delta = new DeltaBuilder().copy(2, 2).end();
+
+        assertThatThrownBy(() -> deltaService.replaceSection(1, 2, null, checksum(CONTENT), null, new ByteArrayInputStream(delta)))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'features.deltas.on.section.replace.delta.invalid'");
+
+        verify(fileStorage, never()).releaseSection(anyString());
+        assertThat(section.getStorageLocation()).isEqualTo("invoice_1.pdf");
+    }
+
+    private static byte[] createContent(int size) {
+        byte[] content = new byte[size];
+        for (int i = 0; i < size; i++) {
+            content[i] = (byte) (i * 31);
+        }
+
+        return content;
+    }
+
+    private static int weakChecksum(byte[] block) {
+        int a = 0;
+        int b = 0;
+        for (int i = 0; i < block.length; i++) {
+            a = (a + (block[i] & 0xff)) % 65536;
+            b = (b + (block.length - i) * (block[i] & 0xff)) % 65536;
+        }
+
+        return a + (b << 16);
+    }
+
+    private static String checksum(byte[] content) {
+        try {
+            return HexFormat.of().formatHex(MessageDigest.getInstance("SHA-256").digest(content));
+        } catch (NoSuchAlgorithmException e) {
+            throw new IllegalStateException(e);
+        }
+    }
+
+    private static class DeltaBuilder {
+        private final ByteArrayOutputStream bytes = new ByteArrayOutputStream();
+        private final DataOutputStream delta = new DataOutputStream(bytes);
+
+        DeltaBuilder copy(int blockIndex, int blockCount) throws IOException {
+            delta.writeByte(0x01);
+            delta.writeInt(blockIndex);
+            delta.writeInt(blockCount);
+            return this;
+        }
+
+        DeltaBuilder data(byte[] content) throws IOException {
+            delta.writeByte(0x02);
+            delta.writeInt(content.length);
+            delta.write(content);
+            return this;
+        }
+
+        byte[] end() throws IOException {
+            delta.writeByte(0x00);
+            return bytes.toByteArray();
+        }
+    }
+}
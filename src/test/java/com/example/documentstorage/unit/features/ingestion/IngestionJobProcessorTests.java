@@ -0,0 +1,208 @@
+package com.example.documentstorage.unit.features.ingestion;
+
+import com.example.documentstorage.entities.DataRecord;
+import com.example.documentstorage.entities.IngestionJob;
+import com.example.documentstorage.entities.Section;
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.features.ingestion.IngestionDataRecordRepository;
+import com.example.documentstorage.features.ingestion.IngestionJobProcessor;
+import com.example.documentstorage.features.ingestion.IngestionJobRepository;
+import com.example.documentstorage.features.ingestion.IngestionJobStatus;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.CompressionPolicy;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.inline.InlineSectionStore;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTracker;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.tuple;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyCollection;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class IngestionJobProcessorTests {
+    private static final byte[] CONTENT = {1, 2, 3, 4, 5, 6, 7, 8};
+
+    @TempDir
+    private Path ingestionPath;
+
+    @Mock
+    private IngestionJobRepository jobRepository;
+
+    @Mock
+    private IngestionDataRecordRepository dataRecordRepository;
+
+    @Mock
+    private TransactionActionRecordRepository transactionActionRecordRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private FileStorage fileStorage;
+
+    @Mock
+    private CompressionPolicy compressionPolicy;
+
+    @Mock
+    private InlineSectionStore inlineSectionStore;
+
+    @Mock
+    private StorageUsageTracker storageUsageTracker;
+
+    private IngestionJobProcessor ingestionJobProcessor;
+
+    private IngestionJob job;
+
+    private DataRecord dataRecord;
+
+    @BeforeEach
+    void setUp() {
+        ingestionJobProcessor = new IngestionJobProcessor(
+                jobRepository,
+                dataRecordRepository,
+                transactionActionRecordRepository,
+                transactionTemplate,
+                fileStorage,
+                compressionPolicy,
+                inlineSectionStore,
+                storageUsageTracker,
+                Runnable::run,
+                ingestionPath.toString(),
+                "manifest.csv",
+                2);
+
+        job = new IngestionJob();
+        dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+
+        Mockito.when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        Mockito.doAnswer(invocation -> {
+                    invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+                    return null;
+                })
+                .when(transactionTemplate).executeWithoutResult(any());
+        Mockito.when(jobRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            job = invocation.getArgument(0);
+            job.setId(1);
+            return job;
+        });
+        Mockito.when(jobRepository.findByStatusOrderByIdAsc(IngestionJobStatus.RUNNING)).thenAnswer(invocation -> List.of(job));
+        Mockito.when(jobRepository.findById(1)).thenAnswer(invocation -> Optional.of(job));
+        Mockito.when(dataRecordRepository.findExistingIds(anyCollection())).thenReturn(List.of(1));
+        Mockito.when(dataRecordRepository.findAllById(any())).thenReturn(List.of(dataRecord));
+        Mockito.when(inlineSectionStore.admits(anyLong())).thenAnswer(invocation -> invocation.<Long>getArgument(0) < 4);
+        Mockito.when(inlineSectionStore.store(any())).thenReturn(new StoredFile("inline/1", 2, "inline-checksum", ContentEncoding.IDENTITY));
+        Mockito.when(fileStorage.generateSystemFileName(anyString()))
+                .thenAnswer(invocation -> "stored_" + invocation.getArgument(0));
+        Mockito.when(compressionPolicy.selectEncoding(anyString(), anyLong())).thenReturn(ContentEncoding.IDENTITY);
+        Mockito.when(fileStorage.ingestSection(any(), anyString(), any()))
+                .thenAnswer(invocation -> new StoredFile(invocation.getArgument(1), CONTENT.length, "checksum", ContentEncoding.IDENTITY));
+    }
+
+    @Test
+    void processJobs_whenManifestInDirectory_shouldIngestFilesAndCompleteJob() throws IOException {
+        Path directory = Files.createDirectory(ingestionPath.resolve("invoices"));
+        Files.write(directory.resolve("invoice.pdf"), CONTENT);
+        Files.write(directory.resolve("note.txt"), new byte[]{1, 2});
+        Files.write(directory.resolve("receipt.pdf"), CONTENT);
+        Files.writeString(directory.resolve("manifest.csv"), """
+                # file,data record id
+                invoice.pdf,1
+                note.txt,1,text/plain
+                missing.pdf,1
+                receipt.pdf,2
+                """);
+
+        ingestionJobProcessor.processJobs();
+
+        assertThat(job.getDirectory()).isEqualTo("invoices");
+        assertThat(job.getStatus()).isEqualTo(IngestionJobStatus.COMPLETED);
+        assertThat(job.getProcessedLines()).isEqualTo(5);
+        assertThat(job.getIngestedFiles()).isEqualTo(2);
+        assertThat(job.getFailedFiles()).isEqualTo(2);
+        assertThat(dataRecord.getSections())
+                .extracting(Section::getFileName, Section::getStorageLocation, Section::getContentType)
+                .containsExactly(
+                        tuple("invoice.pdf", "stored_invoice.pdf", "application/pdf"),
+                        tuple("note.txt", "inline/1", "text/plain"));
+        assertThat(directory.resolve("invoice.pdf")).doesNotExist();
+        assertThat(directory.resolve("note.txt")).doesNotExist();
+        assertThat(directory.resolve("receipt.pdf")).exists();
+        verify(storageUsageTracker).addUsage(1, CONTENT.length, 1);
+        verify(storageUsageTracker).addUsage(1, 2, 1);
+    }
+
+    @Test
+    void processJobs_whenFileNotStored_shouldFailJobAtCheckpoint() throws IOException {
+        Path directory = Files.createDirectory(ingestionPath.resolve("invoices"));
+        Files.write(directory.resolve("invoice.pdf"), CONTENT);
+        Files.writeString(directory.resolve("manifest.csv"), "invoice.pdf,1\n");
+        Mockito.when(fileStorage.ingestSection(any(), anyString(), any())).thenThrow(new InvalidSystemStateException());
+
+        ingestionJobProcessor.processJobs();
+
+        ArgumentCaptor<TransactionActionRecord> actionCaptor = ArgumentCaptor.forClass(TransactionActionRecord.class);
+        verify(transactionActionRecordRepository).save(actionCaptor.capture());
+        assertThat(actionCaptor.getValue().isCommitted()).isFalse();
+        assertThat(job.getStatus()).isEqualTo(IngestionJobStatus.FAILED);
+        assertThat(job.getProcessedLines()).isZero();
+        assertThat(job.getFailureMessage()).isNotBlank();
+        assertThat(dataRecord.getSections()).isEmpty();
+        assertThat(directory.resolve("invoice.pdf")).exists();
+    }
+
+    @Test
+    void processJobs_whenJobFromCheckpoint_shouldSkipProcessedLines() throws IOException {
+        Path directory = Files.createDirectory(ingestionPath.resolve("invoices"));
+        Files.write(directory.resolve("receipt.pdf"), CONTENT);
+        Files.writeString(directory.resolve("manifest.csv"), "invoice.pdf,1\nreceipt.pdf,1\n");
+        job.setId(1);
+        job.setDirectory("invoices");
+        job.setStatus(IngestionJobStatus.RUNNING);
+        job.setProcessedLines(1);
+        Mockito.when(jobRepository.existsByDirectory("invoices")).thenReturn(true);
+
+        ingestionJobProcessor.processJobs();
+
+        verify(jobRepository, never()).saveAndFlush(any());
+        verify(fileStorage).ingestSection(eq(directory.resolve("receipt.pdf")), eq("stored_receipt.pdf"), any());
+        verify(storageUsageTracker).addUsage(anyInt(), anyLong(), eq(1));
+        assertThat(job.getStatus()).isEqualTo(IngestionJobStatus.COMPLETED);
+        assertThat(job.getProcessedLines()).isEqualTo(2);
+        assertThat(job.getFailedFiles()).isZero();
+    }
+}
@@ -0,0 +1,71 @@
+package com.example.documentstorage.unit.features.sections;
+
+import com.example.documentstorage.features.sections.SectionArchive;
+import com.example.documentstorage.features.sections.SectionArchiveEntry;
+import com.example.documentstorage.features.sections.SectionArchiveWriterImpl;
+import com.example.documentstorage.shared.base.filestorage.ByteArraySectionContent;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import org.junit.jupiter.api.Test;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.time.LocalDateTime;
+import java.util.LinkedHashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.zip.ZipEntry;
+import java.util.zip.ZipInputStream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SectionArchiveWriterTests {
+    private static final LocalDateTime LAST_MODIFIED = LocalDateTime.of(2024, 5, 17, 10, 15, 30);
+
+    private final SectionArchiveWriterImpl sectionArchiveWriter = new SectionArchiveWriterImpl(List.of("image/png", "video/*"));
+
+    @Test
+    void writeArchive_whenSectionsWithSameName_shouldWriteEveryEntryWithUniqueName() throws IOException {
+        byte[] text = "a,b,c\n".repeat(100).getBytes(StandardCharsets.US_ASCII);
+        byte[] image = {(byte) 0x89, 'P', 'N', 'G', 1, 2, 3};
+        SectionArchive archive = new SectionArchive("data-record-1.zip", List.of(
+                entry("report.csv", "text/csv", text, ContentEncoding.IDENTITY),
+                entry("report.csv", "text/csv", text, ContentEncoding.GZIP),
+                entry("../logo.png", "image/png", image, ContentEncoding.IDENTITY)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionArchiveWriter.writeArchive(archive, response);
+
+        assertThat(response.getContentType()).isEqualTo("application/zip");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"data-record-1.zip\"");
+        Map<String, ZipEntry> entries = new LinkedHashMap<>();
+        Map<String, byte[]> contents = new LinkedHashMap<>();
+        try (ZipInputStream zipInputStream = new ZipInputStream(new ByteArrayInputStream(response.getContentAsByteArray()))) {
+            for (ZipEntry zipEntry = zipInputStream.getNextEntry(); zipEntry != null; zipEntry = zipInputStream.getNextEntry()) {
+                entries.put(zipEntry.getName(), zipEntry);
+                contents.put(zipEntry.getName(), zipInputStream.readAllBytes());
+            }
+        }
+
+        assertThat(entries).containsOnlyKeys("report.csv", "report (2).csv", ".._logo.png");
+        assertThat(contents.get("report.csv")).isEqualTo(text);
+        assertThat(contents.get("report (2).csv")).isEqualTo(text);
+        assertThat(contents.get(".._logo.png")).isEqualTo(image);
+        assertThat(entries.get("report.csv").getMethod()).isEqualTo(ZipEntry.DEFLATED);
+        assertThat(entries.get(".._logo.png").getMethod()).isEqualTo(ZipEntry.STORED);
+    }
+
+    private static SectionArchiveEntry entry(String fileName, String contentType, byte[] content, ContentEncoding encoding) throws IOException {
+        ByteArrayOutputStream storedContent = new ByteArrayOutputStream();
+        try (OutputStream outputStream = encoding.encode(storedContent)) {
+            outputStream.write(content);
+        }
+
+        return new SectionArchiveEntry(fileName, contentType, content.length, encoding, LAST_MODIFIED,
+                new ByteArraySectionContent(storedContent.toByteArray()));
+    }
+}
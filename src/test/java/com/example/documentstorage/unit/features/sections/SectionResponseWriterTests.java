@@ -0,0 +1,341 @@
+package com.example.documentstorage.unit.features.sections;
+
+import com.example.documentstorage.features.sections.SectionData;
+import com.example.documentstorage.features.sections.SectionResponseWriterImpl;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.FileSectionContent;
+import com.example.documentstorage.shared.base.filestorage.LazySectionContent;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.http.HttpHeaders;
+import org.springframework.mock.web.MockHttpServletRequest;
+import org.springframework.mock.web.MockHttpServletResponse;
+
+import java.io.IOException;
+import java.io.OutputStream;
+import java.nio.charset.StandardCharsets;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.LocalDateTime;
+import java.time.ZoneId;
+import java.time.ZoneOffset;
+import java.time.format.DateTimeFormatter;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SectionResponseWriterTests {
+    private static final String CONTENT = "0123456789abcdefghij";
+    private static final String REPLACED_CONTENT = "0123456789ABCDEFGHIJKLMNOP";
+    private static final LocalDateTime LAST_MODIFIED = LocalDateTime.of(2024, 5, 17, 10, 15, 30);
+    private static final String CHECKSUM = "9f86d081884c7d659a2feaa0c55ad015a3bf4f1b2b0b822cd15d6c15b0f00a08";
+
+    @TempDir
+    private Path tempDir;
+
+    private Path sectionFile;
+
+    private final SectionResponseWriterImpl sectionResponseWriter = new SectionResponseWriterImpl();
+
+    @BeforeEach
+    void setUp() throws IOException {
+        sectionFile = Files.writeString(tempDir.resolve("section.txt"), CONTENT);
+    }
+
+    @Test
+    void writeSection_whenNoRangeRequested_shouldWriteWholeContent() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(sectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+        assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length());
+        assertThat(response.getHeader(HttpHeaders.ACCEPT_RANGES)).isEqualTo("bytes");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_DISPOSITION)).isEqualTo("attachment; filename=\"section.txt\"");
+    }
+
+    @Test
+    void writeSection_whenSingleRangeRequested_shouldWritePartialContent() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=5-9");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(sectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("56789");
+        assertThat(response.getContentLengthLong()).isEqualTo(5);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 5-9/20");
+    }
+
+    @Test
+    void writeSection_whenSuffixRangeRequested_shouldWriteLastBytes() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=-4");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(sectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("ghij");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 16-19/20");
+    }
+
+    @Test
+    void writeSection_whenMultipleRangesRequested_shouldWriteMultipartByteRanges() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-1,10-12");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(sectionData(), request, response);
+
+        String body = response.getContentAsString();
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentType()).startsWith("multipart/byteranges; boundary=");
+        assertThat(response.getContentLengthLong()).isEqualTo(body.getBytes(StandardCharsets.US_ASCII).length);
+        assertThat(body)
+                .contains("Content-Range: bytes 0-1/20\r\n\r\n01\r\n")
+                .contains("Content-Range: bytes 10-12/20\r\n\r\nabc\r\n")
+                .endsWith("--\r\n");
+    }
+
+    @Test
+    void writeSection_whenRangeNotSatisfiable_shouldReturnRangeNotSatisfiable() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=50-60");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(sectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(416);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes */20");
+        assertThat(response.getContentAsString()).isEmpty();
+    }
+
+    @Test
+    void writeSection_whenIfRangeMatchesLastModified_shouldWritePartialContent() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        request.addHeader(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(sectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("0123");
+    }
+
+    @Test
+    void writeSection_whenIfRangeDoesNotMatch_shouldWriteWholeContent() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        request.addHeader(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED.minusDays(1)));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(sectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(CONTENT);
+    }
+
+    @Test
+    void writeSection_whenModifiedSinceReplaced_shouldWriteReplacedContent() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_MODIFIED_SINCE, httpDate(LAST_MODIFIED));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(replacedSectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(REPLACED_CONTENT);
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, no-cache");
+        assertThat(response.getHeader(HttpHeaders.LAST_MODIFIED)).isEqualTo(httpDate(LAST_MODIFIED.plusMinutes(5)));
+    }
+
+    @Test
+    void writeSection_whenIfRangeMatchesContentBeforeReplace_shouldWriteWholeReplacedContent() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-");
+        request.addHeader(HttpHeaders.IF_RANGE, httpDate(LAST_MODIFIED));
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(replacedSectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentAsString()).isEqualTo(REPLACED_CONTENT);
+    }
+
+    @Test
+    void writeSection_whenEncodingAccepted_shouldWriteStoredContentWithContentEncoding() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "deflate;q=0.5, gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(gzipSectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeader(HttpHeaders.VARY)).isEqualTo(HttpHeaders.ACCEPT_ENCODING);
+        assertThat(response.getContentAsByteArray()).isEqualTo(Files.readAllBytes(sectionFile));
+    }
+
+    @Test
+    void writeSection_whenEncodingNotAccepted_shouldWriteDecodedContent() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip;q=0, br");
+        request.addHeader(HttpHeaders.RANGE, "bytes=10-12");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(gzipSectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isNull();
+        assertThat(response.getContentAsString()).isEqualTo("abc");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_RANGE)).isEqualTo("bytes 10-12/20");
+    }
+
+    @Test
+    void writeSection_whenEntityTagMatches_shouldRespondNotModifiedWithoutOpeningContent() {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"other\", W/\"" + CHECKSUM + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        LazySectionContent content = new LazySectionContent(() -> {
+            throw new IllegalStateException("The content must not be opened");
+        }, CONTENT.length());
+
+        sectionResponseWriter.writeSection(lazySectionData(content), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(304);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + CHECKSUM + "\"");
+        assertThat(response.getHeader(HttpHeaders.CACHE_CONTROL)).isEqualTo("public, no-cache");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(content.isOpened()).isFalse();
+    }
+
+    @Test
+    void writeSection_whenHeadRequested_shouldWriteHeadersOnly() {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/download");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        LazySectionContent content = new LazySectionContent(() -> {
+            throw new IllegalStateException("The content must not be opened");
+        }, CONTENT.length());
+
+        sectionResponseWriter.writeSection(lazySectionData(content), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getContentLengthLong()).isEqualTo(CONTENT.length());
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + CHECKSUM + "\"");
+        assertThat(response.getContentAsByteArray()).isEmpty();
+        assertThat(content.isOpened()).isFalse();
+    }
+
+    @Test
+    void writeSection_whenHeadRequestedForEncodedContent_shouldNotOpenContent() {
+        MockHttpServletRequest request = new MockHttpServletRequest("HEAD", "/download");
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+        LazySectionContent content = new LazySectionContent(() -> {
+            throw new IllegalStateException("The content must not be opened");
+        }, -1);
+
+        sectionResponseWriter.writeSection(new SectionData(
+                content,
+                "text/plain",
+                "attachment; filename=\"section.txt\"",
+                CONTENT.length(),
+                ContentEncoding.GZIP,
+                LAST_MODIFIED,
+                CHECKSUM), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.CONTENT_ENCODING)).isEqualTo("gzip");
+        assertThat(response.getHeader(HttpHeaders.CONTENT_LENGTH)).isNull();
+        assertThat(content.isOpened()).isFalse();
+    }
+
+    @Test
+    void writeSection_whenIfRangeEntityTagMatches_shouldWritePartialContent() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.RANGE, "bytes=0-3");
+        request.addHeader(HttpHeaders.IF_RANGE, "\"" + CHECKSUM + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(sectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(206);
+        assertThat(response.getContentAsString()).isEqualTo("0123");
+    }
+
+    @Test
+    void writeSection_whenEncodingAccepted_shouldUseEntityTagOfEncodedRepresentation() throws IOException {
+        MockHttpServletRequest request = new MockHttpServletRequest();
+        request.addHeader(HttpHeaders.ACCEPT_ENCODING, "gzip");
+        request.addHeader(HttpHeaders.IF_NONE_MATCH, "\"" + CHECKSUM + "\"");
+        MockHttpServletResponse response = new MockHttpServletResponse();
+
+        sectionResponseWriter.writeSection(gzipSectionData(), request, response);
+
+        assertThat(response.getStatus()).isEqualTo(200);
+        assertThat(response.getHeader(HttpHeaders.ETAG)).isEqualTo("\"" + CHECKSUM + "-gzip\"");
+    }
+
+    private SectionData lazySectionData(LazySectionContent content) {
+        return new SectionData(
+                content,
+                "text/plain",
+                "attachment; filename=\"section.txt\"",
+                CONTENT.length(),
+                ContentEncoding.IDENTITY,
+                LAST_MODIFIED,
+                CHECKSUM);
+    }
+
+    private SectionData sectionData() throws IOException {
+        return new SectionData(
+                FileSectionContent.open(sectionFile),
+                "text/plain",
+                "attachment; filename=\"section.txt\"",
+                CONTENT.length(),
+                ContentEncoding.IDENTITY,
+                LAST_MODIFIED,
+                CHECKSUM);
+    }
+
+    /**
+     * The section after its content has been replaced by a delta, under the same URL
+     */
+    private SectionData replacedSectionData() throws IOException {
+        Files.writeString(sectionFile, REPLACED_CONTENT);
+        return new SectionData(
+                FileSectionContent.open(sectionFile),
+                "text/plain",
+                "attachment; filename=\"section.txt\"",
+                REPLACED_CONTENT.length(),
+                ContentEncoding.IDENTITY,
+                LAST_MODIFIED.plusMinutes(5),
+                "replaced" + CHECKSUM.substring(8));
+    }
+
+    private SectionData gzipSectionData() throws IOException {
+        try (OutputStream outputStream = ContentEncoding.GZIP.encode(Files.newOutputStream(sectionFile))) {
+            outputStream.write(CONTENT.getBytes(StandardCharsets.US_ASCII));
+        }
+
+        return new SectionData(
+                FileSectionContent.open(sectionFile),
+                "text/plain",
+                "attachment; filename=\"section.txt\"",
+                CONTENT.length(),
+                ContentEncoding.GZIP,
+                LAST_MODIFIED,
+                CHECKSUM);
+    }
+
+    private static String httpDate(LocalDateTime dateTime) {
+        return dateTime.atZone(ZoneId.systemDefault())
+                .withZoneSameInstant(ZoneOffset.UTC)
+                .format(DateTimeFormatter.RFC_1123_DATE_TIME);
+    }
+}
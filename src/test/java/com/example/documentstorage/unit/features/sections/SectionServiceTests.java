@@ -0,0 +1,479 @@
+package com.example.documentstorage.unit.features.sections;
+
+import com.example.documentstorage.entities.DataRecord;
+import com.example.documentstorage.entities.Section;
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.features.sections.SectionDataRecordRepository;
+import com.example.documentstorage.features.sections.SectionServiceImpl;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ActionType;
+import com.example.documentstorage.shared.base.filestorage.AsyncFileStorage;
+import com.example.documentstorage.shared.base.filestorage.CompressionPolicy;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.UploadProtocol;
+import com.example.documentstorage.shared.base.filestorage.inline.InlineSectionStore;
+import com.example.documentstorage.shared.base.filestorage.integrity.SectionIntegrityChecker;
+import com.example.documentstorage.shared.base.filestorage.tiering.SectionAccessTracker;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTracker;
+import com.example.documentstorage.shared.base.models.responses.DataRecordDetail;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.Timeout;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.InjectMocks;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.mock.web.MockMultipartFile;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionSynchronization;
+import org.springframework.transaction.support.TransactionSynchronizationManager;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.web.multipart.MultipartFile;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.io.InputStream;
+import java.io.OutputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyIterable;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class SectionServiceTests {
+
+    @Mock
+    private SectionDataRecordRepository dataRecordRepository;
+
+    @Mock
+    private TransactionActionRecordRepository transactionActionRecordRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private FileStorage fileStorage;
+
+    @Mock
+    private CompressionPolicy compressionPolicy;
+
+    @Mock
+    private SectionAccessTracker sectionAccessTracker;
+
+    @Mock
+    private AsyncFileStorage asyncFileStorage;
+
+    @Mock
+    private SectionIntegrityChecker sectionIntegrityChecker;
+
+    @Mock
+    private StorageUsageTracker storageUsageTracker;
+
+    @Mock
+    private InlineSectionStore inlineSectionStore;
+
+    @InjectMocks
+    private SectionServiceImpl sectionService;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        Mockito.doAnswer(invocation -> {
+            invocation.<Consumer<TransactionStatus>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+        Mockito.when(asyncFileStorage.storeSection(any(), any(), any())).thenAnswer(invocation -> CompletableFuture.supplyAsync(
+                () -> fileStorage.storeSection(invocation.getArgument(0), invocation.getArgument(1), invocation.getArgument(2)),
+                Runnable::run));
+        Mockito.when(fileStorage.generateSystemFileName("invoice.pdf")).thenReturn("invoice_1.pdf");
+        Mockito.when(compressionPolicy.selectEncoding("application/pdf", 3)).thenReturn(ContentEncoding.GZIP);
+    }
+
+    @Test
+    void uploadSection_whenValidContent_shouldStoreSectionAndCommitTransactionAction() {
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+        Mockito.when(fileStorage.storeSection(any(), eq("invoice_1.pdf"), eq(ContentEncoding.GZIP)))
+                .thenReturn(new StoredFile("invoice_1.pdf", 3, "abc", ContentEncoding.GZIP));
+
+        DataRecordDetail recordDetail = sectionService.uploadSection(1, "invoice.pdf", "application/pdf", 3, content);
+
+        assertThat(recordDetail.sections()).hasSize(1);
+        Section section = dataRecord.getSections().getFirst();
+        assertThat(section.getFileName()).isEqualTo("invoice.pdf");
+        assertThat(section.getStorageLocation()).isEqualTo("invoice_1.pdf");
+        assertThat(section.getContentType()).isEqualTo("application/pdf");
+        assertThat(section.getFileSize()).isEqualTo(3);
+        assertThat(section.getChecksum()).isEqualTo("abc");
+        assertThat(section.getContentEncoding()).isEqualTo(ContentEncoding.GZIP);
+
+        ArgumentCaptor<TransactionActionRecord> actionRecordCaptor = ArgumentCaptor.forClass(TransactionActionRecord.class);
+        verify(transactionActionRecordRepository, Mockito.atLeastOnce()).save(actionRecordCaptor.capture());
+        TransactionActionRecord actionRecord = actionRecordCaptor.getValue();
+        assertThat(actionRecord.getActionType()).isEqualTo(ActionType.CREATE);
+        assertThat(actionRecord.getStorageLocation()).isEqualTo("invoice_1.pdf");
+        assertThat(actionRecord.isCommitted()).isTrue();
+        verify(storageUsageTracker).addUsage(1, 3, 1);
+    }
+
+    @Test
+    void uploadSection_whenQuotaExceeded_shouldThrowExceptionBeforeStoringFile() {
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        Mockito.doThrow(new InvalidClientInputException("shared.base.filestorage.usage.on.upload.data.record.quota.exceeded", 1))
+                .when(storageUsageTracker).checkQuota(1, 3);
+
+        assertThatThrownBy(() -> sectionService.uploadSection(1, "invoice.pdf", "application/pdf", 3, content))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'shared.base.filestorage.usage.on.upload.data.record.quota.exceeded'");
+
+        verify(fileStorage, never()).storeSection(any(), any(), any());
+        verify(transactionActionRecordRepository, never()).save(any());
+    }
+
+    @Test
+    @Timeout(10)
+    void uploadSection_whenNoDataRecord_shouldAbortStoringFileWithoutCommittingTransactionAction() {
+        // Content that never ends, so the upload only returns when the write has been aborted
+        InputStream content = new InputStream() {
+            @Override
+            public int read() {
+                return 0;
+            }
+        };
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.empty());
+        Mockito.doAnswer(invocation -> CompletableFuture.supplyAsync(() -> {
+            try {
+                invocation.<InputStream>getArgument(0).transferTo(OutputStream.nullOutputStream());
+            } catch (IOException e) {
+                throw new InvalidSystemStateException(e);
+            }
+            return new StoredFile("invoice_1.pdf", 3, "abc", ContentEncoding.GZIP);
+        })).when(asyncFileStorage).storeSection(any(), eq("invoice_1.pdf"), eq(ContentEncoding.GZIP));
+
+        assertThatThrownBy(() -> sectionService.uploadSection(1, "invoice.pdf", "application/pdf", 3, content))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'features.sections.on.section.upload.datarecord.not.found'");
+
+        // The partially written file is removed with the uncommitted action
+        ArgumentCaptor<TransactionActionRecord> actionRecordCaptor = ArgumentCaptor.forClass(TransactionActionRecord.class);
+        verify(transactionActionRecordRepository).save(actionRecordCaptor.capture());
+        assertThat(actionRecordCaptor.getValue().getStorageLocation()).isEqualTo("invoice_1.pdf");
+        assertThat(actionRecordCaptor.getValue().isCommitted()).isFalse();
+        verify(storageUsageTracker, never()).addUsage(Mockito.anyInt(), Mockito.anyLong(), Mockito.anyInt());
+    }
+
+    @Test
+    @Timeout(10)
+    void uploadSection_whenValidContent_shouldStoreFileWhileCheckingDataRecord() {
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        CountDownLatch dataRecordChecked = new CountDownLatch(1);
+        Mockito.when(dataRecordRepository.findById(1)).thenAnswer(invocation -> {
+            dataRecordChecked.countDown();
+            return Optional.of(dataRecord);
+        });
+        Thread callingThread = Thread.currentThread();
+        Mockito.doAnswer(invocation -> CompletableFuture.supplyAsync(() -> {
+            // Only completes when the data record is checked while the file is being written
+            assertThat(Thread.currentThread()).isNotSameAs(callingThread);
+            try {
+                dataRecordChecked.await();
+            } catch (InterruptedException e) {
+                Thread.currentThread().interrupt();
+            }
+            return new StoredFile("invoice_1.pdf", 3, "abc", ContentEncoding.GZIP);
+        })).when(asyncFileStorage).storeSection(any(), eq("invoice_1.pdf"), eq(ContentEncoding.GZIP));
+
+        sectionService.uploadSection(1, "invoice.pdf", "application/pdf", 3, content);
+
+        assertThat(dataRecord.getSections()).extracting(Section::getStorageLocation).containsExactly("invoice_1.pdf");
+        verify(fileStorage, never()).storeSection(any(), any(), any());
+        verify(storageUsageTracker).addUsage(1, 3, 1);
+    }
+
+    @Test
+    void uploadSection_whenStorageRequiresTransaction_shouldStoreFileInTransaction() {
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+        Mockito.when(fileStorage.requiresTransaction()).thenReturn(true);
+        Mockito.when(fileStorage.storeSection(content, "invoice_1.pdf", ContentEncoding.GZIP))
+                .thenReturn(new StoredFile("invoice_1.pdf", 3, "abc", ContentEncoding.GZIP));
+
+        sectionService.uploadSection(1, "invoice.pdf", "application/pdf", 3, content);
+
+        assertThat(dataRecord.getSections()).extracting(Section::getStorageLocation).containsExactly("invoice_1.pdf");
+        verify(asyncFileStorage, never()).storeSection(any(), any(), any());
+        verify(storageUsageTracker).addUsage(1, 3, 1);
+    }
+
+    @Test
+    void uploadSection_whenStagingProtocol_shouldPublishStagedFileWithoutTransactionAction() {
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+        Mockito.when(fileStorage.supportsStaging()).thenReturn(true);
+        Mockito.when(fileStorage.stageSection(content, "invoice_1.pdf", ContentEncoding.GZIP))
+                .thenReturn(new StoredFile("invoice_1.pdf", 3, "abc", ContentEncoding.GZIP));
+        executeWithSynchronization();
+
+        DataRecordDetail recordDetail = createStagingService().uploadSection(1, "invoice.pdf", "application/pdf", 3, content);
+
+        assertThat(recordDetail.sections()).hasSize(1);
+        assertThat(dataRecord.getSections().getFirst().getStorageLocation()).isEqualTo("invoice_1.pdf");
+        verify(fileStorage).publishStagedSection("invoice_1.pdf");
+        verify(fileStorage, never()).discardStagedSection(any());
+        verify(fileStorage, never()).storeSection(any(), any(), any());
+        verify(transactionActionRecordRepository, never()).save(any());
+        verify(storageUsageTracker).addUsage(1, 3, 1);
+    }
+
+    @Test
+    void uploadSection_whenStagingProtocolAndNoDataRecord_shouldDiscardStagedFile() {
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.empty());
+        Mockito.when(fileStorage.supportsStaging()).thenReturn(true);
+        Mockito.when(fileStorage.stageSection(content, "invoice_1.pdf", ContentEncoding.GZIP))
+                .thenReturn(new StoredFile("invoice_1.pdf", 3, "abc", ContentEncoding.GZIP));
+        executeWithSynchronization();
+
+        assertThatThrownBy(() -> createStagingService().uploadSection(1, "invoice.pdf", "application/pdf", 3, content))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'features.sections.on.section.upload.datarecord.not.found'");
+
+        verify(fileStorage).discardStagedSection("invoice_1.pdf");
+        verify(fileStorage, never()).publishStagedSection(any());
+    }
+
+    @Test
+    void uploadSection_whenTinyContentOfUnknownSize_shouldStoreContentInlineWithoutTransactionAction() {
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+        Mockito.when(inlineSectionStore.admits(-1)).thenReturn(true);
+        Mockito.when(inlineSectionStore.getMaxSize()).thenReturn(16);
+        Mockito.when(inlineSectionStore.store(new byte[]{1, 2, 3}))
+                .thenReturn(new StoredFile("inline/1", 3, "abc", ContentEncoding.IDENTITY));
+
+        DataRecordDetail recordDetail = sectionService.uploadSection(1, "signature.p7s", "application/pkcs7-signature", -1,
+                new ByteArrayInputStream(new byte[]{1, 2, 3}));
+
+        assertThat(recordDetail.sections()).hasSize(1);
+        assertThat(dataRecord.getSections().getFirst().getStorageLocation()).isEqualTo("inline/1");
+        verify(fileStorage, never()).storeSection(any(), any(), any());
+        verify(transactionActionRecordRepository, never()).save(any());
+        verify(storageUsageTracker).addUsage(1, 3, 1);
+    }
+
+    @Test
+    void uploadSection_whenUnknownSizeLargerThanInlineSize_shouldStoreWholeContentInFile() throws IOException {
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+        Mockito.when(inlineSectionStore.admits(-1)).thenReturn(true);
+        Mockito.when(inlineSectionStore.getMaxSize()).thenReturn(2);
+        List<byte[]> storedContents = new ArrayList<>();
+        Mockito.when(fileStorage.storeSection(any(), eq("invoice_1.pdf"), any())).thenAnswer(invocation -> {
+            storedContents.add(invocation.<InputStream>getArgument(0).readAllBytes());
+            return new StoredFile("invoice_1.pdf", 5, "abc", ContentEncoding.GZIP);
+        });
+
+        sectionService.uploadSection(1, "invoice.pdf", "application/pdf", -1, new ByteArrayInputStream(new byte[]{1, 2, 3, 4, 5}));
+
+        assertThat(storedContents).singleElement().isEqualTo(new byte[]{1, 2, 3, 4, 5});
+        verify(inlineSectionStore, never()).store(any());
+    }
+
+    @Test
+    void uploadSections_whenValidFiles_shouldStoreAllSectionsAndCommitGroup() {
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+        Mockito.when(dataRecordRepository.existsById(1)).thenReturn(true);
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+        Mockito.when(fileStorage.generateSystemFileName("notes.txt")).thenReturn("notes_1.txt");
+        Mockito.when(fileStorage.storeSection(any(), eq("invoice_1.pdf"), any()))
+                .thenReturn(new StoredFile("invoice_1.pdf", 3, "abc", ContentEncoding.IDENTITY));
+        Mockito.when(fileStorage.storeSection(any(), eq("notes_1.txt"), any()))
+                .thenReturn(new StoredFile("notes_1.txt", 2, "def", ContentEncoding.IDENTITY));
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("sections", "invoice.pdf", "application/pdf", new byte[]{1, 2, 3}),
+                new MockMultipartFile("sections", "notes.txt", "text/plain", new byte[]{4, 5}));
+
+        DataRecordDetail recordDetail = sectionService.uploadSections(1, files);
+
+        assertThat(recordDetail.sections()).hasSize(2);
+        assertThat(dataRecord.getSections()).extracting(Section::getStorageLocation)
+                .containsExactly("invoice_1.pdf", "notes_1.txt");
+        verify(asyncFileStorage, Mockito.times(2)).storeSection(any(), any(), any());
+
+        ArgumentCaptor<TransactionActionRecord> groupCaptor = ArgumentCaptor.forClass(TransactionActionRecord.class);
+        verify(transactionActionRecordRepository, Mockito.atLeastOnce()).save(groupCaptor.capture());
+        TransactionActionRecord groupRecord = groupCaptor.getValue();
+        assertThat(groupRecord.getActionType()).isEqualTo(ActionType.GROUP);
+        assertThat(groupRecord.isCommitted()).isTrue();
+
+        ArgumentCaptor<List<TransactionActionRecord>> childCaptor = ArgumentCaptor.captor();
+        verify(transactionActionRecordRepository, Mockito.atLeastOnce()).saveAll(childCaptor.capture());
+        assertThat(childCaptor.getValue())
+                .allSatisfy(childRecord -> {
+                    assertThat(childRecord.getActionType()).isEqualTo(ActionType.CREATE);
+                    assertThat(childRecord.getParentRecord()).isSameAs(groupRecord);
+                    assertThat(childRecord.isCommitted()).isTrue();
+                })
+                .extracting(TransactionActionRecord::getStorageLocation)
+                .containsExactly("invoice_1.pdf", "notes_1.txt");
+    }
+
+    @Test
+    void uploadSections_whenOneFileFails_shouldNotAddSectionsOrCommit() {
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+        Mockito.when(dataRecordRepository.existsById(1)).thenReturn(true);
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+        Mockito.when(fileStorage.generateSystemFileName("notes.txt")).thenReturn("notes_1.txt");
+        Mockito.when(fileStorage.storeSection(any(), eq("invoice_1.pdf"), any()))
+                .thenThrow(new InvalidSystemStateException(new IOException("disk full")));
+        Mockito.when(fileStorage.storeSection(any(), eq("notes_1.txt"), any()))
+                .thenReturn(new StoredFile("notes_1.txt", 2, "def", ContentEncoding.IDENTITY));
+        List<MultipartFile> files = List.of(
+                new MockMultipartFile("sections", "invoice.pdf", "application/pdf", new byte[]{1, 2, 3}),
+                new MockMultipartFile("sections", "notes.txt", "text/plain", new byte[]{4, 5}));
+
+        assertThatThrownBy(() -> sectionService.uploadSections(1, files))
+                .isInstanceOf(InvalidSystemStateException.class);
+
+        assertThat(dataRecord.getSections()).isEmpty();
+        verify(fileStorage).storeSection(any(), eq("notes_1.txt"), any());
+        ArgumentCaptor<List<TransactionActionRecord>> childCaptor = ArgumentCaptor.captor();
+        verify(transactionActionRecordRepository).saveAll(childCaptor.capture());
+        assertThat(childCaptor.getValue()).noneMatch(TransactionActionRecord::isCommitted);
+    }
+
+    @Test
+    void deleteSections_whenAllSectionsFound_shouldRemoveSectionsAndCommitGroup() {
+        DataRecord dataRecord = dataRecordWithSections();
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+
+        sectionService.deleteSections(1, List.of(10, 11));
+
+        assertThat(dataRecord.getSections()).extracting(Section::getId).containsExactly(12);
+        verify(fileStorage).releaseSection("a.pdf");
+        verify(fileStorage).releaseSection("b.pdf");
+        ArgumentCaptor<List<TransactionActionRecord>> childCaptor = ArgumentCaptor.captor();
+        verify(transactionActionRecordRepository, Mockito.atLeastOnce()).saveAll(childCaptor.capture());
+        assertThat(childCaptor.getValue())
+                .allSatisfy(childRecord -> {
+                    assertThat(childRecord.getActionType()).isEqualTo(ActionType.DELETE);
+                    assertThat(childRecord.isCommitted()).isTrue();
+                })
+                .extracting(TransactionActionRecord::getStorageLocation)
+                .containsExactly("a.pdf", "b.pdf");
+    }
+
+    @Test
+    void deleteSections_whenSectionNotFound_shouldThrowExceptionWithoutRemovingSections() {
+        DataRecord dataRecord = dataRecordWithSections();
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+
+        assertThatThrownBy(() -> sectionService.deleteSections(1, List.of(10, 99)))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'features.sections.on.batch.removal.sections.not.found'");
+
+        assertThat(dataRecord.getSections()).hasSize(3);
+        verify(fileStorage, never()).releaseSection(any());
+        verify(transactionActionRecordRepository, never()).saveAll(anyIterable());
+    }
+
+    @Test
+    void deleteSection_whenSectionInline_shouldRemoveContentWithoutTransactionAction() {
+        DataRecord dataRecord = dataRecordWithSections();
+        dataRecord.getSections().getFirst().setStorageLocation("inline/1");
+        Mockito.when(dataRecordRepository.findById(1)).thenReturn(Optional.of(dataRecord));
+        Mockito.when(inlineSectionStore.isInline("inline/1")).thenReturn(true);
+
+        sectionService.deleteSection(1, 10);
+
+        assertThat(dataRecord.getSections()).extracting(Section::getId).containsExactly(11, 12);
+        verify(inlineSectionStore).remove("inline/1");
+        verify(transactionActionRecordRepository, never()).save(any());
+        verify(fileStorage, never()).releaseSection(any());
+    }
+
+    private static DataRecord dataRecordWithSections() {
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+        List.of(10, 11, 12).forEach(id -> {
+            Section section = new Section();
+            section.setId(id);
+            section.setStorageLocation((char) ('a' + id - 10) + ".pdf");
+            dataRecord.getSections().add(section);
+        });
+        return dataRecord;
+    }
+
+    private SectionServiceImpl createStagingService() {
+        return new SectionServiceImpl(dataRecordRepository, transactionActionRecordRepository, transactionTemplate,
+                fileStorage, compressionPolicy, sectionAccessTracker, asyncFileStorage, sectionIntegrityChecker,
+                storageUsageTracker, inlineSectionStore, UploadProtocol.STAGING);
+    }
+
+    /**
+     * Runs the transaction callbacks with transaction synchronization, completing the registered synchronizations
+     * as committed, or as rolled back when the callback throws
+     */
+    private void executeWithSynchronization() {
+        Mockito.doAnswer(invocation -> {
+            TransactionSynchronizationManager.initSynchronization();
+            try {
+                Object result = invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null);
+                completeSynchronizations(TransactionSynchronization.STATUS_COMMITTED);
+                return result;
+            } catch (RuntimeException e) {
+                completeSynchronizations(TransactionSynchronization.STATUS_ROLLED_BACK);
+                throw e;
+            } finally {
+                TransactionSynchronizationManager.clearSynchronization();
+            }
+        }).when(transactionTemplate).execute(any());
+    }
+
+    private static void completeSynchronizations(int status) {
+        TransactionSynchronizationManager.getSynchronizations()
+                .forEach(synchronization -> synchronization.afterCompletion(status));
+    }
+}
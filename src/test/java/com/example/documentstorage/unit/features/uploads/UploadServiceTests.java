@@ -0,0 +1,223 @@
+package com.example.documentstorage.unit.features.uploads;
+
+import com.example.documentstorage.entities.DataRecord;
+import com.example.documentstorage.entities.Section;
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.entities.UploadPart;
+import com.example.documentstorage.entities.UploadSession;
+import com.example.documentstorage.features.uploads.UploadDataRecordRepository;
+import com.example.documentstorage.features.uploads.UploadServiceImpl;
+import com.example.documentstorage.features.uploads.UploadSessionRepository;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.filestorage.CompressionPolicy;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTracker;
+import com.example.documentstorage.shared.base.models.responses.UploadPartDetail;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.Optional;
+import java.util.UUID;
+import java.util.function.Consumer;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class UploadServiceTests {
+    private static final UUID UPLOAD_ID = UUID.fromString("0190f5a4-7b3c-7d2e-9f10-1a2b3c4d5e6f");
+
+    @Mock
+    private UploadDataRecordRepository dataRecordRepository;
+
+    @Mock
+    private UploadSessionRepository uploadSessionRepository;
+
+    @Mock
+    private TransactionActionRecordRepository transactionActionRecordRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private FileStorage fileStorage;
+
+    @Mock
+    private CompressionPolicy compressionPolicy;
+
+    @Mock
+    private StorageUsageTracker storageUsageTracker;
+
+    private UploadServiceImpl uploadService;
+
+    private UploadSession uploadSession;
+
+    @BeforeEach
+    void setUp() {
+        uploadService = new UploadServiceImpl(dataRecordRepository, uploadSessionRepository, transactionActionRecordRepository,
+                transactionTemplate, fileStorage, compressionPolicy, storageUsageTracker, 100);
+
+        Mockito.when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        Mockito.doAnswer(invocation -> {
+            invocation.<Consumer<Object>>getArgument(0).accept(null);
+            return null;
+        }).when(transactionTemplate).executeWithoutResult(any());
+
+        DataRecord dataRecord = new DataRecord();
+        dataRecord.setId(1);
+        dataRecord.setSections(new ArrayList<>());
+        TransactionActionRecord actionRecord = new TransactionActionRecord();
+        actionRecord.setStorageLocation("movie_1.mp4");
+        uploadSession = new UploadSession();
+        uploadSession.setId(UPLOAD_ID);
+        uploadSession.setDataRecord(dataRecord);
+        uploadSession.setFileName("movie.mp4");
+        uploadSession.setContentType("video/mp4");
+        uploadSession.setActionRecord(actionRecord);
+        Mockito.when(uploadSessionRepository.findByIdAndDataRecordId(UPLOAD_ID, 1)).thenReturn(Optional.of(uploadSession));
+        Mockito.when(uploadSessionRepository.findByIdAndDataRecordIdForUpdate(UPLOAD_ID, 1)).thenReturn(Optional.of(uploadSession));
+        Mockito.when(fileStorage.generateSystemFileName(any())).thenAnswer(invocation -> invocation.getArgument(0));
+        Mockito.when(compressionPolicy.selectEncoding(any(), Mockito.anyLong())).thenReturn(ContentEncoding.IDENTITY);
+    }
+
+    @Test
+    void uploadPart_whenPartUploadedAgain_shouldReplacePartAndRemovePreviousFile() {
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        String partLocation = "parts/%s_2.part".formatted(UPLOAD_ID);
+        addPart(2, "parts/previous_2.part");
+        Mockito.when(fileStorage.storePart(content, partLocation)).thenReturn(new StoredFile(partLocation, 3, "abc", ContentEncoding.IDENTITY));
+
+        UploadPartDetail partDetail = uploadService.uploadPart(1, UPLOAD_ID, 2, content);
+
+        assertThat(partDetail).isEqualTo(new UploadPartDetail(2, 3, "abc"));
+        assertThat(uploadSession.getParts()).singleElement().satisfies(part -> {
+            assertThat(part.getStorageLocation()).isEqualTo(partLocation);
+            assertThat(part.getSize()).isEqualTo(3);
+        });
+        verify(fileStorage).deleteSectionIfPresent("parts/previous_2.part");
+
+        ArgumentCaptor<TransactionActionRecord> actionRecordCaptor = ArgumentCaptor.forClass(TransactionActionRecord.class);
+        verify(transactionActionRecordRepository).save(actionRecordCaptor.capture());
+        assertThat(actionRecordCaptor.getValue().getStorageLocation()).isEqualTo(partLocation);
+        assertThat(actionRecordCaptor.getValue().getParentRecord()).isSameAs(uploadSession.getActionRecord());
+        assertThat(actionRecordCaptor.getValue().isCommitted()).isFalse();
+    }
+
+    @Test
+    void completeUpload_whenAllPartsUploaded_shouldAssemblePartsInOrderAndCommitTransactionAction() {
+        addPart(1, "parts/1.part");
+        addPart(2, "parts/2.part");
+        Mockito.when(fileStorage.generateSystemFileName("movie.mp4")).thenReturn("movie_2.mp4");
+        Mockito.when(fileStorage.assembleSection(List.of("parts/1.part", "parts/2.part"), "movie_2.mp4", ContentEncoding.IDENTITY))
+                .thenReturn(new StoredFile("movie_2.mp4", 6, "abc", ContentEncoding.IDENTITY));
+
+        uploadService.completeUpload(1, UPLOAD_ID);
+
+        Section section = uploadSession.getDataRecord().getSections().getFirst();
+        assertThat(section.getFileName()).isEqualTo("movie.mp4");
+        assertThat(section.getStorageLocation()).isEqualTo("movie_2.mp4");
+        assertThat(section.getFileSize()).isEqualTo(6);
+        assertThat(uploadSession.isCompleted()).isTrue();
+        assertThat(uploadSession.getActionRecord().isCommitted()).isTrue();
+        verify(fileStorage).deleteSectionIfPresent("parts/1.part");
+        verify(fileStorage).deleteSectionIfPresent("parts/2.part");
+
+        ArgumentCaptor<TransactionActionRecord> actionRecordCaptor = ArgumentCaptor.forClass(TransactionActionRecord.class);
+        verify(transactionActionRecordRepository, Mockito.atLeastOnce()).save(actionRecordCaptor.capture());
+        assertThat(actionRecordCaptor.getAllValues())
+                .filteredOn(actionRecord -> "movie_2.mp4".equals(actionRecord.getStorageLocation()))
+                .first()
+                .satisfies(actionRecord -> {
+                    assertThat(actionRecord.getParentRecord()).isSameAs(uploadSession.getActionRecord());
+                    assertThat(actionRecord.isCommitted()).isTrue();
+                });
+    }
+
+    @Test
+    void completeUpload_whenPartReplacedWhileAssembling_shouldThrowExceptionWithoutAddingSection() {
+        addPart(1, "parts/1.part");
+        Mockito.when(fileStorage.assembleSection(any(), any(), any())).thenAnswer(invocation -> {
+            uploadSession.getParts().getFirst().setStorageLocation("parts/replaced_1.part");
+            return new StoredFile("movie.mp4", 3, "abc", ContentEncoding.IDENTITY);
+        });
+
+        assertThatThrownBy(() -> uploadService.completeUpload(1, UPLOAD_ID))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'features.uploads.on.upload.complete.parts.changed'");
+
+        assertThat(uploadSession.getDataRecord().getSections()).isEmpty();
+        assertThat(uploadSession.isCompleted()).isFalse();
+        assertThat(uploadSession.getActionRecord().isCommitted()).isFalse();
+    }
+
+    @Test
+    void uploadPart_whenUploadExpired_shouldThrowExceptionWithoutStoringPart() {
+        uploadSession.getActionRecord().setProcessed(true);
+
+        assertThatThrownBy(() -> uploadService.uploadPart(1, UPLOAD_ID, 1, new ByteArrayInputStream(new byte[]{1})))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'features.uploads.on.upload.expired'");
+
+        verify(fileStorage, never()).storePart(any(), any());
+        verify(transactionActionRecordRepository, never()).save(any());
+    }
+
+    @Test
+    void uploadPart_whenUploadExpiresWhileStoringPart_shouldRemovePart() {
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        String partLocation = "parts/%s_1.part".formatted(UPLOAD_ID);
+        Mockito.when(fileStorage.storePart(content, partLocation)).thenAnswer(invocation -> {
+            uploadSession.getActionRecord().setProcessed(true);
+            return new StoredFile(partLocation, 3, "abc", ContentEncoding.IDENTITY);
+        });
+
+        assertThatThrownBy(() -> uploadService.uploadPart(1, UPLOAD_ID, 1, content))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'features.uploads.on.upload.expired'");
+
+        assertThat(uploadSession.getParts()).isEmpty();
+        verify(fileStorage).deleteSectionIfPresent(partLocation);
+    }
+
+    @Test
+    void completeUpload_whenPartMissing_shouldThrowExceptionWithoutAssembling() {
+        addPart(1, "parts/1.part");
+        addPart(3, "parts/3.part");
+
+        assertThatThrownBy(() -> uploadService.completeUpload(1, UPLOAD_ID))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'features.uploads.on.upload.complete.parts.missing'");
+
+        verify(fileStorage, never()).assembleSection(any(), any(), any());
+        assertThat(uploadSession.getActionRecord().isCommitted()).isFalse();
+    }
+
+    private void addPart(int partNumber, String storageLocation) {
+        UploadPart part = new UploadPart();
+        part.setPartNumber(partNumber);
+        part.setStorageLocation(storageLocation);
+        part.setSize(3);
+        uploadSession.addPart(part);
+    }
+}
@@ -0,0 +1,84 @@
+package com.example.documentstorage.unit.shared.base.filestorage;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.AsyncFileStorageImpl;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+
+import java.io.ByteArrayInputStream;
+import java.io.InputStream;
+import java.nio.file.NoSuchFileException;
+import java.util.concurrent.CompletableFuture;
+import java.util.concurrent.CountDownLatch;
+import java.util.concurrent.ExecutionException;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.TimeUnit;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.Mockito.verify;
+
+class AsyncFileStorageTests {
+    private final FileStorage fileStorage = Mockito.mock(FileStorage.class);
+
+    private ExecutorService storageExecutor;
+
+    private AsyncFileStorageImpl asyncFileStorage;
+
+    @BeforeEach
+    void setUp() {
+        storageExecutor = Executors.newSingleThreadExecutor();
+        asyncFileStorage = new AsyncFileStorageImpl(fileStorage, storageExecutor);
+    }
+
+    @AfterEach
+    void tearDown() {
+        storageExecutor.shutdownNow();
+    }
+
+    @Test
+    void storeSection_whenFileIsWritten_shouldReturnBeforeFileIsStored() throws InterruptedException {
+        InputStream content = new ByteArrayInputStream(new byte[]{1, 2, 3});
+        CountDownLatch writing = new CountDownLatch(1);
+        Mockito.when(fileStorage.storeSection(content, "invoice_1.pdf", ContentEncoding.GZIP)).thenAnswer(invocation -> {
+            writing.await(5, TimeUnit.SECONDS);
+            return new StoredFile("invoice_1.pdf", 3, "abc", ContentEncoding.GZIP);
+        });
+
+        CompletableFuture<StoredFile> storedFile = asyncFileStorage.storeSection(content, "invoice_1.pdf", ContentEncoding.GZIP);
+
+        assertThat(storedFile).isNotDone();
+        writing.countDown();
+        assertThat(storedFile.join().storageLocation()).isEqualTo("invoice_1.pdf");
+    }
+
+    @Test
+    void deleteSection_whenFileMissing_shouldCompleteExceptionally() {
+        InvalidSystemStateException failure = new InvalidSystemStateException(new NoSuchFileException("invoice_1.pdf"));
+        Mockito.doThrow(failure).when(fileStorage).deleteSection("invoice_1.pdf");
+
+        CompletableFuture<Void> removal = asyncFileStorage.deleteSection("invoice_1.pdf");
+
+        assertThat(removal).failsWithin(5, TimeUnit.SECONDS)
+                .withThrowableOfType(ExecutionException.class)
+                .withCause(failure);
+    }
+
+    @Test
+    void deleteSectionIfPresent_whenCalled_shouldDeleteOnStorageThread() {
+        Thread callingThread = Thread.currentThread();
+        Mockito.doAnswer(invocation -> {
+            assertThat(Thread.currentThread()).isNotSameAs(callingThread);
+            return null;
+        }).when(fileStorage).deleteSectionIfPresent("invoice_1.pdf");
+
+        asyncFileStorage.deleteSectionIfPresent("invoice_1.pdf").join();
+
+        verify(fileStorage).deleteSectionIfPresent("invoice_1.pdf");
+    }
+}
@@ -0,0 +1,231 @@
+package com.example.documentstorage.unit.shared.base.filestorage;
+
+import com.example.documentstorage.entities.SectionChunk;
+import com.example.documentstorage.entities.StorageBlob;
+import com.example.documentstorage.shared.base.apimessages.LocalizationService;
+import com.example.documentstorage.shared.base.filestorage.ChunkedFileStorage;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.DurabilityMode;
+import com.example.documentstorage.shared.base.filestorage.SectionChunkRepository;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+import com.example.documentstorage.shared.base.filestorage.StorageBlobRepository;
+import com.example.documentstorage.shared.base.filestorage.StorageDurabilityImpl;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.cache.SectionCache;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolumesImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.ArrayList;
+import java.util.Arrays;
+import java.util.Collection;
+import java.util.Comparator;
+import java.util.HashMap;
+import java.util.HashSet;
+import java.util.List;
+import java.util.Map;
+import java.util.Objects;
+import java.util.Optional;
+import java.util.Random;
+import java.util.Set;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+
+class ChunkedFileStorageTests {
+    @TempDir
+    private Path basePath;
+
+    private final Map<String, StorageBlob> chunks = new HashMap<>();
+    private final List<SectionChunk> sectionChunks = new ArrayList<>();
+
+    private StorageBlobRepository blobRepository;
+
+    private ChunkedFileStorage fileStorage;
+
+    @BeforeEach
+    void setUp() {
+        blobRepository = Mockito.mock(StorageBlobRepository.class);
+        Mockito.when(blobRepository.saveAndFlush(any())).thenAnswer(invocation -> {
+            StorageBlob chunk = invocation.getArgument(0);
+            chunk.setModifiedAt(LocalDateTime.now());
+            chunks.put(chunk.getHash(), chunk);
+            return chunk;
+        });
+        Mockito.when(blobRepository.findByHashInForUpdate(any())).thenAnswer(invocation -> invocation.<Collection<String>>getArgument(0).stream()
+                .map(chunks::get)
+                .filter(Objects::nonNull)
+                .toList());
+        Mockito.when(blobRepository.findByHashForUpdate(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(chunks.get(invocation.<String>getArgument(0))));
+        Mockito.when(blobRepository.findFirstUnreferenced(any())).thenAnswer(invocation -> chunks.values().stream()
+                .filter(chunk -> chunk.getReferenceCount() <= 0)
+                .filter(chunk -> chunk.getModifiedAt().isBefore(invocation.getArgument(0)))
+                .map(StorageBlob::getHash)
+                .toList());
+        Mockito.doAnswer(invocation -> chunks.remove(invocation.<StorageBlob>getArgument(0).getHash()))
+                .when(blobRepository).delete(any());
+
+        SectionChunkRepository sectionChunkRepository = Mockito.mock(SectionChunkRepository.class);
+        Mockito.when(sectionChunkRepository.saveAll(any())).thenAnswer(invocation -> {
+            invocation.<Iterable<SectionChunk>>getArgument(0).forEach(sectionChunks::add);
+            return invocation.getArgument(0);
+        });
+        Mockito.when(sectionChunkRepository.findByStorageLocationOrderByChunkIndexAsc(anyString())).thenAnswer(invocation -> sectionChunks.stream()
+                .filter(sectionChunk -> sectionChunk.getStorageLocation().equals(invocation.getArgument(0)))
+                .sorted(Comparator.comparingInt(SectionChunk::getChunkIndex))
+                .toList());
+        Mockito.doAnswer(invocation -> {
+            invocation.<Iterable<SectionChunk>>getArgument(0).forEach(sectionChunks::remove);
+            return null;
+        }).when(sectionChunkRepository).deleteAll(any());
+
+        fileStorage = new ChunkedFileStorage(
+                Mockito.mock(LocalizationService.class),
+                Mockito.mock(SectionCache.class),
+                new StorageDurabilityImpl(DurabilityMode.NONE, Duration.ZERO, 4),
+                blobRepository,
+                sectionChunkRepository,
+                Mockito.mock(PlatformTransactionManager.class),
+                new StorageVolumesImpl(basePath.toString(), List.of(), List.of(), DataSize.ofBytes(0), Duration.ZERO),
+                "",
+                DataSize.ofBytes(64),
+                DataSize.ofBytes(256),
+                DataSize.ofBytes(1024));
+    }
+
+    @Test
+    void storeSection_whenContentEditedInTheMiddle_shouldShareUnchangedChunks() throws IOException {
+        byte[] original = randomBytes(20_000, 1);
+        byte[] edited = new byte[original.length + 10];
+        System.arraycopy(original, 0, edited, 0, 10_000);
+        System.arraycopy(randomBytes(10, 2), 0, edited, 10_000, 10);
+        System.arraycopy(original, 10_000, edited, 10_010, 10_000);
+
+        StoredFile first = fileStorage.storeSection(new ByteArrayInputStream(original), "first.bin", ContentEncoding.GZIP);
+        Set<String> firstChunks = chunkHashes(first.storageLocation());
+        StoredFile second = fileStorage.storeSection(new ByteArrayInputStream(edited), "second.bin", ContentEncoding.IDENTITY);
+        Set<String> secondChunks = chunkHashes(second.storageLocation());
+
+        assertThat(first.storageLocation()).isEqualTo("chunked/first.bin");
+        assertThat(first.size()).isEqualTo(original.length);
+        assertThat(first.encoding()).isEqualTo(ContentEncoding.IDENTITY);
+        Set<String> sharedChunks = new HashSet<>(firstChunks);
+        sharedChunks.retainAll(secondChunks);
+        assertThat(sharedChunks).hasSizeGreaterThanOrEqualTo(firstChunks.size() - 2);
+        assertThat(chunkFiles()).hasSize(chunks.size());
+        assertThat(read(first.storageLocation())).isEqualTo(original);
+        assertThat(read(second.storageLocation())).isEqualTo(edited);
+    }
+
+    @Test
+    void shareSection_whenChunked_shouldReferenceSameChunks() throws IOException {
+        byte[] content = randomBytes(5_000, 3);
+        StoredFile storedFile = fileStorage.storeSection(new ByteArrayInputStream(content), "first.bin", ContentEncoding.IDENTITY);
+        String copyLocation = fileStorage.generateCopyLocation(storedFile.storageLocation(), "copy.bin");
+
+        fileStorage.shareSection(storedFile.storageLocation(), copyLocation);
+
+        assertThat(copyLocation).startsWith("chunked/");
+        assertThat(chunks.values()).allSatisfy(chunk -> assertThat(chunk.getReferenceCount()).isGreaterThanOrEqualTo(2));
+        assertThat(read(copyLocation)).isEqualTo(content);
+    }
+
+    @Test
+    void removeUnreferencedFiles_whenSectionsDeleted_shouldRemoveOnlyUnreferencedChunks() throws IOException {
+        byte[] original = randomBytes(20_000, 4);
+        byte[] truncated = Arrays.copyOf(original, 12_000);
+        fileStorage.storeSection(new ByteArrayInputStream(original), "first.bin", ContentEncoding.IDENTITY);
+        fileStorage.storeSection(new ByteArrayInputStream(truncated), "second.bin", ContentEncoding.IDENTITY);
+
+        fileStorage.deleteSection("chunked/first.bin");
+        fileStorage.removeUnreferencedFiles(LocalDateTime.now().plusHours(1));
+
+        assertThat(chunkFiles()).hasSize(chunks.size()).isNotEmpty();
+        assertThat(read("chunked/second.bin")).isEqualTo(truncated);
+
+        fileStorage.deleteSectionIfPresent("chunked/second.bin");
+        fileStorage.deleteSectionIfPresent("chunked/second.bin");
+        fileStorage.removeUnreferencedFiles(LocalDateTime.now().plusHours(1));
+
+        assertThat(chunks).isEmpty();
+        assertThat(sectionChunks).isEmpty();
+        assertThat(chunkFiles()).isEmpty();
+    }
+
+    @Test
+    void removeUnreferencedFiles_whenChunkStoredAgainWhileRemoving_shouldKeepChunk() throws IOException {
+        byte[] content = randomBytes(5_000, 5);
+        fileStorage.storeSection(new ByteArrayInputStream(content), "first.bin", ContentEncoding.IDENTITY);
+        fileStorage.deleteSection("chunked/first.bin");
+        chunks.values().forEach(chunk -> chunk.setModifiedAt(LocalDateTime.now().minusHours(2)));
+        List<String> unreferencedHashes = List.copyOf(chunks.keySet());
+        Mockito.doAnswer(invocation -> {
+            // Stored again after the unreferenced chunks have been found
+            fileStorage.storeSection(new ByteArrayInputStream(content), "second.bin", ContentEncoding.IDENTITY);
+            return unreferencedHashes;
+        }).doReturn(List.of()).when(blobRepository).findFirstUnreferenced(any());
+
+        fileStorage.removeUnreferencedFiles(LocalDateTime.now().minusHours(1));
+
+        assertThat(chunks.keySet()).containsExactlyInAnyOrderElementsOf(unreferencedHashes);
+        assertThat(chunkFiles()).hasSize(chunks.size());
+        assertThat(read("chunked/second.bin")).isEqualTo(content);
+    }
+
+    @Test
+    void storeSection_whenEmpty_shouldStoreOneEmptyChunk() throws IOException {
+        StoredFile storedFile = fileStorage.storeSection(new ByteArrayInputStream(new byte[0]), "empty.bin", ContentEncoding.IDENTITY);
+
+        assertThat(storedFile.size()).isZero();
+        assertThat(sectionChunks).hasSize(1);
+        assertThat(read(storedFile.storageLocation())).isEmpty();
+    }
+
+    private Set<String> chunkHashes(String storageLocation) {
+        return sectionChunks.stream()
+                .filter(sectionChunk -> sectionChunk.getStorageLocation().equals(storageLocation))
+                .map(SectionChunk::getChunkHash)
+                .collect(Collectors.toSet());
+    }
+
+    private List<Path> chunkFiles() throws IOException {
+        Path chunkDirectory = basePath.resolve("chunks");
+        if (!Files.isDirectory(chunkDirectory)) {
+            return List.of();
+        }
+
+        try (Stream<Path> files = Files.walk(chunkDirectory)) {
+            return files.filter(Files::isRegularFile).toList();
+        }
+    }
+
+    private byte[] read(String storageLocation) throws IOException {
+        try (SectionContent content = fileStorage.openSection(storageLocation)) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            content.transferTo(0, content.size(), Channels.newChannel(outputStream));
+            return outputStream.toByteArray();
+        }
+    }
+
+    private static byte[] randomBytes(int length, long seed) {
+        byte[] bytes = new byte[length];
+        new Random(seed).nextBytes(bytes);
+        return bytes;
+    }
+}
@@ -0,0 +1,271 @@
+package com.example.documentstorage.unit.shared.base.filestorage;
+
+import com.example.documentstorage.shared.base.apimessages.LocalizationService;
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.DurabilityMode;
+import com.example.documentstorage.shared.base.filestorage.FileStorageImpl;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+import com.example.documentstorage.shared.base.filestorage.StorageDurabilityImpl;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.cache.SectionCache;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolumesImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.List;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class FileStorageTests {
+    private static final byte[] CONTENT = {1, 2, 3};
+
+    @TempDir
+    private Path basePath;
+
+    @TempDir
+    private Path coldPath;
+
+    @TempDir
+    private Path ingestionPath;
+
+    private FileStorageImpl fileStorage;
+
+    @BeforeEach
+    void setUp() {
+        fileStorage = new FileStorageImpl(
+                Mockito.mock(LocalizationService.class),
+                Mockito.mock(SectionCache.class),
+                new StorageDurabilityImpl(DurabilityMode.NONE, Duration.ZERO, 4),
+                new StorageVolumesImpl(basePath.toString(), List.of(), List.of(), DataSize.ofBytes(0), Duration.ZERO),
+                coldPath.toString());
+    }
+
+    @Test
+    void storeSection_whenStored_shouldPlaceFileInShardDirectories() throws IOException {
+        StoredFile storedFile = fileStorage.storeSection(new ByteArrayInputStream(CONTENT), "invoice_1.pdf");
+
+        assertThat(storedFile.storageLocation()).isEqualTo("invoice_1.pdf");
+        assertThat(basePath.resolve("invoice_1.pdf")).doesNotExist();
+        try (Stream<Path> files = Files.walk(basePath)) {
+            Path storedPath = files.filter(Files::isRegularFile).findFirst().orElseThrow();
+            assertThat(basePath.relativize(storedPath).toString()).matches("[0-9a-f]{2}/[0-9a-f]{2}/invoice_1\\.pdf");
+        }
+    }
+
+    @Test
+    void storeSection_whenEncodingRequested_shouldStoreEncodedContentWithChecksumOfContent() throws IOException {
+        byte[] content = "a,b,c\n".repeat(1000).getBytes();
+
+        StoredFile storedFile = fileStorage.storeSection(new ByteArrayInputStream(content), "report_1.csv", ContentEncoding.GZIP);
+        StoredFile plainFile = fileStorage.storeSection(new ByteArrayInputStream(content), "report_2.csv");
+
+        assertThat(storedFile.encoding()).isEqualTo(ContentEncoding.GZIP);
+        assertThat(storedFile.size()).isEqualTo(content.length);
+        assertThat(storedFile.checksum()).isEqualTo(plainFile.checksum());
+        byte[] storedContent = read("report_1.csv");
+        assertThat(storedContent.length).isLessThan(content.length);
+        try (SectionContent decodedContent = ContentEncoding.GZIP.decode(fileStorage.openSection("report_1.csv"), content.length)) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            decodedContent.transferTo(0, decodedContent.size(), Channels.newChannel(outputStream));
+            assertThat(outputStream.toByteArray()).isEqualTo(content);
+        }
+    }
+
+    @Test
+    void copySection_whenColdTier_shouldCopyFileToColdPathAndKeepSource() throws IOException {
+        fileStorage.storeSection(new ByteArrayInputStream(CONTENT), "invoice_1.pdf");
+
+        fileStorage.copySection("invoice_1.pdf", "cold/invoice_2.pdf");
+
+        assertThat(read("cold/invoice_2.pdf")).containsExactly(CONTENT);
+        assertThat(read("invoice_1.pdf")).containsExactly(CONTENT);
+        assertThat(basePath.resolve("cold")).doesNotExist();
+        try (Stream<Path> files = Files.walk(coldPath)) {
+            Path copiedPath = files.filter(Files::isRegularFile).findFirst().orElseThrow();
+            assertThat(coldPath.relativize(copiedPath).toString()).matches("[0-9a-f]{2}/[0-9a-f]{2}/invoice_2\\.pdf");
+        }
+    }
+
+    @Test
+    void shareSection_whenStored_shouldLinkCopyToStoredFile() throws IOException {
+        fileStorage.storeSection(new ByteArrayInputStream(CONTENT), "invoice_1.pdf");
+        String copyLocation = fileStorage.generateCopyLocation("cold/invoice_1.pdf", "invoice.pdf");
+
+        fileStorage.shareSection("invoice_1.pdf", "invoice_2.pdf");
+
+        assertThat(copyLocation).startsWith("cold/invoice_");
+        try (Stream<Path> files = Files.walk(basePath)) {
+            assertThat(files.filter(Files::isRegularFile).toList())
+                    .hasSize(2)
+                    .allSatisfy(path -> assertThat(Files.getAttribute(path, "unix:nlink")).isEqualTo(2));
+        }
+
+        fileStorage.deleteSection("invoice_1.pdf");
+        assertThat(read("invoice_2.pdf")).containsExactly(CONTENT);
+    }
+
+    @Test
+    void ingestSection_whenNotEncoded_shouldLinkStoredFileToLocalFile() throws IOException {
+        Path sourcePath = Files.write(ingestionPath.resolve("invoice.pdf"), CONTENT);
+        StoredFile expectedFile = fileStorage.storeSection(new ByteArrayInputStream(CONTENT), "invoice_1.pdf");
+
+        StoredFile storedFile = fileStorage.ingestSection(sourcePath, "invoice_2.pdf", ContentEncoding.IDENTITY);
+
+        assertThat(storedFile.size()).isEqualTo(CONTENT.length);
+        assertThat(storedFile.checksum()).isEqualTo(expectedFile.checksum());
+        assertThat(Files.getAttribute(sourcePath, "unix:nlink")).isEqualTo(2);
+
+        Files.delete(sourcePath);
+        assertThat(read("invoice_2.pdf")).containsExactly(CONTENT);
+    }
+
+    @Test
+    void openSection_whenFileNotMigrated_shouldReadFileFromBaseDirectory() throws IOException {
+        Files.write(basePath.resolve("invoice_1.pdf"), CONTENT);
+
+        assertThat(read("invoice_1.pdf")).containsExactly(CONTENT);
+    }
+
+    @Test
+    void migrateLayout_whenFilesNotMigrated_shouldMoveFilesToShardDirectories() throws IOException {
+        Files.write(basePath.resolve("invoice_1.pdf"), CONTENT);
+        Files.write(basePath.resolve("invoice_2.pdf"), CONTENT);
+        Files.write(basePath.resolve("invoice_3.pdf"), CONTENT);
+
+        assertThat(fileStorage.migrateLayout(2)).isEqualTo(2);
+        assertThat(fileStorage.migrateLayout(2)).isEqualTo(1);
+        assertThat(fileStorage.migrateLayout(2)).isZero();
+
+        try (Stream<Path> files = Files.list(basePath)) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+        assertThat(read("invoice_1.pdf")).containsExactly(CONTENT);
+    }
+
+    @Test
+    void migrateLayout_whenShardedFileHasSameContent_shouldRemoveFileFromBaseDirectory() throws IOException {
+        fileStorage.storeSection(new ByteArrayInputStream(CONTENT), "invoice_1.pdf");
+        Files.write(basePath.resolve("invoice_1.pdf"), CONTENT);
+
+        assertThat(fileStorage.migrateLayout(10)).isEqualTo(1);
+
+        assertThat(basePath.resolve("invoice_1.pdf")).doesNotExist();
+        assertThat(read("invoice_1.pdf")).containsExactly(CONTENT);
+    }
+
+    @Test
+    void migrateLayout_whenShardedFileHasOtherContent_shouldKeepFileAndFallbackToBaseDirectory() throws IOException {
+        fileStorage.storeSection(new ByteArrayInputStream(CONTENT), "invoice_1.pdf");
+        Files.write(basePath.resolve("invoice_1.pdf"), new byte[]{9});
+
+        assertThat(fileStorage.migrateLayout(10)).isZero();
+        assertThat(fileStorage.migrateLayout(10)).isZero();
+
+        assertThat(basePath.resolve("invoice_1.pdf")).hasBinaryContent(new byte[]{9});
+        assertThat(read("invoice_1.pdf")).containsExactly(CONTENT);
+        // The migration is not complete, so files left in the base directory are still found
+        Files.write(basePath.resolve("invoice_2.pdf"), CONTENT);
+        assertThat(read("invoice_2.pdf")).containsExactly(CONTENT);
+    }
+
+    @Test
+    void stageSection_whenNotPublished_shouldReadFileFromStagingDirectory() throws IOException {
+        fileStorage.stageSection(new ByteArrayInputStream(CONTENT), "invoice_1.pdf", ContentEncoding.IDENTITY);
+
+        assertThat(basePath.resolve("staging").resolve("invoice_1.pdf")).exists();
+        assertThat(read("invoice_1.pdf")).containsExactly(CONTENT);
+        assertThat(fileStorage.findStagedSections(LocalDateTime.now().plusMinutes(1))).containsExactly("invoice_1.pdf");
+        assertThat(fileStorage.findStagedSections(LocalDateTime.now().minusMinutes(1))).isEmpty();
+    }
+
+    @Test
+    void publishStagedSection_whenStaged_shouldMoveFileToShardDirectories() throws IOException {
+        fileStorage.stageSection(new ByteArrayInputStream(CONTENT), "invoice_1.pdf", ContentEncoding.IDENTITY);
+
+        fileStorage.publishStagedSection("invoice_1.pdf");
+        fileStorage.publishStagedSection("invoice_1.pdf");
+
+        assertThat(basePath.resolve("staging").resolve("invoice_1.pdf")).doesNotExist();
+        assertThat(fileStorage.findStagedSections(LocalDateTime.now().plusMinutes(1))).isEmpty();
+        try (Stream<Path> files = Files.walk(basePath)) {
+            Path storedPath = files.filter(Files::isRegularFile).findFirst().orElseThrow();
+            assertThat(basePath.relativize(storedPath).toString()).matches("[0-9a-f]{2}/[0-9a-f]{2}/invoice_1\\.pdf");
+        }
+        assertThat(read("invoice_1.pdf")).containsExactly(CONTENT);
+    }
+
+    @Test
+    void storeSection_whenSeveralVolumes_shouldStoreFileOnVolumeOfStorageLocation(@TempDir Path volumePath) throws IOException {
+        fileStorage = new FileStorageImpl(
+                Mockito.mock(LocalizationService.class),
+                Mockito.mock(SectionCache.class),
+                new StorageDurabilityImpl(DurabilityMode.NONE, Duration.ZERO, 4),
+                new StorageVolumesImpl(basePath.toString(), List.of(volumePath.toString()), List.of(0), DataSize.ofBytes(0), Duration.ZERO),
+                coldPath.toString());
+
+        String systemFileName = fileStorage.generateSystemFileName("invoice.pdf");
+        fileStorage.storeSection(new ByteArrayInputStream(CONTENT), systemFileName);
+
+        assertThat(systemFileName).startsWith("volumes/1/invoice_");
+        try (Stream<Path> files = Files.walk(volumePath)) {
+            assertThat(files.filter(Files::isRegularFile)).hasSize(1);
+        }
+        assertThat(read(systemFileName)).containsExactly(CONTENT);
+        fileStorage.deleteSection(systemFileName);
+        try (Stream<Path> files = Files.walk(volumePath)) {
+            assertThat(files.filter(Files::isRegularFile)).isEmpty();
+        }
+    }
+
+    @Test
+    void generateSystemFileName_whenNameHasParentDirectories_shouldKeepBaseName() throws IOException {
+        String systemFileName = fileStorage.generateSystemFileName("../../etc/x");
+        String windowsFileName = fileStorage.generateSystemFileName("..\\..\\etc\\passwd.txt");
+        fileStorage.storeSection(new ByteArrayInputStream(CONTENT), systemFileName);
+
+        assertThat(systemFileName).matches("x_[^/\\\\]+");
+        assertThat(windowsFileName).matches("passwd_[^/\\\\]+\\.txt");
+        try (Stream<Path> files = Files.walk(basePath)) {
+            assertThat(files.filter(Files::isRegularFile)).singleElement()
+                    .satisfies(storedPath -> assertThat(storedPath.getFileName().toString()).isEqualTo(systemFileName));
+        }
+    }
+
+    @Test
+    void generateSystemFileName_whenNameHasReservedPrefix_shouldNotGenerateReservedLocation() {
+        assertThat(fileStorage.generateSystemFileName("cold/invoice.pdf")).startsWith("invoice_");
+        assertThat(fileStorage.generateSystemFileName("inline/1")).startsWith("1_");
+        assertThat(fileStorage.generateSystemFileName("volumes/9/invoice.pdf")).startsWith("invoice_");
+    }
+
+    @Test
+    void generateSystemFileName_whenNameHasNoBaseName_shouldThrowException() {
+        assertThatThrownBy(() -> fileStorage.generateSystemFileName("../.."))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'shared.base.filestorage.on.generate.file.name.file.name.invalid'");
+        assertThatThrownBy(() -> fileStorage.generateSystemFileName("reports/"))
+                .isInstanceOf(InvalidClientInputException.class);
+    }
+
+    private byte[] read(String systemFileName) throws IOException {
+        try (SectionContent content = fileStorage.openSection(systemFileName)) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            content.transferTo(0, content.size(), Channels.newChannel(outputStream));
+            return outputStream.toByteArray();
+        }
+    }
+}
@@ -0,0 +1,174 @@
+package com.example.documentstorage.unit.shared.base.filestorage;
+
+import com.example.documentstorage.entities.PackedSection;
+import com.example.documentstorage.shared.base.apimessages.LocalizationService;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.DurabilityMode;
+import com.example.documentstorage.shared.base.filestorage.PackedFileStorage;
+import com.example.documentstorage.shared.base.filestorage.PackedSectionRepository;
+import com.example.documentstorage.shared.base.filestorage.SectionContent;
+import com.example.documentstorage.shared.base.filestorage.SegmentUsage;
+import com.example.documentstorage.shared.base.filestorage.StorageDurabilityImpl;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.cache.SectionCache;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolumesImpl;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.Mockito;
+import org.springframework.transaction.PlatformTransactionManager;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.ByteArrayOutputStream;
+import java.io.IOException;
+import java.nio.channels.Channels;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.time.LocalDateTime;
+import java.util.HashMap;
+import java.util.List;
+import java.util.Map;
+import java.util.Optional;
+import java.util.stream.Collectors;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyString;
+
+class PackedFileStorageTests {
+    @TempDir
+    private Path basePath;
+
+    private final Map<String, PackedSection> packedSections = new HashMap<>();
+
+    private PackedFileStorage fileStorage;
+
+    @BeforeEach
+    void setUp() {
+        PackedSectionRepository repository = Mockito.mock(PackedSectionRepository.class);
+        Mockito.when(repository.save(any())).thenAnswer(invocation -> {
+            PackedSection packedSection = invocation.getArgument(0);
+            packedSections.put(packedSection.getStorageLocation(), packedSection);
+            return packedSection;
+        });
+        Mockito.when(repository.findById(anyString()))
+                .thenAnswer(invocation -> Optional.ofNullable(packedSections.get(invocation.<String>getArgument(0))));
+        Mockito.doAnswer(invocation -> packedSections.remove(invocation.<PackedSection>getArgument(0).getStorageLocation()))
+                .when(repository).delete(any());
+        Mockito.when(repository.findSegmentUsage()).thenAnswer(invocation -> packedSections.values().stream()
+                .map(packedSection -> List.of(packedSection.getSegment(), packedSection.getOffset(), packedSection.getLength()))
+                .distinct()
+                .collect(Collectors.groupingBy(range -> (String) range.get(0), Collectors.summingLong(range -> (Long) range.get(2))))
+                .entrySet().stream()
+                .map(entry -> new SegmentUsage(entry.getKey(), entry.getValue()))
+                .toList());
+        Mockito.when(repository.findBySegmentForUpdate(anyString())).thenAnswer(invocation -> packedSections.values().stream()
+                .filter(packedSection -> packedSection.getSegment().equals(invocation.getArgument(0)))
+                .toList());
+
+        fileStorage = new PackedFileStorage(
+                Mockito.mock(LocalizationService.class),
+                Mockito.mock(SectionCache.class),
+                new StorageDurabilityImpl(DurabilityMode.NONE, Duration.ZERO, 4),
+                repository,
+                Mockito.mock(PlatformTransactionManager.class),
+                new StorageVolumesImpl(basePath.toString(), List.of(), List.of(), DataSize.ofBytes(0), Duration.ZERO),
+                "",
+                DataSize.ofBytes(100),
+                DataSize.ofBytes(250),
+                0.5);
+    }
+
+    @Test
+    void storeSection_whenSmallSections_shouldAppendThemToSegment() throws IOException {
+        StoredFile first = fileStorage.storeSection(new ByteArrayInputStream(bytes(60, 'a')), "first.txt", ContentEncoding.IDENTITY);
+        StoredFile second = fileStorage.storeSection(new ByteArrayInputStream(bytes(40, 'b')), "second.txt", ContentEncoding.IDENTITY);
+
+        assertThat(first.storageLocation()).isEqualTo("packed/first.txt");
+        assertThat(packedSections.get("packed/second.txt").getOffset()).isEqualTo(60);
+        assertThat(segmentFiles()).hasSize(1);
+        assertThat(read(second.storageLocation())).isEqualTo(bytes(40, 'b'));
+        assertThat(read(first.storageLocation())).isEqualTo(bytes(60, 'a'));
+    }
+
+    @Test
+    void storeSection_whenLargerThanMaxPackedSize_shouldStoreSectionInOwnFile() throws IOException {
+        StoredFile storedFile = fileStorage.storeSection(new ByteArrayInputStream(bytes(150, 'c')), "large.txt", ContentEncoding.IDENTITY);
+
+        assertThat(storedFile.storageLocation()).isEqualTo("large.txt");
+        assertThat(storedFile.size()).isEqualTo(150);
+        assertThat(packedSections).isEmpty();
+        assertThat(read("large.txt")).isEqualTo(bytes(150, 'c'));
+    }
+
+    @Test
+    void removeUnreferencedFiles_whenSegmentMostlyDeleted_shouldMoveLiveSectionsAndRemoveEmptySegment() throws IOException {
+        fileStorage.storeSection(new ByteArrayInputStream(bytes(100, 'a')), "first.txt", ContentEncoding.IDENTITY);
+        fileStorage.storeSection(new ByteArrayInputStream(bytes(100, 'b')), "second.txt", ContentEncoding.IDENTITY);
+        fileStorage.storeSection(new ByteArrayInputStream(bytes(100, 'c')), "third.txt", ContentEncoding.IDENTITY);
+        Path firstSegment = segmentFiles().getFirst();
+        fileStorage.deleteSection("packed/first.txt");
+
+        fileStorage.removeUnreferencedFiles(LocalDateTime.now().minusHours(1));
+
+        assertThat(packedSections.get("packed/second.txt").getSegment()).isNotEqualTo(firstSegment.getFileName().toString());
+        assertThat(read("packed/second.txt")).isEqualTo(bytes(100, 'b'));
+
+        fileStorage.removeUnreferencedFiles(LocalDateTime.now().plusHours(1));
+
+        assertThat(firstSegment).doesNotExist();
+        assertThat(read("packed/second.txt")).isEqualTo(bytes(100, 'b'));
+        assertThat(read("packed/third.txt")).isEqualTo(bytes(100, 'c'));
+    }
+
+    @Test
+    void removeUnreferencedFiles_whenSectionShared_shouldMoveSharedBytesOnce() throws IOException {
+        fileStorage.storeSection(new ByteArrayInputStream(bytes(100, 'a')), "first.txt", ContentEncoding.IDENTITY);
+        fileStorage.storeSection(new ByteArrayInputStream(bytes(100, 'b')), "second.txt", ContentEncoding.IDENTITY);
+        fileStorage.shareSection("packed/second.txt", "packed/copy.txt");
+        fileStorage.storeSection(new ByteArrayInputStream(bytes(100, 'c')), "third.txt", ContentEncoding.IDENTITY);
+        Path firstSegment = segmentFiles().getFirst();
+        fileStorage.deleteSection("packed/first.txt");
+
+        fileStorage.removeUnreferencedFiles(LocalDateTime.now().minusHours(1));
+
+        PackedSection second = packedSections.get("packed/second.txt");
+        PackedSection copy = packedSections.get("packed/copy.txt");
+        assertThat(second.getSegment()).isNotEqualTo(firstSegment.getFileName().toString());
+        assertThat(copy.getSegment()).isEqualTo(second.getSegment());
+        assertThat(copy.getOffset()).isEqualTo(second.getOffset());
+        assertThat(Files.size(basePath.resolve("segments").resolve(second.getSegment()))).isEqualTo(200);
+        assertThat(read("packed/copy.txt")).isEqualTo(bytes(100, 'b'));
+    }
+
+    @Test
+    void stageSection_whenPacked_shouldThrowException() {
+        assertThat(fileStorage.supportsStaging()).isFalse();
+        assertThatThrownBy(() -> fileStorage.stageSection(new ByteArrayInputStream(bytes(10, 'a')), "first.txt", ContentEncoding.IDENTITY))
+                .isInstanceOf(InvalidSystemStateException.class);
+        assertThat(basePath.resolve("staging")).doesNotExist();
+    }
+
+    private List<Path> segmentFiles() throws IOException {
+        try (Stream<Path> files = Files.list(basePath.resolve("segments"))) {
+            return files.sorted().toList();
+        }
+    }
+
+    private byte[] read(String storageLocation) throws IOException {
+        try (SectionContent content = fileStorage.openSection(storageLocation)) {
+            ByteArrayOutputStream outputStream = new ByteArrayOutputStream();
+            content.transferTo(0, content.size(), Channels.newChannel(outputStream));
+            return outputStream.toByteArray();
+        }
+    }
+
+    private static byte[] bytes(int length, char value) {
+        return String.valueOf(value).repeat(length).getBytes();
+    }
+}
@@ -0,0 +1,69 @@
+package com.example.documentstorage.unit.shared.base.filestorage;
+
+import com.example.documentstorage.shared.base.filestorage.cache.SectionCacheImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.Test;
+import org.springframework.util.unit.DataSize;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class SectionCacheTests {
+    private final SimpleMeterRegistry meterRegistry = new SimpleMeterRegistry();
+
+    @Test
+    void get_whenContentWasPut_shouldReturnCachedContent() {
+        SectionCacheImpl sectionCache = createCache(DataSize.ofKilobytes(10), DataSize.ofKilobytes(1));
+
+        assertThat(sectionCache.get("invoice.pdf")).isEmpty();
+        sectionCache.put("invoice.pdf", new byte[]{1, 2, 3});
+
+        assertThat(sectionCache.get("invoice.pdf")).hasValueSatisfying(content -> assertThat(content).containsExactly(1, 2, 3));
+        assertThat(meterRegistry.get("document.storage.cache.gets").tag("result", "hit").functionCounter().count()).isEqualTo(1);
+        assertThat(meterRegistry.get("document.storage.cache.gets").tag("result", "miss").functionCounter().count()).isEqualTo(1);
+    }
+
+    @Test
+    void get_whenContentWasInvalidated_shouldReturnEmpty() {
+        SectionCacheImpl sectionCache = createCache(DataSize.ofKilobytes(10), DataSize.ofKilobytes(1));
+        sectionCache.put("invoice.pdf", new byte[]{1, 2, 3});
+
+        sectionCache.invalidate("invoice.pdf");
+
+        assertThat(sectionCache.get("invoice.pdf")).isEmpty();
+        assertThat(meterRegistry.get("document.storage.cache.size").gauge().value()).isZero();
+    }
+
+    @Test
+    void admits_whenContentLargerThanMaxEntrySize_shouldNotAdmit() {
+        SectionCacheImpl sectionCache = createCache(DataSize.ofKilobytes(10), DataSize.ofBytes(100));
+
+        assertThat(sectionCache.admits("large.pdf", 101)).isFalse();
+        sectionCache.put("large.pdf", new byte[101]);
+
+        assertThat(sectionCache.get("large.pdf")).isEmpty();
+    }
+
+    @Test
+    void put_whenScanOfRarelyAccessedContent_shouldKeepFrequentlyAccessedContent() {
+        SectionCacheImpl sectionCache = createCache(DataSize.ofBytes(1000), DataSize.ofBytes(100));
+        sectionCache.get("template.pdf");
+        sectionCache.put("template.pdf", new byte[100]);
+        for (int i = 0; i < 5; i++) {
+            sectionCache.get("template.pdf");
+        }
+
+        for (int i = 0; i < 100; i++) {
+            String key = "scan-" + i + ".pdf";
+            sectionCache.get(key);
+            sectionCache.put(key, new byte[100]);
+        }
+
+        assertThat(sectionCache.get("template.pdf")).isPresent();
+        assertThat(meterRegistry.get("document.storage.cache.size").gauge().value()).isLessThanOrEqualTo(1000);
+        assertThat(meterRegistry.get("document.storage.cache.evictions").functionCounter().count()).isPositive();
+    }
+
+    private SectionCacheImpl createCache(DataSize maxSize, DataSize maxEntrySize) {
+        return new SectionCacheImpl(true, maxSize, maxEntrySize, meterRegistry);
+    }
+}
@@ -0,0 +1,146 @@
+package com.example.documentstorage.unit.shared.base.filestorage;
+
+import com.example.documentstorage.entities.SectionIntegrityFailure;
+import com.example.documentstorage.shared.base.apimessages.LocalizationService;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ContentEncoding;
+import com.example.documentstorage.shared.base.filestorage.DurabilityMode;
+import com.example.documentstorage.shared.base.filestorage.FileStorageImpl;
+import com.example.documentstorage.shared.base.filestorage.StorageDurabilityImpl;
+import com.example.documentstorage.shared.base.filestorage.StoredFile;
+import com.example.documentstorage.shared.base.filestorage.cache.SectionCache;
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityCandidate;
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityCheckSource;
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegrityFailureReason;
+import com.example.documentstorage.shared.base.filestorage.integrity.IntegritySectionRepository;
+import com.example.documentstorage.shared.base.filestorage.integrity.SectionIntegrityCheckerImpl;
+import com.example.documentstorage.shared.base.filestorage.integrity.SectionIntegrityFailureRepository;
+import com.example.documentstorage.shared.base.filestorage.integrity.ThroughputThrottle;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolumesImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mockito;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+import org.springframework.util.unit.DataSize;
+
+import java.io.ByteArrayInputStream;
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.nio.file.StandardOpenOption;
+import java.time.Duration;
+import java.util.List;
+import java.util.Optional;
+import java.util.stream.Stream;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class SectionIntegrityCheckerTests {
+    private static final byte[] CONTENT = "a,b,c\n".repeat(1000).getBytes();
+
+    @TempDir
+    private Path basePath;
+
+    private FileStorageImpl fileStorage;
+    private IntegritySectionRepository sectionRepository;
+    private SectionIntegrityFailureRepository failureRepository;
+    private SimpleMeterRegistry meterRegistry;
+    private SectionIntegrityCheckerImpl checker;
+
+    @BeforeEach
+    void setUp() {
+        fileStorage = new FileStorageImpl(
+                Mockito.mock(LocalizationService.class),
+                Mockito.mock(SectionCache.class),
+                new StorageDurabilityImpl(DurabilityMode.NONE, Duration.ZERO, 4),
+                new StorageVolumesImpl(basePath.toString(), List.of(), List.of(), DataSize.ofBytes(0), Duration.ZERO),
+                "");
+        sectionRepository = Mockito.mock(IntegritySectionRepository.class);
+        failureRepository = Mockito.mock(SectionIntegrityFailureRepository.class);
+        TransactionTemplate transactionTemplate = Mockito.mock(TransactionTemplate.class);
+        Mockito.when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(null));
+        Mockito.when(failureRepository.findBySectionIdAndStorageLocation(Mockito.anyInt(), any())).thenReturn(Optional.empty());
+        meterRegistry = new SimpleMeterRegistry();
+        checker = new SectionIntegrityCheckerImpl(fileStorage, sectionRepository, failureRepository, transactionTemplate, meterRegistry, true);
+    }
+
+    @Test
+    void checkSection_whenStoredFileMatches_shouldReturnTrueWithoutFailure() {
+        StoredFile storedFile = fileStorage.storeSection(new ByteArrayInputStream(CONTENT), "report_1.csv", ContentEncoding.GZIP);
+
+        boolean intact = checker.checkSection(toCandidate(storedFile), IntegrityCheckSource.SCRUB, new ThroughputThrottle(0));
+
+        assertThat(intact).isTrue();
+        verify(failureRepository, never()).save(any());
+        assertThat(meterRegistry.counter("document.storage.integrity.checks", "source", "SCRUB", "result", "VERIFIED").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void checkSection_whenStoredFileCorrupted_shouldRecordMismatch() throws IOException {
+        StoredFile storedFile = fileStorage.storeSection(new ByteArrayInputStream(CONTENT), "report_1.csv");
+        Path storedPath = findStoredFile();
+        byte[] corruptedContent = Files.readAllBytes(storedPath);
+        corruptedContent[10] ^= 1;
+        Files.write(storedPath, corruptedContent);
+        Mockito.when(sectionRepository.existsByIdAndStorageLocation(1, "report_1.csv")).thenReturn(true);
+
+        boolean intact = checker.checkSection(toCandidate(storedFile), IntegrityCheckSource.SCRUB, new ThroughputThrottle(0));
+
+        assertThat(intact).isFalse();
+        ArgumentCaptor<SectionIntegrityFailure> failureCaptor = ArgumentCaptor.forClass(SectionIntegrityFailure.class);
+        verify(failureRepository).save(failureCaptor.capture());
+        SectionIntegrityFailure failure = failureCaptor.getValue();
+        assertThat(failure.getSectionId()).isEqualTo(1);
+        assertThat(failure.getReason()).isEqualTo(IntegrityFailureReason.CHECKSUM_MISMATCH);
+        assertThat(failure.getExpectedChecksum()).isEqualTo(storedFile.checksum());
+        assertThat(failure.getActualChecksum()).isNotEqualTo(storedFile.checksum());
+        assertThat(meterRegistry.counter("document.storage.integrity.checks", "source", "SCRUB", "result", "CHECKSUM_MISMATCH").count())
+                .isEqualTo(1);
+    }
+
+    @Test
+    void checkSection_whenFileRemovedWithSection_shouldNotRecordFailure() {
+        IntegrityCandidate candidate = new IntegrityCandidate(1, "removed_1.csv", "abc", ContentEncoding.IDENTITY, 3);
+        Mockito.when(sectionRepository.existsByIdAndStorageLocation(1, "removed_1.csv")).thenReturn(false);
+
+        boolean intact = checker.checkSection(candidate, IntegrityCheckSource.SCRUB, new ThroughputThrottle(0));
+
+        assertThat(intact).isTrue();
+        verify(failureRepository, never()).save(any());
+    }
+
+    @Test
+    void verifyDownload_whenStoredFileHasAppendedBytes_shouldThrowException() throws IOException {
+        StoredFile storedFile = fileStorage.storeSection(new ByteArrayInputStream(CONTENT), "report_1.csv");
+        Path storedPath = findStoredFile();
+        Files.write(storedPath, Files.readAllBytes(storedPath), StandardOpenOption.APPEND);
+        Mockito.when(sectionRepository.existsByIdAndStorageLocation(1, "report_1.csv")).thenReturn(true);
+
+        assertThatThrownBy(() -> checker.verifyDownload(toCandidate(storedFile)))
+                .isInstanceOf(InvalidSystemStateException.class);
+
+        ArgumentCaptor<SectionIntegrityFailure> failureCaptor = ArgumentCaptor.forClass(SectionIntegrityFailure.class);
+        verify(failureRepository).save(failureCaptor.capture());
+        assertThat(failureCaptor.getValue().getDetectedBy()).isEqualTo(IntegrityCheckSource.DOWNLOAD);
+    }
+
+    private Path findStoredFile() throws IOException {
+        try (Stream<Path> files = Files.walk(basePath)) {
+            return files.filter(Files::isRegularFile).findFirst().orElseThrow();
+        }
+    }
+
+    private static IntegrityCandidate toCandidate(StoredFile storedFile) {
+        return new IntegrityCandidate(1, storedFile.storageLocation(), storedFile.checksum(), storedFile.encoding(), storedFile.size());
+    }
+}
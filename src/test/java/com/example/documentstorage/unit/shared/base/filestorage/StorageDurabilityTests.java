@@ -0,0 +1,67 @@
+package com.example.documentstorage.unit.shared.base.filestorage;
+
+import com.example.documentstorage.shared.base.filestorage.DurabilityMode;
+import com.example.documentstorage.shared.base.filestorage.StorageDurabilityImpl;
+import org.junit.jupiter.api.AfterEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.NoSuchFileException;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.ArrayList;
+import java.util.List;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StorageDurabilityTests {
+    @TempDir
+    private Path basePath;
+
+    private StorageDurabilityImpl storageDurability;
+
+    @AfterEach
+    void tearDown() {
+        if (storageDurability != null) {
+            storageDurability.stop();
+        }
+    }
+
+    @Test
+    void syncFile_whenGroupModeAndConcurrentWriters_shouldSyncAllFiles() throws Exception {
+        storageDurability = new StorageDurabilityImpl(DurabilityMode.GROUP, Duration.ofMillis(5), 4);
+        ExecutorService executor = Executors.newFixedThreadPool(8);
+        try {
+            List<Future<Path>> syncs = new ArrayList<>();
+            for (int i = 0; i < 32; i++) {
+                Path filePath = Files.write(basePath.resolve("section_" + i + ".pdf"), new byte[]{1, 2, 3});
+                syncs.add(executor.submit(() -> {
+                    storageDurability.syncFile(filePath);
+                    return filePath;
+                }));
+            }
+
+            for (Future<Path> sync : syncs) {
+                assertThat(sync.get()).exists();
+            }
+        } finally {
+            executor.shutdownNow();
+        }
+    }
+
+    @Test
+    void syncFile_whenGroupModeAndFileMissing_shouldFailOnlyThatRequest() throws IOException {
+        storageDurability = new StorageDurabilityImpl(DurabilityMode.GROUP, Duration.ofMillis(1), 4);
+        Path filePath = Files.write(basePath.resolve("section_1.pdf"), new byte[]{1, 2, 3});
+
+        assertThatThrownBy(() -> storageDurability.syncFile(basePath.resolve("missing.pdf")))
+                .isInstanceOf(NoSuchFileException.class);
+        storageDurability.syncFile(filePath);
+    }
+}
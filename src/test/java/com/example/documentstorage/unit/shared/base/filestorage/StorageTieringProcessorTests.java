@@ -0,0 +1,124 @@
+package com.example.documentstorage.unit.shared.base.filestorage;
+
+import com.example.documentstorage.entities.TransactionActionRecord;
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.ActionType;
+import com.example.documentstorage.shared.base.filestorage.FileStorage;
+import com.example.documentstorage.shared.base.filestorage.TransactionActionRecordRepository;
+import com.example.documentstorage.shared.base.filestorage.tiering.StorageTieringProcessor;
+import com.example.documentstorage.shared.base.filestorage.tiering.TieringCandidate;
+import com.example.documentstorage.shared.base.filestorage.tiering.TieringSectionRepository;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.extension.ExtendWith;
+import org.mockito.ArgumentCaptor;
+import org.mockito.Mock;
+import org.mockito.Mockito;
+import org.mockito.junit.jupiter.MockitoExtension;
+import org.mockito.junit.jupiter.MockitoSettings;
+import org.mockito.quality.Strictness;
+import org.springframework.transaction.TransactionStatus;
+import org.springframework.transaction.support.TransactionCallback;
+import org.springframework.transaction.support.TransactionTemplate;
+
+import java.util.List;
+import java.util.Map;
+import java.util.function.Function;
+import java.util.stream.Collectors;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.mockito.ArgumentMatchers.any;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyString;
+import static org.mockito.ArgumentMatchers.eq;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+@ExtendWith(MockitoExtension.class)
+@MockitoSettings(strictness = Strictness.LENIENT)
+class StorageTieringProcessorTests {
+    private static final TieringCandidate CANDIDATE = new TieringCandidate(7, "invoice.pdf", "invoice_1.pdf");
+
+    @Mock
+    private TieringSectionRepository sectionRepository;
+
+    @Mock
+    private TransactionActionRecordRepository transactionActionRecordRepository;
+
+    @Mock
+    private TransactionTemplate transactionTemplate;
+
+    @Mock
+    private FileStorage fileStorage;
+
+    @Mock
+    private TransactionStatus transactionStatus;
+
+    private StorageTieringProcessor processor;
+
+    @BeforeEach
+    void setUp() {
+        Mockito.when(transactionTemplate.execute(any()))
+                .thenAnswer(invocation -> invocation.<TransactionCallback<?>>getArgument(0).doInTransaction(transactionStatus));
+        Mockito.when(fileStorage.supportsTiering(anyString())).thenReturn(true);
+        Mockito.when(fileStorage.generateSystemFileName("invoice.pdf")).thenReturn("invoice_2.pdf");
+        Mockito.when(sectionRepository.findDemotionCandidates(eq(0), eq("cold/%"), any())).thenReturn(List.of(CANDIDATE));
+        Mockito.when(sectionRepository.findDemotionCandidates(eq(7), eq("cold/%"), any())).thenReturn(List.of());
+        Mockito.when(sectionRepository.findPromotionCandidates(anyInt(), eq("cold/%"), any())).thenReturn(List.of());
+
+        processor = new StorageTieringProcessor(
+                sectionRepository,
+                transactionActionRecordRepository,
+                transactionTemplate,
+                fileStorage,
+                "/cold",
+                30,
+                24);
+    }
+
+    @Test
+    void moveSections_whenSectionNotAccessed_shouldCopyToColdTierAndCommitMove() {
+        Mockito.when(sectionRepository.updateStorageLocation(7, "invoice_1.pdf", "cold/invoice_2.pdf")).thenReturn(1);
+
+        processor.moveSections();
+
+        verify(fileStorage).copySection("invoice_1.pdf", "cold/invoice_2.pdf");
+        Map<ActionType, TransactionActionRecord> actions = savedActions();
+        assertThat(actions.get(ActionType.CREATE).getStorageLocation()).isEqualTo("cold/invoice_2.pdf");
+        assertThat(actions.get(ActionType.CREATE).isCommitted()).isTrue();
+        assertThat(actions.get(ActionType.DELETE).getStorageLocation()).isEqualTo("invoice_1.pdf");
+        assertThat(actions.get(ActionType.DELETE).getParentRecord()).isSameAs(actions.get(ActionType.CREATE));
+        assertThat(actions.get(ActionType.DELETE).isCommitted()).isTrue();
+        verify(fileStorage, never()).deleteSection(any());
+    }
+
+    @Test
+    void moveSections_whenSectionChangedDuringCopy_shouldRollBackAndLeaveActionsUncommitted() {
+        Mockito.when(sectionRepository.updateStorageLocation(7, "invoice_1.pdf", "cold/invoice_2.pdf")).thenReturn(0);
+
+        processor.moveSections();
+
+        verify(transactionStatus).setRollbackOnly();
+        Map<ActionType, TransactionActionRecord> actions = savedActions();
+        assertThat(actions.get(ActionType.CREATE).isCommitted()).isFalse();
+        assertThat(actions.get(ActionType.DELETE).isCommitted()).isFalse();
+    }
+
+    @Test
+    void moveSections_whenCopyFails_shouldNotUpdateSection() {
+        Mockito.doThrow(new InvalidSystemStateException(new RuntimeException()))
+                .when(fileStorage).copySection(anyString(), anyString());
+
+        processor.moveSections();
+
+        verify(sectionRepository, never()).updateStorageLocation(anyInt(), anyString(), anyString());
+        assertThat(savedActions().values()).noneMatch(TransactionActionRecord::isCommitted);
+    }
+
+    private Map<ActionType, TransactionActionRecord> savedActions() {
+        ArgumentCaptor<TransactionActionRecord> captor = ArgumentCaptor.forClass(TransactionActionRecord.class);
+        verify(transactionActionRecordRepository, Mockito.atLeastOnce()).save(captor.capture());
+        return captor.getAllValues().stream()
+                .collect(Collectors.toMap(TransactionActionRecord::getActionType, Function.identity(), (first, second) -> first));
+    }
+}
@@ -0,0 +1,67 @@
+package com.example.documentstorage.unit.shared.base.filestorage;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidClientInputException;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageRepository;
+import com.example.documentstorage.shared.base.filestorage.usage.StorageUsageTrackerImpl;
+import io.micrometer.core.instrument.simple.SimpleMeterRegistry;
+import org.junit.jupiter.api.BeforeEach;
+import org.junit.jupiter.api.Test;
+import org.mockito.Mockito;
+import org.springframework.util.unit.DataSize;
+
+import java.util.Optional;
+
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+import static org.mockito.ArgumentMatchers.anyInt;
+import static org.mockito.ArgumentMatchers.anyLong;
+import static org.mockito.Mockito.never;
+import static org.mockito.Mockito.verify;
+
+class StorageUsageTrackerTests {
+    private StorageUsageRepository usageRepository;
+    private StorageUsageTrackerImpl usageTracker;
+
+    @BeforeEach
+    void setUp() {
+        usageRepository = Mockito.mock(StorageUsageRepository.class);
+        usageTracker = new StorageUsageTrackerImpl(usageRepository, new SimpleMeterRegistry(), DataSize.ofBytes(100), DataSize.ofBytes(1000));
+    }
+
+    @Test
+    void checkQuota_whenUploadExceedsDataRecordQuota_shouldThrowException() {
+        Mockito.when(usageRepository.findUsedBytesByDataRecordId(1)).thenReturn(Optional.of(90L));
+
+        assertThatThrownBy(() -> usageTracker.checkQuota(1, 20))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'shared.base.filestorage.usage.on.upload.data.record.quota.exceeded'");
+    }
+
+    @Test
+    void checkQuota_whenUnknownLengthAndStoreFull_shouldThrowException() {
+        Mockito.when(usageRepository.findUsedBytesByDataRecordId(1)).thenReturn(Optional.of(0L));
+        Mockito.when(usageRepository.sumUsedBytes()).thenReturn(1000L);
+
+        assertThatThrownBy(() -> usageTracker.checkQuota(1, -1))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'shared.base.filestorage.usage.on.upload.total.quota.exceeded'");
+    }
+
+    @Test
+    void addUsage_whenDataRecordUpdateRejected_shouldThrowExceptionWithoutChangingStore() {
+        Mockito.when(usageRepository.addToDataRecord(1, 20, 1, 100)).thenReturn(0);
+
+        assertThatThrownBy(() -> usageTracker.addUsage(1, 20, 1))
+                .isInstanceOf(InvalidClientInputException.class)
+                .hasMessage("Key for message 'shared.base.filestorage.usage.on.upload.data.record.quota.exceeded'");
+
+        verify(usageRepository, never()).addToStripe(anyInt(), anyLong(), anyLong());
+    }
+
+    @Test
+    void removeUsage_whenSectionsRemoved_shouldSubtractFromDataRecordAndStripe() {
+        usageTracker.removeUsage(17, 30, 2);
+
+        verify(usageRepository).addToDataRecord(17, -30, -2, 0);
+        verify(usageRepository).addToStripe(1, -30, -2);
+    }
+}
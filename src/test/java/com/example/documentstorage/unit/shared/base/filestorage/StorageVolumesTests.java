@@ -0,0 +1,86 @@
+package com.example.documentstorage.unit.shared.base.filestorage;
+
+import com.example.documentstorage.shared.base.exceptions.InvalidSystemStateException;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolume;
+import com.example.documentstorage.shared.base.filestorage.volumes.StorageVolumesImpl;
+import org.junit.jupiter.api.Test;
+import org.junit.jupiter.api.io.TempDir;
+import org.springframework.util.unit.DataSize;
+
+import java.io.IOException;
+import java.nio.file.Files;
+import java.nio.file.Path;
+import java.time.Duration;
+import java.util.List;
+
+import static org.assertj.core.api.Assertions.assertThat;
+import static org.assertj.core.api.Assertions.assertThatThrownBy;
+
+class StorageVolumesTests {
+    @TempDir
+    private Path basePath;
+
+    @TempDir
+    private Path secondPath;
+
+    @TempDir
+    private Path thirdPath;
+
+    @Test
+    void getVolume_whenLocationHasVolumePrefix_shouldResolveVolume() {
+        StorageVolumesImpl storageVolumes = createVolumes(List.of());
+
+        StorageVolume volume = storageVolumes.getVolume("volumes/2/invoice_1.pdf");
+
+        assertThat(volume.getRoot()).isEqualTo(thirdPath);
+        assertThat(volume.toRelativeLocation("volumes/2/invoice_1.pdf")).isEqualTo("invoice_1.pdf");
+        assertThat(storageVolumes.getVolume("invoice_1.pdf").getRoot()).isEqualTo(basePath);
+        assertThat(storageVolumes.getVolume("cold/invoice_1.pdf").getRoot()).isEqualTo(basePath);
+        assertThatThrownBy(() -> storageVolumes.getVolume("volumes/3/invoice_1.pdf"))
+                .isInstanceOf(InvalidSystemStateException.class);
+    }
+
+    @Test
+    void selectVolume_whenVolumesHaveWritesInProgress_shouldSelectVolumeWithFewestWrites() {
+        StorageVolumesImpl storageVolumes = createVolumes(List.of());
+        storageVolumes.getVolumes().get(0).startWrite();
+        storageVolumes.getVolumes().get(2).startWrite();
+
+        StorageVolume volume = storageVolumes.selectVolume();
+
+        assertThat(volume.getIndex()).isEqualTo(1);
+        assertThat(volume.toLocation("invoice_1.pdf")).isEqualTo("volumes/1/invoice_1.pdf");
+    }
+
+    @Test
+    void selectVolume_whenVolumeDraining_shouldNeverSelectIt() {
+        StorageVolumesImpl storageVolumes = createVolumes(List.of(0, 1));
+        storageVolumes.getVolumes().get(2).startWrite();
+
+        assertThat(storageVolumes.selectVolume().getIndex()).isEqualTo(2);
+    }
+
+    @Test
+    void selectVolume_whenVolumeUnreachable_shouldSelectOtherVolume() throws IOException {
+        // The root of the second volume can not be created below a regular file
+        Path blockingFile = Files.write(basePath.resolve("section_1.pdf"), new byte[]{1, 2, 3});
+        StorageVolumesImpl storageVolumes = new StorageVolumesImpl(
+                basePath.toString(),
+                List.of(blockingFile.resolve("volume").toString()),
+                List.of(),
+                DataSize.ofBytes(0),
+                Duration.ZERO);
+        storageVolumes.getVolumes().get(0).startWrite();
+
+        assertThat(storageVolumes.selectVolume().getIndex()).isZero();
+    }
+
+    private StorageVolumesImpl createVolumes(List<Integer> drainingVolumes) {
+        return new StorageVolumesImpl(
+                basePath.toString(),
+                List.of(secondPath.toString(), thirdPath.toString()),
+                drainingVolumes,
+                DataSize.ofBytes(0),
+                Duration.ZERO);
+    }
+}
@@ -0,0 +1,58 @@
+package com.example.documentstorage.unit.shared.base.ids;
+
+import com.example.documentstorage.shared.base.ids.TimeOrderedIds;
+import org.junit.jupiter.api.Test;
+
+import java.util.ArrayList;
+import java.util.Collections;
+import java.util.List;
+import java.util.Set;
+import java.util.UUID;
+import java.util.concurrent.ConcurrentHashMap;
+import java.util.concurrent.ExecutorService;
+import java.util.concurrent.Executors;
+import java.util.concurrent.Future;
+
+import static org.assertj.core.api.Assertions.assertThat;
+
+class TimeOrderedIdsTests {
+
+    @Test
+    void nextUuid_whenGeneratedInSequence_shouldBeVersion7AndIncreasing() {
+        List<UUID> uuids = new ArrayList<>();
+        for (int i = 0; i < 10_000; i++) {
+            uuids.add(TimeOrderedIds.nextUuid());
+        }
+
+        assertThat(uuids).allSatisfy(uuid -> {
+            assertThat(uuid.version()).isEqualTo(7);
+            assertThat(uuid.variant()).isEqualTo(2);
+        });
+        List<String> keys = uuids.stream().map(TimeOrderedIds::toKey).toList();
+        List<String> sortedKeys = new ArrayList<>(keys);
+        Collections.sort(sortedKeys);
+        assertThat(keys).isEqualTo(sortedKeys).doesNotHaveDuplicates();
+        assertThat(keys).allSatisfy(key -> assertThat(key).matches("[0-9A-HJKMNP-TV-Z]{26}"));
+    }
+
+    @Test
+    void nextKey_whenGeneratedByManyThreads_shouldNeverCollide() throws Exception {
+        Set<String> keys = ConcurrentHashMap.newKeySet();
+        try (ExecutorService executor = Executors.newFixedThreadPool(8)) {
+            List<Future<?>> futures = new ArrayList<>();
+            for (int thread = 0; thread < 8; thread++) {
+                futures.add(executor.submit(() -> {
+                    for (int i = 0; i < 10_000; i++) {
+                        keys.add(TimeOrderedIds.nextKey());
+                    }
+                }));
+            }
+
+            for (Future<?> future : futures) {
+                future.get();
+            }
+        }
+
+        assertThat(keys).hasSize(80_000);
+    }
+}